@@ -19,12 +19,15 @@ package com.warxim.petep;
 import com.warxim.petep.bootstrap.CommandLineArguments;
 import com.warxim.petep.common.Constant;
 import com.warxim.petep.common.ContextType;
+import com.warxim.petep.configuration.CoreConfigLoader;
+import com.warxim.petep.configuration.CoreConfigSaver;
 import com.warxim.petep.configuration.ExtensionsLoader;
 import com.warxim.petep.configuration.ExtensionsSaver;
 import com.warxim.petep.configuration.ModulesLoader;
 import com.warxim.petep.configuration.ModulesSaver;
 import com.warxim.petep.configuration.ProjectLoader;
 import com.warxim.petep.configuration.ProjectSaver;
+import com.warxim.petep.core.CoreConfig;
 import com.warxim.petep.core.PetepManager;
 import com.warxim.petep.core.listener.PetepListenerManager;
 import com.warxim.petep.exception.ConfigurationException;
@@ -56,6 +59,7 @@ public final class Bundle {
      */
     private String projectPath;
     private Project project;
+    private CoreConfig coreConfig;
     private ContextType contextType;
 
     /*
@@ -99,6 +103,7 @@ public final class Bundle {
         var configDirectory = Path.of(FileUtils.getProjectFileAbsolutePath(Constant.PROJECT_CONFIG_DIRECTORY));
 
         project = ProjectLoader.load(configDirectory.resolve(Constant.PROJECT_CONFIG_FILE).toString());
+        coreConfig = CoreConfigLoader.load(configDirectory.resolve(Constant.CORE_CONFIG_FILE).toString());
 
         receiverManager = new ReceiverManager();
         // Create managers.
@@ -131,7 +136,8 @@ public final class Bundle {
                 proxyModuleContainer,
                 interceptorModuleContainerC2S,
                 interceptorModuleContainerS2C,
-                petepListenerManager);
+                petepListenerManager,
+                coreConfig);
     }
 
     /**
@@ -145,6 +151,10 @@ public final class Bundle {
                 configDirectory.resolve(Constant.PROJECT_CONFIG_FILE).toString(),
                 project);
 
+        CoreConfigSaver.save(
+                configDirectory.resolve(Constant.CORE_CONFIG_FILE).toString(),
+                coreConfig);
+
         ExtensionsSaver.save(
                 configDirectory.resolve(Constant.EXTENSIONS_CONFIG_FILE).toString(),
                 extensionManager.getList());
@@ -49,6 +49,7 @@ public final class Constant {
 
     public static final String PROJECT_CONFIG_DIRECTORY = "conf";
     public static final String PROJECT_CONFIG_FILE = "project.json";
+    public static final String CORE_CONFIG_FILE = "core.json";
     public static final String EXTENSIONS_CONFIG_FILE = "extensions.json";
     public static final String PROXIES_CONFIG_FILE = "proxies.json";
     public static final String INTERCEPTORS_C2S_CONFIG_FILE = "interceptors-C2S.json";
@@ -0,0 +1,67 @@
+/*
+ * PEnetration TEsting Proxy (PETEP)
+ *
+ * Copyright (C) 2023 Michal Válka
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <https://www.gnu.org/licenses/>.
+ */
+package com.warxim.petep.configuration;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.warxim.petep.common.Constant;
+import com.warxim.petep.core.CoreConfig;
+import com.warxim.petep.exception.ConfigurationException;
+import com.warxim.petep.util.GsonUtils;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.logging.Logger;
+
+/**
+ * Static class for core configuration loading.
+ */
+public final class CoreConfigLoader {
+    private CoreConfigLoader() {
+    }
+
+    /**
+     * Loads core configuration from specified path.
+     * <p>If the configuration file does not exist, default configuration is returned.</p>
+     * @param path Path to core configuration file
+     * @return Loaded core configuration
+     * @throws ConfigurationException If the core configuration could not be loaded
+     */
+    public static CoreConfig load(String path) throws ConfigurationException {
+        if (!Files.exists(Path.of(path))) {
+            return CoreConfig.createDefault();
+        }
+
+        try (var reader = new JsonReader(new FileReader(path, Constant.FILE_CHARSET))) {
+            var config = GsonUtils.getGson().fromJson(JsonParser.parseReader(reader), CoreConfig.class);
+            if (config == null) {
+                return CoreConfig.createDefault();
+            }
+            if (config.getConnectionQueue() != null && config.getConnectionQueue().isBlocking()) {
+                Logger.getGlobal().warning("Connection queues cannot block PETEP core, DROP_NEWEST policy will be used instead of BLOCK!");
+            }
+            return config;
+        } catch (JsonParseException e) {
+            throw new ConfigurationException("Could not parse core configuration!", e);
+        } catch (IOException e) {
+            throw new ConfigurationException("Could not load core configuration!", e);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * PEnetration TEsting Proxy (PETEP)
+ *
+ * Copyright (C) 2023 Michal Válka
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <https://www.gnu.org/licenses/>.
+ */
+package com.warxim.petep.configuration;
+
+import com.warxim.petep.common.Constant;
+import com.warxim.petep.core.CoreConfig;
+import com.warxim.petep.exception.ConfigurationException;
+import com.warxim.petep.util.GsonUtils;
+
+import java.io.FileWriter;
+import java.io.IOException;
+
+/**
+ * Static class for core configuration saving.
+ */
+public final class CoreConfigSaver {
+    private CoreConfigSaver() {
+    }
+
+    /**
+     * Saves core configuration to specified path.
+     * @param path Path to core configuration file
+     * @param config Core configuration to be stored
+     * @throws ConfigurationException If the core configuration could not be saved
+     */
+    public static void save(String path, CoreConfig config) throws ConfigurationException {
+        var gson = GsonUtils.getGson();
+
+        try (var writer = gson.newJsonWriter(new FileWriter(path, Constant.FILE_CHARSET))) {
+            gson.toJson(gson.toJsonTree(config), writer);
+        } catch (IOException e) {
+            throw new ConfigurationException("Could not save core configuration!", e);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * PEnetration TEsting Proxy (PETEP)
+ *
+ * Copyright (C) 2023 Michal Válka
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <https://www.gnu.org/licenses/>.
+ */
+package com.warxim.petep.core;
+
+import com.warxim.petep.core.connection.ConnectionExecutorType;
+import com.warxim.petep.core.pdu.PduQueueConfig;
+import com.warxim.petep.extension.PetepAPI;
+import com.warxim.petep.interceptor.worker.InterceptorExecutorConfig;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Configuration of PETEP core.
+ * <p>Stored in project configuration directory, missing values are replaced by defaults.</p>
+ */
+@PetepAPI
+@Builder
+@Value
+public class CoreConfig {
+    /**
+     * Configuration of interceptor executor in direction C2S (client -&gt; server).
+     */
+    InterceptorExecutorConfig interceptorExecutorC2S;
+
+    /**
+     * Configuration of interceptor executor in direction S2C (client &lt;- server).
+     */
+    InterceptorExecutorConfig interceptorExecutorS2C;
+
+    /**
+     * Configuration of outgoing queues of connections (queues between PETEP core and proxy writers).
+     */
+    PduQueueConfig connectionQueue;
+
+    /**
+     * Type of threads running connection tasks ({@code null} means platform threads).
+     */
+    ConnectionExecutorType connectionExecutor;
+
+    /**
+     * Creates default configuration.
+     * @return Default core configuration
+     */
+    public static CoreConfig createDefault() {
+        return CoreConfig.builder()
+                .interceptorExecutorC2S(InterceptorExecutorConfig.createDefault())
+                .interceptorExecutorS2C(InterceptorExecutorConfig.createDefault())
+                .connectionQueue(PduQueueConfig.createDefault())
+                .connectionExecutor(ConnectionExecutorType.PLATFORM)
+                .build();
+    }
+}
@@ -16,6 +16,7 @@
  */
 package com.warxim.petep.core;
 
+import com.warxim.petep.core.connection.ConnectionExecutorFactory;
 import com.warxim.petep.core.listener.ConnectionListenerManager;
 import com.warxim.petep.core.listener.PetepListener;
 import com.warxim.petep.core.pdu.PDU;
@@ -39,6 +40,8 @@ public final class PETEP {
     private final PetepListener petepListener;
     private final ConnectionListenerManager connectionListenerManager;
     private final PetepHelper helper;
+    private final CoreConfig config;
+    private final ConnectionExecutorFactory connectionExecutorFactory;
 
     // Managers
     private final ProxyManager proxyManager;
@@ -65,7 +68,31 @@ public final class PETEP {
             InterceptorModuleContainer interceptorModuleContainerC2S,
             InterceptorModuleContainer interceptorModuleContainerS2C,
             PetepListener petepListener) {
+        this(
+                proxyModuleContainer,
+                interceptorModuleContainerC2S,
+                interceptorModuleContainerS2C,
+                petepListener,
+                CoreConfig.createDefault());
+    }
+
+    /**
+     * Constructs PETEP core.
+     * @param proxyModuleContainer Container of proxy modules, which should be started
+     * @param interceptorModuleContainerC2S Container of interceptor modules in direction C2S, which should be started
+     * @param interceptorModuleContainerS2C Container of interceptor modules in direction S2C, which should be started
+     * @param petepListener Listener for listening on PETEP core state changes.
+     * @param config Configuration of PETEP core
+     */
+    public PETEP(
+            ProxyModuleContainer proxyModuleContainer,
+            InterceptorModuleContainer interceptorModuleContainerC2S,
+            InterceptorModuleContainer interceptorModuleContainerS2C,
+            PetepListener petepListener,
+            CoreConfig config) {
         this.petepListener = petepListener;
+        this.config = config;
+        this.connectionExecutorFactory = ConnectionExecutorFactory.create(config.getConnectionExecutor());
 
         // Create connection listener manager
         connectionListenerManager = new ConnectionListenerManager();
@@ -80,8 +107,8 @@ public final class PETEP {
 
         // Create executors.
         proxyExecutor = new ProxyExecutor(proxyManager);
-        interceptorExecutorC2S = new InterceptorExecutor(interceptorManagerC2S, this::send);
-        interceptorExecutorS2C = new InterceptorExecutor(interceptorManagerS2C, this::send);
+        interceptorExecutorC2S = new InterceptorExecutor(interceptorManagerC2S, config.getInterceptorExecutorC2S(), this::send);
+        interceptorExecutorS2C = new InterceptorExecutor(interceptorManagerS2C, config.getInterceptorExecutorS2C(), this::send);
 
         state = PetepState.STOPPED;
 
@@ -231,6 +258,21 @@ public final class PETEP {
         }
     }
 
+    /**
+     * Processes PDU internally without blocking
+     * <p>Sends PDU to appropriate interceptors, unless their queue is full and would block.</p>
+     * @param pdu PDU to be processed
+     * @return {@code false} if the PDU has not been accepted, because the queue is full
+     */
+    public boolean offer(PDU pdu) {
+        var interceptorId = pdu.getLastInterceptor() == null ? 0 : pdu.getLastInterceptor().getId() + 1;
+        if (pdu.getDestination() == PduDestination.SERVER) {
+            return interceptorExecutorC2S.offer(pdu, interceptorId);
+        } else {
+            return interceptorExecutorS2C.offer(pdu, interceptorId);
+        }
+    }
+
     /**
      * Processes PDU internally by sending it in specified interceptor
      * <p>Sends PDU to appropriate interceptors.</p>
@@ -253,6 +295,22 @@ public final class PETEP {
         return state;
     }
 
+    /**
+     * Get configuration of PETEP core.
+     * @return PETEP core configuration
+     */
+    public CoreConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Get factory of executors for connection tasks.
+     * @return Connection executor factory created according to the configuration
+     */
+    public ConnectionExecutorFactory getConnectionExecutorFactory() {
+        return connectionExecutorFactory;
+    }
+
     /**
      * Get helper for PETEP core.
      * @return PETEP core helper
@@ -32,6 +32,7 @@ public final class PetepManager implements PetepListener {
     private final InterceptorModuleContainer interceptorModuleContainerC2S;
     private final InterceptorModuleContainer interceptorModuleContainerS2C;
     private final PetepListenerManager petepListenerManager;
+    private final CoreConfig coreConfig;
 
     private PETEP petep;
 
@@ -41,16 +42,19 @@ public final class PetepManager implements PetepListener {
      * @param interceptorModuleContainerC2S Container of interceptor modules in direction C2S, which should be started
      * @param interceptorModuleContainerS2C Container of interceptor modules in direction S2C, which should be started
      * @param petepListenerManager Manager of listeners for listening on PETEP core state changes.
+     * @param coreConfig Configuration of PETEP core
      */
     public PetepManager(
             ProxyModuleContainer proxyModuleContainer,
             InterceptorModuleContainer interceptorModuleContainerC2S,
             InterceptorModuleContainer interceptorModuleContainerS2C,
-            PetepListenerManager petepListenerManager) {
+            PetepListenerManager petepListenerManager,
+            CoreConfig coreConfig) {
         this.proxyModuleContainer = proxyModuleContainer;
         this.interceptorModuleContainerC2S = interceptorModuleContainerC2S;
         this.interceptorModuleContainerS2C = interceptorModuleContainerS2C;
         this.petepListenerManager = petepListenerManager;
+        this.coreConfig = coreConfig;
 
         petep = null;
 
@@ -65,7 +69,7 @@ public final class PetepManager implements PetepListener {
             return;
         }
 
-        petep = new PETEP(proxyModuleContainer, interceptorModuleContainerC2S, interceptorModuleContainerS2C, petepListenerManager);
+        petep = new PETEP(proxyModuleContainer, interceptorModuleContainerC2S, interceptorModuleContainerS2C, petepListenerManager, coreConfig);
 
         petep.start();
     }
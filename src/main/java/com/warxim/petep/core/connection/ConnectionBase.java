@@ -16,9 +16,11 @@
  */
 package com.warxim.petep.core.connection;
 
+import com.warxim.petep.core.pdu.BackpressurePolicy;
 import com.warxim.petep.core.pdu.PDU;
 import com.warxim.petep.core.pdu.PduDestination;
 import com.warxim.petep.core.pdu.PduQueue;
+import com.warxim.petep.core.pdu.PduQueueConfig;
 import com.warxim.petep.extension.PetepAPI;
 import com.warxim.petep.proxy.worker.Proxy;
 
@@ -54,10 +56,24 @@ public abstract class ConnectionBase implements Connection {
      * @param proxy Proxy to which the connection belongs
      */
     protected ConnectionBase(String code, Proxy proxy) {
+        this(code, proxy, null);
+    }
+
+    /**
+     * Constructs connection with configured outgoing queues.
+     * <p>Outgoing queues are filled by PETEP core, which is shared by all connections, so they never block.
+     * Bounded queues with {@link BackpressurePolicy#BLOCK} policy drop the newest PDUs instead,
+     * so that slow connection does not stall the other connections.</p>
+     * @param code Unique code of the connection
+     * @param proxy Proxy to which the connection belongs
+     * @param queueConfig Configuration of outgoing queues ({@code null} for unbounded queues)
+     */
+    protected ConnectionBase(String code, Proxy proxy, PduQueueConfig queueConfig) {
         this.code = code;
         this.proxy = proxy;
-        this.queueC2S = new PduQueue();
-        this.queueS2C = new PduQueue();
+        var nonBlockingConfig = toNonBlocking(queueConfig);
+        this.queueC2S = new PduQueue(nonBlockingConfig);
+        this.queueS2C = new PduQueue(nonBlockingConfig);
     }
 
     @Override
@@ -108,6 +124,21 @@ public abstract class ConnectionBase implements Connection {
     @Override
     public abstract void stop();
 
+    /**
+     * Replaces blocking backpressure policy of bounded queue configuration by dropping of the newest PDUs.
+     */
+    private static PduQueueConfig toNonBlocking(PduQueueConfig queueConfig) {
+        if (queueConfig == null || !queueConfig.isBlocking()) {
+            return queueConfig;
+        }
+        return PduQueueConfig.builder()
+                .type(queueConfig.getType())
+                .capacity(queueConfig.getCapacity())
+                .backpressurePolicy(BackpressurePolicy.DROP_NEWEST)
+                .waitStrategy(queueConfig.getWaitStrategy())
+                .build();
+    }
+
     /**
      * Processes PDU in PETEP
      * <p>Puts PDU into internal PETEP processing, which consists of various configured interceptors.</p>
@@ -116,4 +147,15 @@ public abstract class ConnectionBase implements Connection {
     protected void process(PDU pdu) {
         proxy.getHelper().processPdu(pdu);
     }
+
+    /**
+     * Processes PDU in PETEP without blocking
+     * <p>Puts PDU into internal PETEP processing, unless the input queue is full.
+     * Used by connections, which must not block (e.g. event loops).</p>
+     * @param pdu PDU to be processed
+     * @return {@code false} if the PDU has not been accepted (connection should try again later)
+     */
+    protected boolean offer(PDU pdu) {
+        return proxy.getHelper().offerPdu(pdu);
+    }
 }
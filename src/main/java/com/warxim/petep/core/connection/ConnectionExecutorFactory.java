@@ -0,0 +1,53 @@
+/*
+ * PEnetration TEsting Proxy (PETEP)
+ *
+ * Copyright (C) 2023 Michal Válka
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <https://www.gnu.org/licenses/>.
+ */
+package com.warxim.petep.core.connection;
+
+import com.warxim.petep.extension.PetepAPI;
+
+import java.util.concurrent.ExecutorService;
+import java.util.logging.Logger;
+
+/**
+ * Factory for executors running connection tasks (reading/writing of connection streams).
+ * <p>Every connection gets its own executor, so that it can interrupt its tasks using
+ * {@link ExecutorService#shutdownNow()} when it is being stopped.</p>
+ */
+@PetepAPI
+public interface ConnectionExecutorFactory {
+    /**
+     * Creates executor for tasks of single connection.
+     * @param tasks Number of tasks that the connection runs in parallel
+     * @return Executor for connection tasks
+     */
+    ExecutorService createExecutor(int tasks);
+
+    /**
+     * Creates executor factory of specified type.
+     * <p>Falls back to platform threads, if virtual threads are not supported by the runtime.</p>
+     * @param type Type of the executor ({@code null} for platform threads)
+     * @return Connection executor factory
+     */
+    static ConnectionExecutorFactory create(ConnectionExecutorType type) {
+        if (type == ConnectionExecutorType.VIRTUAL) {
+            if (VirtualConnectionExecutorFactory.isSupported()) {
+                return new VirtualConnectionExecutorFactory();
+            }
+            Logger.getGlobal().warning("Virtual threads are not supported by the runtime, using platform threads for connections.");
+        }
+        return new PlatformConnectionExecutorFactory();
+    }
+}
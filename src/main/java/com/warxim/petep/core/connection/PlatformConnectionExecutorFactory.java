@@ -0,0 +1,33 @@
+/*
+ * PEnetration TEsting Proxy (PETEP)
+ *
+ * Copyright (C) 2023 Michal Válka
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <https://www.gnu.org/licenses/>.
+ */
+package com.warxim.petep.core.connection;
+
+import com.warxim.petep.extension.PetepAPI;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Connection executor factory, which creates fixed pool of platform threads for each connection.
+ */
+@PetepAPI
+public final class PlatformConnectionExecutorFactory implements ConnectionExecutorFactory {
+    @Override
+    public ExecutorService createExecutor(int tasks) {
+        return Executors.newFixedThreadPool(tasks);
+    }
+}
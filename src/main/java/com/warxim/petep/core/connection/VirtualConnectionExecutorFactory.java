@@ -0,0 +1,78 @@
+/*
+ * PEnetration TEsting Proxy (PETEP)
+ *
+ * Copyright (C) 2023 Michal Válka
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <https://www.gnu.org/licenses/>.
+ */
+package com.warxim.petep.core.connection;
+
+import com.warxim.petep.extension.PetepAPI;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Connection executor factory, which runs each connection task in its own virtual thread.
+ * <p>Virtual threads are cheap, so the number of connections is not limited by the number of platform threads.</p>
+ * <p>Virtual threads are looked up using reflection, so that PETEP can still be built and run on older runtimes,
+ * use {@link #isSupported()} to check whether the runtime supports them.</p>
+ */
+@PetepAPI
+public final class VirtualConnectionExecutorFactory implements ConnectionExecutorFactory {
+    private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = findVirtualThreadPerTaskExecutorMethod();
+
+    /**
+     * Constructs virtual connection executor factory.
+     * @throws UnsupportedOperationException If the runtime does not support virtual threads
+     */
+    public VirtualConnectionExecutorFactory() {
+        if (!isSupported()) {
+            throw new UnsupportedOperationException("Virtual threads are not supported by the runtime!");
+        }
+    }
+
+    /**
+     * Checks whether the runtime supports virtual threads.
+     * @return {@code true} if virtual threads are supported
+     */
+    public static boolean isSupported() {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * Creates virtual-thread-per-task executor (number of tasks does not matter).
+     */
+    @Override
+    public ExecutorService createExecutor(int tasks) {
+        try {
+            return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Could not create virtual thread executor!", e);
+        }
+    }
+
+    private static Method findVirtualThreadPerTaskExecutorMethod() {
+        try {
+            var method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+
+            // Preview versions of virtual threads throw exception, unless preview features are enabled.
+            ((ExecutorService) method.invoke(null)).shutdown();
+
+            return method;
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            return null;
+        }
+    }
+}
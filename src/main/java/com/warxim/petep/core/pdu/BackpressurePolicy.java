@@ -0,0 +1,45 @@
+/*
+ * PEnetration TEsting Proxy (PETEP)
+ *
+ * Copyright (C) 2023 Michal Válka
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <https://www.gnu.org/licenses/>.
+ */
+package com.warxim.petep.core.pdu;
+
+import com.warxim.petep.extension.PetepAPI;
+
+/**
+ * Policy, which determines what happens when PDU is added to full bounded queue.
+ */
+@PetepAPI
+public enum BackpressurePolicy {
+    /**
+     * Blocks the producer until there is free space in the queue.
+     * <p>
+     *     Propagates the pressure back to the source (for example proxy reader thread stops reading from socket).
+     * </p>
+     * <p>
+     *     Not supported by outgoing queues of connections, which must not block PETEP core
+     *     (see {@link com.warxim.petep.core.connection.ConnectionBase}).
+     * </p>
+     */
+    BLOCK,
+    /**
+     * Drops the oldest PDU in the queue to make space for the new one.
+     */
+    DROP_OLDEST,
+    /**
+     * Drops the new PDU.
+     */
+    DROP_NEWEST
+}
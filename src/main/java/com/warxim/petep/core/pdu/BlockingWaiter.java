@@ -0,0 +1,80 @@
+/*
+ * PEnetration TEsting Proxy (PETEP)
+ *
+ * Copyright (C) 2023 Michal Válka
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <https://www.gnu.org/licenses/>.
+ */
+package com.warxim.petep.core.pdu;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Waiter, which blocks the thread on lock condition.
+ * <p>Signalling side takes the lock only if there is at least one waiting thread.</p>
+ */
+final class BlockingWaiter implements Waiter {
+    private final ReentrantLock lock;
+    private final Condition condition;
+    private final AtomicInteger waiting;
+
+    /**
+     * Constructs blocking waiter.
+     */
+    BlockingWaiter() {
+        lock = new ReentrantLock();
+        condition = lock.newCondition();
+        waiting = new AtomicInteger();
+    }
+
+    @Override
+    public long await(BooleanSupplier condition, long nanos) throws InterruptedException {
+        if (condition.getAsBoolean()) {
+            return nanos;
+        }
+
+        var remaining = nanos;
+        lock.lockInterruptibly();
+        try {
+            // Register waiting before re-checking, so that the signalling side cannot miss us.
+            waiting.incrementAndGet();
+            try {
+                while (!condition.getAsBoolean() && remaining > 0) {
+                    remaining = this.condition.awaitNanos(Math.min(remaining, TimeUnit.DAYS.toNanos(1)));
+                }
+            } finally {
+                waiting.decrementAndGet();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return remaining;
+    }
+
+    @Override
+    public void signal() {
+        if (waiting.get() == 0) {
+            return;
+        }
+
+        lock.lock();
+        try {
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * PEnetration TEsting Proxy (PETEP)
+ *
+ * Copyright (C) 2023 Michal Válka
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <https://www.gnu.org/licenses/>.
+ */
+package com.warxim.petep.core.pdu;
+
+import com.warxim.petep.extension.PetepAPI;
+
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Pool of data buffers, which can be leased by proxies for reading data instead of allocating new buffer for each read.
+ * <p>
+ *     Buffers are divided into size classes (powers of two), each class keeps up to configured number of free buffers
+ *     in lock-free {@link RingBufferQueue}. Leased buffer can be bigger than the requested size.
+ *     Requests bigger than the largest size class are allocated without pooling.
+ * </p>
+ * <p>Besides heap byte arrays, the pool can also provide off-heap direct byte buffers (for channel based IO).</p>
+ * <p>
+ *     Buffers, which are not released, are simply garbage collected. In order to find such buffers,
+ *     leak detection can be enabled using system property {@value #LEAK_DETECTION_PROPERTY} (for example
+ *     {@code -Dpetep.buffer.leakDetection=true}), which logs allocation trace of every leased byte array
+ *     that has been garbage collected without being released.
+ * </p>
+ */
+@PetepAPI
+public final class BufferPool {
+    /**
+     * System property for enabling leak detection (intended for debugging).
+     */
+    public static final String LEAK_DETECTION_PROPERTY = "petep.buffer.leakDetection";
+    /**
+     * Size of the smallest size class.
+     */
+    public static final int MIN_CLASS_SIZE = 256;
+    /**
+     * Default size of the largest size class.
+     */
+    public static final int DEFAULT_MAX_CLASS_SIZE = 1 << 20;
+    /**
+     * Default maximum number of free buffers kept in each size class.
+     */
+    public static final int DEFAULT_BUFFERS_PER_CLASS = 64;
+
+    private static final int MIN_CLASS_SHIFT = Integer.numberOfTrailingZeros(MIN_CLASS_SIZE);
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final int maxClassSize;
+    private final List<RingBufferQueue<byte[]>> heapClasses;
+    private final List<RingBufferQueue<ByteBuffer>> directClasses;
+    private final AtomicLong allocatedCount;
+    private final AtomicLong reusedCount;
+    private final AtomicLong leakCount;
+    private final Map<byte[], LeakRecord> leakRecords;
+
+    /**
+     * Constructs buffer pool with default size classes.
+     * <p>Leak detection is enabled using system property {@value #LEAK_DETECTION_PROPERTY}.</p>
+     */
+    public BufferPool() {
+        this(DEFAULT_MAX_CLASS_SIZE, DEFAULT_BUFFERS_PER_CLASS);
+    }
+
+    /**
+     * Constructs buffer pool.
+     * <p>Leak detection is enabled using system property {@value #LEAK_DETECTION_PROPERTY}.</p>
+     * @param maxClassSize Size of the largest size class (will be rounded up to the nearest power of two)
+     * @param buffersPerClass Maximum number of free buffers kept in each size class
+     */
+    public BufferPool(int maxClassSize, int buffersPerClass) {
+        this(maxClassSize, buffersPerClass, Boolean.getBoolean(LEAK_DETECTION_PROPERTY));
+    }
+
+    /**
+     * Constructs buffer pool.
+     * @param maxClassSize Size of the largest size class (will be rounded up to the nearest power of two)
+     * @param buffersPerClass Maximum number of free buffers kept in each size class
+     * @param leakDetection Whether to log buffers that were garbage collected without being released
+     */
+    public BufferPool(int maxClassSize, int buffersPerClass, boolean leakDetection) {
+        if (maxClassSize < 1 || maxClassSize > RingBufferQueue.MAX_CAPACITY) {
+            throw new IllegalArgumentException("Maximum class size has to be between 1 and " + RingBufferQueue.MAX_CAPACITY + "!");
+        }
+
+        this.maxClassSize = toClassSize(maxClassSize);
+
+        var classCount = classIndex(this.maxClassSize) + 1;
+        var heap = new ArrayList<RingBufferQueue<byte[]>>(classCount);
+        var direct = new ArrayList<RingBufferQueue<ByteBuffer>>(classCount);
+        for (int i = 0; i < classCount; ++i) {
+            heap.add(new RingBufferQueue<>(buffersPerClass, WaitStrategy.BLOCKING));
+            direct.add(new RingBufferQueue<>(buffersPerClass, WaitStrategy.BLOCKING));
+        }
+        heapClasses = Collections.unmodifiableList(heap);
+        directClasses = Collections.unmodifiableList(direct);
+
+        allocatedCount = new AtomicLong();
+        reusedCount = new AtomicLong();
+        leakCount = new AtomicLong();
+        leakRecords = leakDetection ? Collections.synchronizedMap(new WeakHashMap<>()) : null;
+    }
+
+    /**
+     * Leases byte array with length of at least the specified size.
+     * @param size Minimal size of the buffer
+     * @return Byte array (should be returned to the pool using {@link #release(byte[])})
+     */
+    public byte[] lease(int size) {
+        if (size > maxClassSize) {
+            allocatedCount.incrementAndGet();
+            return new byte[size];
+        }
+
+        var buffer = heapClasses.get(classIndex(size)).poll();
+        if (buffer == null) {
+            allocatedCount.incrementAndGet();
+            buffer = new byte[toClassSize(size)];
+        } else {
+            reusedCount.incrementAndGet();
+        }
+
+        if (leakRecords != null) {
+            trackLease(buffer);
+        }
+
+        return buffer;
+    }
+
+    /**
+     * Releases byte array back to the pool.
+     * <p>Arrays that do not belong to any size class are ignored (left for garbage collector).</p>
+     * <p><b>Warning:</b> The array must not be used by the caller after it has been released.</p>
+     * @param buffer Byte array to be released
+     */
+    public void release(byte[] buffer) {
+        if (buffer == null || !isClassSize(buffer.length)) {
+            return;
+        }
+
+        if (leakRecords != null) {
+            var leakRecord = leakRecords.get(buffer);
+            if (leakRecord != null) {
+                leakRecord.leasedAt = null;
+            }
+        }
+
+        // If the size class is full, the buffer is left for garbage collector.
+        heapClasses.get(classIndex(buffer.length)).offer(buffer);
+    }
+
+    /**
+     * Leases off-heap direct byte buffer with capacity of at least the specified size.
+     * @param size Minimal size of the buffer
+     * @return Cleared direct byte buffer (should be returned to the pool using {@link #release(ByteBuffer)})
+     */
+    public ByteBuffer leaseDirect(int size) {
+        if (size > maxClassSize) {
+            allocatedCount.incrementAndGet();
+            return ByteBuffer.allocateDirect(size);
+        }
+
+        var buffer = directClasses.get(classIndex(size)).poll();
+        if (buffer == null) {
+            allocatedCount.incrementAndGet();
+            return ByteBuffer.allocateDirect(toClassSize(size));
+        }
+
+        reusedCount.incrementAndGet();
+        return buffer;
+    }
+
+    /**
+     * Releases direct byte buffer back to the pool.
+     * <p>Heap buffers and buffers that do not belong to any size class are ignored.</p>
+     * <p><b>Warning:</b> The buffer must not be used by the caller after it has been released.</p>
+     * @param buffer Direct byte buffer to be released
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect() || !isClassSize(buffer.capacity())) {
+            return;
+        }
+
+        buffer.clear();
+        directClasses.get(classIndex(buffer.capacity())).offer(buffer);
+    }
+
+    /**
+     * Gets size of the largest size class.
+     * @return Size of the largest pooled buffers
+     */
+    public int getMaxClassSize() {
+        return maxClassSize;
+    }
+
+    /**
+     * Gets number of buffers allocated by the pool (including unpooled allocations).
+     * @return Number of allocated buffers
+     */
+    public long getAllocatedCount() {
+        return allocatedCount.get();
+    }
+
+    /**
+     * Gets number of leases served by reused buffers.
+     * @return Number of reused buffers
+     */
+    public long getReusedCount() {
+        return reusedCount.get();
+    }
+
+    /**
+     * Gets number of detected leaks (byte arrays garbage collected without being released).
+     * @return Number of detected leaks (always zero if leak detection is disabled)
+     */
+    public long getLeakCount() {
+        return leakCount.get();
+    }
+
+    /**
+     * Checks whether leak detection is enabled for this pool.
+     * @return {@code true} if leak detection is enabled
+     */
+    public boolean isLeakDetectionEnabled() {
+        return leakRecords != null;
+    }
+
+    /**
+     * Remembers allocation trace of the leased buffer.
+     */
+    private void trackLease(byte[] buffer) {
+        var leakRecord = leakRecords.computeIfAbsent(buffer, key -> {
+            var newRecord = new LeakRecord(leakCount);
+            // Cleaning action must not reference the buffer, otherwise it would never become unreachable.
+            CLEANER.register(key, newRecord);
+            return newRecord;
+        });
+        leakRecord.leasedAt = new Throwable("Buffer of size " + buffer.length + " leased");
+    }
+
+    private boolean isClassSize(int size) {
+        return size >= MIN_CLASS_SIZE && size <= maxClassSize && Integer.bitCount(size) == 1;
+    }
+
+    private static int toClassSize(int size) {
+        return size <= MIN_CLASS_SIZE ? MIN_CLASS_SIZE : Integer.highestOneBit(size - 1) << 1;
+    }
+
+    private static int classIndex(int size) {
+        return Integer.numberOfTrailingZeros(toClassSize(size)) - MIN_CLASS_SHIFT;
+    }
+
+    /**
+     * Lease record of single pooled byte array, which reports the leak when the array is garbage collected while leased.
+     */
+    private static final class LeakRecord implements Runnable {
+        private final AtomicLong leakCount;
+        private volatile Throwable leasedAt;
+
+        private LeakRecord(AtomicLong leakCount) {
+            this.leakCount = leakCount;
+        }
+
+        @Override
+        public void run() {
+            var trace = leasedAt;
+            if (trace == null) {
+                return;
+            }
+            leakCount.incrementAndGet();
+            Logger.getGlobal().log(Level.WARNING, "Pooled buffer was garbage collected without being released!", trace);
+        }
+    }
+}
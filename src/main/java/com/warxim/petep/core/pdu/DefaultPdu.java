@@ -23,6 +23,7 @@ import com.warxim.petep.interceptor.worker.Interceptor;
 import com.warxim.petep.proxy.worker.Proxy;
 
 import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
@@ -66,6 +67,14 @@ public class DefaultPdu implements PDU {
      * Charset of the data in the buffer
      */
     protected Charset charset;
+    /**
+     * Pool from which the buffer has been leased (or null if the buffer is not pooled)
+     */
+    protected BufferPool bufferPool;
+    /**
+     * Leased buffer, which should be returned to the pool
+     */
+    protected byte[] leasedBuffer;
 
     /**
      * Constructs default PDU.
@@ -170,9 +179,42 @@ public class DefaultPdu implements PDU {
         buffer = newBuffer;
     }
 
+    /**
+     * Marks current buffer as leased from the specified pool, so that it is returned to the pool on release.
+     * @param bufferPool Pool from which the current buffer has been leased
+     */
+    public void setBufferPool(BufferPool bufferPool) {
+        this.bufferPool = bufferPool;
+        this.leasedBuffer = buffer;
+    }
+
+    /**
+     * Releases leased buffer back to the pool.
+     * <p>The buffer is released only if it is still used by the PDU (was not replaced using setBuffer/resize),
+     * since the replaced buffer can still be referenced by somebody else.</p>
+     * <p>Released PDU is left with empty buffer, so that anybody still holding the PDU does not read data
+     * of the next lease of the buffer.</p>
+     */
+    @Override
+    public void releaseBuffer() {
+        var pool = bufferPool;
+        if (pool == null) {
+            return;
+        }
+
+        if (leasedBuffer == buffer) {
+            buffer = new byte[0];
+            size = 0;
+            pool.release(leasedBuffer);
+        }
+
+        bufferPool = null;
+        leasedBuffer = null;
+    }
+
     @Override
     public PDU copy() {
-        var pdu = new DefaultPdu(proxy, connection, destination, buffer.clone(), size, charset);
+        var pdu = new DefaultPdu(proxy, connection, destination, Arrays.copyOf(buffer, size), size, charset);
 
         pdu.addTags(tags);
         pdu.setLastInterceptor(pdu.getLastInterceptor());
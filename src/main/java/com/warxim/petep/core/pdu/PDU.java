@@ -152,4 +152,13 @@ public interface PDU {
      * @return Deep copy of the PDU
      */
     PDU copy();
+
+    /**
+     * Releases the data buffer back to the buffer pool, from which it has been leased (if any).
+     * <p>Called by proxies once the PDU has been sent. The PDU must not be used afterwards
+     * (its data are no longer available), so PDUs, which have to be kept, have to be copied before they are sent.</p>
+     */
+    default void releaseBuffer() {
+        // PDUs do not use pooled buffers by default
+    }
 }
@@ -21,28 +21,112 @@ import com.warxim.petep.extension.PetepAPI;
 import java.util.Optional;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
 
 /**
  * Queue of PDUs.
- * <p>Based on {@link BlockingQueue}.</p>
+ * <p>Based on {@link BlockingQueue} (unbounded {@link LinkedBlockingQueue} by default).</p>
  */
 @PetepAPI
 public class PduQueue {
     private final BlockingQueue<PDU> queue;
+    private final BackpressurePolicy backpressurePolicy;
+    private final AtomicLong droppedCount;
 
     /**
      * Constructs PDU queue.
      */
     public PduQueue() {
-        queue = new LinkedBlockingQueue<>();
+        this(new LinkedBlockingQueue<>());
+    }
+
+    /**
+     * Constructs PDU queue using specified configuration.
+     * @param config Configuration of the queue
+     */
+    public PduQueue(PduQueueConfig config) {
+        this(
+                createQueue(config),
+                config == null || config.getBackpressurePolicy() == null
+                        ? BackpressurePolicy.BLOCK
+                        : config.getBackpressurePolicy());
+    }
+
+    /**
+     * Constructs PDU queue backed by specified blocking queue.
+     * <p>Blocks producers when the queue is full.</p>
+     * @param queue Blocking queue to be used for storing PDUs
+     */
+    public PduQueue(BlockingQueue<PDU> queue) {
+        this(queue, BackpressurePolicy.BLOCK);
+    }
+
+    /**
+     * Constructs PDU queue backed by specified blocking queue.
+     * @param queue Blocking queue to be used for storing PDUs
+     * @param backpressurePolicy Policy determining what happens when PDU is added to full queue
+     */
+    public PduQueue(BlockingQueue<PDU> queue, BackpressurePolicy backpressurePolicy) {
+        this.queue = queue;
+        this.backpressurePolicy = backpressurePolicy;
+        this.droppedCount = new AtomicLong();
     }
 
     /**
      * Add PDU to queue.
+     * <p>If the queue is bounded and full, applies the backpressure policy of the queue.</p>
      * @param pdu PDU to be added to the queue
      */
     public void add(PDU pdu) {
-        queue.add(pdu);
+        if (queue.offer(pdu)) {
+            return;
+        }
+
+        switch (backpressurePolicy) {
+            case DROP_NEWEST:
+                droppedCount.incrementAndGet();
+                break;
+            case DROP_OLDEST:
+                do {
+                    if (queue.poll() != null) {
+                        droppedCount.incrementAndGet();
+                    }
+                } while (!queue.offer(pdu));
+                break;
+            default:
+                try {
+                    queue.put(pdu);
+                } catch (InterruptedException e) {
+                    // PDU cannot be added, count it as dropped and keep the interrupt for the caller
+                    droppedCount.incrementAndGet();
+                    Logger.getGlobal().warning("PDU dropped, because the thread was interrupted while waiting for full queue!");
+                    Thread.currentThread().interrupt();
+                }
+        }
+    }
+
+    /**
+     * Adds PDU to queue without blocking.
+     * <p>If the queue is bounded and full, applies the backpressure policy of the queue,
+     * except for {@link BackpressurePolicy#BLOCK}, in which case the PDU is not added.</p>
+     * @param pdu PDU to be added to the queue
+     * @return {@code false} if the queue is full and its policy would block
+     */
+    public boolean offer(PDU pdu) {
+        if (backpressurePolicy == BackpressurePolicy.BLOCK) {
+            return queue.offer(pdu);
+        }
+        add(pdu);
+        return true;
+    }
+
+    /**
+     * Obtains number of PDUs dropped by the backpressure policy of the queue.
+     * @return Number of dropped PDUs
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
     }
 
     /**
@@ -84,4 +168,19 @@ public class PduQueue {
     public boolean isEmpty() {
         return queue.isEmpty();
     }
+
+    /**
+     * Creates blocking queue for given configuration.
+     */
+    private static BlockingQueue<PDU> createQueue(PduQueueConfig config) {
+        if (config == null || config.getType() == null || config.getType() == PduQueueType.LINKED) {
+            return config != null && config.getCapacity() > 0
+                    ? new LinkedBlockingQueue<>(config.getCapacity())
+                    : new LinkedBlockingQueue<>();
+        }
+
+        var capacity = config.getCapacity() > 0 ? config.getCapacity() : PduQueueConfig.DEFAULT_RING_BUFFER_CAPACITY;
+        var waitStrategy = config.getWaitStrategy() != null ? config.getWaitStrategy() : WaitStrategy.BLOCKING;
+        return new RingBufferQueue<>(capacity, waitStrategy);
+    }
 }
@@ -0,0 +1,76 @@
+/*
+ * PEnetration TEsting Proxy (PETEP)
+ *
+ * Copyright (C) 2023 Michal Válka
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <https://www.gnu.org/licenses/>.
+ */
+package com.warxim.petep.core.pdu;
+
+import com.warxim.petep.extension.PetepAPI;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Configuration of PDU queue.
+ * <p>Missing values (for example in older configuration files) are replaced by defaults.</p>
+ */
+@PetepAPI
+@Builder
+@Value
+public class PduQueueConfig {
+    /**
+     * Default capacity of ring buffer queues.
+     */
+    public static final int DEFAULT_RING_BUFFER_CAPACITY = 1024;
+
+    /**
+     * Type of the queue implementation.
+     */
+    PduQueueType type;
+
+    /**
+     * Capacity of the queue.
+     * <p>Zero means unbounded linked queue or default capacity of ring buffer queue.</p>
+     * <p>Capacity of ring buffer queue is rounded up to the nearest power of two.</p>
+     */
+    int capacity;
+
+    /**
+     * Policy determining what happens when PDU is added to full queue.
+     */
+    BackpressurePolicy backpressurePolicy;
+
+    /**
+     * Strategy for waiting on empty/full queue (used by ring buffer queues).
+     */
+    WaitStrategy waitStrategy;
+
+    /**
+     * Checks whether adding PDU to the queue can block the producer (bounded queue with blocking policy).
+     * @return {@code true} if the producer can be blocked
+     */
+    public boolean isBlocking() {
+        var bounded = capacity > 0 || (type != null && type != PduQueueType.LINKED);
+        return bounded && (backpressurePolicy == null || backpressurePolicy == BackpressurePolicy.BLOCK);
+    }
+
+    /**
+     * Creates default configuration (unbounded linked queue).
+     * @return Default PDU queue configuration
+     */
+    public static PduQueueConfig createDefault() {
+        return PduQueueConfig.builder()
+                .type(PduQueueType.LINKED)
+                .build();
+    }
+}
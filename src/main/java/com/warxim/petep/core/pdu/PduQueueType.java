@@ -0,0 +1,36 @@
+/*
+ * PEnetration TEsting Proxy (PETEP)
+ *
+ * Copyright (C) 2023 Michal Válka
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <https://www.gnu.org/licenses/>.
+ */
+package com.warxim.petep.core.pdu;
+
+import com.warxim.petep.extension.PetepAPI;
+
+/**
+ * Type of PDU queue implementation.
+ */
+@PetepAPI
+public enum PduQueueType {
+    /**
+     * Queue based on linked nodes ({@link java.util.concurrent.LinkedBlockingQueue}).
+     * <p>Allocates node for each PDU, takes lock on both add and take.</p>
+     */
+    LINKED,
+    /**
+     * Lock-free queue based on preallocated ring buffer ({@link RingBufferQueue}).
+     * <p>Does not allocate per PDU, waiting is handled by configured {@link WaitStrategy}.</p>
+     */
+    RING_BUFFER
+}
@@ -0,0 +1,270 @@
+/*
+ * PEnetration TEsting Proxy (PETEP)
+ *
+ * Copyright (C) 2023 Michal Válka
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <https://www.gnu.org/licenses/>.
+ */
+package com.warxim.petep.core.pdu;
+
+import com.warxim.petep.extension.PetepAPI;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free queue based on preallocated ring buffer.
+ * <p>
+ *     Each slot of the ring has its own sequence number, which tells producers and consumers whether the slot
+ *     is ready to be written/read, so the queue is safe for multiple producers and multiple consumers without locks.
+ *     (PDUs can be put into any interceptor queue from any thread, so the queue cannot rely on single producer.)
+ * </p>
+ * <p>Waiting on empty/full queue is handled by {@link WaitStrategy}.</p>
+ * @param <E> Type of elements
+ */
+@PetepAPI
+public final class RingBufferQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+    /**
+     * Maximum capacity of the ring buffer.
+     */
+    public static final int MAX_CAPACITY = 1 << 30;
+
+    private final int mask;
+    private final AtomicReferenceArray<E> buffer;
+    private final AtomicLongArray sequences;
+    private final AtomicLong enqueuePosition;
+    private final AtomicLong dequeuePosition;
+    private final Waiter notEmpty;
+    private final Waiter notFull;
+
+    /**
+     * Constructs ring buffer queue.
+     * @param capacity Minimal capacity of the queue (will be rounded up to the nearest power of two, at least two)
+     * @param waitStrategy Strategy for waiting on empty/full queue
+     */
+    public RingBufferQueue(int capacity, WaitStrategy waitStrategy) {
+        if (capacity < 1 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Ring buffer capacity has to be between 1 and " + MAX_CAPACITY + "!");
+        }
+
+        // Sequence numbers cannot distinguish full and empty slot in single-slot ring, so use at least two slots.
+        var size = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        mask = size - 1;
+        buffer = new AtomicReferenceArray<>(size);
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; ++i) {
+            sequences.set(i, i);
+        }
+        enqueuePosition = new AtomicLong();
+        dequeuePosition = new AtomicLong();
+        notEmpty = waitStrategy.createWaiter();
+        notFull = waitStrategy.createWaiter();
+    }
+
+    /**
+     * Obtains capacity of the ring buffer.
+     * @return Number of slots in the ring buffer
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+
+    @Override
+    public boolean offer(E e) {
+        Objects.requireNonNull(e);
+
+        var position = enqueuePosition.get();
+        int index;
+        while (true) {
+            index = (int) (position & mask);
+            var difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (enqueuePosition.compareAndSet(position, position + 1)) {
+                    break;
+                }
+                position = enqueuePosition.get();
+            } else if (difference < 0) {
+                // Slot has not been consumed yet, so the queue is full.
+                return false;
+            } else {
+                position = enqueuePosition.get();
+            }
+        }
+
+        buffer.set(index, e);
+        sequences.set(index, position + 1);
+        notEmpty.signal();
+        return true;
+    }
+
+    @Override
+    public E poll() {
+        var position = dequeuePosition.get();
+        int index;
+        while (true) {
+            index = (int) (position & mask);
+            var difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (dequeuePosition.compareAndSet(position, position + 1)) {
+                    break;
+                }
+                position = dequeuePosition.get();
+            } else if (difference < 0) {
+                // Slot has not been published yet, so the queue is empty.
+                return null;
+            } else {
+                position = dequeuePosition.get();
+            }
+        }
+
+        var e = buffer.get(index);
+        buffer.set(index, null);
+        sequences.set(index, position + mask + 1);
+        notFull.signal();
+        return e;
+    }
+
+    @Override
+    public E peek() {
+        var position = dequeuePosition.get();
+        var index = (int) (position & mask);
+        if (sequences.get(index) != position + 1) {
+            return null;
+        }
+        return buffer.get(index);
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        while (!offer(e)) {
+            notFull.await(this::hasFreeSlot, Long.MAX_VALUE);
+        }
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        var remaining = unit.toNanos(timeout);
+        while (!offer(e)) {
+            if (remaining <= 0) {
+                return false;
+            }
+            remaining = notFull.await(this::hasFreeSlot, remaining);
+        }
+        return true;
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        E e;
+        while ((e = poll()) == null) {
+            notEmpty.await(this::hasElement, Long.MAX_VALUE);
+        }
+        return e;
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        var remaining = unit.toNanos(timeout);
+        E e;
+        while ((e = poll()) == null) {
+            if (remaining <= 0) {
+                return null;
+            }
+            remaining = notEmpty.await(this::hasElement, remaining);
+        }
+        return e;
+    }
+
+    @Override
+    public int size() {
+        // Read dequeue position first, so that the size can never be negative.
+        var dequeue = dequeuePosition.get();
+        var enqueue = enqueuePosition.get();
+        return (int) Math.max(0, Math.min(enqueue - dequeue, capacity()));
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return !hasElement();
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return capacity() - size();
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        Objects.requireNonNull(c);
+        if (c == this) {
+            throw new IllegalArgumentException("Cannot drain queue to itself!");
+        }
+
+        var count = 0;
+        E e;
+        while (count < maxElements && (e = poll()) != null) {
+            c.add(e);
+            ++count;
+        }
+        return count;
+    }
+
+    /**
+     * Creates weakly consistent snapshot iterator, which does not support removal.
+     * @return Iterator over snapshot of elements in the queue
+     */
+    @Override
+    public Iterator<E> iterator() {
+        var snapshot = new ArrayList<E>(size());
+        var end = enqueuePosition.get();
+        for (var position = dequeuePosition.get(); position < end; ++position) {
+            var index = (int) (position & mask);
+            if (sequences.get(index) == position + 1) {
+                var e = buffer.get(index);
+                if (e != null) {
+                    snapshot.add(e);
+                }
+            }
+        }
+        return Collections.unmodifiableList(snapshot).iterator();
+    }
+
+    /**
+     * Checks whether the slot at current dequeue position has been published.
+     */
+    private boolean hasElement() {
+        var position = dequeuePosition.get();
+        return sequences.get((int) (position & mask)) == position + 1;
+    }
+
+    /**
+     * Checks whether the slot at current enqueue position has been consumed.
+     */
+    private boolean hasFreeSlot() {
+        var position = enqueuePosition.get();
+        return sequences.get((int) (position & mask)) == position;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * PEnetration TEsting Proxy (PETEP)
+ *
+ * Copyright (C) 2023 Michal Válka
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <https://www.gnu.org/licenses/>.
+ */
+package com.warxim.petep.core.pdu;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Waiter, which busy-spins and then either parks or yields the thread.
+ * <p>Does not need any signalling, since the waiting thread periodically re-checks the condition.</p>
+ */
+final class SpinningWaiter implements Waiter {
+    private static final int SPIN_COUNT = 1000;
+    private static final long MAX_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final boolean park;
+
+    /**
+     * Constructs spinning waiter.
+     * @param park {@code true} if the thread should be parked after spinning; {@code false} if it should yield
+     */
+    SpinningWaiter(boolean park) {
+        this.park = park;
+    }
+
+    @Override
+    public long await(BooleanSupplier condition, long nanos) throws InterruptedException {
+        var start = System.nanoTime();
+        var remaining = nanos;
+        var counter = 0;
+        while (!condition.getAsBoolean()) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+
+            remaining = nanos - (System.nanoTime() - start);
+            if (remaining <= 0) {
+                return remaining;
+            }
+
+            if (counter < SPIN_COUNT) {
+                ++counter;
+                Thread.onSpinWait();
+            } else if (park) {
+                LockSupport.parkNanos(Math.min(remaining, MAX_PARK_NANOS));
+            } else {
+                Thread.yield();
+            }
+        }
+        return remaining;
+    }
+
+    @Override
+    public void signal() {
+        // Waiting threads re-check the condition on their own.
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * PEnetration TEsting Proxy (PETEP)
+ *
+ * Copyright (C) 2023 Michal Válka
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <https://www.gnu.org/licenses/>.
+ */
+package com.warxim.petep.core.pdu;
+
+import com.warxim.petep.extension.PetepAPI;
+
+/**
+ * Strategy for waiting on {@link RingBufferQueue} when the queue is empty (consumers) or full (producers).
+ */
+@PetepAPI
+public enum WaitStrategy {
+    /**
+     * Waits on lock condition, waiting threads are signalled by the other side.
+     * <p>Lowest CPU usage, highest wake-up latency.</p>
+     */
+    BLOCKING {
+        @Override
+        Waiter createWaiter() {
+            return new BlockingWaiter();
+        }
+    },
+    /**
+     * Busy-spins for a while and then parks the thread for short periods of time.
+     * <p>Low latency under load, low CPU usage when idle.</p>
+     */
+    SPIN_THEN_PARK {
+        @Override
+        Waiter createWaiter() {
+            return new SpinningWaiter(true);
+        }
+    },
+    /**
+     * Busy-spins for a while and then yields the thread.
+     * <p>Lowest latency, burns CPU even when idle.</p>
+     */
+    YIELDING {
+        @Override
+        Waiter createWaiter() {
+            return new SpinningWaiter(false);
+        }
+    };
+
+    /**
+     * Creates waiter implementing this strategy.
+     * @return Waiter for single wait condition
+     */
+    abstract Waiter createWaiter();
+}
@@ -0,0 +1,39 @@
+/*
+ * PEnetration TEsting Proxy (PETEP)
+ *
+ * Copyright (C) 2023 Michal Válka
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <https://www.gnu.org/licenses/>.
+ */
+package com.warxim.petep.core.pdu;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Waiter handles waiting for single condition of {@link RingBufferQueue} (not empty / not full).
+ */
+interface Waiter {
+    /**
+     * Waits until the condition is satisfied or until the time runs out.
+     * <p>The condition might not hold anymore after return, so the caller has to retry the operation.</p>
+     * @param condition Condition to wait for
+     * @param nanos Maximum time to wait in nanoseconds
+     * @return Remaining time in nanoseconds (zero or negative if the time ran out)
+     * @throws InterruptedException If interrupted while waiting
+     */
+    long await(BooleanSupplier condition, long nanos) throws InterruptedException;
+
+    /**
+     * Signals waiting threads that the condition might be satisfied.
+     */
+    void signal();
+}
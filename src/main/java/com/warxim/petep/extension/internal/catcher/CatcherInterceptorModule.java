@@ -46,4 +46,9 @@ public final class CatcherInterceptorModule extends InterceptorModule {
     public Interceptor createInterceptor(int id, PetepHelper helper) {
         return new CatcherInterceptor(id, this, helper);
     }
+
+    @Override
+    public boolean isBlocking() {
+        return true;
+    }
 }
@@ -28,8 +28,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.Socket;
 import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -43,6 +43,7 @@ public final class DeluderConnection implements Connection {
     private final Socket socket;
     private final PduQueue outQueue;
     private ExecutorService executor;
+    private final CountDownLatch streamEnded = new CountDownLatch(1);
     private DeluderConnectionInfo info = null;
 
     /**
@@ -83,11 +84,11 @@ public final class DeluderConnection implements Connection {
     public boolean start() {
         Logger.getGlobal().info(() -> String.format("Starting Deluder connection with code '%s'...", code));
 
-        executor = Executors.newFixedThreadPool(2);
+        executor = proxy.getHelper().getConnectionExecutorFactory().createExecutor(2);
 
-        executor.execute(this::write);
-        executor.execute(this::read);
-        executor.execute(this::stop);
+        executor.execute(() -> runStream(this::write));
+        executor.execute(() -> runStream(this::read));
+        executor.execute(this::cleanup);
 
         Logger.getGlobal().info(() -> String.format("Deluder connection with code '%s' started.", code));
 
@@ -126,6 +127,29 @@ public final class DeluderConnection implements Connection {
         return proxy.supports(pdu);
     }
 
+    /**
+     * Runs stream task and signals its end to cleanup.
+     */
+    private void runStream(Runnable stream) {
+        try {
+            stream.run();
+        } finally {
+            streamEnded.countDown();
+        }
+    }
+
+    /**
+     * Stops the connection once any of the streams ends.
+     */
+    private void cleanup() {
+        try {
+            streamEnded.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        stop();
+    }
+
     /**
      * Writes PDUs to Deluder connection after it gets processed in PETEP
      */
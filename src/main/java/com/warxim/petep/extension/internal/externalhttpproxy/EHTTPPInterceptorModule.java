@@ -45,4 +45,9 @@ public final class EHTTPPInterceptorModule extends InterceptorModule {
     public Interceptor createInterceptor(int id, PetepHelper helper) {
         return new EHTTPPInterceptor(id, this, helper);
     }
+
+    @Override
+    public boolean isBlocking() {
+        return true;
+    }
 }
@@ -17,14 +17,63 @@
 package com.warxim.petep.extension.internal.history;
 
 import com.warxim.petep.extension.internal.history.model.HistoryFilter;
+import com.warxim.petep.extension.internal.history.model.HistoryRetentionPolicy;
 import lombok.Builder;
 import lombok.Data;
 
 /**
- * History config for persisting filter configuration.
+ * History config for persisting filter configuration and configuration of history writing.
  */
 @Data
-@Builder
+@Builder(toBuilder = true)
 public class HistoryConfig {
     private HistoryFilter filter;
+
+    /**
+     * Maximal number of PDUs written to database in single transaction (0 means default).
+     */
+    private int batchSize;
+
+    /**
+     * Time in milliseconds, for which saved PDU can wait for more PDUs to be written in the same transaction.
+     * <p>0 means that PDUs are written as soon as the writer is free (PDUs saved meanwhile form the next batch).</p>
+     */
+    private long flushInterval;
+
+    /**
+     * Maximal number of entities (tags, connections, ...) in each of the repository caches (0 means default).
+     */
+    private int cacheSize;
+
+    /**
+     * Whether to keep views of all PDUs in memory (in columnar cache), which speeds up filtering and paging
+     * of the history view at the cost of memory and slower loading of the history.
+     */
+    private boolean viewCacheEnabled;
+
+    /**
+     * Whether to maintain search index of PDU data, which speeds up data filters at the cost of slower writes
+     * and larger database.
+     */
+    private boolean searchIndexEnabled;
+
+    /**
+     * Whether to compress stored PDU data (identical data is stored only once regardless of this setting).
+     */
+    private boolean payloadCompressionEnabled;
+
+    /**
+     * Minimal size of PDU data in bytes, which is compressed (0 means default).
+     */
+    private int payloadCompressionThreshold;
+
+    /**
+     * Retention policy, which limits the size of the history (null means unlimited history).
+     */
+    private HistoryRetentionPolicy retention;
+
+    /**
+     * Time in milliseconds between checks of the retention policy (0 means default).
+     */
+    private long retentionInterval;
 }
@@ -26,6 +26,8 @@ import com.warxim.petep.extension.internal.history.listener.HistoryListener;
 import com.warxim.petep.extension.internal.history.listener.HistoryListenerManager;
 import com.warxim.petep.extension.internal.history.model.HistoryFilter;
 import com.warxim.petep.extension.internal.history.repository.CachedDatabaseHistoryRepository;
+import com.warxim.petep.extension.internal.history.repository.EntityCache;
+import com.warxim.petep.extension.internal.history.repository.database.HistoryPayloadStore;
 import com.warxim.petep.extension.internal.history.service.CachedHistoryService;
 import com.warxim.petep.extension.internal.history.service.DefaultHistoryService;
 import com.warxim.petep.extension.internal.history.service.HistoryService;
@@ -66,19 +68,46 @@ public class HistoryExtension extends Extension implements HistoryApi, Storable<
     public void init(ExtensionHelper helper) {
         try {
             // Create repository and service
-            var repository = new CachedDatabaseHistoryRepository("jdbc:sqlite:" + FileUtils.getProjectFile("history.db").getAbsolutePath());
+            var cacheSize = config != null && config.getCacheSize() > 0
+                    ? config.getCacheSize()
+                    : EntityCache.DEFAULT_MAX_SIZE;
+            var repository = new CachedDatabaseHistoryRepository(
+                    "jdbc:sqlite:" + FileUtils.getProjectFile("history.db").getAbsolutePath(),
+                    cacheSize);
+            repository.setSearchIndexEnabled(config != null && config.isSearchIndexEnabled());
+            var compressionThreshold = config != null && config.getPayloadCompressionThreshold() > 0
+                    ? config.getPayloadCompressionThreshold()
+                    : HistoryPayloadStore.DEFAULT_COMPRESSION_THRESHOLD;
+            repository.setPayloadCompression(
+                    config != null && config.isPayloadCompressionEnabled(),
+                    compressionThreshold);
             listenerManager = new HistoryListenerManager();
-            service = new CachedHistoryService(repository, listenerManager);
+            var batchSize = config != null && config.getBatchSize() > 0
+                    ? config.getBatchSize()
+                    : DefaultHistoryService.DEFAULT_BATCH_SIZE;
+            var flushInterval = config != null
+                    ? config.getFlushInterval()
+                    : DefaultHistoryService.DEFAULT_FLUSH_INTERVAL;
+            // PDU views are queried in pages, so they are cached in memory only if it is enabled
+            service = config != null && config.isViewCacheEnabled()
+                    ? new CachedHistoryService(repository, listenerManager, batchSize, flushInterval)
+                    : new DefaultHistoryService(repository, listenerManager, batchSize, flushInterval);
+            if (config != null && config.getRetention() != null) {
+                var retentionInterval = config.getRetentionInterval() > 0
+                        ? config.getRetentionInterval()
+                        : DefaultHistoryService.DEFAULT_RETENTION_INTERVAL;
+                service.setRetentionPolicy(config.getRetention(), retentionInterval);
+            }
 
             // Register interceptor factory for storing historic PDUs
             helper.registerInterceptorModuleFactory(new HistoryInterceptorModuleFactory(this, this));
 
             this.extensionHelper = helper;
+        } catch (SQLException | ExecutionException | RuntimeException exception) {
+            throw new HistoryExtensionException("Could not load history database!", exception);
         } catch (InterruptedException exception) {
             Thread.currentThread().interrupt();
             throw new HistoryExtensionException("Could not load history database!", exception);
-        } catch (ExecutionException | SQLException | RuntimeException exception) {
-            throw new HistoryExtensionException("Could not load history database!", exception);
         }
     }
 
@@ -153,7 +182,8 @@ public class HistoryExtension extends Extension implements HistoryApi, Storable<
         if (controller == null) {
             return config;
         }
-        return HistoryConfig.builder()
+        var builder = config == null ? HistoryConfig.builder() : config.toBuilder();
+        return builder
                 .filter(controller.getFilter())
                 .build();
     }
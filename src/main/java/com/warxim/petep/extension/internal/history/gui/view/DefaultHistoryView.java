@@ -28,7 +28,6 @@ import lombok.Getter;
 
 import java.io.IOException;
 import java.util.Collection;
-import java.util.LinkedList;
 import java.util.concurrent.ExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -71,8 +70,8 @@ public class DefaultHistoryView implements HistoryView, HistoryListener {
     public void setFilter(HistoryFilter filter) {
         this.filter = filter;
         try {
-            var items = api.getService().getPduViewsByFilter(filter).get();
-            controller.setItems(items);
+            var ids = api.getService().getOrderedPduIds(filter).get();
+            controller.setItems(ids);
         } catch (InterruptedException | ExecutionException e) {
             Thread.currentThread().interrupt();
             Logger.getGlobal().log(Level.SEVERE, "Could not set HistoryView filter!", e);
@@ -99,6 +98,6 @@ public class DefaultHistoryView implements HistoryView, HistoryListener {
 
     @Override
     public void onHistoryClear() {
-        controller.setItems(new LinkedList<>());
+        controller.setItems(new long[0]);
     }
 }
@@ -29,7 +29,6 @@ import com.warxim.petep.helper.ExtensionHelper;
 import com.warxim.petep.util.GuiUtils;
 import javafx.application.Platform;
 import javafx.beans.value.ObservableValue;
-import javafx.collections.FXCollections;
 import javafx.css.PseudoClass;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
@@ -102,6 +101,8 @@ public class HistoryViewController implements Initializable {
     private final HistoryApi api;
     private final ExtensionHelper extensionHelper;
 
+    private PagedPduViewList items;
+
     /**
      * Initializes table and refreshes view, so that the PDUs are loaded.
      */
@@ -118,6 +119,9 @@ public class HistoryViewController implements Initializable {
         timeColumn.setCellValueFactory(new PropertyValueFactory<>("time"));
         timeColumn.setCellFactory(cell -> new InstantCellFactory<>());
         timeColumn.setCellFactory(cell -> new InstantCellFactory<>());
+        // Views are loaded lazily in pages ordered by identifier, so the table cannot be sorted in memory
+        table.getColumns().forEach(column -> column.setSortable(false));
+        table.setSortPolicy(tableView -> false);
         table.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
         table.getSelectionModel().selectedItemProperty().addListener(this::onHistoryItemSelect);
         // Refresh items
@@ -155,6 +159,14 @@ public class HistoryViewController implements Initializable {
             joiner.add("to size (" + view.getFilter().getToSize().toString() + ")");
         }
 
+        if (view.getFilter().getFromTime() != null) {
+            joiner.add("from time (" + view.getFilter().getFromTime().toString() + ")");
+        }
+
+        if (view.getFilter().getToTime() != null) {
+            joiner.add("to time (" + view.getFilter().getToTime().toString() + ")");
+        }
+
         if (view.getFilter().getTags() != null && !view.getFilter().getTags().isEmpty()) {
             var tagJoiner = new StringJoiner(", ");
             view.getFilter().getTags().forEach(tagJoiner::add);
@@ -174,14 +186,20 @@ public class HistoryViewController implements Initializable {
     }
 
     /**
-     * Sets historic PDU views to the table.
-     * @param items Items to be set to the table
+     * Sets historic PDU views with given identifiers to the table.
+     * <p>Views are loaded lazily in pages, when the table displays them.</p>
+     * @param ids Ordered identifiers of PDU views to be set to the table
      */
-    public void setItems(List<HistoricPduView> items) {
+    public void setItems(long[] ids) {
+        var filter = view.getFilter();
         Platform.runLater(() -> {
             clearViewer();
-            table.setItems(FXCollections.observableList(items));
-            table.scrollTo(items.size() - 1);
+            items = new PagedPduViewList(
+                    ids,
+                    (afterId, limit) -> api.getService().getPduViewsPage(filter, afterId, limit),
+                    Platform::runLater);
+            table.setItems(items);
+            table.scrollTo(ids.length - 1);
         });
     }
 
@@ -191,17 +209,8 @@ public class HistoryViewController implements Initializable {
      */
     public void removeItems(Collection<Long> ids) {
         Platform.runLater(() -> {
-            var deletedIds = new LinkedList<>(ids);
-            if (deletedIds.size() > 100) {
-                var newItems = this.table.getItems().stream()
-                        .filter(pdu -> !deletedIds.remove(pdu.getId()))
-                        .collect(Collectors.toCollection(LinkedList::new));
-                table.setItems(FXCollections.observableList(newItems));
-                return;
-            }
-
-            if (table.getItems() != null) {
-                table.getItems().removeIf(pdu -> deletedIds.remove(pdu.getId()));
+            if (items != null) {
+                items.removeIds(ids);
             }
         });
     }
@@ -212,8 +221,8 @@ public class HistoryViewController implements Initializable {
      */
     public void addItem(HistoricPduView item) {
         Platform.runLater(() -> {
-            if (this.table.getItems() != null) {
-                this.table.getItems().add(item);
+            if (items != null) {
+                items.add(item);
             }
         });
     }
@@ -290,11 +299,13 @@ public class HistoryViewController implements Initializable {
      * Deletes selected history PDUs.
      */
     private void onDeleteItemClick(ActionEvent event) {
-        var selectedPdus = table.getSelectionModel().getSelectedItems();
-        if (selectedPdus == null) {
+        if (items == null) {
             return;
         }
-        api.getService().deletePdus(selectedPdus.stream().map(HistoricPduView::getId).collect(Collectors.toList()));
+        // Views of not yet loaded pages are null, so the identifiers are taken from the list by selected indices
+        api.getService().deletePdus(table.getSelectionModel().getSelectedIndices().stream()
+                .map(index -> items.getId(index))
+                .collect(Collectors.toList()));
     }
 
     /**
@@ -0,0 +1,315 @@
+/*
+ * PEnetration TEsting Proxy (PETEP)
+ *
+ * Copyright (C) 2023 Michal Válka
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <https://www.gnu.org/licenses/>.
+ */
+package com.warxim.petep.extension.internal.history.gui.view;
+
+import com.warxim.petep.extension.internal.history.model.HistoricPduView;
+import javafx.collections.ObservableListBase;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Lazily paged observable list of historic PDU views.
+ * <p>The list holds only ordered identifiers of all PDUs, PDU views are loaded in pages (using keyset pagination)
+ * when they are requested by the table, so that huge histories can be displayed without loading them whole.</p>
+ * <p>Views that are not loaded yet are returned as null and the list fires replacement change once they are loaded.
+ * Only limited number of recently used pages is kept in memory.</p>
+ * <p>The list is not thread-safe, it has to be used from single (JavaFX application) thread.
+ * Page load callbacks are run using the specified executor.</p>
+ */
+class PagedPduViewList extends ObservableListBase<HistoricPduView> {
+    /**
+     * Default number of PDU views in one page.
+     */
+    static final int DEFAULT_PAGE_SIZE = 256;
+
+    /**
+     * Default maximal number of pages kept in memory.
+     */
+    static final int DEFAULT_MAX_PAGES = 32;
+
+    private final PageLoader loader;
+    private final Executor callbackExecutor;
+    private final int pageSize;
+    private final int maxPages;
+    private final Map<Integer, HistoricPduView[]> pages;
+    private final Set<Integer> loadingPages;
+    // Views appended to pages that are being loaded (the load does not include them)
+    private final Map<Integer, List<HistoricPduView>> appendedViews;
+    private long[] ids;
+    private int size;
+    private long generation;
+
+    /**
+     * Constructs paged list with default page size and default maximal number of pages.
+     * @param ids Ordered identifiers of PDUs in the list
+     * @param loader Loader of pages of PDU views
+     * @param callbackExecutor Executor for running page load callbacks (thread that uses the list)
+     */
+    PagedPduViewList(long[] ids, PageLoader loader, Executor callbackExecutor) {
+        this(ids, loader, callbackExecutor, DEFAULT_PAGE_SIZE, DEFAULT_MAX_PAGES);
+    }
+
+    /**
+     * Constructs paged list.
+     * @param ids Ordered identifiers of PDUs in the list
+     * @param loader Loader of pages of PDU views
+     * @param callbackExecutor Executor for running page load callbacks (thread that uses the list)
+     * @param pageSize Number of PDU views in one page
+     * @param maxPages Maximal number of pages kept in memory
+     */
+    PagedPduViewList(long[] ids, PageLoader loader, Executor callbackExecutor, int pageSize, int maxPages) {
+        this.ids = ids;
+        this.size = ids.length;
+        this.loader = loader;
+        this.callbackExecutor = callbackExecutor;
+        this.pageSize = pageSize;
+        this.maxPages = maxPages;
+        this.loadingPages = new HashSet<>();
+        this.appendedViews = new HashMap<>();
+        this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, HistoricPduView[]> eldest) {
+                return size() > PagedPduViewList.this.maxPages;
+            }
+        };
+    }
+
+    /**
+     * Gets PDU view at given index.
+     * <p>If the page containing the view is not loaded yet, starts loading it and returns null.</p>
+     */
+    @Override
+    public HistoricPduView get(int index) {
+        Objects.checkIndex(index, size);
+        var pageIndex = index / pageSize;
+        var page = pages.get(pageIndex);
+        if (page == null) {
+            loadPage(pageIndex);
+            // The page might have been loaded synchronously
+            page = pages.get(pageIndex);
+            if (page == null) {
+                return null;
+            }
+        }
+        return page[index - pageIndex * pageSize];
+    }
+
+    /**
+     * Gets identifier of PDU view at given index (available even if the view is not loaded).
+     * @param index Index of the PDU view
+     * @return Identifier of the PDU view
+     */
+    public long getId(int index) {
+        Objects.checkIndex(index, size);
+        return ids[index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Appends PDU view to the end of the list.
+     * <p>Identifier of the view has to be greater than identifiers of all PDUs in the list.</p>
+     */
+    @Override
+    public boolean add(HistoricPduView view) {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, Math.max(16, size * 2));
+        }
+        var index = size;
+        ids[size++] = view.getId();
+
+        var pageIndex = index / pageSize;
+        var page = pages.get(pageIndex);
+        if (page == null && index % pageSize == 0) {
+            // The view starts new page, so the page can be created without loading
+            page = new HistoricPduView[pageSize];
+            pages.put(pageIndex, page);
+        }
+        if (page != null) {
+            page[index - pageIndex * pageSize] = view;
+        } else if (loadingPages.contains(pageIndex)) {
+            // Placed once the page is loaded, otherwise the page would stay with empty slot
+            appendedViews.computeIfAbsent(pageIndex, key -> new ArrayList<>()).add(view);
+        }
+
+        beginChange();
+        nextAdd(index, index + 1);
+        endChange();
+        return true;
+    }
+
+    /**
+     * Removes PDU views with given identifiers from the list.
+     * @param removedIds Identifiers of PDU views to be removed
+     */
+    public void removeIds(Collection<Long> removedIds) {
+        var removedIdSet = new HashSet<>(removedIds);
+        var newIds = new long[size];
+        var newSize = 0;
+        var removed = new ArrayList<Integer>();
+        for (var i = 0; i < size; ++i) {
+            if (removedIdSet.contains(ids[i])) {
+                removed.add(i);
+            } else {
+                newIds[newSize++] = ids[i];
+            }
+        }
+        if (removed.isEmpty()) {
+            return;
+        }
+
+        // Keep already loaded views, but move them to their new positions
+        var loadedViews = new ArrayList<HistoricPduView>();
+        var removedViews = new HashMap<Integer, HistoricPduView>();
+        for (var entry : pages.entrySet()) {
+            var page = entry.getValue();
+            for (var i = 0; i < page.length; ++i) {
+                if (page[i] == null) {
+                    continue;
+                }
+                if (removedIdSet.contains(page[i].getId())) {
+                    removedViews.put(entry.getKey() * pageSize + i, page[i]);
+                } else {
+                    loadedViews.add(page[i]);
+                }
+            }
+        }
+
+        ids = newIds;
+        size = newSize;
+        pages.clear();
+        loadingPages.clear();
+        appendedViews.clear();
+        ++generation;
+        loadedViews.forEach(this::placeView);
+        removeIncompletePages();
+
+        beginChange();
+        // Removed indexes are reported from the end, so that the earlier indexes stay valid
+        for (var i = removed.size() - 1; i >= 0; --i) {
+            var index = removed.get(i);
+            nextRemove(index, removedViews.get(index));
+        }
+        endChange();
+    }
+
+    /**
+     * Starts loading of page with given index (if it is not being loaded already).
+     */
+    private void loadPage(int pageIndex) {
+        if (!loadingPages.add(pageIndex)) {
+            return;
+        }
+
+        var from = pageIndex * pageSize;
+        var to = Math.min(from + pageSize, size);
+        var afterId = from == 0 ? 0 : ids[from - 1];
+        var loadGeneration = generation;
+
+        loader.load(afterId, to - from).whenComplete((views, exception) -> callbackExecutor.execute(() -> {
+            if (loadGeneration != generation) {
+                // The list has been changed meanwhile, so the page may be misaligned
+                return;
+            }
+            loadingPages.remove(pageIndex);
+            if (exception != null) {
+                appendedViews.remove(pageIndex);
+                Logger.getGlobal().log(Level.SEVERE, "Could not load history page!", exception);
+                return;
+            }
+            onPageLoaded(pageIndex, views);
+        }));
+    }
+
+    /**
+     * Stores loaded views (and views appended during the load) and notifies listeners about replacement
+     * of the placeholders.
+     */
+    private void onPageLoaded(int pageIndex, List<HistoricPduView> views) {
+        pages.computeIfAbsent(pageIndex, key -> new HistoricPduView[pageSize]);
+        views.forEach(this::placeView);
+        var appended = appendedViews.remove(pageIndex);
+        if (appended != null) {
+            appended.forEach(this::placeView);
+        }
+
+        var from = pageIndex * pageSize;
+        var to = Math.min(from + pageSize, size);
+        if (from >= to) {
+            return;
+        }
+        beginChange();
+        for (var i = from; i < to; ++i) {
+            nextSet(i, null);
+        }
+        endChange();
+    }
+
+    /**
+     * Places view to the page, to which it belongs by its identifier (if the page is in memory).
+     */
+    private void placeView(HistoricPduView view) {
+        var index = Arrays.binarySearch(ids, 0, size, view.getId());
+        if (index < 0) {
+            return;
+        }
+        var pageIndex = index / pageSize;
+        var page = pages.get(pageIndex);
+        if (page == null) {
+            page = new HistoricPduView[pageSize];
+            pages.put(pageIndex, page);
+        }
+        page[index - pageIndex * pageSize] = view;
+    }
+
+    /**
+     * Removes pages with missing views (views moved from pages that were not in memory), so that they get loaded.
+     */
+    private void removeIncompletePages() {
+        pages.entrySet().removeIf(entry -> {
+            var page = entry.getValue();
+            var count = Math.min(pageSize, size - entry.getKey() * pageSize);
+            for (var i = 0; i < count; ++i) {
+                if (page[i] == null) {
+                    return true;
+                }
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Loader of pages of PDU views.
+     */
+    @FunctionalInterface
+    interface PageLoader {
+        /**
+         * Loads page of PDU views.
+         * @param afterId Identifier after which the page starts
+         * @param limit Maximal number of PDU views in the page
+         * @return Completable future for PDU views ordered by identifier
+         */
+        CompletableFuture<List<HistoricPduView>> load(long afterId, int limit);
+    }
+}
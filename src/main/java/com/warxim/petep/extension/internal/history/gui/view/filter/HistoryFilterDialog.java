@@ -32,6 +32,8 @@ import javafx.fxml.FXML;
 import javafx.scene.control.*;
 
 import java.io.IOException;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -56,6 +58,10 @@ public class HistoryFilterDialog extends SimpleInputDialog<HistoryFilter> {
     @FXML
     private TextField toSizeInput;
     @FXML
+    private TextField fromTimeInput;
+    @FXML
+    private TextField toTimeInput;
+    @FXML
     private BytesEditor dataInput;
     @FXML
     private ToggleGroup dataFilterTypeInput;
@@ -89,6 +95,8 @@ public class HistoryFilterDialog extends SimpleInputDialog<HistoryFilter> {
         resetTagsFilter();
         resetFromSizeFilter();
         resetToSizeFilter();
+        resetFromTimeFilter();
+        resetToTimeFilter();
         resetDataFilter();
 
         var dialogPane = getDialogPane();
@@ -152,6 +160,16 @@ public class HistoryFilterDialog extends SimpleInputDialog<HistoryFilter> {
             builder.toSize(toSize);
         }
 
+        var fromTime = fromTimeInput.getText().trim();
+        if (!fromTime.isEmpty()) {
+            builder.fromTime(Instant.parse(fromTime));
+        }
+
+        var toTime = toTimeInput.getText().trim();
+        if (!toTime.isEmpty()) {
+            builder.toTime(Instant.parse(toTime));
+        }
+
         var tags = getTags();
         if (!tags.isEmpty()) {
             builder.tags(tags);
@@ -200,6 +218,16 @@ public class HistoryFilterDialog extends SimpleInputDialog<HistoryFilter> {
             return false;
         }
 
+        if (!isTime(fromTimeInput.getText())) {
+            Dialogs.createErrorDialog("Invalid from time", "From time has to be empty or ISO-8601 instant (e.g. 2023-01-01T00:00:00Z).");
+            return false;
+        }
+
+        if (!isTime(toTimeInput.getText())) {
+            Dialogs.createErrorDialog("Invalid to time", "To time has to be empty or ISO-8601 instant (e.g. 2023-01-01T00:00:00Z).");
+            return false;
+        }
+
         return true;
     }
 
@@ -226,6 +254,8 @@ public class HistoryFilterDialog extends SimpleInputDialog<HistoryFilter> {
         tagsInput.clear();
         fromSizeInput.setText("-1");
         toSizeInput.setText("-1");
+        fromTimeInput.clear();
+        toTimeInput.clear();
         dataInput.clear();
         containsDataInput.setSelected(true);
         negativeSearchDataInput.setSelected(false);
@@ -243,6 +273,8 @@ public class HistoryFilterDialog extends SimpleInputDialog<HistoryFilter> {
         resetTagsFilter();
         resetFromSizeFilter();
         resetToSizeFilter();
+        resetFromTimeFilter();
+        resetToTimeFilter();
         resetDataFilter();
         event.consume();
     }
@@ -427,6 +459,28 @@ public class HistoryFilterDialog extends SimpleInputDialog<HistoryFilter> {
         }
     }
 
+    /**
+     * Resets fromTime filter (uses original filter.fromTime).
+     */
+    private void resetFromTimeFilter() {
+        if (filter.getFromTime() != null) {
+            fromTimeInput.setText(filter.getFromTime().toString());
+        } else {
+            fromTimeInput.clear();
+        }
+    }
+
+    /**
+     * Resets toTime filter (uses original filter.toTime).
+     */
+    private void resetToTimeFilter() {
+        if (filter.getToTime() != null) {
+            toTimeInput.setText(filter.getToTime().toString());
+        } else {
+            toTimeInput.clear();
+        }
+    }
+
     /**
      * Reset data filter (uses original filter.data).
      */
@@ -460,4 +514,19 @@ public class HistoryFilterDialog extends SimpleInputDialog<HistoryFilter> {
             return false;
         }
     }
+
+    /**
+     * Returns true if the value is empty or a valid ISO-8601 instant.
+     */
+    private static boolean isTime(String value) {
+        if (value.isBlank()) {
+            return true;
+        }
+        try {
+            Instant.parse(value.trim());
+            return true;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
 }
@@ -51,4 +51,9 @@ public class HistoryInterceptorModule extends InterceptorModule {
     public Interceptor createInterceptor(int id, PetepHelper helper) {
         return new HistoryInterceptor(id, this, helper, historyApi);
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
 }
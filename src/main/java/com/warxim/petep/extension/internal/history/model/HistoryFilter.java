@@ -25,6 +25,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.nio.charset.Charset;
+import java.time.Instant;
 import java.util.Set;
 
 /**
@@ -61,6 +62,14 @@ public class HistoryFilter {
      * Filter by maximum PDU size
      */
     private Integer toSize;
+    /**
+     * Filter by minimum PDU time (inclusive)
+     */
+    private Instant fromTime;
+    /**
+     * Filter by maximum PDU time (inclusive)
+     */
+    private Instant toTime;
     /**
      * Filter by tags
      */
@@ -113,6 +122,14 @@ public class HistoryFilter {
             return false;
         }
 
+        if (fromTime != null && fromTime.isAfter(pduView.getTime())) {
+            return false;
+        }
+
+        if (toTime != null && toTime.isBefore(pduView.getTime())) {
+            return false;
+        }
+
         return tags == null || pduView.getTags().containsAll(tags);
     }
 
@@ -146,6 +163,14 @@ public class HistoryFilter {
             return false;
         }
 
+        if (fromTime != null && fromTime.isAfter(pdu.getTime())) {
+            return false;
+        }
+
+        if (toTime != null && toTime.isBefore(pdu.getTime())) {
+            return false;
+        }
+
         if (tags != null && !pdu.getTags().containsAll(tags)) {
             return false;
         }
@@ -195,6 +220,14 @@ public class HistoryFilter {
             return false;
         }
 
+        if (fromTime != null) {
+            return false;
+        }
+
+        if (toTime != null) {
+            return false;
+        }
+
         if (tags != null && !tags.isEmpty()) {
             return false;
         }
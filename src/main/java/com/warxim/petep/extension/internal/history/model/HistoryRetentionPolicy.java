@@ -0,0 +1,57 @@
+/*
+ * PEnetration TEsting Proxy (PETEP)
+ *
+ * Copyright (C) 2023 Michal Válka
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <https://www.gnu.org/licenses/>.
+ */
+package com.warxim.petep.extension.internal.history.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * History retention policy, which limits the size of the history.
+ * <p>When any of the limits is exceeded, the oldest PDUs are pruned. Limits set to 0 are not applied.</p>
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class HistoryRetentionPolicy {
+    /**
+     * Maximal number of PDUs in the history
+     */
+    private long maxPdus;
+    /**
+     * Maximal total size of PDUs in the history (in bytes)
+     */
+    private long maxBytes;
+    /**
+     * Maximal age of PDUs in the history (in seconds)
+     */
+    private long maxAgeSeconds;
+    /**
+     * Maximal number of PDUs of each proxy in the history
+     */
+    private long maxPdusPerProxy;
+
+    /**
+     * Checks whether the policy is empty.
+     * @return {@code true} if the policy does not limit the history
+     */
+    public boolean isEmpty() {
+        return maxPdus <= 0 && maxBytes <= 0 && maxAgeSeconds <= 0 && maxPdusPerProxy <= 0;
+    }
+}
@@ -20,31 +20,53 @@ import com.warxim.petep.extension.internal.history.util.Pair;
 
 import java.nio.charset.Charset;
 import java.sql.SQLException;
-import java.util.Optional;
+import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Cached database history repository
  * <p>Caches most used queries in memory, so that the use of History is much faster.</p>
+ * <p>Caches are bounded (least recently used entities are evicted), so that long captures with many
+ * short-lived connections do not make the caches grow forever.</p>
  */
 public class CachedDatabaseHistoryRepository extends DatabaseHistoryRepository {
-    private EntityCache<String, Long> tagByCodeCache;
-    private EntityCache<String, Long> metadataByCodeCache;
-    private EntityCache<String, Long> charsetByCodeCache;
-    private EntityCache<Pair<String, String>, Long> proxyByCodeAndNameCache;
-    private EntityCache<Pair<String, String>, Long> interceptorByCodeAndNameCache;
+    private final EntityCache<String, Long> tagByCodeCache;
+    private final EntityCache<String, Long> metadataByCodeCache;
+    private final EntityCache<String, Long> charsetByCodeCache;
+    private final EntityCache<Pair<String, String>, Long> proxyByCodeAndNameCache;
+    private final EntityCache<Pair<String, String>, Long> connectionByCodeAndNameCache;
+    private final EntityCache<Pair<String, String>, Long> interceptorByCodeAndNameCache;
 
     /**
-     * Constructs database history repository with database at given URL.
+     * Constructs database history repository with database at given URL and default cache size.
      * @param url Path to database file
      * @throws SQLException If anything fails during history database processing
      */
     public CachedDatabaseHistoryRepository(String url) throws SQLException {
+        this(url, EntityCache.DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Constructs database history repository with database at given URL.
+     * @param url Path to database file
+     * @param cacheSize Maximal number of entities in each of the caches
+     * @throws SQLException If anything fails during history database processing
+     */
+    public CachedDatabaseHistoryRepository(String url, int cacheSize) throws SQLException {
         super(url);
-        tagByCodeCache = new EntityCache<>();
-        metadataByCodeCache = new EntityCache<>();
-        charsetByCodeCache = new EntityCache<>();
-        proxyByCodeAndNameCache = new EntityCache<>();
-        interceptorByCodeAndNameCache = new EntityCache<>();
+        tagByCodeCache = new EntityCache<>(cacheSize);
+        metadataByCodeCache = new EntityCache<>(cacheSize);
+        charsetByCodeCache = new EntityCache<>(cacheSize);
+        proxyByCodeAndNameCache = new EntityCache<>(cacheSize);
+        connectionByCodeAndNameCache = new EntityCache<>(cacheSize);
+        interceptorByCodeAndNameCache = new EntityCache<>(cacheSize);
+    }
+
+    @Override
+    public void close() {
+        logCacheStatistics();
+        super.close();
     }
 
     @Override
@@ -63,6 +85,16 @@ public class CachedDatabaseHistoryRepository extends DatabaseHistoryRepository {
                         this::getMetadataIdByCodeValue));
     }
 
+    @Override
+    public Collection<Long> getTagIdsByCodes(Collection<String> codes) {
+        return getIdsByCodes(TABLE_TAG, tagByCodeCache, codes).values();
+    }
+
+    @Override
+    public Map<String, Long> getMetadataIdsByCodes(Collection<String> codes) {
+        return getIdsByCodes(TABLE_METADATA, metadataByCodeCache, codes);
+    }
+
     @Override
     public Optional<Long> getCharsetId(Charset charset) {
         return Optional.ofNullable(
@@ -78,6 +110,14 @@ public class CachedDatabaseHistoryRepository extends DatabaseHistoryRepository {
                         this::getProxyIdByCodeAndNameValue));
     }
 
+    @Override
+    public Optional<Long> getConnectionIdByCodeAndName(String code, String name) {
+        return Optional.ofNullable(
+                connectionByCodeAndNameCache.computeIfAbsent(
+                        new Pair<>(code, name),
+                        this::getConnectionIdByCodeAndNameValue));
+    }
+
     @Override
     public Optional<Long> getInterceptorIdByCodeAndName(String code, String name) {
         return Optional.ofNullable(
@@ -86,15 +126,103 @@ public class CachedDatabaseHistoryRepository extends DatabaseHistoryRepository {
                         this::getInterceptorIdByCodeAndNameValue));
     }
 
+    /**
+     * Clears cache of the table, from which the records were deleted, so that it does not contain deleted entities.
+     */
+    @Override
+    protected void onRecordsDeleted(String table) {
+        super.onRecordsDeleted(table);
+        switch (table) {
+            case TABLE_TAG:
+                tagByCodeCache.clear();
+                break;
+            case TABLE_METADATA:
+                metadataByCodeCache.clear();
+                break;
+            case TABLE_CHARSET:
+                charsetByCodeCache.clear();
+                break;
+            case TABLE_PROXY:
+                proxyByCodeAndNameCache.clear();
+                break;
+            case TABLE_CONNECTION:
+                connectionByCodeAndNameCache.clear();
+                break;
+            case TABLE_INTERCEPTOR:
+                interceptorByCodeAndNameCache.clear();
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Rolls back the transaction and clears caches, since they could contain entities created in the transaction.
+     */
     @Override
-    public void deleteUnusedRecords() {
-        super.deleteUnusedRecords();
+    protected void rollback() {
+        super.rollback();
         tagByCodeCache.clear();
         metadataByCodeCache.clear();
+        charsetByCodeCache.clear();
         proxyByCodeAndNameCache.clear();
+        connectionByCodeAndNameCache.clear();
         interceptorByCodeAndNameCache.clear();
     }
 
+    /**
+     * Gets entity identifiers by codes using the cache and resolves the missing ones using single bulk lookup.
+     */
+    private Map<String, Long> getIdsByCodes(String table, EntityCache<String, Long> cache, Collection<String> codes) {
+        if (codes.isEmpty()) {
+            return Map.of();
+        }
+
+        var ids = new LinkedHashMap<String, Long>(codes.size() * 2);
+        var missingCodes = new ArrayList<String>();
+        for (var code : codes) {
+            var id = cache.get(code);
+            if (id == null) {
+                missingCodes.add(code);
+            } else {
+                ids.put(code, id);
+            }
+        }
+
+        if (!missingCodes.isEmpty()) {
+            var missingIds = super.getIdsByCodes(table, missingCodes);
+            missingIds.forEach(cache::put);
+            ids.putAll(missingIds);
+        }
+        return ids;
+    }
+
+    /**
+     * Logs hit/miss statistics of all caches.
+     */
+    private void logCacheStatistics() {
+        var logger = Logger.getGlobal();
+        if (!logger.isLoggable(Level.FINE)) {
+            return;
+        }
+        logCacheStatistics(logger, TABLE_TAG, tagByCodeCache);
+        logCacheStatistics(logger, TABLE_METADATA, metadataByCodeCache);
+        logCacheStatistics(logger, TABLE_CHARSET, charsetByCodeCache);
+        logCacheStatistics(logger, TABLE_PROXY, proxyByCodeAndNameCache);
+        logCacheStatistics(logger, TABLE_CONNECTION, connectionByCodeAndNameCache);
+        logCacheStatistics(logger, TABLE_INTERCEPTOR, interceptorByCodeAndNameCache);
+    }
+
+    private static void logCacheStatistics(Logger logger, String table, EntityCache<?, ?> cache) {
+        logger.log(Level.FINE, () -> String.format(
+                "History %s cache: %d hits, %d misses, %d/%d entities",
+                table,
+                cache.getHitCount(),
+                cache.getMissCount(),
+                cache.size(),
+                cache.getMaxSize()));
+    }
+
     /**
      * Returns tag ID by code or null if it does not exist.
      */
@@ -116,6 +244,13 @@ public class CachedDatabaseHistoryRepository extends DatabaseHistoryRepository {
         return super.getProxyIdByCodeAndName(codeNamePair.getLeft(), codeNamePair.getRight()).orElse(null);
     }
 
+    /**
+     * Returns connection ID by code or null if it does not exist.
+     */
+    private Long getConnectionIdByCodeAndNameValue(Pair<String, String> codeNamePair) {
+        return super.getConnectionIdByCodeAndName(codeNamePair.getLeft(), codeNamePair.getRight()).orElse(null);
+    }
+
     /**
      * Returns interceptor ID by code or null if it does not exist.
      */
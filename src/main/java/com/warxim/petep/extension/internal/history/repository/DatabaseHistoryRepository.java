@@ -19,6 +19,8 @@ package com.warxim.petep.extension.internal.history.repository;
 import com.warxim.petep.core.pdu.PduDestination;
 import com.warxim.petep.extension.internal.history.model.*;
 import com.warxim.petep.extension.internal.history.repository.database.HistoryDatabase;
+import com.warxim.petep.extension.internal.history.repository.database.HistoryPayloadStore;
+import com.warxim.petep.extension.internal.history.repository.database.HistorySearchIndex;
 
 import java.nio.charset.Charset;
 import java.sql.PreparedStatement;
@@ -27,7 +29,6 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.time.Instant;
 import java.util.*;
-import java.util.stream.Collectors;
 
 import static com.warxim.petep.extension.internal.history.util.HistoryDatabaseUtils.*;
 import static com.warxim.petep.extension.internal.history.repository.database.DatabaseHistoryQuery.*;
@@ -35,17 +36,25 @@ import static com.warxim.petep.extension.internal.history.repository.database.Da
 /**
  * Default history repository implementation using SQLite database.
  * <p>Creates and uses SQLite database for storing and querying history.</p>
+ * <p>Repository can create readers (see {@link #createReader()}), which use their own read-only connections,
+ * so that they can query the database from other threads while this repository writes.</p>
  */
 public class DatabaseHistoryRepository implements HistoryRepository {
     /*
      * Tables
      */
-    private static final String TABLE_PROXY = "proxy";
-    private static final String TABLE_TAG = "tag";
-    private static final String TABLE_CONNECTION = "connection";
-    private static final String TABLE_INTERCEPTOR = "interceptor";
-    private static final String TABLE_METADATA = "metadata";
-    private static final String TABLE_CHARSET = "charset";
+    protected static final String TABLE_PROXY = "proxy";
+    protected static final String TABLE_TAG = "tag";
+    protected static final String TABLE_CONNECTION = "connection";
+    protected static final String TABLE_INTERCEPTOR = "interceptor";
+    protected static final String TABLE_METADATA = "metadata";
+    protected static final String TABLE_CHARSET = "charset";
+    protected static final String TABLE_PAYLOAD = "payload";
+
+    /**
+     * Maximal number of codes resolved by single query (SQLite limits number of query parameters).
+     */
+    private static final int MAX_CODES_PER_QUERY = 500;
 
     /*
      * Statements
@@ -53,6 +62,7 @@ public class DatabaseHistoryRepository implements HistoryRepository {
     private final PreparedStatement getPduStatement;
     private final PreparedStatement deletePduStatement;
     private final PreparedStatement deleteAllPdusStatement;
+    private final PreparedStatement deleteAllPayloadsStatement;
     private final PreparedStatement getPdusStatement;
     private final PreparedStatement getPduViewsStatement;
     private final PreparedStatement getProxiesStatement;
@@ -73,8 +83,12 @@ public class DatabaseHistoryRepository implements HistoryRepository {
     private final PreparedStatement deleteUnusedProxiesStatement;
     private final PreparedStatement deleteUnusedInterceptorsStatement;
     private final PreparedStatement deleteUnusedConnectionsStatement;
+    private final PreparedStatement deleteUnusedPayloadsStatement;
 
     private final HistoryDatabase database;
+    private final HistoryPayloadStore payloadStore;
+    private final DatabaseHistoryRepository writer;
+    private HistorySearchIndex searchIndex;
 
     /**
      * Constructs database history repository by creating SQLite database and preparing statements.
@@ -82,7 +96,18 @@ public class DatabaseHistoryRepository implements HistoryRepository {
      * @throws SQLException If anything fails during history database processing
      */
     public DatabaseHistoryRepository(String url) throws SQLException {
-        this.database = new HistoryDatabase(url);
+        this(new HistoryDatabase(url), null);
+    }
+
+    /**
+     * Constructs database history repository using given database by preparing statements.
+     * @param database History database
+     * @param writer Repository, which writes to the database (null if this repository is the writer)
+     * @throws SQLException If anything fails during history database processing
+     */
+    private DatabaseHistoryRepository(HistoryDatabase database, DatabaseHistoryRepository writer) throws SQLException {
+        this.database = database;
+        this.writer = writer;
 
         var connection = database.getConnection();
 
@@ -90,6 +115,7 @@ public class DatabaseHistoryRepository implements HistoryRepository {
         getPduStatement = connection.prepareStatement(SQL_GET_PDU);
         deletePduStatement = connection.prepareStatement(SQL_DELETE_PDU);
         deleteAllPdusStatement = connection.prepareStatement(SQL_DELETE_ALL_PDUS);
+        deleteAllPayloadsStatement = connection.prepareStatement(SQL_DELETE_ALL_PAYLOADS);
         getPdusStatement = connection.prepareStatement(SQL_GET_PDUS);
         getPduViewsStatement = connection.prepareStatement(SQL_GET_PDU_VIEWS);
         getProxiesStatement = connection.prepareStatement(SQL_GET_PROXIES);
@@ -106,6 +132,7 @@ public class DatabaseHistoryRepository implements HistoryRepository {
         deleteUnusedProxiesStatement = connection.prepareStatement(SQL_DELETE_UNUSED_PROXIES);
         deleteUnusedInterceptorsStatement = connection.prepareStatement(SQL_DELETE_UNUSED_INTERCEPTORS);
         deleteUnusedConnectionsStatement = connection.prepareStatement(SQL_DELETE_UNUSED_CONNECTIONS);
+        deleteUnusedPayloadsStatement = connection.prepareStatement(SQL_DELETE_UNUSED_PAYLOADS);
         createEntityWithCodeAndNameStatement = Map.of(
                 TABLE_PROXY,
                 prepareStatementForTable(TABLE_PROXY, SQL_CREATE_ENTITY_WITH_CODE_AND_NAME),
@@ -138,6 +165,81 @@ public class DatabaseHistoryRepository implements HistoryRepository {
                 TABLE_METADATA,
                 prepareStatementForTable(TABLE_METADATA, SQL_GET_ENTITY_ID_BY_CODE)
         );
+
+        payloadStore = new HistoryPayloadStore(connection);
+
+        if (writer == null && HistorySearchIndex.exists(connection)) {
+            searchIndex = new HistorySearchIndex(connection);
+        }
+    }
+
+    @Override
+    public Optional<HistoryRepository> createReader() {
+        if (writer != null) {
+            return writer.createReader();
+        }
+        var url = database.getUrl();
+        if (url.contains(":memory:") || url.contains("mode=memory")) {
+            // In-memory database cannot be shared by multiple connections
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(new DatabaseHistoryRepository(database.openReadOnly(), this));
+        } catch (SQLException exception) {
+            logError(exception);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Enables or disables search index of PDU data.
+     * <p>Enabling creates the index and indexes all existing PDUs, which can take a while for large histories.
+     * Disabling drops the index, since it would not be maintained anymore.</p>
+     * @param enabled Whether the search index should be enabled
+     */
+    public void setSearchIndexEnabled(boolean enabled) {
+        if (enabled == isSearchIndexEnabled()) {
+            return;
+        }
+        try {
+            if (enabled) {
+                searchIndex = HistorySearchIndex.create(database.getConnection());
+            } else {
+                searchIndex = null;
+                HistorySearchIndex.drop(database.getConnection());
+            }
+        } catch (SQLException exception) {
+            logError(exception);
+        }
+    }
+
+    /**
+     * Checks whether search index of PDU data is enabled.
+     * @return {@code true} if the search index is enabled
+     */
+    public boolean isSearchIndexEnabled() {
+        if (writer != null) {
+            // Readers use the index maintained by the writer
+            return writer.isSearchIndexEnabled();
+        }
+        return searchIndex != null;
+    }
+
+    /**
+     * Configures compression of PDU data, which is stored from now on (already stored data is kept as is).
+     * @param enabled Whether the data should be compressed
+     * @param threshold Minimal size of data, which is compressed
+     */
+    public void setPayloadCompression(boolean enabled, int threshold) {
+        payloadStore.setCompression(enabled, threshold);
+    }
+
+    /**
+     * Checks whether PDU data is stored compressed.
+     * @return {@code true} if the compression is enabled
+     */
+    public boolean isPayloadCompressionEnabled() {
+        return payloadStore.isCompressionEnabled();
     }
 
     @Override
@@ -165,11 +267,19 @@ public class DatabaseHistoryRepository implements HistoryRepository {
     @Override
     public List<Long> deletePdus(Collection<Long> ids) {
         try {
-            for (var id : ids) {
-                deletePduStatement.setLong(1, id);
-                deletePduStatement.addBatch();
-            }
-            var result = deletePduStatement.executeBatch();
+            // Search index has to stay consistent with the PDUs, otherwise PDUs would not be found by data filter
+            var result = runInTransaction(() -> {
+                if (searchIndex != null) {
+                    for (var id : ids) {
+                        searchIndex.remove(id);
+                    }
+                }
+                for (var id : ids) {
+                    deletePduStatement.setLong(1, id);
+                    deletePduStatement.addBatch();
+                }
+                return deletePduStatement.executeBatch();
+            });
 
             var deletedIds = new LinkedList<Long>();
             var index = 0;
@@ -188,7 +298,13 @@ public class DatabaseHistoryRepository implements HistoryRepository {
     @Override
     public void deleteAllPdus() {
         try {
-            deleteAllPdusStatement.executeUpdate();
+            runInTransaction(() -> {
+                if (searchIndex != null) {
+                    searchIndex.clear();
+                }
+                deleteAllPdusStatement.executeUpdate();
+                return deleteAllPayloadsStatement.executeUpdate();
+            });
         } catch (SQLException exception) {
             logError(exception);
         }
@@ -230,11 +346,11 @@ public class DatabaseHistoryRepository implements HistoryRepository {
             return getPdus();
         }
 
-        var sql = generateFilterQuery(SQL_GET_PDUS, filter);
+        var sql = generateFilterQuery(SQL_GET_PDUS, filter, isSearchIndexEnabled());
         var list = new LinkedList<HistoricPdu>();
 
         try (var stmt = database.getConnection().prepareStatement(sql)) {
-            bindFilterParameters(stmt, filter);
+            bindFilterParameters(stmt, filter, isSearchIndexEnabled());
 
             try (var result = stmt.executeQuery()) {
                 while (result.next()) {
@@ -255,11 +371,11 @@ public class DatabaseHistoryRepository implements HistoryRepository {
             return getPduViews();
         }
 
-        var sql = generateFilterQuery(SQL_GET_PDU_VIEWS, filter);
+        var sql = generateFilterQuery(SQL_GET_PDU_VIEWS, filter, isSearchIndexEnabled());
         var list = new LinkedList<HistoricPduView>();
 
         try (var stmt = database.getConnection().prepareStatement(sql)) {
-            bindFilterParameters(stmt, filter);
+            bindFilterParameters(stmt, filter, isSearchIndexEnabled());
 
             try (var result = stmt.executeQuery()) {
                 while (result.next()) {
@@ -280,11 +396,11 @@ public class DatabaseHistoryRepository implements HistoryRepository {
             return Collections.emptySet();
         }
 
-        var sql = generateFilterQuery(SQL_GET_PDU_IDS, filter);
+        var sql = generateFilterQuery(SQL_GET_PDU_IDS, filter, isSearchIndexEnabled());
         var list = new HashSet<Long>();
 
         try (var stmt = database.getConnection().prepareStatement(sql)) {
-            bindFilterParameters(stmt, filter);
+            bindFilterParameters(stmt, filter, isSearchIndexEnabled());
 
             try (var result = stmt.executeQuery()) {
                 while (result.next()) {
@@ -297,6 +413,57 @@ public class DatabaseHistoryRepository implements HistoryRepository {
         return list;
     }
 
+    @Override
+    public List<HistoricPduView> getPduViewsPage(HistoryFilter filter, long afterId, int limit) {
+        var sql = generateKeysetQuery(SQL_GET_PDU_VIEWS, filter) + SQL_KEYSET_ORDER;
+        var list = new ArrayList<HistoricPduView>(limit);
+
+        try (var stmt = database.getConnection().prepareStatement(sql)) {
+            var paramId = filter.isEmpty() ? 0 : bindFilterParameters(stmt, filter, isSearchIndexEnabled());
+            stmt.setLong(++paramId, afterId);
+            stmt.setInt(++paramId, limit);
+
+            try (var result = stmt.executeQuery()) {
+                while (result.next()) {
+                    list.add(
+                            mapResultToHistoricPduView(result)
+                    );
+                }
+            }
+        } catch (SQLException exception) {
+            logError(exception);
+        }
+        return list;
+    }
+
+    @Override
+    public long[] getOrderedPduIds(HistoryFilter filter) {
+        var sql = filter.isEmpty()
+                ? SQL_GET_PDU_IDS
+                : generateFilterQuery(SQL_GET_PDU_IDS, filter, isSearchIndexEnabled());
+        sql += SQL_ORDER_BY_ID;
+        var ids = new long[1024];
+        var count = 0;
+
+        try (var stmt = database.getConnection().prepareStatement(sql)) {
+            if (!filter.isEmpty()) {
+                bindFilterParameters(stmt, filter, isSearchIndexEnabled());
+            }
+
+            try (var result = stmt.executeQuery()) {
+                while (result.next()) {
+                    if (count == ids.length) {
+                        ids = Arrays.copyOf(ids, count * 2);
+                    }
+                    ids[count++] = result.getLong(1);
+                }
+            }
+        } catch (SQLException exception) {
+            logError(exception);
+        }
+        return Arrays.copyOf(ids, count);
+    }
+
     @Override
     public List<HistoricProxy> getProxies() {
         var list = new LinkedList<HistoricProxy>();
@@ -444,26 +611,19 @@ public class DatabaseHistoryRepository implements HistoryRepository {
 
     @Override
     public Collection<Long> getTagIdsByCodes(Collection<String> codes) {
-        return codes.stream()
-                .map(this::getTagIdByCode)
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .collect(Collectors.toList());
+        return getIdsByCodes(TABLE_TAG, codes).values();
+    }
+
+    @Override
+    public Map<String, Long> getMetadataIdsByCodes(Collection<String> codes) {
+        return getIdsByCodes(TABLE_METADATA, codes);
     }
 
     @Override
     public Optional<Long> createPdu(Long proxyId, Long connectionId, Long interceptorId, Long charsetId, PduDestination destination, int size, Instant time, byte[] data) {
         try {
-            createPduStatement.setLong(1, proxyId);
-            createPduStatement.setLong(2, connectionId);
-            createPduStatement.setLong(3, interceptorId);
-            createPduStatement.setLong(4, charsetId);
-            createPduStatement.setLong(5, getDestinationId(destination));
-            createPduStatement.setInt(6, size);
-            createPduStatement.setLong(7, time.getEpochSecond());
-            createPduStatement.setBytes(8, data);
-            createPduStatement.executeUpdate();
-            return Optional.of(createPduStatement.getGeneratedKeys().getLong(1));
+            return Optional.of(runInTransaction(
+                    () -> insertPduRow(proxyId, connectionId, interceptorId, charsetId, destination, size, time, data)));
         } catch (SQLException exception) {
             logError(exception);
         }
@@ -489,13 +649,14 @@ public class DatabaseHistoryRepository implements HistoryRepository {
     @Override
     public boolean addPduMetadata(Long pduId, Map<String, String> metadata) {
         try {
+            var metadataIds = getMetadataIdsByCodes(metadata.keySet());
             for (var item : metadata.entrySet()) {
-                var metadataId = getMetadataIdByCode(item.getKey());
-                if (metadataId.isEmpty()) {
+                var metadataId = metadataIds.get(item.getKey());
+                if (metadataId == null) {
                     return false;
                 }
                 addPduMetadataStatement.setLong(1, pduId);
-                addPduMetadataStatement.setLong(2, metadataId.get());
+                addPduMetadataStatement.setLong(2, metadataId);
                 addPduMetadataStatement.setString(3, item.getValue());
                 addPduMetadataStatement.addBatch();
             }
@@ -507,14 +668,292 @@ public class DatabaseHistoryRepository implements HistoryRepository {
         return false;
     }
 
+    @Override
+    public List<Optional<Long>> savePdus(List<HistoricPdu> pdus) {
+        var connection = database.getConnection();
+        try {
+            connection.setAutoCommit(false);
+
+            var ids = new ArrayList<Optional<Long>>(pdus.size());
+            for (var pdu : pdus) {
+                ids.add(insertPdu(pdu));
+            }
+            addPduTagStatement.executeBatch();
+            addPduMetadataStatement.executeBatch();
+
+            connection.commit();
+
+            var index = 0;
+            for (var pdu : pdus) {
+                ids.get(index++).ifPresent(pdu::setId);
+            }
+            return ids;
+        } catch (SQLException exception) {
+            logError(exception);
+            rollback();
+        } finally {
+            try {
+                connection.setAutoCommit(true);
+            } catch (SQLException exception) {
+                logError(exception);
+            }
+        }
+        return Collections.nCopies(pdus.size(), Optional.empty());
+    }
+
     @Override
     public void deleteUnusedRecords() {
         try {
-            deleteUnusedTagsStatement.executeUpdate();
-            deleteUnusedMetadataStatement.executeUpdate();
-            deleteUnusedProxiesStatement.executeUpdate();
-            deleteUnusedInterceptorsStatement.executeUpdate();
-            deleteUnusedConnectionsStatement.executeUpdate();
+            deleteUnusedRecords(TABLE_TAG, deleteUnusedTagsStatement);
+            deleteUnusedRecords(TABLE_METADATA, deleteUnusedMetadataStatement);
+            deleteUnusedRecords(TABLE_PROXY, deleteUnusedProxiesStatement);
+            deleteUnusedRecords(TABLE_INTERCEPTOR, deleteUnusedInterceptorsStatement);
+            deleteUnusedRecords(TABLE_CONNECTION, deleteUnusedConnectionsStatement);
+            deleteUnusedRecords(TABLE_PAYLOAD, deleteUnusedPayloadsStatement);
+        } catch (SQLException exception) {
+            logError(exception);
+        }
+    }
+
+    @Override
+    public List<Long> getPduIdsExceedingRetention(HistoryRetentionPolicy policy, int limit) {
+        var ids = new TreeSet<Long>();
+        var connection = database.getConnection();
+        try {
+            if (policy.getMaxAgeSeconds() > 0) {
+                try (var stmt = connection.prepareStatement(SQL_GET_OLDEST_PDU_IDS_BEFORE_TIME)) {
+                    stmt.setLong(1, toTimestamp(Instant.now().minusSeconds(policy.getMaxAgeSeconds())));
+                    stmt.setInt(2, limit);
+                    addIds(ids, stmt);
+                }
+            }
+
+            if (policy.getMaxPdus() > 0) {
+                var excess = queryLong(SQL_COUNT_PDUS) - policy.getMaxPdus();
+                if (excess > 0) {
+                    try (var stmt = connection.prepareStatement(SQL_GET_OLDEST_PDU_IDS)) {
+                        stmt.setLong(1, Math.min(excess, limit));
+                        addIds(ids, stmt);
+                    }
+                }
+            }
+
+            if (policy.getMaxBytes() > 0) {
+                var excess = queryLong(SQL_GET_TOTAL_PDU_SIZE) - policy.getMaxBytes();
+                if (excess > 0) {
+                    try (var stmt = connection.prepareStatement(SQL_GET_OLDEST_PDU_IDS)) {
+                        stmt.setInt(1, limit);
+                        try (var result = stmt.executeQuery()) {
+                            while (excess > 0 && result.next()) {
+                                ids.add(result.getLong(1));
+                                excess -= result.getInt(2);
+                            }
+                        }
+                    }
+                }
+            }
+
+            if (policy.getMaxPdusPerProxy() > 0) {
+                var excessByProxy = new HashMap<Long, Long>();
+                try (var stmt = connection.prepareStatement(SQL_GET_PROXIES_EXCEEDING_PDU_COUNT)) {
+                    stmt.setLong(1, policy.getMaxPdusPerProxy());
+                    try (var result = stmt.executeQuery()) {
+                        while (result.next()) {
+                            excessByProxy.put(result.getLong(1), result.getLong(2) - policy.getMaxPdusPerProxy());
+                        }
+                    }
+                }
+                try (var stmt = connection.prepareStatement(SQL_GET_OLDEST_PROXY_PDU_IDS)) {
+                    for (var entry : excessByProxy.entrySet()) {
+                        stmt.setLong(1, entry.getKey());
+                        stmt.setLong(2, Math.min(entry.getValue(), limit));
+                        addIds(ids, stmt);
+                    }
+                }
+            }
+        } catch (SQLException exception) {
+            logError(exception);
+        }
+
+        // Each limit selects the oldest PDUs, so the oldest ones are pruned first
+        var list = new ArrayList<Long>(Math.min(ids.size(), limit));
+        for (var id : ids) {
+            if (list.size() == limit) {
+                break;
+            }
+            list.add(id);
+        }
+        return list;
+    }
+
+    @Override
+    public int compact(int maxPages) {
+        try {
+            return database.vacuum(maxPages);
+        } catch (SQLException exception) {
+            logError(exception);
+        }
+        return 0;
+    }
+
+    /**
+     * Adds identifiers from the first column of the query result to given set.
+     */
+    private static void addIds(Set<Long> ids, PreparedStatement stmt) throws SQLException {
+        try (var result = stmt.executeQuery()) {
+            while (result.next()) {
+                ids.add(result.getLong(1));
+            }
+        }
+    }
+
+    /**
+     * Runs query, which returns single number.
+     */
+    private long queryLong(String sql) throws SQLException {
+        try (var stmt = database.getConnection().createStatement();
+             var result = stmt.executeQuery(sql)) {
+            return result.next() ? result.getLong(1) : 0;
+        }
+    }
+
+    /**
+     * Deletes unused records from given table using given statement and notifies about it.
+     * @param table Table, from which the records are deleted
+     * @param statement Statement deleting the unused records
+     */
+    private void deleteUnusedRecords(String table, PreparedStatement statement) throws SQLException {
+        if (statement.executeUpdate() > 0) {
+            onRecordsDeleted(table);
+        }
+    }
+
+    /**
+     * Called when records of given table were deleted, so that subclasses can invalidate data related to the table.
+     * @param table Table, from which the records were deleted
+     */
+    protected void onRecordsDeleted(String table) {
+        // No data related to tables kept by default
+    }
+
+    /**
+     * Inserts PDU into database as part of the running transaction.
+     * <p>Tags and metadata of the PDU are only added to batches, which have to be executed afterwards.</p>
+     * @param pdu PDU to be inserted
+     * @return Identifier of inserted PDU
+     */
+    protected Optional<Long> insertPdu(HistoricPdu pdu) throws SQLException {
+        var proxyId = getProxyIdByCodeAndName(pdu.getProxy().getCode(), pdu.getProxy().getName());
+        if (proxyId.isEmpty()) {
+            return Optional.empty();
+        }
+        pdu.getProxy().setId(proxyId.get());
+
+        var connectionId = getConnectionIdByCodeAndName(pdu.getConnection().getCode(), pdu.getConnection().getName());
+        if (connectionId.isEmpty()) {
+            return Optional.empty();
+        }
+        pdu.getConnection().setId(connectionId.get());
+
+        var interceptorId = getInterceptorIdByCodeAndName(pdu.getInterceptor().getCode(), pdu.getInterceptor().getName());
+        if (interceptorId.isEmpty()) {
+            return Optional.empty();
+        }
+        pdu.getInterceptor().setId(interceptorId.get());
+
+        var charsetId = getCharsetId(pdu.getCharset());
+        if (charsetId.isEmpty()) {
+            return Optional.empty();
+        }
+
+        // Failure is propagated, so that the batch is rolled back (including search index of the PDU)
+        var pduId = Optional.of(insertPduRow(
+                proxyId.get(),
+                connectionId.get(),
+                interceptorId.get(),
+                charsetId.get(),
+                pdu.getDestination(),
+                pdu.getSize(),
+                pdu.getTime(),
+                pdu.getData()));
+
+        for (var tagId : getTagIdsByCodes(pdu.getTags())) {
+            addPduTagStatement.setLong(1, pduId.get());
+            addPduTagStatement.setLong(2, tagId);
+            addPduTagStatement.addBatch();
+        }
+
+        if (pdu.getMetadata() != null && !pdu.getMetadata().isEmpty()) {
+            var metadataIds = getMetadataIdsByCodes(pdu.getMetadata().keySet());
+            for (var item : pdu.getMetadata().entrySet()) {
+                var metadataId = metadataIds.get(item.getKey());
+                if (metadataId == null) {
+                    continue;
+                }
+                addPduMetadataStatement.setLong(1, pduId.get());
+                addPduMetadataStatement.setLong(2, metadataId);
+                addPduMetadataStatement.setString(3, item.getValue());
+                addPduMetadataStatement.addBatch();
+            }
+        }
+
+        return pduId;
+    }
+
+    /**
+     * Inserts PDU row and its search index entry (has to be run in transaction).
+     * @return Identifier of inserted PDU
+     */
+    private long insertPduRow(Long proxyId, Long connectionId, Long interceptorId, Long charsetId, PduDestination destination, int size, Instant time, byte[] data) throws SQLException {
+        createPduStatement.setLong(1, proxyId);
+        createPduStatement.setLong(2, connectionId);
+        createPduStatement.setLong(3, interceptorId);
+        createPduStatement.setLong(4, charsetId);
+        createPduStatement.setLong(5, getDestinationId(destination));
+        createPduStatement.setInt(6, size);
+        createPduStatement.setLong(7, toTimestamp(time));
+        createPduStatement.setLong(8, payloadStore.getOrCreate(data));
+        createPduStatement.executeUpdate();
+        var id = createPduStatement.getGeneratedKeys().getLong(1);
+        if (searchIndex != null) {
+            searchIndex.add(id, data);
+        }
+        return id;
+    }
+
+    /**
+     * Runs the action in transaction (or as part of already running transaction).
+     * @param action Action to be run
+     * @return Result of the action
+     * @throws SQLException If the action fails (the transaction is rolled back)
+     */
+    private <T> T runInTransaction(SqlAction<T> action) throws SQLException {
+        var connection = database.getConnection();
+        if (!connection.getAutoCommit()) {
+            return action.run();
+        }
+
+        connection.setAutoCommit(false);
+        try {
+            var result = action.run();
+            connection.commit();
+            return result;
+        } catch (SQLException exception) {
+            connection.rollback();
+            throw exception;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Rolls back the running transaction and clears unexecuted batches.
+     */
+    protected void rollback() {
+        try {
+            addPduTagStatement.clearBatch();
+            addPduMetadataStatement.clearBatch();
+            database.getConnection().rollback();
         } catch (SQLException exception) {
             logError(exception);
         }
@@ -586,6 +1025,50 @@ public class DatabaseHistoryRepository implements HistoryRepository {
         return Optional.empty();
     }
 
+    /**
+     * Gets entity identifiers by specified codes from given table. (Creates entities that do not exist.)
+     * <p>Existing entities are resolved using bulk queries, missing entities are created one by one.</p>
+     * @param table Target table
+     * @param codes Codes of the entities to be found
+     * @return Map of codes and identifiers of the obtained entities (does not contain codes, which failed)
+     */
+    protected Map<String, Long> getIdsByCodes(String table, Collection<String> codes) {
+        if (codes.isEmpty()) {
+            return Map.of();
+        }
+
+        var ids = new LinkedHashMap<String, Long>(codes.size() * 2);
+        var uniqueCodes = new ArrayList<>(new LinkedHashSet<>(codes));
+        try {
+            for (var from = 0; from < uniqueCodes.size(); from += MAX_CODES_PER_QUERY) {
+                var chunk = uniqueCodes.subList(from, Math.min(from + MAX_CODES_PER_QUERY, uniqueCodes.size()));
+                var placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+                try (var stmt = database.getConnection().prepareStatement(
+                        String.format(SQL_GET_ENTITY_IDS_BY_CODES, table, placeholders))) {
+                    var index = 1;
+                    for (var code : chunk) {
+                        stmt.setString(index++, code);
+                    }
+                    try (var result = stmt.executeQuery()) {
+                        while (result.next()) {
+                            ids.put(result.getString(2), result.getLong(1));
+                        }
+                    }
+                }
+            }
+        } catch (SQLException exception) {
+            logError(exception);
+            return Map.of();
+        }
+
+        for (var code : uniqueCodes) {
+            if (!ids.containsKey(code)) {
+                createEntityAndGetId(table, code).ifPresent(id -> ids.put(code, id));
+            }
+        }
+        return ids;
+    }
+
     /**
      * Creates entity with specified code in given table.
      * @param table Target table
@@ -604,6 +1087,19 @@ public class DatabaseHistoryRepository implements HistoryRepository {
         return Optional.empty();
     }
 
+    /**
+     * Generates query with filter conditions and keyset condition (identifier greater than parameter).
+     * @param sql SQL query before WHERE clause
+     * @param filter Filter to be used for generation of the query
+     * @return SQL query with filter and keyset conditions
+     */
+    private String generateKeysetQuery(String sql, HistoryFilter filter) {
+        if (filter.isEmpty()) {
+            return sql + " WHERE " + SQL_KEYSET_CONDITION;
+        }
+        return generateFilterQuery(sql, filter, isSearchIndexEnabled()) + " AND " + SQL_KEYSET_CONDITION;
+    }
+
     /**
      * Prepares statement for given table (replaces %s with table name).
      * @param table Table to be used instead of %s
@@ -627,8 +1123,8 @@ public class DatabaseHistoryRepository implements HistoryRepository {
                 .id(id)
                 .destination(getDestination(result.getInt(2)))
                 .size(result.getInt(3))
-                .time(Instant.ofEpochSecond(result.getInt(4)))
-                .data(result.getBytes(5))
+                .time(fromTimestamp(result.getLong(4)))
+                .data(HistoryPayloadStore.decode(result.getInt(16), result.getBytes(5)))
                 .proxy(
                         HistoricProxy.builder()
                                 .id(result.getLong(6))
@@ -664,7 +1160,7 @@ public class DatabaseHistoryRepository implements HistoryRepository {
                 .id(id)
                 .destination(getDestination(result.getInt(2)))
                 .size(result.getInt(3))
-                .time(Instant.ofEpochSecond(result.getInt(4)))
+                .time(fromTimestamp(result.getLong(4)))
                 .proxyId(result.getLong(5))
                 .proxyName(result.getString(6).intern())
                 .connectionId(result.getLong(7))
@@ -674,4 +1170,12 @@ public class DatabaseHistoryRepository implements HistoryRepository {
                 .tags(getPduTags(id))
                 .build();
     }
+
+    /**
+     * Database action, which can throw SQL exception.
+     */
+    @FunctionalInterface
+    private interface SqlAction<T> {
+        T run() throws SQLException;
+    }
 }
@@ -16,40 +16,154 @@
  */
 package com.warxim.petep.extension.internal.history.repository;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
 
 /**
  * Entity cache for caching queries.
- * <p>Entity cache is currently backed by {@link HashMap}.</p>
+ * <p>Entity cache is bounded - when the maximal size is reached, the least recently used entity is evicted.
+ * The cache is thread-safe and counts hits and misses, so that its efficiency can be monitored.</p>
+ * <p>Null values are never cached (so failed lookups are retried next time).</p>
  * @param <K> Type of cached key
  * @param <V> Type of cached value
  */
 public class EntityCache<K, V> {
-    private Map<K, V> entities;
+    /**
+     * Default maximal number of cached entities.
+     */
+    public static final int DEFAULT_MAX_SIZE = 4096;
+
+    private final Map<K, V> entities;
+    private final int maxSize;
+    private final LongAdder hitCount;
+    private final LongAdder missCount;
 
     /**
-     * Constructs entity cache.
+     * Constructs entity cache with default maximal size.
      */
     public EntityCache() {
-        entities = new HashMap<>();
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Constructs entity cache.
+     * @param maxSize Maximal number of cached entities
+     */
+    public EntityCache(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Maximal size of entity cache has to be positive!");
+        }
+        this.maxSize = maxSize;
+        this.hitCount = new LongAdder();
+        this.missCount = new LongAdder();
+        this.entities = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > EntityCache.this.maxSize;
+            }
+        };
     }
 
     /**
      * Obtains value for given key or generates it using specified provided and returns generated value.
+     * <p>Provider is called outside of the cache lock, so slow providers do not block other cache users.</p>
      * @param key Key for searching the entity
      * @param provider Provider for generating the entity if it does not exist already
      * @return Value for given key
      */
     public V computeIfAbsent(K key, Function<K, V> provider) {
-        return entities.computeIfAbsent(key, provider);
+        var value = get(key);
+        if (value != null) {
+            return value;
+        }
+        value = provider.apply(key);
+        if (value != null) {
+            put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * Obtains cached value for given key.
+     * @param key Key for searching the entity
+     * @return Cached value or null if the value is not cached
+     */
+    public V get(K key) {
+        V value;
+        synchronized (entities) {
+            value = entities.get(key);
+        }
+        if (value == null) {
+            missCount.increment();
+        } else {
+            hitCount.increment();
+        }
+        return value;
+    }
+
+    /**
+     * Caches value for given key.
+     * @param key Key of the entity
+     * @param value Value of the entity
+     */
+    public void put(K key, V value) {
+        synchronized (entities) {
+            entities.put(key, value);
+        }
+    }
+
+    /**
+     * Removes entity with given key from the cache.
+     * @param key Key of the entity
+     */
+    public void remove(K key) {
+        synchronized (entities) {
+            entities.remove(key);
+        }
     }
 
     /**
      * Clears the whole cache of entities.
      */
     public void clear() {
-        entities.clear();
+        synchronized (entities) {
+            entities.clear();
+        }
+    }
+
+    /**
+     * Gets number of currently cached entities.
+     * @return Number of cached entities
+     */
+    public int size() {
+        synchronized (entities) {
+            return entities.size();
+        }
+    }
+
+    /**
+     * Gets maximal number of cached entities.
+     * @return Maximal number of cached entities
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Gets number of lookups, which found the entity in the cache.
+     * @return Number of cache hits
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * Gets number of lookups, which did not find the entity in the cache.
+     * @return Number of cache misses
+     */
+    public long getMissCount() {
+        return missCount.sum();
     }
 }
@@ -27,6 +27,17 @@ import java.util.*;
  * History repository
  */
 public interface HistoryRepository extends AutoCloseable {
+    /**
+     * Creates reader of this repository, which can query the repository from other thread,
+     * concurrently with writing done by this repository.
+     * <p>Reader sees all changes committed by this repository before its query started.
+     * Reader has to be closed, when it is no longer needed.</p>
+     * @return Reader of the repository or empty optional if the repository does not support concurrent readers
+     */
+    default Optional<HistoryRepository> createReader() {
+        return Optional.empty();
+    }
+
     /**
      * Gets PDU by identifier
      * @param id PDU identifier
@@ -79,6 +90,24 @@ public interface HistoryRepository extends AutoCloseable {
      */
     Set<Long> getPduIdsByFilter(HistoryFilter filter);
 
+    /**
+     * Gets page of PDU views matching the filter, which have identifier greater than given identifier
+     * <p>Uses keyset pagination, so the cost of the query does not grow with the position of the page.</p>
+     * @param filter Filter for finding specific PDU views
+     * @param afterId Identifier after which the page starts (identifier of the last PDU view of the previous page)
+     * @param limit Maximal number of PDU views in the page
+     * @return List of PDU views ordered by identifier
+     */
+    List<HistoricPduView> getPduViewsPage(HistoryFilter filter, long afterId, int limit);
+
+    /**
+     * Gets identifiers of all PDUs matching the filter ordered by identifier
+     * <p>Identifiers are returned as primitive array, so that they take little memory even for huge histories.</p>
+     * @param filter Filter for finding specific PDU identifiers (empty filter matches all PDUs)
+     * @return Ordered array of PDU identifiers matching the filter
+     */
+    long[] getOrderedPduIds(HistoryFilter filter);
+
     /**
      * Gets all proxies from repository
      * @return List of proxies
@@ -169,6 +198,13 @@ public interface HistoryRepository extends AutoCloseable {
      */
     Collection<Long> getTagIdsByCodes(Collection<String> codes);
 
+    /**
+     * Gets identifiers of all metadata by given codes (or creates it if it does not exist)
+     * @param codes Collection of codes to find
+     * @return Map of codes and found metadata identifiers
+     */
+    Map<String, Long> getMetadataIdsByCodes(Collection<String> codes);
+
     /**
      * Creates PDU from given parameters and stores it into repository.
      * @param proxyId Proxy identifier
@@ -207,8 +243,31 @@ public interface HistoryRepository extends AutoCloseable {
      */
     boolean addPduMetadata(Long pduId, Map<String, String> metadata);
 
+    /**
+     * Saves PDUs (including their entities, tags and metadata) into repository in single transaction.
+     * <p>Sets identifiers of saved PDUs and their proxies, connections and interceptors.</p>
+     * @param pdus List of PDUs to be saved
+     * @return List of identifiers of saved PDUs in the order of given PDUs (empty for PDUs that could not be saved)
+     */
+    List<Optional<Long>> savePdus(List<HistoricPdu> pdus);
+
     /**
      * Deletes all unused records (cleans the history)
      */
     void deleteUnusedRecords();
+
+    /**
+     * Gets identifiers of the oldest PDUs, which have to be pruned to satisfy the retention policy.
+     * @param policy Retention policy
+     * @param limit Maximal number of identifiers to be returned
+     * @return Ordered list of identifiers of PDUs exceeding the policy
+     */
+    List<Long> getPduIdsExceedingRetention(HistoryRetentionPolicy policy, int limit);
+
+    /**
+     * Releases free space of the repository (left by deleted PDUs) in small steps.
+     * @param maxPages Maximal number of storage pages to be released
+     * @return Number of free pages, which remain to be released
+     */
+    int compact(int maxPages);
 }
@@ -5,11 +5,12 @@ package com.warxim.petep.extension.internal.history.repository.database;
  */
 public final class DatabaseHistoryQuery {
     public static final String SQL_PDU_COLUMNS =
-            "    pdu.id, pdu.destination, pdu.size, pdu.time, pdu.data," +
+            "    pdu.id, pdu.destination, pdu.size, pdu.time, payload.data," +
                     "    proxy.id, proxy.code, proxy.name," +
                     "    connection.id, connection.code, connection.name," +
                     "    interceptor.id, interceptor.code, interceptor.name," +
-                    "    charset.code";
+                    "    charset.code," +
+                    "    payload.compression";
 
     public static final String SQL_PDU_VIEW_COLUMNS =
             "    pdu.id, pdu.destination, pdu.size, pdu.time," +
@@ -23,7 +24,8 @@ public final class DatabaseHistoryQuery {
                     " LEFT JOIN proxy ON proxy.id = pdu.id_proxy" +
                     " LEFT JOIN connection ON connection.id = pdu.id_connection" +
                     " LEFT JOIN interceptor ON interceptor.id = pdu.id_interceptor" +
-                    " LEFT JOIN charset ON charset.id = pdu.id_charset";
+                    " LEFT JOIN charset ON charset.id = pdu.id_charset" +
+                    " LEFT JOIN payload ON payload.id = pdu.id_payload";
 
     public static final String SQL_GET_PDU_VIEWS =
             "SELECT " + SQL_PDU_VIEW_COLUMNS +
@@ -34,10 +36,28 @@ public final class DatabaseHistoryQuery {
 
     public static final String SQL_GET_PDU_IDS =
             "SELECT pdu.id" +
-                    " FROM pdu" +
-                    " LEFT JOIN proxy ON proxy.id = pdu.id_proxy" +
-                    " LEFT JOIN connection ON connection.id = pdu.id_connection" +
-                    " LEFT JOIN interceptor ON interceptor.id = pdu.id_interceptor";
+                    " FROM pdu";
+
+    public static final String SQL_KEYSET_CONDITION = "pdu.id > ?";
+
+    public static final String SQL_KEYSET_ORDER = " ORDER BY pdu.id LIMIT ?";
+
+    public static final String SQL_ORDER_BY_ID = " ORDER BY pdu.id";
+
+    public static final String SQL_COUNT_PDUS = "SELECT COUNT(*) FROM pdu";
+
+    public static final String SQL_GET_TOTAL_PDU_SIZE = "SELECT COALESCE(SUM(size), 0) FROM pdu";
+
+    public static final String SQL_GET_OLDEST_PDU_IDS = "SELECT id, size FROM pdu ORDER BY id LIMIT ?";
+
+    public static final String SQL_GET_OLDEST_PDU_IDS_BEFORE_TIME =
+            "SELECT id FROM pdu WHERE time < ? ORDER BY id LIMIT ?";
+
+    public static final String SQL_GET_PROXIES_EXCEEDING_PDU_COUNT =
+            "SELECT id_proxy, COUNT(*) FROM pdu GROUP BY id_proxy HAVING COUNT(*) > ?";
+
+    public static final String SQL_GET_OLDEST_PROXY_PDU_IDS =
+            "SELECT id FROM pdu WHERE id_proxy = ? ORDER BY id LIMIT ?";
 
     public static final String SQL_GET_PROXIES =
             "SELECT id, code, name FROM proxy";
@@ -59,6 +79,8 @@ public final class DatabaseHistoryQuery {
 
     public static final String SQL_DELETE_ALL_PDUS = "DELETE FROM pdu";
 
+    public static final String SQL_DELETE_ALL_PAYLOADS = "DELETE FROM payload";
+
     public static final String SQL_GET_PDU_METADATA =
             "SELECT" +
                     "    metadata.code," +
@@ -82,8 +104,10 @@ public final class DatabaseHistoryQuery {
 
     public static final String SQL_GET_ENTITY_ID_BY_CODE = "SELECT id FROM %s WHERE code = ?";
 
+    public static final String SQL_GET_ENTITY_IDS_BY_CODES = "SELECT id, code FROM %s WHERE code IN (%s)";
+
     public static final String SQL_CREATE_PDU =
-            "INSERT INTO pdu(id_proxy, id_connection, id_interceptor, id_charset, destination, size, time, data) " +
+            "INSERT INTO pdu(id_proxy, id_connection, id_interceptor, id_charset, destination, size, time, id_payload) " +
                     "VALUES(?, ?, ?, ?, ?, ?, ?, ?)";
 
     public static final String SQL_ADD_PDU_TAG = "INSERT INTO pdu_has_tag(id_pdu, id_tag) VALUES(?, ?)";
@@ -129,6 +153,12 @@ public final class DatabaseHistoryQuery {
                     + " LEFT JOIN pdu ON connection.id = pdu.id_connection"
                     + " WHERE pdu.id_connection IS NULL"
                     + ")";
+
+    public static final String SQL_DELETE_UNUSED_PAYLOADS =
+            "DELETE FROM payload"
+                    + " WHERE NOT EXISTS ("
+                    + "SELECT 1 FROM pdu WHERE pdu.id_payload = payload.id"
+                    + ")";
     
     public DatabaseHistoryQuery() {
     }
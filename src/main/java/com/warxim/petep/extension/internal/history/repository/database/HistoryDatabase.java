@@ -21,16 +21,52 @@ import lombok.Getter;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * History database
  * <p>Initializes database file and creates required tables.</p>
+ * <p>Schema version is stored in {@code PRAGMA user_version}. When the database is opened, all migrations
+ * newer than the stored version are applied in single transaction, so existing databases are upgraded in place.</p>
+ * <p>Database uses WAL journal, so read-only databases (see {@link #openReadOnly()}) can query the database file
+ * concurrently with writing.</p>
  */
 @Getter
 public class HistoryDatabase implements AutoCloseable {
+    /**
+     * Schema migrations, migration at index N upgrades the schema from version N to version N + 1.
+     * <p>New migrations have to be appended to the end of the list, existing migrations must not be changed.</p>
+     */
+    private static final List<HistoryDatabaseMigration> MIGRATIONS = List.of(
+            HistoryDatabase::createTables,
+            HistoryDatabase::createIndexes,
+            HistoryDatabase::createPayloadTable,
+            HistoryDatabase::createTimeIndex,
+            HistoryDatabase::convertTimeToNanos
+    );
+
+    /**
+     * Current version of the database schema.
+     */
+    public static final int SCHEMA_VERSION = MIGRATIONS.size();
+
+    /**
+     * Value of {@code PRAGMA auto_vacuum} for incremental vacuum.
+     */
+    private static final int AUTO_VACUUM_INCREMENTAL = 2;
+
+    /**
+     * Time in milliseconds, for which the connection waits for lock held by another connection.
+     */
+    private static final int BUSY_TIMEOUT = 5000;
+
+    private final String url;
+    private final boolean readOnly;
     private Connection connection;
+    private boolean incrementalVacuum;
 
     /**
      * Constructs history database with given url.
@@ -38,89 +74,305 @@ public class HistoryDatabase implements AutoCloseable {
      * @throws SQLException If anything fails during history database processing
      */
     public HistoryDatabase(String url) throws SQLException {
+        this.url = url;
+        this.readOnly = false;
         connection = DriverManager.getConnection(url);
 
         init();
     }
 
     /**
-     * Creates all history tables.
+     * Constructs read-only history database using given connection.
+     */
+    private HistoryDatabase(String url, Connection connection) {
+        this.url = url;
+        this.readOnly = true;
+        this.connection = connection;
+    }
+
+    /**
+     * Opens read-only history database, which uses new connection to the same database file.
+     * <p>Read-only database does not block writing of this database (and vice versa),
+     * it sees all changes committed before its query started.</p>
+     * @return Read-only history database
+     * @throws SQLException If the database could not be opened
+     */
+    public HistoryDatabase openReadOnly() throws SQLException {
+        var readConnection = DriverManager.getConnection(url);
+        try (var stmt = readConnection.createStatement()) {
+            stmt.execute("PRAGMA query_only = ON;");
+            stmt.execute("PRAGMA busy_timeout = " + BUSY_TIMEOUT + ";");
+            HistoryPayloadStore.registerFunctions(readConnection);
+        } catch (SQLException e) {
+            readConnection.close();
+            throw e;
+        }
+        return new HistoryDatabase(url, readConnection);
+    }
+
+    /**
+     * Configures the connection and migrates database schema to the current version.
      */
     private void init() throws SQLException {
+        // Has to be enabled before switching to WAL journal, which initializes the database file
+        enableIncrementalVacuum();
         try (var stmt = connection.createStatement()) {
             stmt.execute("PRAGMA foreign_keys = ON;");
             stmt.execute("PRAGMA synchronous = OFF;");
             stmt.execute("PRAGMA journal_mode = WAL;");
-            stmt.execute("PRAGMA locking_mode = EXCLUSIVE;");
-
-            stmt.execute("CREATE TABLE IF NOT EXISTS proxy ("
-                    + "id INTEGER PRIMARY KEY,"
-                    + "code TEXT NOT NULL,"
-                    + "name TEXT NOT NULL"
-                    + ");");
-
-            stmt.execute("CREATE TABLE IF NOT EXISTS interceptor ("
-                    + "id INTEGER PRIMARY KEY,"
-                    + "code TEXT NOT NULL,"
-                    + "name TEXT NOT NULL"
-                    + ");");
-
-            stmt.execute("CREATE TABLE IF NOT EXISTS connection ("
-                    + "id INTEGER PRIMARY KEY,"
-                    + "code TEXT NOT NULL,"
-                    + "name TEXT NOT NULL"
-                    + ");");
-
-            stmt.execute("CREATE TABLE IF NOT EXISTS charset ("
-                    + "id INTEGER PRIMARY KEY,"
-                    + "code TEXT NOT NULL UNIQUE"
-                    + ");");
-
-            stmt.execute("CREATE TABLE IF NOT EXISTS tag ("
-                    + "id INTEGER PRIMARY KEY,"
-                    + "code TEXT NOT NULL UNIQUE"
-                    + ");");
-
-            stmt.execute("CREATE TABLE IF NOT EXISTS metadata ("
-                    + "id INTEGER PRIMARY KEY,"
-                    + "code TEXT NOT NULL UNIQUE"
-                    + ");");
-
-            stmt.execute("CREATE TABLE IF NOT EXISTS pdu ("
-                    + "id INTEGER PRIMARY KEY,"
-                    + "id_proxy INTEGER NOT NULL,"
-                    + "id_connection INTEGER NOT NULL,"
-                    + "id_interceptor INTEGER NOT NULL,"
-                    + "id_charset INTEGER NOT NULL,"
-                    + "destination INTEGER NOT NULL,"
-                    + "size INTEGER NOT NULL,"
-                    + "time INTEGER NOT NULL,"
-                    + "data BLOB NOT NULL,"
-                    + "FOREIGN KEY(id_proxy) REFERENCES proxy(id),"
-                    + "FOREIGN KEY(id_connection) REFERENCES connection(id),"
-                    + "FOREIGN KEY(id_interceptor) REFERENCES interceptor(id),"
-                    + "FOREIGN KEY(id_charset) REFERENCES charset(id)"
-                    + ");");
-
-            stmt.execute("CREATE TABLE IF NOT EXISTS pdu_has_metadata ("
-                    + "id_pdu INTEGER,"
-                    + "id_metadata INTEGER,"
-                    + "value TEXT,"
-                    + "PRIMARY KEY(id_pdu, id_metadata),"
-                    + "FOREIGN KEY(id_pdu) REFERENCES pdu(id) ON DELETE CASCADE,"
-                    + "FOREIGN KEY(id_metadata) REFERENCES metadata(id) ON DELETE CASCADE"
-                    + ");");
-
-            stmt.execute("CREATE TABLE IF NOT EXISTS pdu_has_tag ("
-                    + "id_pdu INTEGER,"
-                    + "id_tag INTEGER,"
-                    + "PRIMARY KEY(id_pdu, id_tag),"
-                    + "FOREIGN KEY(id_pdu) REFERENCES pdu(id) ON DELETE CASCADE,"
-                    + "FOREIGN KEY(id_tag) REFERENCES tag(id) ON DELETE CASCADE"
-                    + ");");
+            stmt.execute("PRAGMA busy_timeout = " + BUSY_TIMEOUT + ";");
+        }
+        HistoryPayloadStore.registerFunctions(connection);
+
+        migrate();
+    }
+
+    /**
+     * Enables incremental vacuum for new databases, so that free pages can be released in small steps
+     * (see {@link #vacuum(int)}).
+     * <p>Existing databases created without incremental vacuum are not converted, since it would require rebuild
+     * of the whole database file.</p>
+     */
+    private void enableIncrementalVacuum() throws SQLException {
+        try (var stmt = connection.createStatement()) {
+            int tableCount;
+            try (var result = stmt.executeQuery("SELECT COUNT(*) FROM sqlite_master;")) {
+                tableCount = result.next() ? result.getInt(1) : 0;
+            }
+
+            if (tableCount == 0) {
+                // Empty database does not have to be rebuilt, the setting is applied when the first table is created
+                stmt.execute("PRAGMA auto_vacuum = INCREMENTAL;");
+                incrementalVacuum = true;
+                return;
+            }
+
+            try (var result = stmt.executeQuery("PRAGMA auto_vacuum;")) {
+                incrementalVacuum = result.next() && result.getInt(1) == AUTO_VACUUM_INCREMENTAL;
+            }
+            if (!incrementalVacuum) {
+                Logger.getGlobal().info("History database was created without incremental vacuum, "
+                        + "space of deleted PDUs will be reused, but not released to the file system.");
+            }
         }
     }
 
+    /**
+     * Releases free pages of the database file back to the file system.
+     * <p>Does nothing for databases created without incremental vacuum.</p>
+     * @param maxPages Maximal number of pages to be released
+     * @return Number of free pages, which remain to be released
+     * @throws SQLException If the vacuum fails
+     */
+    public int vacuum(int maxPages) throws SQLException {
+        if (!incrementalVacuum) {
+            return 0;
+        }
+        try (var stmt = connection.createStatement()) {
+            stmt.execute("PRAGMA incremental_vacuum(" + maxPages + ");");
+            try (var result = stmt.executeQuery("PRAGMA freelist_count;")) {
+                return result.next() ? result.getInt(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * Applies all migrations newer than the version of the database.
+     */
+    private void migrate() throws SQLException {
+        var version = getSchemaVersion();
+        if (version > SCHEMA_VERSION) {
+            Logger.getGlobal().log(Level.WARNING, () -> String.format(
+                    "History database schema version %d is newer than supported version %d!",
+                    version,
+                    SCHEMA_VERSION));
+            return;
+        }
+        if (version == SCHEMA_VERSION) {
+            return;
+        }
+
+        connection.setAutoCommit(false);
+        try (var stmt = connection.createStatement()) {
+            for (var i = version; i < SCHEMA_VERSION; ++i) {
+                MIGRATIONS.get(i).migrate(stmt);
+            }
+            stmt.execute("PRAGMA user_version = " + SCHEMA_VERSION + ";");
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Gets version of the database schema.
+     * @return Schema version stored in the database (0 for new databases and databases created before versioning)
+     * @throws SQLException If the version could not be read
+     */
+    public int getSchemaVersion() throws SQLException {
+        try (var stmt = connection.createStatement();
+             var result = stmt.executeQuery("PRAGMA user_version;")) {
+            return result.next() ? result.getInt(1) : 0;
+        }
+    }
+
+    /**
+     * Migration 0 -&gt; 1: creates all history tables.
+     * <p>Uses IF NOT EXISTS, since databases created before schema versioning already contain the tables.</p>
+     */
+    private static void createTables(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS proxy ("
+                + "id INTEGER PRIMARY KEY,"
+                + "code TEXT NOT NULL,"
+                + "name TEXT NOT NULL"
+                + ");");
+
+        stmt.execute("CREATE TABLE IF NOT EXISTS interceptor ("
+                + "id INTEGER PRIMARY KEY,"
+                + "code TEXT NOT NULL,"
+                + "name TEXT NOT NULL"
+                + ");");
+
+        stmt.execute("CREATE TABLE IF NOT EXISTS connection ("
+                + "id INTEGER PRIMARY KEY,"
+                + "code TEXT NOT NULL,"
+                + "name TEXT NOT NULL"
+                + ");");
+
+        stmt.execute("CREATE TABLE IF NOT EXISTS charset ("
+                + "id INTEGER PRIMARY KEY,"
+                + "code TEXT NOT NULL UNIQUE"
+                + ");");
+
+        stmt.execute("CREATE TABLE IF NOT EXISTS tag ("
+                + "id INTEGER PRIMARY KEY,"
+                + "code TEXT NOT NULL UNIQUE"
+                + ");");
+
+        stmt.execute("CREATE TABLE IF NOT EXISTS metadata ("
+                + "id INTEGER PRIMARY KEY,"
+                + "code TEXT NOT NULL UNIQUE"
+                + ");");
+
+        stmt.execute("CREATE TABLE IF NOT EXISTS pdu ("
+                + "id INTEGER PRIMARY KEY,"
+                + "id_proxy INTEGER NOT NULL,"
+                + "id_connection INTEGER NOT NULL,"
+                + "id_interceptor INTEGER NOT NULL,"
+                + "id_charset INTEGER NOT NULL,"
+                + "destination INTEGER NOT NULL,"
+                + "size INTEGER NOT NULL,"
+                + "time INTEGER NOT NULL,"
+                + "data BLOB NOT NULL,"
+                + "FOREIGN KEY(id_proxy) REFERENCES proxy(id),"
+                + "FOREIGN KEY(id_connection) REFERENCES connection(id),"
+                + "FOREIGN KEY(id_interceptor) REFERENCES interceptor(id),"
+                + "FOREIGN KEY(id_charset) REFERENCES charset(id)"
+                + ");");
+
+        stmt.execute("CREATE TABLE IF NOT EXISTS pdu_has_metadata ("
+                + "id_pdu INTEGER,"
+                + "id_metadata INTEGER,"
+                + "value TEXT,"
+                + "PRIMARY KEY(id_pdu, id_metadata),"
+                + "FOREIGN KEY(id_pdu) REFERENCES pdu(id) ON DELETE CASCADE,"
+                + "FOREIGN KEY(id_metadata) REFERENCES metadata(id) ON DELETE CASCADE"
+                + ");");
+
+        stmt.execute("CREATE TABLE IF NOT EXISTS pdu_has_tag ("
+                + "id_pdu INTEGER,"
+                + "id_tag INTEGER,"
+                + "PRIMARY KEY(id_pdu, id_tag),"
+                + "FOREIGN KEY(id_pdu) REFERENCES pdu(id) ON DELETE CASCADE,"
+                + "FOREIGN KEY(id_tag) REFERENCES tag(id) ON DELETE CASCADE"
+                + ");");
+    }
+
+    /**
+     * Migration 1 -&gt; 2: creates indexes used by filters, lookups and deletion of unused records.
+     * <p>Tag filters go through tag(code) (unique index) and pdu_has_tag(id_tag, id_pdu).</p>
+     */
+    private static void createIndexes(Statement stmt) throws SQLException {
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_pdu_destination ON pdu(destination);");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_pdu_size ON pdu(size);");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_pdu_proxy ON pdu(id_proxy);");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_pdu_connection ON pdu(id_connection);");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_pdu_interceptor ON pdu(id_interceptor);");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_pdu_has_tag_tag ON pdu_has_tag(id_tag, id_pdu);");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_pdu_has_metadata_metadata ON pdu_has_metadata(id_metadata);");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_proxy_code_name ON proxy(code, name);");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_connection_code_name ON connection(code, name);");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_interceptor_code_name ON interceptor(code, name);");
+    }
+
+    /**
+     * Migration 2 -&gt; 3: moves PDU data to content-addressed payload table (see {@link HistoryPayloadStore}).
+     * <p>Existing data is stored uncompressed, identical data of multiple PDUs is stored only once.</p>
+     */
+    private static void createPayloadTable(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE payload ("
+                + "id INTEGER PRIMARY KEY,"
+                + "hash BLOB NOT NULL UNIQUE,"
+                + "compression INTEGER NOT NULL,"
+                + "data BLOB NOT NULL"
+                + ");");
+        stmt.execute("ALTER TABLE pdu ADD COLUMN id_payload INTEGER REFERENCES payload(id);");
+
+        var connection = stmt.getConnection();
+        try (var getIdStmt = connection.prepareStatement("SELECT id FROM payload WHERE hash = ?");
+             var createStmt = connection.prepareStatement(
+                     "INSERT INTO payload(hash, compression, data) VALUES(?, 0, ?)",
+                     Statement.RETURN_GENERATED_KEYS);
+             var updateStmt = connection.prepareStatement("UPDATE pdu SET id_payload = ? WHERE id = ?");
+             var selectStmt = connection.createStatement();
+             var result = selectStmt.executeQuery("SELECT id, data FROM pdu")) {
+            while (result.next()) {
+                var data = result.getBytes(2);
+                var hash = HistoryPayloadStore.hash(data);
+
+                long payloadId;
+                getIdStmt.setBytes(1, hash);
+                try (var payload = getIdStmt.executeQuery()) {
+                    if (payload.next()) {
+                        payloadId = payload.getLong(1);
+                    } else {
+                        createStmt.setBytes(1, hash);
+                        createStmt.setBytes(2, data);
+                        createStmt.executeUpdate();
+                        try (var keys = createStmt.getGeneratedKeys()) {
+                            payloadId = keys.getLong(1);
+                        }
+                    }
+                }
+
+                updateStmt.setLong(1, payloadId);
+                updateStmt.setLong(2, result.getLong(1));
+                updateStmt.addBatch();
+            }
+            updateStmt.executeBatch();
+        }
+
+        stmt.execute("ALTER TABLE pdu DROP COLUMN data;");
+        stmt.execute("CREATE INDEX idx_pdu_payload ON pdu(id_payload);");
+    }
+
+    /**
+     * Migration 3 -&gt; 4: creates index of PDU time, which is used by retention policy.
+     */
+    private static void createTimeIndex(Statement stmt) throws SQLException {
+        stmt.execute("CREATE INDEX idx_pdu_time ON pdu(time);");
+    }
+
+    /**
+     * Converts PDU time from epoch seconds to epoch nanoseconds (see HistoryDatabaseUtils#toTimestamp).
+     */
+    private static void convertTimeToNanos(Statement stmt) throws SQLException {
+        stmt.execute("UPDATE pdu SET time = time * 1000000000;");
+    }
+
     @Override
     public void close() {
         if (connection != null) {
@@ -0,0 +1,227 @@
+/*
+ * PEnetration TEsting Proxy (PETEP)
+ *
+ * Copyright (C) 2023 Michal Válka
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <https://www.gnu.org/licenses/>.
+ */
+package com.warxim.petep.extension.internal.history.repository.database;
+
+import org.sqlite.Function;
+
+import java.io.ByteArrayOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * History payload store
+ * <p>Stores PDU data in content-addressed table {@code payload}, which is referenced by PDUs. Payloads are identified
+ * by SHA-256 hash of their data, so identical data (e.g. repeated heartbeats) is stored only once.</p>
+ * <p>Payloads, which are at least as large as the compression threshold, are compressed using Deflate
+ * (compressed form is kept only if it is smaller than the original data).</p>
+ */
+public class HistoryPayloadStore {
+    /**
+     * Payload data is stored as is.
+     */
+    public static final int COMPRESSION_NONE = 0;
+
+    /**
+     * Payload data is compressed using Deflate.
+     */
+    public static final int COMPRESSION_DEFLATE = 1;
+
+    /**
+     * Default minimal size of payload, which is compressed.
+     */
+    public static final int DEFAULT_COMPRESSION_THRESHOLD = 256;
+
+    private static final String HASH_ALGORITHM = "SHA-256";
+    private static final String DATA_FUNCTION = "payload_data";
+
+    private final PreparedStatement getIdByHashStatement;
+    private final PreparedStatement createStatement;
+    private final MessageDigest digest;
+    private boolean compressionEnabled;
+    private int compressionThreshold;
+
+    /**
+     * Constructs payload store with disabled compression.
+     * @param connection Database connection
+     * @throws SQLException If the statements could not be prepared
+     */
+    public HistoryPayloadStore(Connection connection) throws SQLException {
+        getIdByHashStatement = connection.prepareStatement("SELECT id FROM payload WHERE hash = ?");
+        createStatement = connection.prepareStatement(
+                "INSERT INTO payload(hash, compression, data) VALUES(?, ?, ?)",
+                Statement.RETURN_GENERATED_KEYS);
+        digest = createDigest();
+        compressionThreshold = DEFAULT_COMPRESSION_THRESHOLD;
+    }
+
+    /**
+     * Configures compression of newly stored payloads.
+     * @param enabled Whether the payloads should be compressed
+     * @param threshold Minimal size of payload, which is compressed
+     */
+    public void setCompression(boolean enabled, int threshold) {
+        compressionEnabled = enabled;
+        compressionThreshold = threshold;
+    }
+
+    /**
+     * Checks whether newly stored payloads are compressed.
+     * @return {@code true} if the compression is enabled
+     */
+    public boolean isCompressionEnabled() {
+        return compressionEnabled;
+    }
+
+    /**
+     * Gets identifier of payload with given data. (Creates the payload if it does not exist.)
+     * @param data Payload data
+     * @return Identifier of the payload
+     * @throws SQLException If the payload could not be obtained or created
+     */
+    public long getOrCreate(byte[] data) throws SQLException {
+        var hash = digest.digest(data);
+
+        getIdByHashStatement.setBytes(1, hash);
+        try (var result = getIdByHashStatement.executeQuery()) {
+            if (result.next()) {
+                return result.getLong(1);
+            }
+        }
+
+        var compression = COMPRESSION_NONE;
+        var storedData = data;
+        if (compressionEnabled && data.length >= compressionThreshold) {
+            var compressed = deflate(data);
+            if (compressed.length < data.length) {
+                compression = COMPRESSION_DEFLATE;
+                storedData = compressed;
+            }
+        }
+
+        createStatement.setBytes(1, hash);
+        createStatement.setInt(2, compression);
+        createStatement.setBytes(3, storedData);
+        createStatement.executeUpdate();
+        try (var keys = createStatement.getGeneratedKeys()) {
+            return keys.getLong(1);
+        }
+    }
+
+    /**
+     * Registers SQL function {@code payload_data(compression, data)}, which decodes stored payload data,
+     * so that data filters can work with compressed payloads.
+     * @param connection Database connection
+     * @throws SQLException If the function could not be registered
+     */
+    public static void registerFunctions(Connection connection) throws SQLException {
+        Function.create(connection, DATA_FUNCTION, new Function() {
+            @Override
+            protected void xFunc() throws SQLException {
+                result(decode(value_int(0), value_blob(1)));
+            }
+        });
+    }
+
+    /**
+     * Generates SQL expression, which evaluates to decoded data of the payload (the table has to be named payload).
+     * <p>Uncompressed data is used directly, without calling the decoding function.</p>
+     * @return SQL expression
+     */
+    public static String generateDataExpression() {
+        return "(CASE payload.compression WHEN " + COMPRESSION_NONE + " THEN payload.data"
+                + " ELSE " + DATA_FUNCTION + "(payload.compression, payload.data) END)";
+    }
+
+    /**
+     * Decodes stored payload data.
+     * @param compression Compression of the stored data
+     * @param data Stored data
+     * @return Original payload data
+     * @throws SQLException If the data could not be decoded
+     */
+    public static byte[] decode(int compression, byte[] data) throws SQLException {
+        if (compression == COMPRESSION_NONE) {
+            return data;
+        }
+        if (compression == COMPRESSION_DEFLATE) {
+            return inflate(data);
+        }
+        throw new SQLException("Unsupported payload compression " + compression + "!");
+    }
+
+    /**
+     * Computes hash, which identifies payload with given data.
+     * @param data Payload data
+     * @return Hash of the data
+     */
+    public static byte[] hash(byte[] data) {
+        return createDigest().digest(data);
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform has to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] deflate(byte[] data) {
+        var deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            var output = new ByteArrayOutputStream(data.length / 2);
+            var buffer = new byte[4096];
+            while (!deflater.finished()) {
+                output.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return output.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data) throws SQLException {
+        var inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            var output = new ByteArrayOutputStream(data.length * 4);
+            var buffer = new byte[4096];
+            while (!inflater.finished()) {
+                var count = inflater.inflate(buffer);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new SQLException("Payload data is truncated!");
+                }
+                output.write(buffer, 0, count);
+            }
+            return output.toByteArray();
+        } catch (DataFormatException e) {
+            throw new SQLException("Payload data is corrupted!", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
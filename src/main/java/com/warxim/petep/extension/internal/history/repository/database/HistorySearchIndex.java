@@ -0,0 +1,210 @@
+/*
+ * PEnetration TEsting Proxy (PETEP)
+ *
+ * Copyright (C) 2023 Michal Válka
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <https://www.gnu.org/licenses/>.
+ */
+package com.warxim.petep.extension.internal.history.repository.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * History search index
+ * <p>Optional full-text index of PDU data, which is used for speeding up data filters.</p>
+ * <p>Uses SQLite FTS5 table with trigram tokenizer over text projection of the data, in which every byte
+ * is mapped to single character (byte + 0x100), so the index works with arbitrary binary data
+ * and the search is exact (case-sensitive, no normalization).</p>
+ * <p>The table is contentless, so the data is not stored twice. Because of that, the original data has to be provided
+ * when the PDU is removed from the index.</p>
+ */
+public class HistorySearchIndex {
+    /**
+     * Minimal length of searched data, for which the index can be used (length of trigram).
+     */
+    public static final int MIN_QUERY_LENGTH = 3;
+
+    private static final String TABLE = "pdu_search";
+    private static final char CHAR_OFFSET = 0x100;
+    private static final String SQL_GET_DATA =
+            "SELECT pdu.id, payload.compression, payload.data FROM pdu JOIN payload ON payload.id = pdu.id_payload";
+
+    private final PreparedStatement addStatement;
+    private final PreparedStatement removeStatement;
+    private final PreparedStatement getDataStatement;
+    private final PreparedStatement clearStatement;
+
+    /**
+     * Constructs search index using existing index table.
+     * @param connection Database connection
+     * @throws SQLException If the statements could not be prepared
+     */
+    public HistorySearchIndex(Connection connection) throws SQLException {
+        addStatement = connection.prepareStatement(
+                "INSERT INTO " + TABLE + "(rowid, data) VALUES(?, ?)");
+        removeStatement = connection.prepareStatement(
+                "INSERT INTO " + TABLE + "(" + TABLE + ", rowid, data) VALUES('delete', ?, ?)");
+        getDataStatement = connection.prepareStatement(
+                SQL_GET_DATA + " WHERE pdu.id = ?");
+        clearStatement = connection.prepareStatement(
+                "INSERT INTO " + TABLE + "(" + TABLE + ") VALUES('delete-all')");
+    }
+
+    /**
+     * Checks whether the search index table exists in the database.
+     * @param connection Database connection
+     * @return {@code true} if the index table exists
+     * @throws SQLException If the check fails
+     */
+    public static boolean exists(Connection connection) throws SQLException {
+        try (var stmt = connection.prepareStatement("SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = ?")) {
+            stmt.setString(1, TABLE);
+            try (var result = stmt.executeQuery()) {
+                return result.next();
+            }
+        }
+    }
+
+    /**
+     * Creates search index table and indexes all PDUs, which are already in the database.
+     * @param connection Database connection
+     * @return Created search index
+     * @throws SQLException If the creation fails (e.g. if SQLite does not support FTS5)
+     */
+    public static HistorySearchIndex create(Connection connection) throws SQLException {
+        var autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            try (var stmt = connection.createStatement()) {
+                stmt.execute("CREATE VIRTUAL TABLE " + TABLE
+                        + " USING fts5(data, content='', tokenize='trigram case_sensitive 1');");
+            }
+
+            var index = new HistorySearchIndex(connection);
+            try (var stmt = connection.createStatement();
+                 var result = stmt.executeQuery(SQL_GET_DATA)) {
+                while (result.next()) {
+                    index.addStatement.setLong(1, result.getLong(1));
+                    index.addStatement.setString(2, toText(readData(result)));
+                    index.addStatement.addBatch();
+                }
+            }
+            index.addStatement.executeBatch();
+
+            connection.commit();
+            return index;
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Drops search index table (if it exists).
+     * @param connection Database connection
+     * @throws SQLException If the table could not be dropped
+     */
+    public static void drop(Connection connection) throws SQLException {
+        try (var stmt = connection.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS " + TABLE + ";");
+        }
+    }
+
+    /**
+     * Generates SQL condition, which limits PDUs to the candidates found in the index.
+     * <p>Candidates contain the searched data with high probability (all its trigrams), so they still have to be
+     * verified by the exact data condition.</p>
+     * @return SQL condition with single parameter for the query (see {@link #toQuery(byte[])})
+     */
+    public static String generateCandidateCondition() {
+        return "pdu.id IN (SELECT rowid FROM " + TABLE + " WHERE " + TABLE + " MATCH ?)";
+    }
+
+    /**
+     * Checks whether the index can be used for searching given data.
+     * @param data Searched data
+     * @return {@code true} if the data is long enough for the index
+     */
+    public static boolean isSearchable(byte[] data) {
+        return data != null && data.length >= MIN_QUERY_LENGTH;
+    }
+
+    /**
+     * Converts searched data to FTS5 query (phrase of the text projection).
+     * <p>Projected characters are never quotes, so the phrase does not need escaping.</p>
+     * @param data Searched data
+     * @return FTS5 query
+     */
+    public static String toQuery(byte[] data) {
+        return '"' + toText(data) + '"';
+    }
+
+    /**
+     * Adds PDU data to the index.
+     * @param id PDU identifier
+     * @param data PDU data
+     * @throws SQLException If the data could not be indexed
+     */
+    public void add(long id, byte[] data) throws SQLException {
+        addStatement.setLong(1, id);
+        addStatement.setString(2, toText(data));
+        addStatement.executeUpdate();
+    }
+
+    /**
+     * Removes PDU from the index (has to be called before the PDU is deleted, since its data is needed).
+     * @param id PDU identifier
+     * @throws SQLException If the PDU could not be removed from the index
+     */
+    public void remove(long id) throws SQLException {
+        getDataStatement.setLong(1, id);
+        try (var result = getDataStatement.executeQuery()) {
+            if (!result.next()) {
+                return;
+            }
+            removeStatement.setLong(1, id);
+            removeStatement.setString(2, toText(readData(result)));
+            removeStatement.executeUpdate();
+        }
+    }
+
+    /**
+     * Removes all PDUs from the index.
+     * @throws SQLException If the index could not be cleared
+     */
+    public void clear() throws SQLException {
+        clearStatement.executeUpdate();
+    }
+
+    /**
+     * Reads decoded PDU data from result of {@link #SQL_GET_DATA} query.
+     */
+    private static byte[] readData(ResultSet result) throws SQLException {
+        return HistoryPayloadStore.decode(result.getInt(2), result.getBytes(3));
+    }
+
+    /**
+     * Converts data to text projection, in which every byte is represented by single character.
+     */
+    private static String toText(byte[] data) {
+        var chars = new char[data.length];
+        for (var i = 0; i < data.length; ++i) {
+            chars[i] = (char) (CHAR_OFFSET + (data[i] & 0xFF));
+        }
+        return new String(chars);
+    }
+}
@@ -23,17 +23,23 @@ import com.warxim.petep.extension.internal.history.model.HistoryFilter;
 import com.warxim.petep.extension.internal.history.repository.HistoryRepository;
 import com.warxim.petep.extension.internal.history.util.HistoryUtils;
 
-import java.util.*;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
-import java.util.stream.Collectors;
 
 /**
  * Cached history service
- * <p>Uses cached list of HistoricPduViews.</p>
+ * <p>Uses columnar cache of HistoricPduViews, which stores attributes of views in primitive arrays.</p>
+ * <p>The cache contains views of all PDUs, so the service is suitable only for histories that fit into memory.
+ * For large histories, use {@link DefaultHistoryService} with paged queries.</p>
+ * <p>Used by history extension if view cache is enabled in history config.</p>
  */
 public class CachedHistoryService extends DefaultHistoryService {
-    private List<HistoricPduView> pduViewCache;
+    private static final int LOAD_PAGE_SIZE = 4096;
+
+    private final ColumnarPduViewCache pduViewCache;
 
     /**
      * Constructs cached history service, which uses default history service and caches pdu views.
@@ -44,53 +50,75 @@ public class CachedHistoryService extends DefaultHistoryService {
      */
     public CachedHistoryService(HistoryRepository repository, HistoryListener listener)
             throws ExecutionException, InterruptedException {
-        super(repository, listener);
-        pduViewCache = new LinkedList<>(super.getPduViews().get());
+        this(repository, listener, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL);
+    }
+
+    /**
+     * Constructs cached history service, which uses default history service and caches pdu views.
+     * @param repository Underlying repository to use in the service
+     * @param listener History listener
+     * @param batchSize Maximal number of PDUs written in single transaction
+     * @param flushInterval Time in milliseconds, for which saved PDU can wait for more PDUs
+     * @throws ExecutionException if it was not possible to obtain PDU views
+     * @throws InterruptedException if the current thread was interrupted during wait for PDU views
+     */
+    public CachedHistoryService(HistoryRepository repository, HistoryListener listener, int batchSize, long flushInterval)
+            throws ExecutionException, InterruptedException {
+        super(repository, listener, batchSize, flushInterval);
+        pduViewCache = new ColumnarPduViewCache();
+        supplyAsync(this::loadCache).get();
     }
 
     @Override
-    protected Optional<Long> processSavePdu(HistoricPdu pdu) {
-        var pduId = super.processSavePdu(pdu);
-        if (pduId.isPresent()) {
-            pduViewCache.add(HistoryUtils.historicPduToView(pdu));
+    protected List<Optional<Long>> processSavePdus(List<HistoricPdu> pdus) {
+        var pduIds = super.processSavePdus(pdus);
+        var index = 0;
+        for (var pdu : pdus) {
+            if (pduIds.get(index++).isPresent()) {
+                pduViewCache.add(HistoryUtils.historicPduToView(pdu));
+            }
         }
-        return pduId;
+        return pduIds;
     }
 
     @Override
     public CompletableFuture<List<HistoricPduView>> getPduViews() {
-        return CompletableFuture.supplyAsync(
-                () -> new LinkedList<>(pduViewCache),
-                executor);
+        return readAsync(pduViewCache::snapshot, (snapshot, reader) -> snapshot.toList());
     }
 
     @Override
     public CompletableFuture<List<HistoricPduView>> getPduViewsByFilter(HistoryFilter filter) {
         if (filter.getData() != null) {
             // If there is filter for data, we have to use SQL based filtering, because pduView does not contain data
-            return CompletableFuture.supplyAsync(
-                    () -> {
-                        var ids = repository.getPduIdsByFilter(filter);
-                        return pduViewCache.stream()
-                                .filter(pduView -> ids.contains(pduView.getId()))
-                                .collect(Collectors.toCollection(LinkedList::new));
-                    },
-                    executor);
+            return readAsync(pduViewCache::snapshot,
+                    (snapshot, reader) -> snapshot.filterByIds(reader.getPduIdsByFilter(filter)));
         }
         // There is no filter for data, we can simply filter cached pduViews
-        return CompletableFuture.supplyAsync(
-                () -> pduViewCache.stream()
-                        .filter(filter::matches)
-                        .collect(Collectors.toCollection(LinkedList::new)), executor);
+        return readAsync(pduViewCache::snapshot, (snapshot, reader) -> snapshot.filter(filter));
     }
 
     @Override
-    protected List<Long> processDeletePdus(Collection<Long> ids) {
-        var deletedIds = super.processDeletePdus(ids);
-        if (!deletedIds.isEmpty()) {
-            var tempIds = new HashSet<>(deletedIds);
-            pduViewCache.removeIf(pdu -> tempIds.remove(pdu.getId()));
+    public CompletableFuture<List<HistoricPduView>> getPduViewsPage(HistoryFilter filter, long afterId, int limit) {
+        if (filter.getData() != null) {
+            // Filtering by data has to be done using SQL
+            return super.getPduViewsPage(filter, afterId, limit);
         }
+        return readAsync(pduViewCache::snapshot, (snapshot, reader) -> snapshot.page(filter, afterId, limit));
+    }
+
+    @Override
+    public CompletableFuture<long[]> getOrderedPduIds(HistoryFilter filter) {
+        if (filter.getData() != null) {
+            // Filtering by data has to be done using SQL
+            return super.getOrderedPduIds(filter);
+        }
+        return readAsync(pduViewCache::snapshot, (snapshot, reader) -> snapshot.filterIds(filter));
+    }
+
+    @Override
+    protected List<Long> removePdus(Collection<Long> ids) {
+        var deletedIds = super.removePdus(ids);
+        pduViewCache.remove(deletedIds);
         return deletedIds;
     }
 
@@ -99,4 +127,20 @@ public class CachedHistoryService extends DefaultHistoryService {
         super.processClearHistory();
         pduViewCache.clear();
     }
+
+    /**
+     * Loads views of all PDUs from repository to the cache (in pages, so that all views are not in memory twice).
+     * @return Number of loaded views
+     */
+    private int loadCache() {
+        var afterId = 0L;
+        while (true) {
+            var page = repository.getPduViewsPage(HistoryFilter.all(), afterId, LOAD_PAGE_SIZE);
+            page.forEach(pduViewCache::add);
+            if (page.size() < LOAD_PAGE_SIZE) {
+                return pduViewCache.size();
+            }
+            afterId = page.get(page.size() - 1).getId();
+        }
+    }
 }
@@ -0,0 +1,635 @@
+/*
+ * PEnetration TEsting Proxy (PETEP)
+ *
+ * Copyright (C) 2023 Michal Válka
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <https://www.gnu.org/licenses/>.
+ */
+package com.warxim.petep.extension.internal.history.service;
+
+import com.warxim.petep.core.pdu.PduDestination;
+import com.warxim.petep.extension.internal.history.model.HistoricPduView;
+import com.warxim.petep.extension.internal.history.model.HistoryFilter;
+
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Columnar cache of historic PDU views.
+ * <p>Instead of keeping view objects, the cache stores every attribute in primitive array (column).
+ * Proxies, connections and interceptors are stored only once in dictionaries and rows refer to them by index,
+ * the same applies to sets of tags, which are interned and represented by bitsets for fast filtering.</p>
+ * <p>The cache is modified by single thread, but {@link Snapshot snapshots} can be read by any thread.
+ * Rows are only appended to the arrays (removal creates new arrays), so snapshot stays consistent
+ * without copying the data.</p>
+ */
+class ColumnarPduViewCache {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final PduDestination[] DESTINATIONS = PduDestination.values();
+
+    private EntityDictionary proxies;
+    private EntityDictionary connections;
+    private EntityDictionary interceptors;
+    private TagSetDictionary tagSets;
+
+    private long[] ids;
+    private long[] timeSeconds;
+    private int[] timeNanos;
+    private int[] sizes;
+    private byte[] destinations;
+    private int[] proxyRefs;
+    private int[] connectionRefs;
+    private int[] interceptorRefs;
+    private int[] tagSetRefs;
+    private int size;
+
+    /**
+     * Constructs empty columnar cache.
+     */
+    ColumnarPduViewCache() {
+        clear();
+    }
+
+    /**
+     * Appends view to the cache.
+     * <p>Views have to be added in order of their identifiers.</p>
+     * @param view View to be added
+     */
+    void add(HistoricPduView view) {
+        if (size == ids.length) {
+            grow(size * 2);
+        }
+        ids[size] = view.getId();
+        timeSeconds[size] = view.getTime().getEpochSecond();
+        timeNanos[size] = view.getTime().getNano();
+        sizes[size] = view.getSize();
+        destinations[size] = (byte) view.getDestination().ordinal();
+        proxyRefs[size] = proxies.intern(view.getProxyId(), view.getProxyName());
+        connectionRefs[size] = connections.intern(view.getConnectionId(), view.getConnectionName());
+        interceptorRefs[size] = interceptors.intern(view.getInterceptorId(), view.getInterceptorName());
+        tagSetRefs[size] = tagSets.intern(view.getTags());
+        ++size;
+    }
+
+    /**
+     * Removes views with given identifiers from the cache.
+     * <p>Dictionary entries, which are no longer referenced by any view, are removed as well.</p>
+     * @param removedIds Identifiers of views to be removed
+     */
+    void remove(Collection<Long> removedIds) {
+        if (removedIds.isEmpty()) {
+            return;
+        }
+        var removed = new HashSet<>(removedIds);
+        var old = snapshot();
+        allocate(Math.max(INITIAL_CAPACITY, size));
+        var newSize = 0;
+        for (var i = 0; i < old.size; ++i) {
+            if (removed.contains(old.ids[i])) {
+                continue;
+            }
+            ids[newSize] = old.ids[i];
+            timeSeconds[newSize] = old.timeSeconds[i];
+            timeNanos[newSize] = old.timeNanos[i];
+            sizes[newSize] = old.sizes[i];
+            destinations[newSize] = old.destinations[i];
+            proxyRefs[newSize] = old.proxyRefs[i];
+            connectionRefs[newSize] = old.connectionRefs[i];
+            interceptorRefs[newSize] = old.interceptorRefs[i];
+            tagSetRefs[newSize] = old.tagSetRefs[i];
+            ++newSize;
+        }
+        size = newSize;
+
+        // New columns are not shared with snapshots yet, so the references can be rewritten in place
+        proxies = proxies.compact(proxyRefs, size);
+        connections = connections.compact(connectionRefs, size);
+        interceptors = interceptors.compact(interceptorRefs, size);
+        tagSets = tagSets.compact(tagSetRefs, size);
+    }
+
+    /**
+     * Removes all views and dictionary entries from the cache.
+     */
+    void clear() {
+        proxies = new EntityDictionary();
+        connections = new EntityDictionary();
+        interceptors = new EntityDictionary();
+        tagSets = new TagSetDictionary();
+        allocate(INITIAL_CAPACITY);
+        size = 0;
+    }
+
+    /**
+     * Gets number of cached views.
+     * @return Number of views
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Creates snapshot of the current state of the cache.
+     * <p>Snapshot is not affected by later modifications of the cache.</p>
+     * @return Snapshot of the cache
+     */
+    Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+    /**
+     * Allocates new empty columns with given capacity.
+     */
+    private void allocate(int capacity) {
+        ids = new long[capacity];
+        timeSeconds = new long[capacity];
+        timeNanos = new int[capacity];
+        sizes = new int[capacity];
+        destinations = new byte[capacity];
+        proxyRefs = new int[capacity];
+        connectionRefs = new int[capacity];
+        interceptorRefs = new int[capacity];
+        tagSetRefs = new int[capacity];
+    }
+
+    /**
+     * Grows columns to given capacity (keeps the data).
+     */
+    private void grow(int capacity) {
+        ids = Arrays.copyOf(ids, capacity);
+        timeSeconds = Arrays.copyOf(timeSeconds, capacity);
+        timeNanos = Arrays.copyOf(timeNanos, capacity);
+        sizes = Arrays.copyOf(sizes, capacity);
+        destinations = Arrays.copyOf(destinations, capacity);
+        proxyRefs = Arrays.copyOf(proxyRefs, capacity);
+        connectionRefs = Arrays.copyOf(connectionRefs, capacity);
+        interceptorRefs = Arrays.copyOf(interceptorRefs, capacity);
+        tagSetRefs = Arrays.copyOf(tagSetRefs, capacity);
+    }
+
+    /**
+     * Immutable snapshot of the cache.
+     */
+    static final class Snapshot {
+        private final long[] ids;
+        private final long[] timeSeconds;
+        private final int[] timeNanos;
+        private final int[] sizes;
+        private final byte[] destinations;
+        private final int[] proxyRefs;
+        private final int[] connectionRefs;
+        private final int[] interceptorRefs;
+        private final int[] tagSetRefs;
+        private final int size;
+        private final EntityDictionary.Snapshot proxies;
+        private final EntityDictionary.Snapshot connections;
+        private final EntityDictionary.Snapshot interceptors;
+        private final TagSetDictionary.Snapshot tagSets;
+
+        private Snapshot(ColumnarPduViewCache cache) {
+            ids = cache.ids;
+            timeSeconds = cache.timeSeconds;
+            timeNanos = cache.timeNanos;
+            sizes = cache.sizes;
+            destinations = cache.destinations;
+            proxyRefs = cache.proxyRefs;
+            connectionRefs = cache.connectionRefs;
+            interceptorRefs = cache.interceptorRefs;
+            tagSetRefs = cache.tagSetRefs;
+            size = cache.size;
+            proxies = cache.proxies.snapshot();
+            connections = cache.connections.snapshot();
+            interceptors = cache.interceptors.snapshot();
+            tagSets = cache.tagSets.snapshot();
+        }
+
+        /**
+         * Gets number of views in the snapshot.
+         * @return Number of views
+         */
+        int size() {
+            return size;
+        }
+
+        /**
+         * Gets list of all views in the snapshot (views are created lazily when accessed).
+         * @return List of views
+         */
+        List<HistoricPduView> toList() {
+            return new ViewList(this, null, size);
+        }
+
+        /**
+         * Gets list of views matching the filter (data filter is ignored).
+         * @param filter Filter to apply
+         * @return List of matching views (views are created lazily when accessed)
+         */
+        List<HistoricPduView> filter(HistoryFilter filter) {
+            var rows = filterRows(filter, 0, Integer.MAX_VALUE);
+            return new ViewList(this, rows.array, rows.size);
+        }
+
+        /**
+         * Gets list of views with given identifiers.
+         * @param filterIds Identifiers of views to be returned
+         * @return List of views (views are created lazily when accessed)
+         */
+        List<HistoricPduView> filterByIds(Set<Long> filterIds) {
+            var rows = new IntArray();
+            for (var i = 0; i < size; ++i) {
+                if (filterIds.contains(ids[i])) {
+                    rows.add(i);
+                }
+            }
+            return new ViewList(this, rows.array, rows.size);
+        }
+
+        /**
+         * Gets page of views matching the filter with identifier greater than given identifier (data filter is ignored).
+         * @param filter Filter to apply
+         * @param afterId Identifier after which the page starts
+         * @param limit Maximal number of views in the page
+         * @return List of matching views
+         */
+        List<HistoricPduView> page(HistoryFilter filter, long afterId, int limit) {
+            var from = Arrays.binarySearch(ids, 0, size, afterId);
+            from = from < 0 ? -from - 1 : from + 1;
+            var rows = filterRows(filter, from, limit);
+            return new ViewList(this, rows.array, rows.size);
+        }
+
+        /**
+         * Gets identifiers of views matching the filter in order (data filter is ignored).
+         * @param filter Filter to apply
+         * @return Ordered identifiers of matching views
+         */
+        long[] filterIds(HistoryFilter filter) {
+            if (filter.isEmpty()) {
+                return Arrays.copyOf(ids, size);
+            }
+            var rows = filterRows(filter, 0, Integer.MAX_VALUE);
+            var result = new long[rows.size];
+            for (var i = 0; i < rows.size; ++i) {
+                result[i] = ids[rows.array[i]];
+            }
+            return result;
+        }
+
+        /**
+         * Creates view of the row.
+         */
+        HistoricPduView getView(int row) {
+            var proxyRef = proxyRefs[row];
+            var connectionRef = connectionRefs[row];
+            var interceptorRef = interceptorRefs[row];
+            return HistoricPduView.builder()
+                    .id(ids[row])
+                    .proxyId(proxies.getId(proxyRef))
+                    .proxyName(proxies.getName(proxyRef))
+                    .connectionId(connections.getId(connectionRef))
+                    .connectionName(connections.getName(connectionRef))
+                    .interceptorId(interceptors.getId(interceptorRef))
+                    .interceptorName(interceptors.getName(interceptorRef))
+                    .destination(DESTINATIONS[destinations[row]])
+                    .tags(tagSets.getTags(tagSetRefs[row]))
+                    .size(sizes[row])
+                    .time(Instant.ofEpochSecond(timeSeconds[row], timeNanos[row]))
+                    .build();
+        }
+
+        /**
+         * Finds rows matching the filter, starting from given row.
+         */
+        private IntArray filterRows(HistoryFilter filter, int from, int limit) {
+            var rows = new IntArray();
+
+            // Resolve the filter to primitive values, so that the loop only compares numbers
+            var destination = filter.getDestination() == null ? -1 : filter.getDestination().ordinal();
+            var proxyRef = resolveRef(proxies, filter.getProxyId());
+            var connectionRef = resolveRef(connections, filter.getConnectionId());
+            var interceptorRef = resolveRef(interceptors, filter.getInterceptorId());
+            if (proxyRef == NOT_FOUND || connectionRef == NOT_FOUND || interceptorRef == NOT_FOUND) {
+                return rows;
+            }
+            var fromSize = filter.getFromSize() == null ? Integer.MIN_VALUE : filter.getFromSize();
+            var toSize = filter.getToSize() == null ? Integer.MAX_VALUE : filter.getToSize();
+            var fromTime = filter.getFromTime();
+            var toTime = filter.getToTime();
+            var tagSetMatches = tagSets.matches(filter.getTags());
+
+            for (var i = from; i < size && rows.size < limit; ++i) {
+                if (destination != -1 && destinations[i] != destination) {
+                    continue;
+                }
+                if (proxyRef != ANY && proxyRefs[i] != proxyRef) {
+                    continue;
+                }
+                if (connectionRef != ANY && connectionRefs[i] != connectionRef) {
+                    continue;
+                }
+                if (interceptorRef != ANY && interceptorRefs[i] != interceptorRef) {
+                    continue;
+                }
+                if (sizes[i] < fromSize || sizes[i] > toSize) {
+                    continue;
+                }
+                if (fromTime != null && compareTime(i, fromTime) < 0) {
+                    continue;
+                }
+                if (toTime != null && compareTime(i, toTime) > 0) {
+                    continue;
+                }
+                if (tagSetMatches != null && !tagSetMatches[tagSetRefs[i]]) {
+                    continue;
+                }
+                rows.add(i);
+            }
+            return rows;
+        }
+
+        /**
+         * Compares time of the row with given instant (without creating instant for the row).
+         */
+        private int compareTime(int row, Instant time) {
+            var result = Long.compare(timeSeconds[row], time.getEpochSecond());
+            return result != 0 ? result : Integer.compare(timeNanos[row], time.getNano());
+        }
+
+        private static final int ANY = -1;
+        private static final int NOT_FOUND = -2;
+
+        /**
+         * Resolves entity identifier from filter to dictionary reference.
+         */
+        private static int resolveRef(EntityDictionary.Snapshot dictionary, Long id) {
+            if (id == null) {
+                return ANY;
+            }
+            var ref = dictionary.find(id);
+            return ref == -1 ? NOT_FOUND : ref;
+        }
+    }
+
+    /**
+     * Lazy list of views of snapshot rows.
+     */
+    private static final class ViewList extends AbstractList<HistoricPduView> implements RandomAccess {
+        private final Snapshot snapshot;
+        private final int[] rows;
+        private final int size;
+
+        /**
+         * Constructs list of given rows of the snapshot.
+         * @param rows Rows of the snapshot (null for all rows)
+         */
+        private ViewList(Snapshot snapshot, int[] rows, int size) {
+            this.snapshot = snapshot;
+            this.rows = rows;
+            this.size = size;
+        }
+
+        @Override
+        public HistoricPduView get(int index) {
+            Objects.checkIndex(index, size);
+            return snapshot.getView(rows == null ? index : rows[index]);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Dictionary of entities (identifier and name), which are referenced by index.
+     * <p>Database reuses identifiers of deleted entities, so entity with known identifier and different name
+     * gets new entry, which replaces the previous one for lookups by identifier.</p>
+     */
+    private static final class EntityDictionary {
+        private final Map<Long, Integer> refs = new HashMap<>();
+        private long[] ids = new long[16];
+        private String[] names = new String[16];
+        private int size;
+
+        /**
+         * Gets reference of the entity (adds the entity to the dictionary if it is not there).
+         */
+        int intern(long id, String name) {
+            var ref = refs.get(id);
+            if (ref != null && Objects.equals(names[ref], name)) {
+                return ref;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                names = Arrays.copyOf(names, size * 2);
+            }
+            ids[size] = id;
+            names[size] = name;
+            refs.put(id, size);
+            return size++;
+        }
+
+        /**
+         * Creates dictionary containing only entries referenced by given rows and rewrites the row references.
+         * @param rowRefs References of rows (rewritten to references of the new dictionary)
+         * @param rowCount Number of rows
+         * @return New dictionary
+         */
+        EntityDictionary compact(int[] rowRefs, int rowCount) {
+            var compacted = new EntityDictionary();
+            var newRefs = new int[size];
+            Arrays.fill(newRefs, -1);
+            for (var i = 0; i < rowCount; ++i) {
+                var ref = rowRefs[i];
+                if (newRefs[ref] == -1) {
+                    newRefs[ref] = compacted.intern(ids[ref], names[ref]);
+                }
+                rowRefs[i] = newRefs[ref];
+            }
+            return compacted;
+        }
+
+        Snapshot snapshot() {
+            return new Snapshot(ids, names, size);
+        }
+
+        /**
+         * Immutable snapshot of entity dictionary.
+         */
+        private static final class Snapshot {
+            private final long[] ids;
+            private final String[] names;
+            private final int size;
+
+            private Snapshot(long[] ids, String[] names, int size) {
+                this.ids = ids;
+                this.names = names;
+                this.size = size;
+            }
+
+            long getId(int ref) {
+                return ids[ref];
+            }
+
+            String getName(int ref) {
+                return names[ref];
+            }
+
+            /**
+             * Finds reference of the latest entity with given identifier.
+             * @return Reference or -1 if the entity is not in the dictionary
+             */
+            int find(long id) {
+                for (var i = size - 1; i >= 0; --i) {
+                    if (ids[i] == id) {
+                        return i;
+                    }
+                }
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Dictionary of interned tag sets, which are represented by bitsets (each tag has its bit).
+     */
+    private static final class TagSetDictionary {
+        private final Map<Set<String>, Integer> refs = new HashMap<>();
+        private Set<String>[] tagSets = createArray(16);
+        private BitSet[] bitSets = new BitSet[16];
+        private int size;
+        // Replaced on every new tag (copy-on-write), so that snapshots can share it
+        private Map<String, Integer> tagBits = Map.of();
+
+        /**
+         * Gets reference of the tag set (adds the tag set to the dictionary if it is not there).
+         */
+        int intern(Set<String> tags) {
+            var ref = refs.get(tags);
+            if (ref != null) {
+                return ref;
+            }
+            var tagSet = Set.copyOf(tags);
+            var bitSet = new BitSet();
+            for (var tag : tagSet) {
+                var bit = tagBits.get(tag);
+                if (bit == null) {
+                    var newTagBits = new HashMap<>(tagBits);
+                    bit = newTagBits.size();
+                    newTagBits.put(tag, bit);
+                    tagBits = Map.copyOf(newTagBits);
+                }
+                bitSet.set(bit);
+            }
+
+            if (size == tagSets.length) {
+                tagSets = Arrays.copyOf(tagSets, size * 2);
+                bitSets = Arrays.copyOf(bitSets, size * 2);
+            }
+            tagSets[size] = tagSet;
+            bitSets[size] = bitSet;
+            refs.put(tagSet, size);
+            return size++;
+        }
+
+        /**
+         * Creates dictionary containing only tag sets referenced by given rows and rewrites the row references.
+         * @param rowRefs References of rows (rewritten to references of the new dictionary)
+         * @param rowCount Number of rows
+         * @return New dictionary
+         */
+        TagSetDictionary compact(int[] rowRefs, int rowCount) {
+            var compacted = new TagSetDictionary();
+            var newRefs = new int[size];
+            Arrays.fill(newRefs, -1);
+            for (var i = 0; i < rowCount; ++i) {
+                var ref = rowRefs[i];
+                if (newRefs[ref] == -1) {
+                    newRefs[ref] = compacted.intern(tagSets[ref]);
+                }
+                rowRefs[i] = newRefs[ref];
+            }
+            return compacted;
+        }
+
+        Snapshot snapshot() {
+            return new Snapshot(tagSets, bitSets, size, tagBits);
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static Set<String>[] createArray(int size) {
+            return (Set<String>[]) new Set[size];
+        }
+
+        /**
+         * Immutable snapshot of tag set dictionary.
+         */
+        private static final class Snapshot {
+            private final Set<String>[] tagSets;
+            private final BitSet[] bitSets;
+            private final int size;
+            private final Map<String, Integer> tagBits;
+
+            private Snapshot(Set<String>[] tagSets, BitSet[] bitSets, int size, Map<String, Integer> tagBits) {
+                this.tagSets = tagSets;
+                this.bitSets = bitSets;
+                this.size = size;
+                this.tagBits = tagBits;
+            }
+
+            Set<String> getTags(int ref) {
+                return tagSets[ref];
+            }
+
+            /**
+             * Determines which tag sets contain all required tags.
+             * @return Array of matches by tag set reference or null if there are no required tags
+             */
+            boolean[] matches(Set<String> requiredTags) {
+                if (requiredTags == null || requiredTags.isEmpty()) {
+                    return null;
+                }
+                var matches = new boolean[size];
+                var required = new BitSet();
+                for (var tag : requiredTags) {
+                    var bit = tagBits.get(tag);
+                    if (bit == null) {
+                        // Unknown tag, no tag set can match
+                        return matches;
+                    }
+                    required.set(bit);
+                }
+                for (var i = 0; i < size; ++i) {
+                    var missing = (BitSet) required.clone();
+                    missing.andNot(bitSets[i]);
+                    matches[i] = missing.isEmpty();
+                }
+                return matches;
+            }
+        }
+    }
+
+    /**
+     * Growable array of primitive integers.
+     */
+    private static final class IntArray {
+        private int[] array = new int[64];
+        private int size;
+
+        void add(int value) {
+            if (size == array.length) {
+                array = Arrays.copyOf(array, size * 2);
+            }
+            array[size++] = value;
+        }
+    }
+}
@@ -21,20 +21,36 @@ import com.warxim.petep.extension.internal.history.model.*;
 import com.warxim.petep.extension.internal.history.repository.HistoryRepository;
 import com.warxim.petep.extension.internal.history.util.HistoryUtils;
 
-import java.util.Collection;
-import java.util.List;
-import java.util.Optional;
-import java.util.Set;
+import lombok.Value;
+
+import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 
 /**
  * Default history service
- * <p>Uses single thread to serve data.</p>
+ * <p>Uses single thread to write data. Queries are served by separate pool of threads, each of which uses its own
+ * reader of the repository (if the repository supports readers), so that the queries do not block writing.</p>
+ * <p>Saved PDUs are not written one by one, but they are queued and written in batches (each batch in single
+ * transaction) by the same thread. Pending PDUs are always written before any other operation is processed,
+ * so the operations see all previously saved PDUs.</p>
+ * <p>If retention policy is set, the oldest PDUs exceeding the policy are periodically pruned in small batches
+ * by the same thread, so that the batches interleave with writing of saved PDUs. Once the pruning is done,
+ * unused records are deleted and free space is released in small steps.</p>
  */
 public class DefaultHistoryService implements HistoryService {
     /**
@@ -42,89 +58,314 @@ public class DefaultHistoryService implements HistoryService {
      */
     private static final int TERMINATION_TIMEOUT_SECONDS = 60;
 
-    protected ExecutorService executor;
+    /**
+     * Default maximal number of PDUs written in single transaction.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 512;
+
+    /**
+     * Default time in milliseconds, for which saved PDU can wait for more PDUs to be written with.
+     */
+    public static final long DEFAULT_FLUSH_INTERVAL = 0;
+
+    /**
+     * Default number of repository readers used for serving queries.
+     */
+    public static final int DEFAULT_READER_COUNT = 2;
+
+    /**
+     * Default time in milliseconds between checks of retention policy.
+     */
+    public static final long DEFAULT_RETENTION_INTERVAL = 60_000;
+
+    /**
+     * Maximal number of PDUs pruned in single batch.
+     */
+    private static final int RETENTION_BATCH_SIZE = 256;
+
+    /**
+     * Maximal number of storage pages released in single compaction step.
+     */
+    private static final int COMPACTION_PAGES = 256;
+
+    protected ScheduledExecutorService executor;
     protected HistoryRepository repository;
     protected HistoryListener listener;
 
+    private final int batchSize;
+    private final long flushInterval;
+    private final Queue<PendingPdu> pendingPdus;
+    private final AtomicInteger pendingPduCount;
+    private final AtomicBoolean flushScheduled;
+    private final Queue<HistoryRepository> readers;
+    private final ExecutorService readExecutor;
+    private HistoryRetentionPolicy retentionPolicy;
+    private ScheduledFuture<?> retentionTask;
+    private boolean pruning;
+
     /**
-     * Constructs default history service.
+     * Constructs default history service with default batch size and flush interval.
      * @param repository Underlying repository to use in the service
      * @param listener History listener
      */
     public DefaultHistoryService(HistoryRepository repository, HistoryListener listener) {
+        this(repository, listener, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL);
+    }
+
+    /**
+     * Constructs default history service.
+     * @param repository Underlying repository to use in the service
+     * @param listener History listener
+     * @param batchSize Maximal number of PDUs written in single transaction
+     * @param flushInterval Time in milliseconds, for which saved PDU can wait for more PDUs
+     *                      (0 means that the PDUs are written as soon as the service thread is free)
+     */
+    public DefaultHistoryService(HistoryRepository repository, HistoryListener listener, int batchSize, long flushInterval) {
+        this(repository, listener, batchSize, flushInterval, DEFAULT_READER_COUNT);
+    }
+
+    /**
+     * Constructs default history service.
+     * @param repository Underlying repository to use in the service
+     * @param listener History listener
+     * @param batchSize Maximal number of PDUs written in single transaction
+     * @param flushInterval Time in milliseconds, for which saved PDU can wait for more PDUs
+     *                      (0 means that the PDUs are written as soon as the service thread is free)
+     * @param readerCount Number of repository readers serving queries concurrently with writing
+     *                    (0 means that the queries are served by the writing thread)
+     */
+    public DefaultHistoryService(
+            HistoryRepository repository,
+            HistoryListener listener,
+            int batchSize,
+            long flushInterval,
+            int readerCount) {
+        this.readers = new ConcurrentLinkedQueue<>();
+        for (var i = 0; i < readerCount; ++i) {
+            var reader = repository.createReader();
+            if (reader.isEmpty()) {
+                break;
+            }
+            readers.add(reader.get());
+        }
+        this.readExecutor = readers.isEmpty() ? null : Executors.newFixedThreadPool(readers.size());
         this.repository = repository;
         this.listener = listener;
-        this.executor = Executors.newSingleThreadExecutor();
+        this.batchSize = Math.max(batchSize, 1);
+        this.flushInterval = Math.max(flushInterval, 0);
+        this.executor = Executors.newSingleThreadScheduledExecutor();
+        this.pendingPdus = new ConcurrentLinkedQueue<>();
+        this.pendingPduCount = new AtomicInteger();
+        this.flushScheduled = new AtomicBoolean(false);
     }
 
     @Override
     public CompletableFuture<Optional<Long>> savePdu(HistoricPdu pdu) {
-        return CompletableFuture.supplyAsync(() -> processSavePdu(pdu), executor);
+        var future = new CompletableFuture<Optional<Long>>();
+        pendingPdus.add(new PendingPdu(pdu, future));
+
+        if (pendingPduCount.incrementAndGet() % batchSize == 0) {
+            // Full batch, write it right away
+            executor.execute(this::flushPendingPdus);
+        } else if (flushScheduled.compareAndSet(false, true)) {
+            executor.schedule(this::flushPendingPdus, flushInterval, TimeUnit.MILLISECONDS);
+        }
+
+        return future;
     }
 
     @Override
     public CompletableFuture<Optional<HistoricPdu>> getPdu(long id) {
-        return CompletableFuture.supplyAsync(() -> repository.getPdu(id), executor);
+        return readAsync(reader -> reader.getPdu(id));
     }
 
     @Override
     public CompletableFuture<Boolean> deletePdu(long id) {
-        return CompletableFuture.supplyAsync(() -> processDeletePdus(List.of(id)).size() == 1, executor);
+        return supplyAsync(() -> processDeletePdus(List.of(id)).size() == 1);
     }
 
     @Override
     public CompletableFuture<List<Long>> deletePdus(Collection<Long> ids) {
-        return CompletableFuture.supplyAsync(() -> processDeletePdus(ids), executor);
+        return supplyAsync(() -> processDeletePdus(ids));
     }
 
     @Override
     public CompletableFuture<Void> clearHistory() {
-        return CompletableFuture.runAsync(this::processClearHistory, executor);
+        return supplyAsync(() -> {
+            processClearHistory();
+            return null;
+        });
     }
 
     @Override
     public CompletableFuture<List<HistoricPdu>> getPdus() {
-        return CompletableFuture.supplyAsync(() -> repository.getPdus(), executor);
+        return readAsync(reader -> reader.getPdus());
     }
 
     @Override
     public CompletableFuture<List<HistoricPduView>> getPduViews() {
-        return CompletableFuture.supplyAsync(() -> repository.getPduViews(), executor);
+        return readAsync(reader -> reader.getPduViews());
     }
 
     @Override
     public CompletableFuture<List<HistoricPdu>> getPdusByFilter(HistoryFilter filter) {
-        return CompletableFuture.supplyAsync(() -> repository.getPdusByFilter(filter), executor);
+        return readAsync(reader -> reader.getPdusByFilter(filter));
     }
 
     @Override
     public CompletableFuture<List<HistoricPduView>> getPduViewsByFilter(HistoryFilter filter) {
-        return CompletableFuture.supplyAsync(() -> repository.getPduViewsByFilter(filter), executor);
+        return readAsync(reader -> reader.getPduViewsByFilter(filter));
     }
 
     @Override
     public CompletableFuture<Set<Long>> getPduIdsByFilter(HistoryFilter filter) {
-        return CompletableFuture.supplyAsync(() -> repository.getPduIdsByFilter(filter), executor);
+        return readAsync(reader -> reader.getPduIdsByFilter(filter));
+    }
+
+    @Override
+    public CompletableFuture<List<HistoricPduView>> getPduViewsPage(HistoryFilter filter, long afterId, int limit) {
+        return readAsync(reader -> reader.getPduViewsPage(filter, afterId, limit));
+    }
+
+    @Override
+    public CompletableFuture<long[]> getOrderedPduIds(HistoryFilter filter) {
+        return readAsync(reader -> reader.getOrderedPduIds(filter));
     }
 
     @Override
     public CompletableFuture<List<HistoricProxy>> getProxies() {
-        return CompletableFuture.supplyAsync(() -> repository.getProxies(), executor);
+        return readAsync(reader -> reader.getProxies());
     }
 
     @Override
     public CompletableFuture<List<HistoricInterceptor>> getInterceptors() {
-        return CompletableFuture.supplyAsync(() -> repository.getInterceptors(), executor);
+        return readAsync(reader -> reader.getInterceptors());
     }
 
     @Override
     public CompletableFuture<List<HistoricConnection>> getConnections() {
-        return CompletableFuture.supplyAsync(() -> repository.getConnections(), executor);
+        return readAsync(reader -> reader.getConnections());
     }
 
     @Override
     public CompletableFuture<Set<String>> getTags() {
-        return CompletableFuture.supplyAsync(() -> repository.getTags(), executor);
+        return readAsync(reader -> reader.getTags());
+    }
+
+    /**
+     * Sets retention policy, which is periodically applied to the history (replaces the previous policy).
+     * @param policy Retention policy (null or empty policy disables the retention)
+     * @param interval Time in milliseconds between checks of the policy
+     */
+    public synchronized void setRetentionPolicy(HistoryRetentionPolicy policy, long interval) {
+        if (retentionTask != null) {
+            retentionTask.cancel(false);
+            retentionTask = null;
+        }
+        retentionPolicy = policy;
+        if (policy == null || policy.isEmpty()) {
+            return;
+        }
+        retentionTask = executor.scheduleWithFixedDelay(
+                this::startPruning,
+                0,
+                Math.max(interval, 1),
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Gets retention policy applied to the history.
+     * @return Retention policy or null if there is none
+     */
+    public synchronized HistoryRetentionPolicy getRetentionPolicy() {
+        return retentionPolicy;
+    }
+
+    /**
+     * Runs the supplier in the service thread after pending PDUs are written.
+     * @param supplier Supplier to be run
+     * @return Future with the result of the supplier
+     */
+    protected <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier) {
+        return CompletableFuture.supplyAsync(() -> {
+            flushPendingPdus();
+            return supplier.get();
+        }, executor);
+    }
+
+    /**
+     * Runs the query using one of the repository readers after pending PDUs are written.
+     * <p>If there are no readers, the query is run in the service thread using the repository.</p>
+     * @param query Query to be run
+     * @return Future with the result of the query
+     */
+    protected <T> CompletableFuture<T> readAsync(Function<HistoryRepository, T> query) {
+        return readAsync(() -> null, (ignored, reader) -> query.apply(reader));
+    }
+
+    /**
+     * Runs the query using one of the repository readers after pending PDUs are written.
+     * <p>The state is obtained in the service thread (after pending PDUs are written) and passed to the query,
+     * which allows the query to combine state owned by the service thread with the repository data.</p>
+     * <p>If there are no readers, the query is run in the service thread using the repository.</p>
+     * @param state Supplier of the state, which is run in the service thread
+     * @param query Query to be run
+     * @return Future with the result of the query
+     */
+    protected <S, T> CompletableFuture<T> readAsync(Supplier<S> state, BiFunction<S, HistoryRepository, T> query) {
+        if (readExecutor == null) {
+            return supplyAsync(() -> query.apply(state.get(), repository));
+        }
+        return supplyAsync(state)
+                .thenApplyAsync(value -> {
+                    // There are as many threads as readers, so there is always a free reader
+                    var reader = readers.poll();
+                    try {
+                        return query.apply(value, reader);
+                    } finally {
+                        readers.add(reader);
+                    }
+                }, readExecutor);
+    }
+
+    /**
+     * Writes all pending PDUs in batches (runs in the service thread).
+     */
+    protected void flushPendingPdus() {
+        flushScheduled.set(false);
+
+        var batch = new ArrayList<PendingPdu>(Math.min(pendingPduCount.get(), batchSize));
+        PendingPdu pending;
+        while ((pending = pendingPdus.poll()) != null) {
+            pendingPduCount.decrementAndGet();
+            batch.add(pending);
+            if (batch.size() == batchSize) {
+                saveBatch(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            saveBatch(batch);
+        }
+    }
+
+    /**
+     * Saves batch of pending PDUs and completes their futures.
+     */
+    private void saveBatch(List<PendingPdu> batch) {
+        var pdus = batch.stream()
+                .map(PendingPdu::getPdu)
+                .collect(Collectors.toList());
+        try {
+            var ids = processSavePdus(pdus);
+            var index = 0;
+            for (var pending : batch) {
+                pending.getFuture().complete(ids.get(index++));
+            }
+        } catch (RuntimeException e) {
+            Logger.getGlobal().log(Level.SEVERE, "Could not save historic PDUs!", e);
+            batch.forEach(pending -> pending.getFuture().completeExceptionally(e));
+        }
     }
 
     /**
@@ -134,6 +375,7 @@ public class DefaultHistoryService implements HistoryService {
         repository.deleteAllPdus();
         repository.deleteUnusedRecords();
         listener.onHistoryClear();
+        execute(this::compact);
     }
 
     /**
@@ -142,69 +384,104 @@ public class DefaultHistoryService implements HistoryService {
      * @return List of identifiers of deleted PDUs
      */
     protected List<Long> processDeletePdus(Collection<Long> ids) {
-        var deletedIds = repository.deletePdus(ids);
+        var deletedIds = removePdus(ids);
         if (!deletedIds.isEmpty()) {
-            listener.onHistoricPduDelete(deletedIds);
             repository.deleteUnusedRecords();
         }
         return deletedIds;
     }
 
     /**
-     * Processes saving of PDU
-     * @param pdu Historic PDU
-     * @return Identifier of saved PDU if it has been saved successfully
+     * Deletes PDUs with given identifiers and notifies listener (unused records are kept).
+     * @param ids PDU identifiers
+     * @return List of identifiers of deleted PDUs
      */
-    protected Optional<Long> processSavePdu(HistoricPdu pdu) {
-        var proxyId = repository.getProxyIdByCodeAndName(pdu.getProxy().getCode(), pdu.getProxy().getName());
-        if (proxyId.isEmpty()) {
-            return Optional.empty();
+    protected List<Long> removePdus(Collection<Long> ids) {
+        var deletedIds = repository.deletePdus(ids);
+        if (!deletedIds.isEmpty()) {
+            listener.onHistoricPduDelete(deletedIds);
         }
-        pdu.getProxy().setId(proxyId.get());
+        return deletedIds;
+    }
 
-        var connectionId = repository.getConnectionIdByCodeAndName(pdu.getConnection().getCode(), pdu.getConnection().getName());
-        if (connectionId.isEmpty()) {
-            return Optional.empty();
+    /**
+     * Starts pruning of PDUs exceeding the retention policy (runs periodically in the service thread).
+     */
+    private void startPruning() {
+        if (pruning) {
+            return;
         }
-        pdu.getConnection().setId(connectionId.get());
+        pruning = true;
+        prune(false);
+    }
 
-        var interceptorId = repository.getInterceptorIdByCodeAndName(pdu.getInterceptor().getCode(), pdu.getInterceptor().getName());
-        if (interceptorId.isEmpty()) {
-            return Optional.empty();
+    /**
+     * Prunes single batch of PDUs exceeding the retention policy and schedules the next batch.
+     * <p>The next batch is queued behind the tasks, which are already waiting (e.g. writing of saved PDUs).</p>
+     * @param pruned Whether any PDUs were pruned by the previous batches
+     */
+    private void prune(boolean pruned) {
+        List<Long> deletedIds;
+        var hasMore = false;
+        try {
+            var policy = getRetentionPolicy();
+            var ids = policy == null
+                    ? List.<Long>of()
+                    : repository.getPduIdsExceedingRetention(policy, RETENTION_BATCH_SIZE);
+            deletedIds = ids.isEmpty() ? List.of() : removePdus(ids);
+            hasMore = !deletedIds.isEmpty() && ids.size() == RETENTION_BATCH_SIZE;
+        } catch (RuntimeException e) {
+            Logger.getGlobal().log(Level.SEVERE, "Could not apply history retention policy!", e);
+            deletedIds = List.of();
         }
-        pdu.getInterceptor().setId(interceptorId.get());
-
-        var charsetId = repository.getCharsetId(pdu.getCharset());
-        if (charsetId.isEmpty()) {
-            return Optional.empty();
+        if (hasMore) {
+            execute(() -> prune(true));
+            return;
         }
 
-        var optionalPduId = repository.createPdu(
-                proxyId.get(),
-                connectionId.get(),
-                interceptorId.get(),
-                charsetId.get(),
-                pdu.getDestination(),
-                pdu.getSize(),
-                pdu.getTime(),
-                pdu.getData());
+        pruning = false;
+        if (pruned || !deletedIds.isEmpty()) {
+            repository.deleteUnusedRecords();
+            execute(this::compact);
+        }
+    }
 
-        if (optionalPduId.isEmpty()) {
-            return Optional.empty();
+    /**
+     * Releases single step of free space and schedules the next step if there is more free space.
+     */
+    private void compact() {
+        if (repository.compact(COMPACTION_PAGES) > 0) {
+            execute(this::compact);
         }
+    }
 
-        var pduId = optionalPduId.get();
-        var tagIds = repository.getTagIdsByCodes(pdu.getTags());
-        repository.addPduTags(pduId, tagIds);
-        if (pdu.getMetadata() != null && !pdu.getMetadata().isEmpty()) {
-            repository.addPduMetadata(pduId, pdu.getMetadata());
+    /**
+     * Queues task to the service thread (ignores the task if the service has been stopped).
+     */
+    private void execute(Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            // Service is stopped, the remaining work is done when the history is opened again
         }
+    }
 
-        pdu.setId(pduId);
+    /**
+     * Processes saving of PDUs in single transaction.
+     * @param pdus Historic PDUs
+     * @return Identifiers of saved PDUs in the order of given PDUs (empty for PDUs that could not be saved)
+     */
+    protected List<Optional<Long>> processSavePdus(List<HistoricPdu> pdus) {
+        var ids = repository.savePdus(pdus);
 
-        listener.onHistoricPduCreate(pdu, HistoryUtils.historicPduToView(pdu));
+        var index = 0;
+        for (var pdu : pdus) {
+            if (ids.get(index++).isPresent()) {
+                listener.onHistoricPduCreate(pdu, HistoryUtils.historicPduToView(pdu));
+            }
+        }
 
-        return optionalPduId;
+        return ids;
     }
 
     /**
@@ -218,6 +495,7 @@ public class DefaultHistoryService implements HistoryService {
             }
             Logger.getGlobal().severe("HistoryService executor was not stopped correctly!");
         } finally {
+            shutdownReaders();
             try {
                 repository.close();
             } catch (Exception e) {
@@ -227,9 +505,40 @@ public class DefaultHistoryService implements HistoryService {
     }
 
     /**
-     * Shuts down the executor.
+     * Shuts down the read executor (after all running queries are done) and closes the readers.
+     */
+    private void shutdownReaders() {
+        if (readExecutor != null) {
+            readExecutor.shutdown();
+            try {
+                if (!readExecutor.awaitTermination(TERMINATION_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    readExecutor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                readExecutor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+        HistoryRepository reader;
+        while ((reader = readers.poll()) != null) {
+            try {
+                reader.close();
+            } catch (Exception e) {
+                Logger.getGlobal().log(Level.SEVERE, "Could not close history reader!", e);
+            }
+        }
+    }
+
+    /**
+     * Shuts down the executor (after all pending PDUs are written).
      */
     private boolean shutdownExecutor() {
+        // Write PDUs, which are still waiting for the flush
+        try {
+            executor.execute(this::flushPendingPdus);
+        } catch (RejectedExecutionException e) {
+            // Already stopped
+        }
         executor.shutdown();
         try {
             if (executor.awaitTermination(TERMINATION_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
@@ -241,4 +550,13 @@ public class DefaultHistoryService implements HistoryService {
         executor.shutdownNow();
         return false;
     }
+
+    /**
+     * PDU waiting to be written with future for reporting its identifier.
+     */
+    @Value
+    private static class PendingPdu {
+        HistoricPdu pdu;
+        CompletableFuture<Optional<Long>> future;
+    }
 }
@@ -20,10 +20,12 @@ import com.warxim.petep.extension.PetepAPI;
 import com.warxim.petep.extension.internal.history.model.*;
 
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 /**
  * History service is used for querying history.
@@ -97,6 +99,37 @@ public interface HistoryService {
      */
     CompletableFuture<Set<Long>> getPduIdsByFilter(HistoryFilter filter);
 
+    /**
+     * Gets page of PDU views that match given filter and have identifier greater than given identifier
+     * @param filter Filter for filtering PDU views
+     * @param afterId Identifier after which the page starts (identifier of the last PDU view of the previous page)
+     * @param limit Maximal number of PDU views in the page
+     * @return Completable future for list of obtained PDU views ordered by identifier
+     * @implSpec Default implementation filters all views obtained by {@link #getPduViewsByFilter(HistoryFilter)},
+     *           implementations should override it with more efficient query.
+     */
+    default CompletableFuture<List<HistoricPduView>> getPduViewsPage(HistoryFilter filter, long afterId, int limit) {
+        return getPduViewsByFilter(filter).thenApply(views -> views.stream()
+                .filter(view -> view.getId() > afterId)
+                .sorted(Comparator.comparingLong(HistoricPduView::getId))
+                .limit(limit)
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Gets identifiers of all PDUs that match given filter ordered by identifier
+     * @param filter Filter for filtering PDU identifiers (empty filter matches all PDUs)
+     * @return Completable future for ordered array of obtained PDU identifiers
+     * @implSpec Default implementation sorts identifiers of views obtained by {@link #getPduViewsByFilter(HistoryFilter)},
+     *           implementations should override it with more efficient query.
+     */
+    default CompletableFuture<long[]> getOrderedPduIds(HistoryFilter filter) {
+        return getPduViewsByFilter(filter).thenApply(views -> views.stream()
+                .mapToLong(HistoricPduView::getId)
+                .sorted()
+                .toArray());
+    }
+
     /**
      * Gets all proxies from history repository
      * @return Completable future for list of obtained proxies
@@ -18,9 +18,12 @@ package com.warxim.petep.extension.internal.history.util;
 
 import com.warxim.petep.core.pdu.PduDestination;
 import com.warxim.petep.extension.internal.history.model.HistoryFilter;
+import com.warxim.petep.extension.internal.history.repository.database.HistoryPayloadStore;
+import com.warxim.petep.extension.internal.history.repository.database.HistorySearchIndex;
 
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.time.Instant;
 import java.util.StringJoiner;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -30,6 +33,7 @@ import java.util.logging.Logger;
  */
 public class HistoryDatabaseUtils {
     private static final String EXCEPTION_LOG_MESSAGE = "SQL exception occurred!";
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
 
     private HistoryDatabaseUtils() {}
 
@@ -40,22 +44,33 @@ public class HistoryDatabaseUtils {
      * @return SQL query with filter conditions
      */
     public static String generateFilterQuery(String sql, HistoryFilter filter) {
+        return generateFilterQuery(sql, filter, false);
+    }
+
+    /**
+     * Generates filter query
+     * @param sql SQL query before WHERE clause
+     * @param filter Filter to used for generation the query
+     * @param useSearchIndex Whether to use search index for limiting candidates of data filter
+     * @return SQL query with filter conditions
+     */
+    public static String generateFilterQuery(String sql, HistoryFilter filter, boolean useSearchIndex) {
         var condition = new StringJoiner(" AND ");
 
         if (filter.getDestination() != null) {
-            condition.add("destination = ?");
+            condition.add("pdu.destination = ?");
         }
 
         if (filter.getProxyId() != null) {
-            condition.add("proxy.id = ?");
+            condition.add("pdu.id_proxy = ?");
         }
 
         if (filter.getInterceptorId() != null) {
-            condition.add("interceptor.id = ?");
+            condition.add("pdu.id_interceptor = ?");
         }
 
         if (filter.getConnectionId() != null) {
-            condition.add("connection.id = ?");
+            condition.add("pdu.id_connection = ?");
         }
 
         if (filter.getFromSize() != null) {
@@ -66,14 +81,29 @@ public class HistoryDatabaseUtils {
             condition.add("pdu.size <= ?");
         }
 
+        if (filter.getFromTime() != null) {
+            condition.add("pdu.time >= ?");
+        }
+
+        if (filter.getToTime() != null) {
+            condition.add("pdu.time <= ?");
+        }
+
         if (filter.getTags() != null && !filter.getTags().isEmpty()) {
+            // Uncorrelated subquery is evaluated only once (using tag(code) and pdu_has_tag(id_tag, id_pdu) indexes)
             for (int i = 0; i < filter.getTags().size(); ++i) {
-                condition.add("EXISTS (SELECT pht.id_pdu FROM pdu_has_tag pht LEFT JOIN tag ON tag.id = pht.id_tag WHERE pht.id_pdu = pdu.id AND tag.code = ?)");
+                condition.add("pdu.id IN (SELECT pht.id_pdu FROM pdu_has_tag pht JOIN tag ON tag.id = pht.id_tag WHERE tag.code = ?)");
             }
         }
 
+        var searchIndexUsable = isSearchIndexUsable(filter, useSearchIndex);
+        if (searchIndexUsable) {
+            // Index limits the candidates, data condition verifies them
+            condition.add(HistorySearchIndex.generateCandidateCondition());
+        }
+
         if (filter.getData() != null) {
-            condition.add(generateDataCondition(filter));
+            condition.add(generateDataCondition(filter, searchIndexUsable));
         }
 
         var sqlBuilder = new StringBuilder(sql);
@@ -86,9 +116,22 @@ public class HistoryDatabaseUtils {
      * Binds filter parameters to prepared statement
      * @param stmt Statement for binding parameters
      * @param filter Filter to bind
+     * @return Index of the last bound parameter (so that additional parameters can be bound after the filter ones)
+     * @throws SQLException If the bind fails
+     */
+    public static int bindFilterParameters(PreparedStatement stmt, HistoryFilter filter) throws SQLException {
+        return bindFilterParameters(stmt, filter, false);
+    }
+
+    /**
+     * Binds filter parameters to prepared statement
+     * @param stmt Statement for binding parameters
+     * @param filter Filter to bind
+     * @param useSearchIndex Whether the query was generated with search index
+     * @return Index of the last bound parameter (so that additional parameters can be bound after the filter ones)
      * @throws SQLException If the bind fails
      */
-    public static void bindFilterParameters(PreparedStatement stmt, HistoryFilter filter) throws SQLException {
+    public static int bindFilterParameters(PreparedStatement stmt, HistoryFilter filter, boolean useSearchIndex) throws SQLException {
         var paramId = 0;
 
         if (filter.getDestination() != null) {
@@ -115,15 +158,29 @@ public class HistoryDatabaseUtils {
             stmt.setInt(++paramId, filter.getToSize());
         }
 
+        if (filter.getFromTime() != null) {
+            stmt.setLong(++paramId, toTimestamp(filter.getFromTime()));
+        }
+
+        if (filter.getToTime() != null) {
+            stmt.setLong(++paramId, toTimestamp(filter.getToTime()));
+        }
+
         if (filter.getTags() != null && !filter.getTags().isEmpty()) {
             for (var tag : filter.getTags()) {
                 stmt.setString(++paramId, tag);
             }
         }
 
+        if (isSearchIndexUsable(filter, useSearchIndex)) {
+            stmt.setString(++paramId, HistorySearchIndex.toQuery(filter.getData()));
+        }
+
         if (filter.getData() != null) {
             stmt.setBytes(++paramId, filter.getData());
         }
+
+        return paramId;
     }
 
     /**
@@ -150,6 +207,28 @@ public class HistoryDatabaseUtils {
         return PduDestination.CLIENT;
     }
 
+    /**
+     * Converts instant to timestamp stored in database (nanoseconds since epoch).
+     * <p>Timestamps with nanosecond precision cover years 1677 - 2262.</p>
+     * @param time Instant to be converted
+     * @return Number of nanoseconds since epoch
+     * @throws ArithmeticException If the instant cannot be represented as timestamp
+     */
+    public static long toTimestamp(Instant time) {
+        return Math.addExact(Math.multiplyExact(time.getEpochSecond(), NANOS_PER_SECOND), time.getNano());
+    }
+
+    /**
+     * Converts timestamp stored in database (nanoseconds since epoch) to instant.
+     * @param timestamp Number of nanoseconds since epoch
+     * @return Instant
+     */
+    public static Instant fromTimestamp(long timestamp) {
+        return Instant.ofEpochSecond(
+                Math.floorDiv(timestamp, NANOS_PER_SECOND),
+                Math.floorMod(timestamp, NANOS_PER_SECOND));
+    }
+
     /**
      * Logs SQL exception to global logger.
      * @param exception Exception to be logged
@@ -158,27 +237,43 @@ public class HistoryDatabaseUtils {
         Logger.getGlobal().log(Level.SEVERE, EXCEPTION_LOG_MESSAGE, exception);
     }
 
+    /**
+     * Checks whether search index can be used for the data filter.
+     * <p>Negative data filters cannot be answered by the index.</p>
+     */
+    private static boolean isSearchIndexUsable(HistoryFilter filter, boolean useSearchIndex) {
+        return useSearchIndex
+                && !filter.isDataFilterNegative()
+                && HistorySearchIndex.isSearchable(filter.getData());
+    }
+
     /**
      * Generates data condition for given filter.
+     * <p>Without search index, the condition is evaluated once per payload (shared by PDUs with identical data),
+     * with search index, it is evaluated only for payloads of the candidate PDUs.</p>
      */
-    private static String generateDataCondition(HistoryFilter filter) {
+    private static String generateDataCondition(HistoryFilter filter, boolean searchIndexUsable) {
+        var data = HistoryPayloadStore.generateDataExpression();
         String dataCondition;
         if (filter.getDataFilterType() == HistoryFilter.DataFilterType.STARTS_WITH) {
             var substrLength = filter.getData().length;
-            dataCondition = "substr(data, 1, " + substrLength + ") = ?";
+            dataCondition = "substr(" + data + ", 1, " + substrLength + ") = ?";
         } else if (filter.getDataFilterType() == HistoryFilter.DataFilterType.ENDS_WITH) {
             var substrLength = filter.getData().length;
-            dataCondition = "substr(data, -" + substrLength + ") = ?";
+            dataCondition = "substr(" + data + ", -" + substrLength + ") = ?";
         } else {
-            dataCondition = "INSTR(data, ?) > 0";
+            dataCondition = "INSTR(" + data + ", ?) > 0";
         }
 
         // Add the data condition
         if (filter.isDataFilterNegative()) {
-            return "NOT(" + dataCondition + ")";
-        } else {
-            return dataCondition;
+            dataCondition = "NOT(" + dataCondition + ")";
+        }
+
+        if (searchIndexUsable) {
+            return "(SELECT " + dataCondition + " FROM payload WHERE payload.id = pdu.id_payload)";
         }
+        return "pdu.id_payload IN (SELECT payload.id FROM payload WHERE " + dataCondition + ")";
     }
 
 }
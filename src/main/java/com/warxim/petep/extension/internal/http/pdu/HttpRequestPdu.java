@@ -24,6 +24,7 @@ import lombok.Getter;
 import lombok.Setter;
 
 import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.Set;
 
 /**
@@ -64,7 +65,7 @@ public final class HttpRequestPdu extends HttpPdu {
 
     @Override
     public PDU copy() {
-        var pdu = new HttpRequestPdu(proxy, connection, destination, buffer.clone(), size, charset);
+        var pdu = new HttpRequestPdu(proxy, connection, destination, Arrays.copyOf(buffer, size), size, charset);
 
         pdu.addTags(tags);
         pdu.setLastInterceptor(pdu.getLastInterceptor());
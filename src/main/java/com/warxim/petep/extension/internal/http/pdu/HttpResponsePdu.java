@@ -24,6 +24,7 @@ import lombok.Getter;
 import lombok.Setter;
 
 import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.Set;
 
 /**
@@ -70,7 +71,7 @@ public final class HttpResponsePdu extends HttpPdu {
 
     @Override
     public PDU copy() {
-        var pdu = new HttpResponsePdu(proxy, connection, destination, buffer.clone(), size, charset);
+        var pdu = new HttpResponsePdu(proxy, connection, destination, Arrays.copyOf(buffer, size), size, charset);
 
         pdu.addTags(tags);
         pdu.setLastInterceptor(pdu.getLastInterceptor());
@@ -52,6 +52,14 @@ public enum Opcode {
         this.value = value;
     }
 
+    /**
+     * Checks whether the opcode is control opcode (CLOSE, PING, PONG and reserved control opcodes).
+     * @return {@code true} if the opcode is control opcode
+     */
+    public boolean isControl() {
+        return value >= CLOSE.value;
+    }
+
     /**
      * Get opcode of given value
      * @param value Number of opcode
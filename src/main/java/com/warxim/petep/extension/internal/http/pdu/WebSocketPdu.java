@@ -24,6 +24,7 @@ import lombok.Getter;
 import lombok.Setter;
 
 import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.Set;
 
 /**
@@ -78,7 +79,7 @@ public final class WebSocketPdu extends TcpPdu {
 
     @Override
     public WebSocketPdu copy() {
-        var pdu = new WebSocketPdu(proxy, connection, destination, buffer.clone(), size, charset);
+        var pdu = new WebSocketPdu(proxy, connection, destination, Arrays.copyOf(buffer, size), size, charset);
 
         pdu.addTags(tags);
         pdu.setLastInterceptor(pdu.getLastInterceptor());
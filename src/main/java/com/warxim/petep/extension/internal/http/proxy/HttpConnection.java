@@ -19,10 +19,14 @@ package com.warxim.petep.extension.internal.http.proxy;
 import com.warxim.petep.core.pdu.PDU;
 import com.warxim.petep.core.pdu.PduDestination;
 import com.warxim.petep.extension.internal.http.pdu.*;
+import com.warxim.petep.extension.internal.http.reader.HttpInputStream;
 import com.warxim.petep.extension.internal.http.reader.HttpRequestReader;
 import com.warxim.petep.extension.internal.http.reader.HttpResponseReader;
 import com.warxim.petep.extension.internal.http.reader.PduReader;
 import com.warxim.petep.extension.internal.http.reader.WebSocketReader;
+import com.warxim.petep.extension.internal.http.websocket.PerMessageDeflate;
+import com.warxim.petep.extension.internal.http.websocket.PerMessageDeflateParameters;
+import com.warxim.petep.extension.internal.http.writer.HttpOutputStream;
 import com.warxim.petep.extension.internal.http.writer.HttpRequestWriter;
 import com.warxim.petep.extension.internal.http.writer.HttpResponseWriter;
 import com.warxim.petep.extension.internal.http.writer.PduWriter;
@@ -32,6 +36,7 @@ import com.warxim.petep.proxy.worker.Proxy;
 
 import java.io.IOException;
 import java.net.Socket;
+import java.util.function.Supplier;
 
 /**
  * HTTP connection.
@@ -40,6 +45,16 @@ import java.net.Socket;
 public final class HttpConnection extends TcpConnection {
     private static final String UPGRADE_HEADER = "Upgrade";
     private static final String UPGRADE_HEADER_WEBSOCKET = "websocket";
+    private static final String EXTENSIONS_HEADER = "Sec-WebSocket-Extensions";
+
+    /**
+     * Sec-WebSocket-Extensions header of the handshake response received from server.
+     */
+    private volatile String serverExtensions;
+    /**
+     * Sec-WebSocket-Extensions header of the handshake response sent to client.
+     */
+    private volatile String clientExtensions;
 
     /**
      * TCP connection constructor.
@@ -53,7 +68,7 @@ public final class HttpConnection extends TcpConnection {
 
     @Override
     protected void readFromClient() {
-        try (var in = c2pSocket.getInputStream()) {
+        try (var in = new HttpInputStream(c2pSocket.getInputStream())) {
             PduReader reader = new HttpRequestReader(
                     in,
                     getConfig().getBufferSize(),
@@ -67,9 +82,12 @@ public final class HttpConnection extends TcpConnection {
                 if (pdu instanceof HttpRequestPdu) {
                     var temp = ((HttpRequestPdu) pdu).getHeader(UPGRADE_HEADER);
                     if (UPGRADE_HEADER_WEBSOCKET.equals(temp)) {
-                        reader = new WebSocketReader(in, PduDestination.SERVER);
-                        // Do not support any extensions.
-                        ((HttpPdu) pdu).removeHeader("Sec-WebSocket-Extensions");
+                        reader = new WebSocketReader(
+                                in,
+                                PduDestination.SERVER,
+                                getConfig().getBufferSize(),
+                                createInflaterSupplier());
+                        filterExtensions((HttpPdu) pdu);
                     }
                 }
 
@@ -82,7 +100,7 @@ public final class HttpConnection extends TcpConnection {
 
     @Override
     protected void readFromServer() {
-        try (var in = p2sSocket.getInputStream()) {
+        try (var in = new HttpInputStream(p2sSocket.getInputStream())) {
             PduReader reader = new HttpResponseReader(
                     in,
                     getConfig().getBufferSize(),
@@ -97,7 +115,12 @@ public final class HttpConnection extends TcpConnection {
                     // HTTP
                     var temp = ((HttpResponsePdu) pdu).getHeader(UPGRADE_HEADER);
                     if (UPGRADE_HEADER_WEBSOCKET.equals(temp)) {
-                        reader = new WebSocketReader(in, PduDestination.CLIENT);
+                        serverExtensions = ((HttpResponsePdu) pdu).getHeader(EXTENSIONS_HEADER);
+                        reader = new WebSocketReader(
+                                in,
+                                PduDestination.CLIENT,
+                                getConfig().getBufferSize(),
+                                createInflaterSupplier());
                     }
                 } else {
                     // WebSockets
@@ -117,7 +140,7 @@ public final class HttpConnection extends TcpConnection {
     protected void writeToClient() {
         PDU pdu;
 
-        try (var out = c2pSocket.getOutputStream()) {
+        try (var out = new HttpOutputStream(c2pSocket.getOutputStream())) {
             PduWriter writer = new HttpResponseWriter(out);
 
             // Read bytes to buffer and send it to out stream
@@ -128,7 +151,8 @@ public final class HttpConnection extends TcpConnection {
                     // HTTP
                     var temp = ((HttpResponsePdu) pdu).getHeader(UPGRADE_HEADER);
                     if (UPGRADE_HEADER_WEBSOCKET.equals(temp)) {
-                        writer = new WebSocketWriter(out);
+                        clientExtensions = ((HttpResponsePdu) pdu).getHeader(EXTENSIONS_HEADER);
+                        writer = new WebSocketWriter(out, createDeflaterSupplier(PduDestination.CLIENT));
                     }
                 } else {
                     // WebSockets
@@ -148,7 +172,7 @@ public final class HttpConnection extends TcpConnection {
     protected void writeToServer() {
         PDU pdu;
 
-        try (var out = p2sSocket.getOutputStream()) {
+        try (var out = new HttpOutputStream(p2sSocket.getOutputStream())) {
             PduWriter writer = new HttpRequestWriter(out);
             // Read bytes to buffer and send it to out stream
             while ((pdu = queueC2S.take()) != null) {
@@ -157,7 +181,7 @@ public final class HttpConnection extends TcpConnection {
                 if (pdu instanceof HttpRequestPdu) {
                     var temp = ((HttpRequestPdu) pdu).getHeader(UPGRADE_HEADER);
                     if (UPGRADE_HEADER_WEBSOCKET.equals(temp)) {
-                        writer = new WebSocketWriter(out);
+                        writer = new WebSocketWriter(out, createDeflaterSupplier(PduDestination.SERVER));
                     }
                 }
             }
@@ -167,4 +191,47 @@ public final class HttpConnection extends TcpConnection {
             Thread.currentThread().interrupt();
         }
     }
+
+    /**
+     * Keeps only supported extensions (permessage-deflate if enabled) in WebSocket handshake request.
+     */
+    private void filterExtensions(HttpPdu pdu) {
+        var extensions = getConfig().isWebSocketDeflate()
+                ? PerMessageDeflateParameters.filterOffers(pdu.getHeader(EXTENSIONS_HEADER))
+                : null;
+        if (extensions == null) {
+            pdu.removeHeader(EXTENSIONS_HEADER);
+        } else {
+            pdu.addHeader(EXTENSIONS_HEADER, extensions);
+        }
+    }
+
+    /**
+     * Creates supplier of decompression context, which is used once compressed message is received.
+     * <p>Decompression does not depend on negotiated parameters, since inflater supports all window sizes
+     * and keeps the context between messages.</p>
+     */
+    private Supplier<PerMessageDeflate> createInflaterSupplier() {
+        return () -> getConfig().isWebSocketDeflate() ? new PerMessageDeflate() : null;
+    }
+
+    /**
+     * Creates supplier of compression context for messages sent to given destination.
+     * <p>Messages sent to client are compressed using server parameters negotiated with the client,
+     * messages sent to server are compressed using client parameters negotiated by the server.</p>
+     */
+    private Supplier<PerMessageDeflate> createDeflaterSupplier(PduDestination destination) {
+        return () -> {
+            if (!getConfig().isWebSocketDeflate()) {
+                return null;
+            }
+            var extensions = destination == PduDestination.CLIENT ? clientExtensions : serverExtensions;
+            var windowBits = getConfig().getWebSocketDeflateWindowBits() == 0
+                    ? PerMessageDeflateParameters.MAX_WINDOW_BITS
+                    : getConfig().getWebSocketDeflateWindowBits();
+            return PerMessageDeflateParameters.parse(extensions, destination)
+                    .map(parameters -> PerMessageDeflate.of(parameters, windowBits))
+                    .orElse(null);
+        };
+    }
 }
@@ -0,0 +1,197 @@
+/*
+ * PEnetration TEsting Proxy (PETEP)
+ *
+ * Copyright (C) 2023 Michal Válka
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <https://www.gnu.org/licenses/>.
+ */
+package com.warxim.petep.extension.internal.http.reader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Buffered input stream for HTTP readers.
+ * <p>Reads the underlying stream in bulk into reusable byte window, from which the lines (request line, status line,
+ * headers, chunk sizes) are scanned without per-byte calls to the underlying stream.</p>
+ * <p>The same instance has to be shared by all readers of the connection (HTTP and WebSocket),
+ * since it can contain already buffered bytes of the following messages.</p>
+ */
+public final class HttpInputStream extends InputStream {
+    /**
+     * Default size of the byte window.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+    /**
+     * Maximal length of single line (the window grows up to this size for long lines).
+     */
+    public static final int MAX_LINE_LENGTH = 1024 * 1024;
+
+    private final InputStream in;
+    private byte[] buffer;
+    private int position;
+    private int limit;
+
+    /**
+     * Constructs buffered HTTP input stream with default buffer size.
+     * @param in Underlying input stream
+     */
+    public HttpInputStream(InputStream in) {
+        this(in, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructs buffered HTTP input stream.
+     * @param in Underlying input stream
+     * @param bufferSize Initial size of the byte window
+     */
+    public HttpInputStream(InputStream in, int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size has to be positive!");
+        }
+        this.in = in;
+        this.buffer = new byte[bufferSize];
+    }
+
+    /**
+     * Wraps input stream to HTTP input stream (if it is not HTTP input stream already).
+     * @param in Input stream to wrap
+     * @return HTTP input stream
+     */
+    public static HttpInputStream wrap(InputStream in) {
+        if (in instanceof HttpInputStream) {
+            return (HttpInputStream) in;
+        }
+        return new HttpInputStream(in);
+    }
+
+    /**
+     * Reads line terminated by CRLF (or LF) and decodes it as ISO-8859-1.
+     * @return Line without the terminator or null if the stream ended before the end of line
+     * @throws IOException If the read fails or the line is longer than {@link #MAX_LINE_LENGTH}
+     */
+    public String readLine() throws IOException {
+        var scanned = position;
+        while (true) {
+            var end = indexOfLineFeed(scanned);
+            if (end != -1) {
+                var start = position;
+                position = end + 1;
+                if (end > start && buffer[end - 1] == '\r') {
+                    --end;
+                }
+                return new String(buffer, start, end - start, StandardCharsets.ISO_8859_1);
+            }
+
+            // Line feed is not in the window, load more bytes (the scanned part is not scanned again)
+            var offset = limit - position;
+            if (offset >= MAX_LINE_LENGTH) {
+                throw new IOException("HTTP line is too long!");
+            }
+            if (fill() == -1) {
+                return null;
+            }
+            scanned = position + offset;
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (position == limit && fill() == -1) {
+            return -1;
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        var buffered = limit - position;
+        if (buffered == 0) {
+            if (length >= buffer.length) {
+                // Large reads bypass the window
+                return in.read(bytes, offset, length);
+            }
+            if (fill() == -1) {
+                return -1;
+            }
+            buffered = limit - position;
+        }
+        var count = Math.min(buffered, length);
+        System.arraycopy(buffer, position, bytes, offset, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        var skipped = 0L;
+        while (skipped < n) {
+            if (position == limit && fill() == -1) {
+                break;
+            }
+            var count = (int) Math.min(limit - position, n - skipped);
+            position += count;
+            skipped += count;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (limit - position) + in.available();
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Finds line feed in the window, starting at the given index.
+     */
+    private int indexOfLineFeed(int from) {
+        var localBuffer = buffer;
+        for (var i = from; i < limit; ++i) {
+            if (localBuffer[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reads available bytes from the underlying stream to the window.
+     * <p>Unread bytes are moved to the start of the window, which grows if it is full.</p>
+     * @return Number of read bytes or -1 if the stream ended
+     */
+    private int fill() throws IOException {
+        var remaining = limit - position;
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, remaining);
+            position = 0;
+            limit = remaining;
+        }
+        if (limit == buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.min(buffer.length * 2, MAX_LINE_LENGTH + 1));
+        }
+        var count = in.read(buffer, limit, buffer.length - limit);
+        if (count > 0) {
+            limit += count;
+        }
+        return count;
+    }
+}
@@ -32,18 +32,20 @@ import java.nio.charset.Charset;
  * Reader for HTTP PDUs.
  */
 public abstract class HttpReader extends PduReader {
+    protected final HttpInputStream bufferedIn;
     protected final int maxLength;
     protected final Charset defaultCharset;
     protected InternalBodyState internalBodyState;
 
     /**
      * Constructs HTTP PDU reader.
-     * @param in Input stream for reading the data
+     * @param in Input stream for reading the data (wrapped to {@link HttpInputStream} if it is not already)
      * @param maxLength Maximal length of PDU body
      * @param defaultCharset Default charset to set to PDUs
      */
     protected HttpReader(InputStream in, int maxLength, Charset defaultCharset) {
-        super(in);
+        super(HttpInputStream.wrap(in));
+        this.bufferedIn = (HttpInputStream) this.in;
         this.maxLength = maxLength;
         this.defaultCharset = defaultCharset;
     }
@@ -56,51 +58,44 @@ public abstract class HttpReader extends PduReader {
      * @return {@code true} if headers were read correctly (everything was valid)
      */
     protected final boolean readHeaders(HttpPdu httpPdu) throws IOException {
-        var builder = new StringBuilder();
-        var step = HeaderStep.HEADER_NAME;
-        var temp = "";
-        int currentByte;
-        while ((currentByte = in.read()) != -1) {
-            if (step == HeaderStep.HEADER_NAME) {
-                if (currentByte == ':') {
-                    // Skip space.
-                    skip(1);
-
-                    temp = HttpUtils.formatHeaderName(builder);
-                    builder.setLength(0);
-
-                    step = HeaderStep.HEADER_VALUE;
-                    continue;
-                } else if (currentByte == '\r') { // End of headers.
-                    // Skip \n.
-                    skip(1);
-
-                    return true;
-                }
-            } else { // HEADER_VALUE
-                if (currentByte == '\r') {
-                    // Skip \n.
-                    skip(1);
-
-                    var oldValue = httpPdu.getHeader(temp);
-                    if (oldValue != null) {
-                        httpPdu.addHeader(temp, oldValue + ", " + builder);
-                    } else {
-                        httpPdu.addHeader(temp, builder.toString());
-                    }
-                    builder.setLength(0);
-
-                    step = HeaderStep.HEADER_NAME;
-                    continue;
-                }
+        String line;
+        while ((line = bufferedIn.readLine()) != null) {
+            if (line.isEmpty()) { // End of headers.
+                return true;
+            }
+
+            var separator = line.indexOf(':');
+            if (separator <= 0) {
+                return false;
             }
 
-            builder.append((char) currentByte);
+            var name = HttpUtils.formatHeaderName(line.substring(0, separator));
+            var value = line.substring(skipWhitespace(line, separator + 1));
+
+            var oldValue = httpPdu.getHeader(name);
+            if (oldValue != null) {
+                httpPdu.addHeader(name, oldValue + ", " + value);
+            } else {
+                httpPdu.addHeader(name, value);
+            }
         }
 
         return false;
     }
 
+    /**
+     * Returns index of the first non-whitespace (SP / HTAB) character starting at the given index.
+     * @param line Line to scan
+     * @param index Index, from which to scan
+     * @return Index of the first non-whitespace character or line length
+     */
+    protected static int skipWhitespace(String line, int index) {
+        while (index < line.length() && (line.charAt(index) == ' ' || line.charAt(index) == '\t')) {
+            ++index;
+        }
+        return index;
+    }
+
     /**
      * Processes headers in PDU and updates the PDU accordingly.
      * @param pdu PDU to be processed
@@ -196,39 +191,31 @@ public abstract class HttpReader extends PduReader {
 
         int index = 0;
         var buffer = new byte[maxLength];
-        var builder = new StringBuilder();
-        int currentByte;
 
         while (index != buffer.length) {
             if (state.getChunkStep() == ChunkedBodyStep.LENGTH) {
-                currentByte = in.read();
-                if (currentByte == -1) {
+                var line = bufferedIn.readLine();
+                if (line == null) {
                     break;
                 }
 
-                if (currentByte == '\r') {
-                    // Skip \n
-                    skip(1);
-
-                    int length = Integer.parseInt(builder.toString(), 16);
-
-                    if (length == 0) {
-                        skip(2);
+                // Ignore chunk extensions
+                var extension = line.indexOf(';');
+                int length = Integer.parseInt((extension == -1 ? line : line.substring(0, extension)).trim(), 16);
 
-                        pdu.setBuffer(buffer, index);
-                        pdu.addTag("last_chunk");
+                if (length == 0) {
+                    skip(2);
 
-                        // No more chunks.
-                        internalBodyState = null;
-                        return;
-                    }
+                    pdu.setBuffer(buffer, index);
+                    pdu.addTag("last_chunk");
 
-                    state.setChunkLength(Integer.parseInt(builder.toString(), 16));
-                    state.setChunkStep(ChunkedBodyStep.CHUNK);
-                    builder.setLength(0);
-                } else {
-                    builder.append((char) currentByte);
+                    // No more chunks.
+                    internalBodyState = null;
+                    return;
                 }
+
+                state.setChunkLength(length);
+                state.setChunkStep(ChunkedBodyStep.CHUNK);
             } else {
                 int remaining = maxLength - index;
                 if (state.getChunkLength() > remaining) {
@@ -285,11 +272,4 @@ public abstract class HttpReader extends PduReader {
             throw new IOException("Could not skip bytes!");
         }
     }
-
-    /**
-     * Header reading step (what are we reading now).
-     */
-    protected enum HeaderStep {
-        HEADER_NAME, HEADER_VALUE
-    }
 }
@@ -59,52 +59,20 @@ public final class HttpRequestReader extends HttpReader {
      * Reads request line.
      */
     private boolean readRequestLine(HttpRequestPdu request) throws IOException {
-        var state = RequestLineState.METHOD;
-        var builder = new StringBuilder();
-        int currentByte;
-        while ((currentByte = in.read()) != -1) {
-            switch (state) {
-                case METHOD:
-                    if (currentByte == ' ') {
-                        request.setMethod(builder.toString());
-                        builder.setLength(0);
-                        state = RequestLineState.PATH;
-                        break;
-                    }
-
-                    builder.append((char) currentByte);
-                    break;
-                case PATH:
-                    if (currentByte == ' ') {
-                        request.setPath(builder.toString());
-                        builder.setLength(0);
-                        state = RequestLineState.VERSION;
-                        break;
-                    }
-
-                    builder.append((char) currentByte);
-                    break;
-                case VERSION:
-                    if (currentByte == '\r') {
-                        // Skip \n.
-                        skip(1);
-
-                        request.setVersion(builder.toString());
-                        return true;
-                    }
-
-                    builder.append((char) currentByte);
-                    break;
-            }
+        var line = bufferedIn.readLine();
+        if (line == null) {
+            return false;
         }
 
-        return false;
-    }
+        var methodEnd = line.indexOf(' ');
+        var pathEnd = methodEnd == -1 ? -1 : line.indexOf(' ', methodEnd + 1);
+        if (pathEnd == -1) {
+            return false;
+        }
 
-    /**
-     * Request line reading step (what are we reading now).
-     */
-    protected enum RequestLineState {
-        METHOD, PATH, VERSION
+        request.setMethod(line.substring(0, methodEnd));
+        request.setPath(line.substring(methodEnd + 1, pathEnd));
+        request.setVersion(line.substring(pathEnd + 1));
+        return true;
     }
 }
@@ -59,51 +59,24 @@ public final class HttpResponseReader extends HttpReader {
      * Reads status line.
      */
     private boolean readStatusLine(HttpResponsePdu response) throws IOException {
-        var state = StatusLineState.VERSION;
-        var builder = new StringBuilder();
-        int currentByte;
-        while ((currentByte = in.read()) != -1) {
-            switch (state) {
-                case VERSION:
-                    if (currentByte == ' ') {
-                        response.setVersion(builder.toString());
-                        builder.setLength(0);
-                        state = StatusLineState.STATUS_CODE;
-                        break;
-                    }
-
-                    builder.append((char) currentByte);
-                    break;
-                case STATUS_CODE:
-                    if (currentByte == ' ') {
-                        response.setStatusCode(Integer.parseInt(builder.toString()));
-                        builder.setLength(0);
-                        state = StatusLineState.STATUS_MESSAGE;
-                        break;
-                    }
-
-                    builder.append((char) currentByte);
-                    break;
-                case STATUS_MESSAGE:
-                    if (currentByte == '\r') {
-                        // Skip \n.
-                        skip(1);
-
-                        response.setStatusMessage(builder.toString());
-                        return true;
-                    }
+        var line = bufferedIn.readLine();
+        if (line == null) {
+            return false;
+        }
 
-                    builder.append((char) currentByte);
-                    break;
-            }
+        var versionEnd = line.indexOf(' ');
+        if (versionEnd == -1) {
+            return false;
+        }
+        var statusCodeEnd = line.indexOf(' ', versionEnd + 1);
+        if (statusCodeEnd == -1) {
+            // Status message is optional
+            statusCodeEnd = line.length();
         }
-        return false;
-    }
 
-    /**
-     * Status line reading step (what are we reading now).
-     */
-    protected enum StatusLineState {
-        VERSION, STATUS_CODE, STATUS_MESSAGE
+        response.setVersion(line.substring(0, versionEnd));
+        response.setStatusCode(Integer.parseInt(line.substring(versionEnd + 1, statusCodeEnd)));
+        response.setStatusMessage(statusCodeEnd < line.length() ? line.substring(statusCodeEnd + 1) : "");
+        return true;
     }
 }
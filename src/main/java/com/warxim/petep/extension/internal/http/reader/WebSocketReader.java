@@ -20,41 +20,112 @@ import com.warxim.petep.common.Constant;
 import com.warxim.petep.core.pdu.PduDestination;
 import com.warxim.petep.extension.internal.http.pdu.Opcode;
 import com.warxim.petep.extension.internal.http.pdu.WebSocketPdu;
+import com.warxim.petep.extension.internal.http.reader.state.WebSocketFrameState;
+import com.warxim.petep.extension.internal.http.websocket.PerMessageDeflate;
+import com.warxim.petep.extension.internal.http.websocket.WebSocketMasking;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
 
 /**
  * PDU reader for reading WebSocket PDUs from stream.
+ * <p>Frames with payload larger than maximal length are split into multiple fragments (PDUs tagged with "chunk"
+ * and "last_chunk"), so that every PDU is valid frame, which can be modified separately.
+ * Control frames cannot be fragmented, so they are never split.</p>
+ * <p>Messages compressed using permessage-deflate extension are decompressed, so that the PDUs contain plain data.
+ * RSV1 flag is kept in the first PDU of the message to mark that the message was compressed.</p>
  */
 public final class WebSocketReader extends PduReader {
+    private static final int MAX_CONTROL_LENGTH = 125;
+
     private final PduDestination destination;
+    private final int maxLength;
+    private final Supplier<PerMessageDeflate> deflateSupplier;
+    private WebSocketFrameState frameState;
+    private PerMessageDeflate deflate;
+    private boolean compressedMessage;
+
+    /**
+     * Constructs WebSocket PDU reader without support for compression.
+     * @param in Input stream for reading the data
+     * @param destination Destination for the read PDUs
+     * @param maxLength Maximal length of PDU payload
+     */
+    public WebSocketReader(InputStream in, PduDestination destination, int maxLength) {
+        this(in, destination, maxLength, () -> null);
+    }
 
     /**
      * Constructs WebSocket PDU reader.
      * @param in Input stream for reading the data
      * @param destination Destination for the read PDUs
+     * @param maxLength Maximal length of PDU payload
+     * @param deflateSupplier Supplier of permessage-deflate context, which is called once the first compressed
+     *                        message is received (supplies null if the extension has not been negotiated)
      */
-    public WebSocketReader(InputStream in, PduDestination destination) {
+    public WebSocketReader(InputStream in, PduDestination destination, int maxLength, Supplier<PerMessageDeflate> deflateSupplier) {
         super(in);
         this.destination = destination;
+        this.maxLength = maxLength;
+        this.deflateSupplier = deflateSupplier;
     }
 
     @Override
     public WebSocketPdu read() throws IOException {
         var pdu = new WebSocketPdu(null, null, destination, null, 0, Constant.DEFAULT_CHARSET);
 
-        readFragment(pdu);
+        Opcode messageOpcode;
+        if (frameState == null) {
+            readFragment(pdu);
+            messageOpcode = pdu.getOpcode();
+        } else {
+            messageOpcode = frameState.getOpcode();
+            readNextChunk(pdu);
+        }
+
+        inflate(pdu);
 
         // Set UTF8 for text.
-        if (pdu.getOpcode() == Opcode.TEXT) {
+        if (messageOpcode == Opcode.TEXT) {
             pdu.setCharset(StandardCharsets.UTF_8);
         }
 
         return pdu;
     }
 
+    /**
+     * Decompresses payload of the PDU if it belongs to compressed message.
+     */
+    private void inflate(WebSocketPdu pdu) throws IOException {
+        var opcode = pdu.getOpcode();
+        if (opcode == null || opcode.getValue() >= Opcode.CLOSE.getValue()) {
+            // Control frames are never compressed
+            return;
+        }
+
+        if (opcode != Opcode.CONTINUATION) {
+            // First fragment of the message determines whether the message is compressed
+            compressedMessage = pdu.isRsv1() && getDeflate() != null;
+        }
+
+        if (compressedMessage) {
+            var data = deflate.inflate(pdu.getBuffer(), pdu.getSize(), pdu.isFinal());
+            pdu.setBuffer(data, data.length);
+        }
+    }
+
+    /**
+     * Obtains permessage-deflate context (lazily, since it is negotiated after the reader is created).
+     */
+    private PerMessageDeflate getDeflate() {
+        if (deflate == null) {
+            deflate = deflateSupplier.get();
+        }
+        return deflate;
+    }
+
     /**
      * Reads WebSocket fragment.
      */
@@ -97,9 +168,7 @@ public final class WebSocketReader extends PduReader {
      * Reads content.
      */
     private void readLengthAndContent(int currentByte, WebSocketPdu pdu) throws IOException {
-        int length = readLength(currentByte);
-
-        var data = new byte[length];
+        long length = readLength(currentByte);
 
         // MASK
         if (pdu.isMasked()) {
@@ -110,44 +179,105 @@ public final class WebSocketReader extends PduReader {
             }
 
             pdu.setMask(mask);
+        }
 
-            if (in.readNBytes(data, 0, length) != length) {
-                throw new IOException("Could not read WebSocket data.");
+        if (pdu.getOpcode().isControl()) {
+            // Control frames cannot be fragmented (RFC 6455, section 5.5), so they are always read whole
+            if (length > MAX_CONTROL_LENGTH) {
+                throw new IOException("WebSocket control frame is too long.");
             }
+        } else if (length > maxLength) {
+            // Frame is above the limit. Splitting it to fragments, so that the PDUs will be editable separately.
+            frameState = new WebSocketFrameState(pdu.getOpcode(), pdu.isFinal(), pdu.getMask(), length);
+            pdu.setFinal(false);
+            readChunk(pdu);
+            return;
+        }
 
-            for (int i = 0; i < data.length; ++i) {
-                data[i] ^= mask[i & 0x3];
-            }
-        } else if (in.readNBytes(data, 0, length) != length) {
+        var data = new byte[(int) length];
+        readPayload(data, pdu.getMask(), 0);
+        pdu.setBuffer(data, data.length);
+    }
+
+    /**
+     * Reads next fragment of the frame, which is being read in chunks.
+     */
+    private void readNextChunk(WebSocketPdu pdu) throws IOException {
+        pdu.setOpcode(Opcode.CONTINUATION);
+        pdu.setFinal(false);
+        pdu.setMasked(frameState.getMask() != null);
+        pdu.setMask(frameState.getMask());
+        readChunk(pdu);
+    }
+
+    /**
+     * Reads chunk of the frame (at most maxLength bytes) to the PDU.
+     */
+    private void readChunk(WebSocketPdu pdu) throws IOException {
+        var length = (int) Math.min(maxLength, frameState.getRemainingLength());
+        var data = new byte[length];
+        readPayload(data, frameState.getMask(), frameState.getOffset());
+        pdu.setBuffer(data, length);
+
+        frameState.setOffset(frameState.getOffset() + length);
+        frameState.setRemainingLength(frameState.getRemainingLength() - length);
+        if (frameState.getRemainingLength() == 0) {
+            pdu.setFinal(frameState.isFinal());
+            pdu.addTag("last_chunk");
+            frameState = null;
+        } else {
+            pdu.addTag("chunk");
+        }
+    }
+
+    /**
+     * Reads payload data and unmasks them.
+     * @param data Buffer to fill
+     * @param mask Mask of the frame (null if the frame is not masked)
+     * @param offset Offset of the data in the frame payload (for mask alignment)
+     */
+    private void readPayload(byte[] data, byte[] mask, long offset) throws IOException {
+        if (in.readNBytes(data, 0, data.length) != data.length) {
             throw new IOException("Could not read WebSocket data.");
         }
 
-        pdu.setBuffer(data, length);
+        if (mask != null) {
+            WebSocketMasking.mask(data, 0, data, 0, data.length, mask, offset);
+        }
     }
 
     /**
      * Reads length from byte.
      */
-    private int readLength(int currentByte) throws IOException {
+    private long readLength(int currentByte) throws IOException {
         currentByte = currentByte & 0b0111_1111;
         if (currentByte <= 125) {
             // It's the length!
             return currentByte;
         } else if (currentByte == 126) {
             // The next 16 bits are the length.
-            currentByte = in.read();
-            if (currentByte == -1) {
-                throw new IOException("Could not read WebSocket length.");
-            }
-            int length = (currentByte & 0xFF) << 8;
-            currentByte = in.read();
+            return readExtendedLength(2);
+        }
+        // The next 64 bits are the length.
+        var length = readExtendedLength(8);
+        if (length < 0) {
+            throw new IOException("Invalid WebSocket length.");
+        }
+        return length;
+    }
+
+    /**
+     * Reads extended length of given number of bytes (network byte order).
+     */
+    private long readExtendedLength(int bytes) throws IOException {
+        long length = 0;
+        for (int i = 0; i < bytes; ++i) {
+            var currentByte = in.read();
             if (currentByte == -1) {
                 throw new IOException("Could not read WebSocket length.");
             }
-            length |= (currentByte & 0xFF);
-            return length;
+            length = (length << 8) | (currentByte & 0xFF);
         }
-        // The next 64 bits are the length.
-        throw new IOException("WebSocket message is too large.");
+        return length;
     }
 }
@@ -0,0 +1,49 @@
+/*
+ * PEnetration TEsting Proxy (PETEP)
+ *
+ * Copyright (C) 2023 Michal Válka
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <https://www.gnu.org/licenses/>.
+ */
+package com.warxim.petep.extension.internal.http.reader.state;
+
+import com.warxim.petep.extension.internal.http.pdu.Opcode;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * State of WebSocket frame, which is larger than maximal PDU length and is being read in chunks.
+ */
+@Getter
+@Setter
+public final class WebSocketFrameState {
+    private final Opcode opcode;
+    private final boolean isFinal;
+    private final byte[] mask;
+    private long remainingLength;
+    private long offset;
+
+    /**
+     * Constructs state of WebSocket frame read in chunks.
+     * @param opcode Opcode of the frame
+     * @param isFinal Whether the frame is final fragment of the message
+     * @param mask Mask of the frame (null if the frame is not masked)
+     * @param length Payload length of the frame
+     */
+    public WebSocketFrameState(Opcode opcode, boolean isFinal, byte[] mask, long length) {
+        this.opcode = opcode;
+        this.isFinal = isFinal;
+        this.mask = mask;
+        this.remainingLength = length;
+        this.offset = 0;
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * PEnetration TEsting Proxy (PETEP)
+ *
+ * Copyright (C) 2023 Michal Válka
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <https://www.gnu.org/licenses/>.
+ */
+package com.warxim.petep.extension.internal.http.websocket;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compression context of permessage-deflate WebSocket extension (RFC 7692) for one direction of the connection.
+ * <p>Messages can be processed in fragments (PDUs), the context is kept between fragments of the message
+ * and between messages (unless no context takeover is used).</p>
+ * <p>{@link Deflater} always uses 15-bit window, smaller windows are ensured by full flush after each window-sized
+ * part of the data, which prevents references to data outside the window.</p>
+ */
+public final class PerMessageDeflate {
+    private static final byte[] TAIL = new byte[] {0x00, 0x00, (byte) 0xFF, (byte) 0xFF};
+    private static final int CHUNK_SIZE = 8192;
+
+    private final boolean noContextTakeover;
+    private final int maxWindowBits;
+    private final byte[] chunk;
+    private Inflater inflater;
+    private Deflater deflater;
+    private boolean messageStart;
+
+    /**
+     * Constructs compression context with default parameters (context takeover, 15-bit window).
+     */
+    public PerMessageDeflate() {
+        this(false, PerMessageDeflateParameters.MAX_WINDOW_BITS);
+    }
+
+    /**
+     * Constructs compression context.
+     * @param noContextTakeover Whether to reset compression context for each message
+     * @param maxWindowBits Maximal LZ77 window bits used for compression (8-15)
+     */
+    public PerMessageDeflate(boolean noContextTakeover, int maxWindowBits) {
+        if (maxWindowBits < PerMessageDeflateParameters.MIN_WINDOW_BITS || maxWindowBits > PerMessageDeflateParameters.MAX_WINDOW_BITS) {
+            throw new IllegalArgumentException("Window bits have to be between 8 and 15!");
+        }
+        this.noContextTakeover = noContextTakeover;
+        this.maxWindowBits = maxWindowBits;
+        this.chunk = new byte[CHUNK_SIZE];
+        this.messageStart = true;
+    }
+
+    /**
+     * Constructs compression context for negotiated parameters.
+     * @param parameters Negotiated parameters of the direction
+     * @param windowBitsLimit Maximal window bits allowed by configuration
+     * @return Compression context
+     */
+    public static PerMessageDeflate of(PerMessageDeflateParameters parameters, int windowBitsLimit) {
+        return new PerMessageDeflate(parameters.isNoContextTakeover(), Math.min(parameters.getMaxWindowBits(), windowBitsLimit));
+    }
+
+    /**
+     * Decompresses fragment of compressed message.
+     * @param data Compressed data
+     * @param size Size of the compressed data
+     * @param endOfMessage Whether the fragment is the last fragment of the message
+     * @return Decompressed data
+     * @throws IOException If the data are not valid deflate data
+     */
+    public byte[] inflate(byte[] data, int size, boolean endOfMessage) throws IOException {
+        if (inflater == null) {
+            inflater = new Inflater(true);
+        }
+
+        var output = new ByteArrayOutputStream(Math.max(size * 2, 64));
+        try {
+            inflater.setInput(data, 0, size);
+            drain(inflater, output);
+            if (endOfMessage) {
+                inflater.setInput(TAIL);
+                drain(inflater, output);
+                if (inflater.finished()) {
+                    // Final block ends the stream, next message starts new one
+                    inflater.reset();
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Invalid compressed WebSocket data.", e);
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * Compresses fragment of message.
+     * @param data Data to compress
+     * @param size Size of the data
+     * @param endOfMessage Whether the fragment is the last fragment of the message
+     * @return Compressed data
+     */
+    public byte[] deflate(byte[] data, int size, boolean endOfMessage) {
+        if (deflater == null) {
+            deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        } else if (messageStart && noContextTakeover) {
+            deflater.reset();
+        }
+
+        var output = new ByteArrayOutputStream(size / 2 + 16);
+        if (maxWindowBits < PerMessageDeflateParameters.MAX_WINDOW_BITS) {
+            var window = 1 << maxWindowBits;
+            var offset = 0;
+            do {
+                var length = Math.min(window, size - offset);
+                deflater.setInput(data, offset, length);
+                offset += length;
+                drain(deflater, output, Deflater.FULL_FLUSH);
+            } while (offset < size);
+        } else {
+            deflater.setInput(data, 0, size);
+            drain(deflater, output, Deflater.SYNC_FLUSH);
+        }
+        messageStart = endOfMessage;
+
+        var result = output.toByteArray();
+        if (endOfMessage && endsWithTail(result)) {
+            return Arrays.copyOf(result, result.length - TAIL.length);
+        }
+        return result;
+    }
+
+    /**
+     * Inflates all available input.
+     */
+    private void drain(Inflater inflater, ByteArrayOutputStream output) throws DataFormatException {
+        while (true) {
+            var count = inflater.inflate(chunk);
+            if (count > 0) {
+                output.write(chunk, 0, count);
+            } else if (inflater.needsInput() || inflater.finished() || inflater.needsDictionary()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Deflates all input and flushes the output using given flush mode.
+     */
+    private void drain(Deflater deflater, ByteArrayOutputStream output, int flush) {
+        int count;
+        do {
+            count = deflater.deflate(chunk, 0, chunk.length, flush);
+            output.write(chunk, 0, count);
+        } while (count == chunk.length);
+    }
+
+    private static boolean endsWithTail(byte[] data) {
+        if (data.length < TAIL.length) {
+            return false;
+        }
+        return Arrays.equals(data, data.length - TAIL.length, data.length, TAIL, 0, TAIL.length);
+    }
+}
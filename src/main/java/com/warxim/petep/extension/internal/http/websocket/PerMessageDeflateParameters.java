@@ -0,0 +1,126 @@
+/*
+ * PEnetration TEsting Proxy (PETEP)
+ *
+ * Copyright (C) 2023 Michal Válka
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <https://www.gnu.org/licenses/>.
+ */
+package com.warxim.petep.extension.internal.http.websocket;
+
+import com.warxim.petep.core.pdu.PduDestination;
+import lombok.Value;
+
+import java.util.Locale;
+import java.util.Optional;
+import java.util.StringJoiner;
+
+/**
+ * Parameters of permessage-deflate WebSocket extension (RFC 7692) for one direction of the connection.
+ */
+@Value
+public class PerMessageDeflateParameters {
+    /**
+     * Name of the extension in Sec-WebSocket-Extensions header.
+     */
+    public static final String EXTENSION_NAME = "permessage-deflate";
+    /**
+     * Minimal value of max_window_bits parameters.
+     */
+    public static final int MIN_WINDOW_BITS = 8;
+    /**
+     * Maximal (and default) value of max_window_bits parameters.
+     */
+    public static final int MAX_WINDOW_BITS = 15;
+
+    /**
+     * Whether the sender resets compression context for each message.
+     */
+    boolean noContextTakeover;
+    /**
+     * Maximal LZ77 window bits, which the sender can use.
+     */
+    int maxWindowBits;
+
+    /**
+     * Parses parameters of the negotiated extension from Sec-WebSocket-Extensions header of the handshake response.
+     * @param header Value of Sec-WebSocket-Extensions response header (can be null)
+     * @param destination Direction of the messages (SERVER for messages compressed by client, CLIENT for messages
+     *                    compressed by server)
+     * @return Parameters or empty optional if the extension was not negotiated
+     */
+    public static Optional<PerMessageDeflateParameters> parse(String header, PduDestination destination) {
+        if (header == null) {
+            return Optional.empty();
+        }
+
+        var prefix = destination == PduDestination.SERVER ? "client_" : "server_";
+        for (var extension : header.split(",")) {
+            var parts = extension.split(";");
+            if (!EXTENSION_NAME.equalsIgnoreCase(parts[0].trim())) {
+                continue;
+            }
+
+            var noContextTakeover = false;
+            var maxWindowBits = MAX_WINDOW_BITS;
+            for (var i = 1; i < parts.length; ++i) {
+                var parameter = parts[i].trim();
+                var separator = parameter.indexOf('=');
+                var name = (separator == -1 ? parameter : parameter.substring(0, separator)).trim().toLowerCase(Locale.ROOT);
+                var value = separator == -1 ? null : parameter.substring(separator + 1).trim().replace("\"", "");
+
+                if (name.equals(prefix + "no_context_takeover")) {
+                    noContextTakeover = true;
+                } else if (name.equals(prefix + "max_window_bits") && value != null) {
+                    maxWindowBits = parseWindowBits(value);
+                }
+            }
+            return Optional.of(new PerMessageDeflateParameters(noContextTakeover, maxWindowBits));
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Keeps only permessage-deflate offers in Sec-WebSocket-Extensions header of the handshake request
+     * (other extensions are not supported by the proxy).
+     * @param header Value of Sec-WebSocket-Extensions request header (can be null)
+     * @return Header with permessage-deflate offers only or null if there are no such offers
+     */
+    public static String filterOffers(String header) {
+        if (header == null) {
+            return null;
+        }
+
+        var joiner = new StringJoiner(", ");
+        for (var extension : header.split(",")) {
+            var name = extension.split(";", 2)[0].trim();
+            if (EXTENSION_NAME.equalsIgnoreCase(name)) {
+                joiner.add(extension.trim());
+            }
+        }
+        return joiner.length() == 0 ? null : joiner.toString();
+    }
+
+    /**
+     * Parses window bits value, invalid values are treated as maximal window.
+     */
+    private static int parseWindowBits(String value) {
+        try {
+            var bits = Integer.parseInt(value);
+            if (bits >= MIN_WINDOW_BITS && bits <= MAX_WINDOW_BITS) {
+                return bits;
+            }
+        } catch (NumberFormatException e) {
+            // Invalid value
+        }
+        return MAX_WINDOW_BITS;
+    }
+}
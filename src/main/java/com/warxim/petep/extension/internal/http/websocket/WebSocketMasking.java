@@ -0,0 +1,70 @@
+/*
+ * PEnetration TEsting Proxy (PETEP)
+ *
+ * Copyright (C) 2023 Michal Válka
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <https://www.gnu.org/licenses/>.
+ */
+package com.warxim.petep.extension.internal.http.websocket;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Utils for masking WebSocket payloads.
+ * <p>Payload is XORed with the repeated 4-byte mask eight bytes at a time using long view of the byte arrays.</p>
+ */
+public final class WebSocketMasking {
+    private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private WebSocketMasking() {
+    }
+
+    /**
+     * Masks (or unmasks) data using WebSocket mask.
+     * <p>Source and target can be the same array with the same offset (masking in place).</p>
+     * @param source Data to mask
+     * @param sourceOffset Offset of the data in source array
+     * @param target Array, to which to write masked data
+     * @param targetOffset Offset in the target array
+     * @param length Length of the data
+     * @param mask Four bytes of the mask
+     * @param maskOffset Position of the data in the frame payload (for mask alignment)
+     */
+    public static void mask(byte[] source, int sourceOffset, byte[] target, int targetOffset, int length, byte[] mask, long maskOffset) {
+        var shift = (int) (maskOffset & 0x3);
+        var i = 0;
+        if (length >= Long.BYTES) {
+            var wideMask = createWideMask(mask, shift);
+            var end = length - Long.BYTES;
+            for (; i <= end; i += Long.BYTES) {
+                var value = (long) LONG_VIEW.get(source, sourceOffset + i);
+                LONG_VIEW.set(target, targetOffset + i, value ^ wideMask);
+            }
+        }
+        for (; i < length; ++i) {
+            target[targetOffset + i] = (byte) (source[sourceOffset + i] ^ mask[(i + shift) & 0x3]);
+        }
+    }
+
+    /**
+     * Creates mask repeated to eight bytes starting at given mask index.
+     */
+    private static long createWideMask(byte[] mask, int shift) {
+        var bytes = new byte[Long.BYTES];
+        for (var i = 0; i < Long.BYTES; ++i) {
+            bytes[i] = mask[(i + shift) & 0x3];
+        }
+        return (long) LONG_VIEW.get(bytes, 0);
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * PEnetration TEsting Proxy (PETEP)
+ *
+ * Copyright (C) 2023 Michal Válka
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <https://www.gnu.org/licenses/>.
+ */
+package com.warxim.petep.extension.internal.http.writer;
+
+import com.warxim.petep.extension.internal.http.websocket.WebSocketMasking;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Buffered output stream for HTTP writers.
+ * <p>Writers assemble whole message (start line, headers, frame header, body) in reusable byte window
+ * and call {@link #flush()} once the message is complete, so that small messages are sent using single write.</p>
+ * <p>Bodies larger than the window fill the remaining space of the window first, so that the headers are sent together
+ * with the beginning of the body instead of in separate small segment.</p>
+ */
+public final class HttpOutputStream extends OutputStream {
+    /**
+     * Default size of the byte window.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private final OutputStream out;
+    private final byte[] buffer;
+    private int count;
+
+    /**
+     * Constructs buffered HTTP output stream with default buffer size.
+     * @param out Underlying output stream
+     */
+    public HttpOutputStream(OutputStream out) {
+        this(out, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructs buffered HTTP output stream.
+     * @param out Underlying output stream
+     * @param bufferSize Size of the byte window
+     */
+    public HttpOutputStream(OutputStream out, int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size has to be positive!");
+        }
+        this.out = out;
+        this.buffer = new byte[bufferSize];
+    }
+
+    /**
+     * Wraps output stream to HTTP output stream (if it is not HTTP output stream already).
+     * @param out Output stream to wrap
+     * @return HTTP output stream
+     */
+    public static HttpOutputStream wrap(OutputStream out) {
+        if (out instanceof HttpOutputStream) {
+            return (HttpOutputStream) out;
+        }
+        return new HttpOutputStream(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (count == buffer.length) {
+            flushBuffer();
+        }
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        var space = buffer.length - count;
+        if (length <= space) {
+            System.arraycopy(bytes, offset, buffer, count, length);
+            count += length;
+            return;
+        }
+
+        if (count > 0) {
+            // Send buffered bytes together with the beginning of the data
+            System.arraycopy(bytes, offset, buffer, count, space);
+            count += space;
+            offset += space;
+            length -= space;
+            flushBuffer();
+        }
+
+        if (length >= buffer.length) {
+            out.write(bytes, offset, length);
+        } else {
+            System.arraycopy(bytes, offset, buffer, 0, length);
+            count = length;
+        }
+    }
+
+    /**
+     * Writes string, which contains only ISO-8859-1 characters (start line, headers).
+     * @param value String to write
+     * @throws IOException If the write fails
+     */
+    public void writeLatin1(String value) throws IOException {
+        var length = value.length();
+        for (var i = 0; i < length; ) {
+            if (count == buffer.length) {
+                flushBuffer();
+            }
+            var end = Math.min(length, i + buffer.length - count);
+            for (; i < end; ++i) {
+                buffer[count++] = (byte) value.charAt(i);
+            }
+        }
+    }
+
+    /**
+     * Writes data masked by WebSocket mask (data itself are not modified).
+     * @param bytes Data to mask and write
+     * @param offset Offset of the data
+     * @param length Length of the data
+     * @param mask Four bytes of the mask
+     * @throws IOException If the write fails
+     */
+    public void writeMasked(byte[] bytes, int offset, int length, byte[] mask) throws IOException {
+        for (var i = 0; i < length; ) {
+            if (count == buffer.length) {
+                flushBuffer();
+            }
+            var chunk = Math.min(length - i, buffer.length - count);
+            WebSocketMasking.mask(bytes, offset + i, buffer, count, chunk, mask, i);
+            count += chunk;
+            i += chunk;
+        }
+    }
+
+    /**
+     * Sends buffered bytes and flushes the underlying stream.
+     * <p>Writers call this once the whole message is written.</p>
+     */
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Writes buffered bytes to the underlying stream.
+     */
+    private void flushBuffer() throws IOException {
+        if (count > 0) {
+            out.write(buffer, 0, count);
+            count = 0;
+        }
+    }
+}
@@ -22,7 +22,6 @@ import com.warxim.petep.extension.internal.http.pdu.HttpRequestPdu;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.nio.charset.StandardCharsets;
 
 /**
  * Http writer for writing {@link HttpRequestPdu} to output stream.
@@ -41,6 +40,7 @@ public final class HttpRequestWriter extends HttpWriter {
         writeRequestLine((HttpRequestPdu) request);
         writeHeaders((HttpPdu) request);
         writeBody((HttpPdu) request);
+        out.flush();
     }
 
     /**
@@ -51,11 +51,11 @@ public final class HttpRequestWriter extends HttpWriter {
             return;
         }
 
-        out.write(request.getMethod().getBytes(StandardCharsets.ISO_8859_1));
+        out.writeLatin1(request.getMethod());
         out.write(' ');
-        out.write(request.getPath().getBytes(StandardCharsets.ISO_8859_1));
+        out.writeLatin1(request.getPath());
         out.write(' ');
-        out.write(request.getVersion().getBytes(StandardCharsets.ISO_8859_1));
-        out.write("\r\n".getBytes(StandardCharsets.ISO_8859_1));
+        out.writeLatin1(request.getVersion());
+        out.writeLatin1(CRLF);
     }
 }
@@ -22,7 +22,6 @@ import com.warxim.petep.extension.internal.http.pdu.HttpResponsePdu;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.nio.charset.StandardCharsets;
 
 /**
  * Http writer for writing {@link HttpResponsePdu} to output stream.
@@ -41,6 +40,7 @@ public final class HttpResponseWriter extends HttpWriter {
         writeStatusLine((HttpResponsePdu) response);
         writeHeaders((HttpPdu) response);
         writeBody((HttpPdu) response);
+        out.flush();
     }
 
     /**
@@ -51,11 +51,11 @@ public final class HttpResponseWriter extends HttpWriter {
             return;
         }
 
-        out.write(response.getVersion().getBytes(StandardCharsets.ISO_8859_1));
+        out.writeLatin1(response.getVersion());
         out.write(' ');
-        out.write(String.valueOf(response.getStatusCode()).getBytes(StandardCharsets.ISO_8859_1));
+        out.writeLatin1(String.valueOf(response.getStatusCode()));
         out.write(' ');
-        out.write(response.getStatusMessage().getBytes(StandardCharsets.ISO_8859_1));
-        out.write("\r\n".getBytes(StandardCharsets.ISO_8859_1));
+        out.writeLatin1(response.getStatusMessage());
+        out.writeLatin1(CRLF);
     }
 }
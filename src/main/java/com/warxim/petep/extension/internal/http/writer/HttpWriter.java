@@ -21,12 +21,13 @@ import com.warxim.petep.extension.internal.http.pdu.HttpPdu;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.nio.charset.StandardCharsets;
 
 /**
  * PDU writer for writing {@link HttpPdu} to output stream.
  */
 public abstract class HttpWriter extends PduWriter {
+    protected static final String CRLF = "\r\n";
+
     /**
      * Writes HTTP PDUs to output stream.
      * @param out Output stream to whcih to write PDUs
@@ -54,13 +55,13 @@ public abstract class HttpWriter extends PduWriter {
         }
 
         for (var header : pdu.getHeaders().entrySet()) {
-            out.write(header.getKey().getBytes(StandardCharsets.ISO_8859_1));
-            out.write(": ".getBytes(StandardCharsets.ISO_8859_1));
-            out.write(header.getValue().getBytes(StandardCharsets.ISO_8859_1));
-            out.write("\r\n".getBytes(StandardCharsets.ISO_8859_1));
+            out.writeLatin1(header.getKey());
+            out.writeLatin1(": ");
+            out.writeLatin1(header.getValue());
+            out.writeLatin1(CRLF);
         }
 
-        out.write("\r\n".getBytes(StandardCharsets.ISO_8859_1));
+        out.writeLatin1(CRLF);
     }
 
     /**
@@ -72,13 +73,13 @@ public abstract class HttpWriter extends PduWriter {
         }
 
         if (pdu.hasTag("chunk") || pdu.hasTag("last_chunk")) {
-            out.write(Integer.toHexString(pdu.getSize()).getBytes(StandardCharsets.ISO_8859_1));
-            out.write("\r\n".getBytes(StandardCharsets.ISO_8859_1));
+            out.writeLatin1(Integer.toHexString(pdu.getSize()));
+            out.writeLatin1(CRLF);
             out.write(pdu.getBuffer(), 0, pdu.getSize());
-            out.write("\r\n".getBytes(StandardCharsets.ISO_8859_1));
+            out.writeLatin1(CRLF);
 
             if (pdu.hasTag("last_chunk")) {
-                out.write("0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+                out.writeLatin1("0\r\n\r\n");
             }
         } else {
             out.write(pdu.getBuffer(), 0, pdu.getSize());
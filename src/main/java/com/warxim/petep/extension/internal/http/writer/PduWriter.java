@@ -25,18 +25,18 @@ import java.io.OutputStream;
  * PDU writer for writing PDUs to output stream.
  */
 public abstract class PduWriter {
-    protected final OutputStream out;
+    protected final HttpOutputStream out;
 
     /**
      * Writes PDUs to output stream.
-     * @param out Output stream to whcih to write PDUs
+     * @param out Output stream to whcih to write PDUs (wrapped to {@link HttpOutputStream} if it is not already)
      */
     protected PduWriter(OutputStream out) {
-        this.out = out;
+        this.out = HttpOutputStream.wrap(out);
     }
 
     /**
-     * Writes PDU to output stream.
+     * Writes PDU to output stream (and flushes it, so that the whole PDU is sent).
      * @param pdu PDU to write to output stream
      * @throws IOException If write fails because of various reasons
      */
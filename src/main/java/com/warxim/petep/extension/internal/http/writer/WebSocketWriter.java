@@ -17,32 +17,84 @@
 package com.warxim.petep.extension.internal.http.writer;
 
 import com.warxim.petep.core.pdu.PDU;
+import com.warxim.petep.extension.internal.http.pdu.Opcode;
 import com.warxim.petep.extension.internal.http.pdu.WebSocketPdu;
+import com.warxim.petep.extension.internal.http.websocket.PerMessageDeflate;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.function.Supplier;
 
 /**
  * PDU writer for writing {@link WebSocketPdu} to output stream.
+ * <p>Messages with RSV1 flag in the first PDU are compressed using permessage-deflate extension,
+ * if the extension has been negotiated. Otherwise, the PDUs are written as they are.</p>
  */
 public final class WebSocketWriter extends PduWriter {
+    private final Supplier<PerMessageDeflate> deflateSupplier;
+    private PerMessageDeflate deflate;
+    private boolean compressedMessage;
+
     /**
-     * Writes WebSocket PDUs to output stream.
+     * Writes WebSocket PDUs to output stream without support for compression.
      * @param out Output stream to whcih to write PDUs
      */
     public WebSocketWriter(OutputStream out) {
+        this(out, () -> null);
+    }
+
+    /**
+     * Writes WebSocket PDUs to output stream.
+     * @param out Output stream to which to write PDUs
+     * @param deflateSupplier Supplier of permessage-deflate context, which is called once the first compressed
+     *                        message is written (supplies null if the extension has not been negotiated)
+     */
+    public WebSocketWriter(OutputStream out, Supplier<PerMessageDeflate> deflateSupplier) {
         super(out);
+        this.deflateSupplier = deflateSupplier;
     }
 
     @Override
     public void write(PDU pdu) throws IOException {
-        writeFragment((WebSocketPdu) pdu);
+        var webSocketPdu = (WebSocketPdu) pdu;
+        var opcode = webSocketPdu.getOpcode();
+        if (opcode.getValue() >= Opcode.CLOSE.getValue()) {
+            // Control frames are never compressed
+            writeFragment(webSocketPdu, webSocketPdu.isRsv1(), webSocketPdu.getBuffer(), webSocketPdu.getSize());
+        } else {
+            if (opcode != Opcode.CONTINUATION) {
+                // First fragment of the message determines whether the message is compressed
+                compressedMessage = webSocketPdu.isRsv1() && getDeflate() != null;
+            }
+
+            if (compressedMessage) {
+                var data = deflate.deflate(webSocketPdu.getBuffer(), webSocketPdu.getSize(), webSocketPdu.isFinal());
+                writeFragment(webSocketPdu, opcode != Opcode.CONTINUATION, data, data.length);
+            } else {
+                writeFragment(webSocketPdu, webSocketPdu.isRsv1(), webSocketPdu.getBuffer(), webSocketPdu.getSize());
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Obtains permessage-deflate context (lazily, since it is negotiated after the writer is created).
+     */
+    private PerMessageDeflate getDeflate() {
+        if (deflate == null) {
+            deflate = deflateSupplier.get();
+        }
+        return deflate;
     }
 
     /**
      * Writes fragment to output stream.
+     * @param pdu PDU containing the frame header
+     * @param rsv1 Whether to set RSV1 (compression) flag
+     * @param buffer Payload to write
+     * @param length Length of the payload
      */
-    private void writeFragment(WebSocketPdu pdu) throws IOException {
+    private void writeFragment(WebSocketPdu pdu, boolean rsv1, byte[] buffer, int length) throws IOException {
         int currentByte = 0;
 
         // FIN
@@ -51,7 +103,7 @@ public final class WebSocketWriter extends PduWriter {
         }
 
         // RSV1
-        if (pdu.isRsv1()) {
+        if (rsv1) {
             currentByte |= 0b0100_0000;
         }
 
@@ -78,16 +130,24 @@ public final class WebSocketWriter extends PduWriter {
         }
 
         // LENGTH
-        int length = pdu.getSize();
         if (length <= 125) {
             currentByte |= length & 0b0111_1111;
             out.write(currentByte);
-        } else {
+        } else if (length <= 0xFFFF) {
+            // The next 16 bits are the length.
             currentByte |= 126;
             out.write(currentByte);
 
             out.write((length >> 8) & 0xFF);
             out.write(length & 0xFF);
+        } else {
+            // The next 64 bits are the length.
+            currentByte |= 127;
+            out.write(currentByte);
+
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                out.write((int) (((long) length >> shift) & 0xFF));
+            }
         }
 
         if (pdu.isMasked()) {
@@ -95,15 +155,10 @@ public final class WebSocketWriter extends PduWriter {
 
             out.write(mask, 0, 4);
 
-            byte[] data = pdu.getBuffer();
-
-            for (int i = 0; i < length; ++i) {
-                data[i] ^= mask[i & 0x3];
-            }
-
-            out.write(data, 0, length);
+            // Mask is applied while copying to output buffer, so that the PDU buffer stays unmasked
+            out.writeMasked(buffer, 0, length, mask);
         } else {
-            out.write(pdu.getBuffer(), 0, length);
+            out.write(buffer, 0, length);
         }
     }
 }
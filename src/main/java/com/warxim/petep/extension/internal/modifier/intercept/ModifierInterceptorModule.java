@@ -47,4 +47,9 @@ public final class ModifierInterceptorModule extends RuleInterceptorModule<Modif
     public Interceptor createInterceptor(int id, PetepHelper helper) {
         return new ModifierInterceptor(id, this, helper);
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
 }
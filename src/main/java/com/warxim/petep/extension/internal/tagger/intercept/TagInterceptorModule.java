@@ -47,4 +47,9 @@ public final class TagInterceptorModule extends RuleInterceptorModule<TagRule> {
     public Interceptor createInterceptor(int id, PetepHelper helper) {
         return new TagInterceptor(id, this, helper);
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
 }
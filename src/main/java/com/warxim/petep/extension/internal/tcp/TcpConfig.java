@@ -27,6 +27,11 @@ import java.nio.charset.Charset;
 @Builder
 @Value
 public class TcpConfig {
+    /**
+     * Default timeout in milliseconds for establishing connection with the target server.
+     */
+    public static final int DEFAULT_CONNECT_TIMEOUT = 10000;
+
     /**
      * IP address of the PETEP proxy.
      */
@@ -60,6 +65,11 @@ public class TcpConfig {
      */
     int connectionCloseDelay;
 
+    /**
+     * Timeout in milliseconds for establishing connection with the target server (0 means default timeout).
+     */
+    int connectTimeout;
+
     /**
      * Configuration of SSL/TLS for server on the proxy (Client &lt;-&gt; Proxy)
      */
@@ -69,4 +79,39 @@ public class TcpConfig {
      * Configuration of SSL/TLS for client of the proxy (Proxy &lt;-&gt; Server)
      */
     SslConfig clientSslConfig;
+
+    /**
+     * Whether to lease read buffers from buffer pool instead of allocating new buffer for each read
+     */
+    boolean bufferPooling;
+
+    /**
+     * Whether to copy read data to buffers of exact data size (reduces memory of retained PDUs, read buffer is reused)
+     */
+    boolean trimBuffers;
+
+    /**
+     * Engine for handling connections (null means {@link TcpEngine#BLOCKING})
+     */
+    TcpEngine engine;
+
+    /**
+     * Whether to support permessage-deflate WebSocket extension (used by HTTP proxy, otherwise extensions are removed)
+     */
+    boolean webSocketDeflate;
+
+    /**
+     * Maximal LZ77 window bits (8-15) used by the proxy for compressing WebSocket messages (0 means 15)
+     */
+    int webSocketDeflateWindowBits;
+
+    /**
+     * Gets timeout in milliseconds for establishing connection with the target server.
+     * <p>Configurations without the timeout (e.g. created by older versions) use default timeout,
+     * so that connections to unreachable servers do not pile up.</p>
+     * @return Connect timeout in milliseconds
+     */
+    public int getConnectTimeout() {
+        return connectTimeout > 0 ? connectTimeout : DEFAULT_CONNECT_TIMEOUT;
+    }
 }
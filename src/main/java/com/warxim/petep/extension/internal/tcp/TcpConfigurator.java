@@ -17,6 +17,7 @@
 package com.warxim.petep.extension.internal.tcp;
 
 import com.warxim.petep.common.Constant;
+import com.warxim.petep.gui.common.DisplayFunctionStringConverter;
 import com.warxim.petep.gui.component.ConfigPane;
 import com.warxim.petep.gui.dialog.Dialogs;
 import com.warxim.petep.util.FileUtils;
@@ -54,6 +55,18 @@ public final class TcpConfigurator extends ConfigPane<TcpConfig> {
     private TextField charsetInput;
     @FXML
     private TextField connectionCloseDelayInput;
+    @FXML
+    private TextField connectTimeoutInput;
+    @FXML
+    private CheckBox bufferPoolingInput;
+    @FXML
+    private CheckBox trimBuffersInput;
+    @FXML
+    private ComboBox<TcpEngine> engineInput;
+    @FXML
+    private CheckBox webSocketDeflateInput;
+    @FXML
+    private TextField webSocketDeflateWindowBitsInput;
 
     /*
      * SSL
@@ -119,7 +132,13 @@ public final class TcpConfigurator extends ConfigPane<TcpConfig> {
         proxyPortInput.setText("8888");
         bufferSizeInput.setText("4096");
         connectionCloseDelayInput.setText("500");
+        connectTimeoutInput.setText(String.valueOf(TcpConfig.DEFAULT_CONNECT_TIMEOUT));
         charsetInput.setText(Constant.DEFAULT_CHARSET.name());
+        webSocketDeflateWindowBitsInput.setText("15");
+
+        engineInput.setConverter(new DisplayFunctionStringConverter<>(TcpConfigurator::convertEngineToString));
+        engineInput.setItems(FXCollections.observableArrayList(TcpEngine.values()));
+        engineInput.getSelectionModel().select(TcpEngine.BLOCKING);
 
         // SSL
         var algorithms =
@@ -195,8 +214,14 @@ public final class TcpConfigurator extends ConfigPane<TcpConfig> {
                 Integer.parseInt(bufferSizeInput.getText()),
                 Charset.forName(charsetInput.getText()),
                 Integer.parseInt(connectionCloseDelayInput.getText()),
+                Integer.parseInt(connectTimeoutInput.getText()),
                 server,
-                client
+                client,
+                bufferPoolingInput.isSelected(),
+                trimBuffersInput.isSelected(),
+                engineInput.getValue(),
+                webSocketDeflateInput.isSelected(),
+                Integer.parseInt(webSocketDeflateWindowBitsInput.getText())
         );
     }
 
@@ -209,6 +234,13 @@ public final class TcpConfigurator extends ConfigPane<TcpConfig> {
         bufferSizeInput.setText(String.valueOf(config.getBufferSize()));
         charsetInput.setText(config.getCharset().name());
         connectionCloseDelayInput.setText(String.valueOf(config.getConnectionCloseDelay()));
+        connectTimeoutInput.setText(String.valueOf(config.getConnectTimeout()));
+        bufferPoolingInput.setSelected(config.isBufferPooling());
+        trimBuffersInput.setSelected(config.isTrimBuffers());
+        engineInput.getSelectionModel().select(config.getEngine() == null ? TcpEngine.BLOCKING : config.getEngine());
+        webSocketDeflateInput.setSelected(config.isWebSocketDeflate());
+        webSocketDeflateWindowBitsInput.setText(String.valueOf(
+                config.getWebSocketDeflateWindowBits() == 0 ? 15 : config.getWebSocketDeflateWindowBits()));
 
         // Server SSL config.
         var serverSslConfig = config.getServerSslConfig();
@@ -298,6 +330,12 @@ public final class TcpConfigurator extends ConfigPane<TcpConfig> {
             return false;
         }
 
+        if (!isWindowBits(webSocketDeflateWindowBitsInput.getText())) {
+            Dialogs.createErrorDialog("Invalid window bits",
+                    "WebSocket compression window bits have to be integer between 8 and 15.");
+            return false;
+        }
+
         return true;
     }
 
@@ -425,4 +463,22 @@ public final class TcpConfigurator extends ConfigPane<TcpConfig> {
             }
         }
     }
+
+    private static String convertEngineToString(TcpEngine engine) {
+        return engine == TcpEngine.NIO
+                ? "Non-blocking (event loops)"
+                : "Blocking (threads)";
+    }
+
+    /**
+     * Checks whether the value is valid LZ77 window bits value (8-15).
+     */
+    private static boolean isWindowBits(String value) {
+        try {
+            var bits = Integer.parseInt(value);
+            return bits >= 8 && bits <= 15;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
 }
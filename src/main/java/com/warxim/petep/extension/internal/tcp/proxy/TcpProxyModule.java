@@ -17,6 +17,8 @@
 package com.warxim.petep.extension.internal.tcp.proxy;
 
 import com.warxim.petep.extension.internal.tcp.TcpConfig;
+import com.warxim.petep.extension.internal.tcp.TcpEngine;
+import com.warxim.petep.extension.internal.tcp.proxy.nio.NioTcpProxy;
 import com.warxim.petep.extension.internal.tcp.proxy.plain.PlainTcpProxy;
 import com.warxim.petep.extension.internal.tcp.proxy.starttls.StarttlsTcpProxy;
 import com.warxim.petep.helper.PetepHelper;
@@ -25,6 +27,8 @@ import com.warxim.petep.proxy.factory.ProxyModuleFactory;
 import com.warxim.petep.proxy.module.ProxyModule;
 import com.warxim.petep.proxy.worker.Proxy;
 
+import java.util.logging.Logger;
+
 /**
  * TCP proxy module.
  */
@@ -50,6 +54,16 @@ public final class TcpProxyModule extends ProxyModule implements Configurable<Tc
 
     @Override
     public Proxy createProxy(PetepHelper helper) {
+        // Non-blocking engine supports only plain-text connections
+        if (config.getEngine() == TcpEngine.NIO) {
+            if (config.getServerSslConfig() == null && config.getClientSslConfig() == null) {
+                return new NioTcpProxy(this, helper, config);
+            }
+            Logger.getGlobal().warning(() -> String.format(
+                    "TCP proxy '%s' uses SSL/TLS, which is not supported by non-blocking engine, using blocking engine.",
+                    code));
+        }
+
         // For STARTTLS use special STARTTLS proxy that starts connections with STARTTLS support
         if (config.getServerSslConfig() != null && config.getServerSslConfig().isStartTls()) {
             return new StarttlsTcpProxy(this, helper, config);
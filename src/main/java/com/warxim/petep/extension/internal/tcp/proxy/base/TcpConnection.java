@@ -17,14 +17,17 @@
 package com.warxim.petep.extension.internal.tcp.proxy.base;
 
 import com.warxim.petep.core.connection.ConnectionBase;
+import com.warxim.petep.core.pdu.PduDestination;
 import com.warxim.petep.extension.internal.tcp.TcpConfig;
 import com.warxim.petep.proxy.worker.Proxy;
 
 import java.io.IOException;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
 import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -60,6 +63,11 @@ public abstract class TcpConnection extends ConnectionBase {
      */
     protected AtomicBoolean closing = new AtomicBoolean(false);
 
+    /**
+     * Signals that one of the streams has ended (connection should be cleaned up).
+     */
+    private final CountDownLatch streamEnded = new CountDownLatch(1);
+
     /**
      * TCP connection constructor.
      * @param code Unique code of the connection
@@ -67,7 +75,7 @@ public abstract class TcpConnection extends ConnectionBase {
      * @param socket Client socket for the connection
      */
     protected TcpConnection(String code, Proxy proxy, Socket socket) {
-        super(code, proxy);
+        super(code, proxy, proxy.getHelper().getCoreConfig().getConnectionQueue());
         c2pSocket = socket;
     }
 
@@ -98,21 +106,22 @@ public abstract class TcpConnection extends ConnectionBase {
     public boolean start() {
         Logger.getGlobal().info(() -> String.format("Starting TCP connection with code '%s'...", code));
 
-        executor = Executors.newFixedThreadPool(4);
+        executor = proxy.getHelper().getConnectionExecutorFactory().createExecutor(4);
 
         // Open connection with server
         try {
             var tcpProxy = (TcpProxy) proxy;
+            var config = tcpProxy.getConfig();
             p2sSocket = tcpProxy.getSocketFactory()
-                    .createP2SSocket(tcpProxy.getConfig().getTargetIP(), tcpProxy.getConfig().getTargetPort());
+                    .createP2SSocket(config.getTargetIP(), config.getTargetPort(), config.getConnectTimeout());
 
             // Write threads
-            executor.execute(this::writeToServer);
-            executor.execute(this::writeToClient);
+            executor.execute(() -> runStream(this::writeToServer));
+            executor.execute(() -> runStream(this::writeToClient));
 
             // Read threads
-            executor.execute(this::readFromClient);
-            executor.execute(this::readFromServer);
+            executor.execute(() -> runStream(this::readFromClient));
+            executor.execute(() -> runStream(this::readFromServer));
 
             // Automatic cleanup
             executor.execute(this::cleanup);
@@ -122,12 +131,21 @@ public abstract class TcpConnection extends ConnectionBase {
             return true;
         } catch (UnknownHostException e) {
             Logger.getGlobal().log(Level.SEVERE, "TCP connection exception - unknown host!", e);
+        } catch (SocketTimeoutException e) {
+            Logger.getGlobal().log(Level.SEVERE, "TCP connection exception - connect to server timed out!", e);
         } catch (IOException e) {
             Logger.getGlobal().log(Level.SEVERE, "TCP connection exception - IO exception!", e);
         }
 
         executor.shutdownNow();
 
+        // Close socket to client, so that it does not wait for connection that will never be established.
+        try {
+            c2pSocket.close();
+        } catch (IOException e) {
+            Logger.getGlobal().log(Level.SEVERE, "TCP connection exception - IO exception!", e);
+        }
+
         return false;
     }
 
@@ -171,11 +189,23 @@ public abstract class TcpConnection extends ConnectionBase {
     }
 
     /**
-     * Cleans up connection.
+     * Runs stream task and signals its end to cleanup.
+     */
+    private void runStream(Runnable stream) {
+        try {
+            stream.run();
+        } finally {
+            streamEnded.countDown();
+        }
+    }
+
+    /**
+     * Cleans up connection once any of the streams ends.
      */
     private void cleanup() {
         // Wait for remaining data processing before the connection is permanently closed.
         try {
+            streamEnded.await();
             Thread.sleep(((TcpProxy) proxy).getConfig().getConnectionCloseDelay());
         } catch (InterruptedException e) {
             // Interrupted
@@ -206,4 +236,58 @@ public abstract class TcpConnection extends ConnectionBase {
     protected TcpConfig getConfig() {
         return ((TcpProxy) proxy).getConfig();
     }
+
+    /**
+     * Creates buffer for reading data (leases it from the proxy buffer pool, if buffer pooling is enabled).
+     * <p>Leased buffer can be bigger than configured buffer size, so reads should be limited to the buffer size.</p>
+     * @return Buffer with length of at least the configured buffer size
+     */
+    protected byte[] createBuffer() {
+        var bufferSize = getConfig().getBufferSize();
+        var pool = ((TcpProxy) proxy).getBufferPool();
+        return pool == null ? new byte[bufferSize] : pool.lease(bufferSize);
+    }
+
+    /**
+     * Creates TCP PDU from buffer created by {@link #createBuffer()}.
+     * <p>If buffer trimming is enabled, the data are copied to right-sized buffer and the read buffer stays unused.
+     * Otherwise the PDU takes the buffer and, if it has been leased from the pool, returns it to the pool once sent.</p>
+     * @param destination Destination of the PDU
+     * @param buffer Buffer created by {@link #createBuffer()}
+     * @param size Size of the data in the buffer
+     * @return TCP PDU
+     */
+    protected TcpPdu createPdu(PduDestination destination, byte[] buffer, int size) {
+        var config = getConfig();
+        if (config.isTrimBuffers()) {
+            return new TcpPdu(proxy, this, destination, Arrays.copyOf(buffer, size), size, config.getCharset());
+        }
+
+        var pdu = new TcpPdu(proxy, this, destination, buffer, size, config.getCharset());
+        var pool = ((TcpProxy) proxy).getBufferPool();
+        if (pool != null) {
+            pdu.setBufferPool(pool);
+        }
+        return pdu;
+    }
+
+    /**
+     * Gets buffer for the next read after PDU has been created by {@link #createPdu(PduDestination, byte[], int)}.
+     * @param buffer Buffer used for the previous read
+     * @return The same buffer if buffer trimming is enabled (the PDU got copy of the data), otherwise new buffer
+     */
+    protected byte[] nextBuffer(byte[] buffer) {
+        return getConfig().isTrimBuffers() ? buffer : createBuffer();
+    }
+
+    /**
+     * Returns unused buffer created by {@link #createBuffer()} to the pool (if buffer pooling is enabled).
+     * @param buffer Buffer that is no longer used
+     */
+    protected void releaseBuffer(byte[] buffer) {
+        var pool = ((TcpProxy) proxy).getBufferPool();
+        if (pool != null) {
+            pool.release(buffer);
+        }
+    }
 }
@@ -17,6 +17,7 @@
 package com.warxim.petep.extension.internal.tcp.proxy.base;
 
 import com.warxim.petep.core.connection.ConnectionManager;
+import com.warxim.petep.core.pdu.BufferPool;
 import com.warxim.petep.extension.internal.tcp.TcpConfig;
 import com.warxim.petep.helper.PetepHelper;
 import com.warxim.petep.proxy.module.ProxyModule;
@@ -27,6 +28,10 @@ import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
 import java.net.UnknownHostException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -34,6 +39,11 @@ import java.util.logging.Logger;
  * Base TCP proxy class for accepting TCP connections.
  */
 public abstract class TcpProxy extends Proxy {
+    /**
+     * Maximal number of connections, which connect to the server in parallel (others wait in the queue).
+     */
+    private static final int CONNECT_THREADS = 16;
+
     /**
      * TCP connection manager.
      */
@@ -44,6 +54,11 @@ public abstract class TcpProxy extends Proxy {
      */
     protected final TcpConfig config;
 
+    /**
+     * Pool of read buffers (null if buffer pooling is disabled).
+     */
+    protected final BufferPool bufferPool;
+
     /**
      * Socket factory for SSL/noSSL sockets.
      */
@@ -59,10 +74,20 @@ public abstract class TcpProxy extends Proxy {
      */
     protected Thread thread;
 
+    /**
+     * Executor for starting accepted connections (connecting to the server), so that the accept loop does not block.
+     */
+    protected ExecutorService connectExecutor;
+
+    /**
+     * Client sockets of accepted connections, which are waiting for connection to the server.
+     */
+    protected final Set<Socket> pendingSockets = ConcurrentHashMap.newKeySet();
+
     /**
      * Is TCP proxy running?
      */
-    protected boolean running;
+    protected volatile boolean running;
 
     /**
      * Constructs TCP proxy
@@ -73,6 +98,9 @@ public abstract class TcpProxy extends Proxy {
     protected TcpProxy(ProxyModule module, PetepHelper helper, TcpConfig config) {
         super(module, helper);
         this.config = config;
+        this.bufferPool = config.isBufferPooling()
+                ? new BufferPool(config.getBufferSize(), BufferPool.DEFAULT_BUFFERS_PER_CLASS)
+                : null;
         connectionManager = createConnectionManager();
     }
 
@@ -115,6 +143,7 @@ public abstract class TcpProxy extends Proxy {
         try {
             socket = socketFactory.createC2PSocket(config.getProxyIP(), config.getProxyPort());
 
+            connectExecutor = helper.getConnectionExecutorFactory().createExecutor(CONNECT_THREADS);
             thread = new Thread(this::accept);
 
             running = true;
@@ -142,17 +171,25 @@ public abstract class TcpProxy extends Proxy {
 
     /**
      * Accepts incoming connections.
-     * <p>Adds accepted connections to connection manager.</p>
+     * <p>Accepted connections are started in connect executor (so that slow servers do not block the accept loop)
+     * and added to connection manager.</p>
      */
     protected void accept() {
         try {
             while (running) {
                 // Accept connection.
-                var connection = createConnection(socket.accept());
+                var clientSocket = socket.accept();
+                var connection = createConnection(clientSocket);
 
-                // Start connection and add it to connection manager.
-                if (connection.start()) {
-                    connectionManager.add(connection);
+                // Start connection in connect executor, data from client wait in the socket until it is started.
+                pendingSockets.add(clientSocket);
+                try {
+                    connectExecutor.execute(() -> connect(connection, clientSocket));
+                } catch (RejectedExecutionException e) {
+                    // Proxy is stopping
+                    pendingSockets.remove(clientSocket);
+                    clientSocket.close();
+                    break;
                 }
             }
         } catch (SocketException e) {
@@ -162,6 +199,26 @@ public abstract class TcpProxy extends Proxy {
         }
     }
 
+    /**
+     * Starts connection (connects to the server) and adds it to connection manager.
+     * <p>If the proxy has been stopped while the connection was starting, the connection is stopped,
+     * since the connection manager might have been already stopped without it.</p>
+     */
+    private void connect(TcpConnection connection, Socket clientSocket) {
+        try {
+            if (connection.start()) {
+                connectionManager.add(connection);
+                // Stop sets running to false before stopping connection manager, so the connection is either
+                // stopped by connection manager or here (stopping it twice does nothing).
+                if (!running) {
+                    connection.stop();
+                }
+            }
+        } finally {
+            pendingSockets.remove(clientSocket);
+        }
+    }
+
     /**
      * Stops TCP proxy.
      */
@@ -183,6 +240,19 @@ public abstract class TcpProxy extends Proxy {
             }
         }
 
+        // Stop starting of connections and close clients waiting for connection to the server.
+        if (connectExecutor != null) {
+            connectExecutor.shutdownNow();
+        }
+        for (var pendingSocket : pendingSockets) {
+            try {
+                pendingSocket.close();
+            } catch (IOException e) {
+                Logger.getGlobal().log(Level.SEVERE, "TCP proxy exception - IO exception!", e);
+            }
+        }
+        pendingSockets.clear();
+
         // Stop connections.
         connectionManager.stop();
     }
@@ -200,6 +270,14 @@ public abstract class TcpProxy extends Proxy {
         return config;
     }
 
+    /**
+     * Gets pool of read buffers.
+     * @return Buffer pool of this proxy (or null if buffer pooling is disabled)
+     */
+    public BufferPool getBufferPool() {
+        return bufferPool;
+    }
+
     /**
      * Gets TCP socket factory.
      * @return TCP socket factory for this proxy (created according to the config)
@@ -23,6 +23,7 @@ import javax.net.ServerSocketFactory;
 import javax.net.SocketFactory;
 import java.io.IOException;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.security.Security;
@@ -84,10 +85,18 @@ public final class TcpSocketFactory {
      * Creates socket for specified host and port for Proxy &lt;-&gt; Server communication.
      * @param host Host on which to bind the socket
      * @param port Port on which to bind the socket
+     * @param timeout Timeout of the connect in milliseconds (0 means no timeout)
      * @return Created client socket for Proxy &lt;-&gt; Server communication
-     * @throws IOException If the socket could not be created
+     * @throws IOException If the socket could not be created or connected in time
      */
-    public Socket createP2SSocket(String host, int port) throws IOException {
-        return p2sSocketFactory.createSocket(host, port);
+    public Socket createP2SSocket(String host, int port, int timeout) throws IOException {
+        var socket = p2sSocketFactory.createSocket();
+        try {
+            socket.connect(new InetSocketAddress(host, port), timeout);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+        return socket;
     }
 }
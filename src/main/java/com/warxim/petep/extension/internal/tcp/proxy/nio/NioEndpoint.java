@@ -0,0 +1,192 @@
+/*
+ * PEnetration TEsting Proxy (PETEP)
+ *
+ * Copyright (C) 2023 Michal Válka
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <https://www.gnu.org/licenses/>.
+ */
+package com.warxim.petep.extension.internal.tcp.proxy.nio;
+
+import com.warxim.petep.core.pdu.PDU;
+import com.warxim.petep.core.pdu.PduDestination;
+import com.warxim.petep.core.pdu.PduQueue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+
+/**
+ * One side of NIO TCP connection (client or server channel).
+ * <p>Data read from the channel are processed in PETEP as PDUs with configured destination,
+ * PDUs from the outgoing queue are written to the channel.</p>
+ * <p>If PETEP core does not accept read PDU, reading is paused (OP_READ is cleared) until the PDU is accepted.</p>
+ * <p>All methods except construction have to be called from the event loop thread.</p>
+ */
+final class NioEndpoint {
+    private final NioTcpConnection connection;
+    private final SocketChannel channel;
+    private final PduDestination destination;
+    private final PduQueue outgoingQueue;
+    private SelectionKey key;
+
+    /**
+     * PDU, which is currently being written (could not be written at once).
+     */
+    private PDU pendingPdu;
+    private ByteBuffer pendingData;
+
+    /**
+     * PDU, which has been read, but not accepted by PETEP core yet.
+     */
+    private PDU pausedPdu;
+
+    /**
+     * Constructs NIO endpoint.
+     * @param connection Parent connection
+     * @param channel Channel of the endpoint
+     * @param destination Destination of PDUs read from the channel
+     * @param outgoingQueue Queue of PDUs to be written to the channel
+     */
+    NioEndpoint(NioTcpConnection connection, SocketChannel channel, PduDestination destination, PduQueue outgoingQueue) {
+        this.connection = connection;
+        this.channel = channel;
+        this.destination = destination;
+        this.outgoingQueue = outgoingQueue;
+    }
+
+    /**
+     * Registers the channel to selector for reading.
+     * @param selector Selector of the event loop
+     * @throws ClosedChannelException If the channel has been already closed
+     */
+    void register(Selector selector) throws ClosedChannelException {
+        key = channel.register(selector, SelectionKey.OP_READ, this);
+    }
+
+    /**
+     * Registers the channel to selector for finishing the connect.
+     * @param selector Selector of the event loop
+     * @throws ClosedChannelException If the channel has been already closed
+     */
+    void registerConnect(Selector selector) throws ClosedChannelException {
+        key = channel.register(selector, SelectionKey.OP_CONNECT, this);
+    }
+
+    /**
+     * Finishes connect of the channel and switches it to reading.
+     * @throws IOException If the connect failed
+     */
+    void finishConnect() throws IOException {
+        if (!channel.finishConnect()) {
+            return;
+        }
+
+        key.interestOps(SelectionKey.OP_READ);
+        connection.connected();
+    }
+
+    /**
+     * Reads available data from the channel and processes them in PETEP.
+     * @param readBuffer Read buffer of the event loop
+     * @throws IOException If the read failed
+     */
+    void read(ByteBuffer readBuffer) throws IOException {
+        readBuffer.clear();
+        readBuffer.limit(Math.min(readBuffer.capacity(), connection.getConfig().getBufferSize()));
+
+        var size = channel.read(readBuffer);
+        if (size == -1) {
+            // End of stream, stop reading and close the connection after configured delay.
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+            connection.closeLater();
+            return;
+        }
+        if (size == 0) {
+            return;
+        }
+
+        readBuffer.flip();
+        var pdu = connection.createPdu(destination, readBuffer);
+        if (!connection.receive(pdu)) {
+            // PETEP core is full, stop reading until it accepts the PDU.
+            pausedPdu = pdu;
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+            connection.retryLater(this::resume);
+        }
+    }
+
+    /**
+     * Offers paused PDU to PETEP core again and resumes reading once it is accepted.
+     */
+    private void resume() {
+        if (pausedPdu == null || key == null || !key.isValid()) {
+            return;
+        }
+
+        if (!connection.receive(pausedPdu)) {
+            connection.retryLater(this::resume);
+            return;
+        }
+
+        pausedPdu = null;
+        key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+    }
+
+    /**
+     * Writes PDUs from outgoing queue to the channel.
+     * <p>If the channel cannot accept all data, the rest is written once the channel becomes writable.</p>
+     * @throws IOException If the write failed
+     */
+    void flush() throws IOException {
+        if (key == null || !key.isValid()) {
+            return;
+        }
+
+        while (true) {
+            if (pendingData == null) {
+                var maybePdu = outgoingQueue.poll();
+                if (maybePdu.isEmpty()) {
+                    break;
+                }
+                pendingPdu = maybePdu.get();
+                pendingData = ByteBuffer.wrap(pendingPdu.getBuffer(), 0, pendingPdu.getSize());
+            }
+
+            channel.write(pendingData);
+            if (pendingData.hasRemaining()) {
+                // Wait until the channel is writable again.
+                key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                return;
+            }
+
+            // Return the buffer to the pool (if it is pooled).
+            pendingPdu.releaseBuffer();
+            pendingPdu = null;
+            pendingData = null;
+        }
+
+        key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+    }
+
+    /**
+     * Stops handling of the channel after IO failure and closes the connection after configured delay.
+     */
+    void fail() {
+        if (key != null) {
+            key.cancel();
+        }
+        connection.closeLater();
+    }
+}
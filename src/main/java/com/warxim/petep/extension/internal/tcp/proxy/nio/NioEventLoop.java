@@ -0,0 +1,176 @@
+/*
+ * PEnetration TEsting Proxy (PETEP)
+ *
+ * Copyright (C) 2023 Michal Válka
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <https://www.gnu.org/licenses/>.
+ */
+package com.warxim.petep.extension.internal.tcp.proxy.nio;
+
+import com.warxim.petep.core.pdu.BufferPool;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Event loop, which handles IO events of channels registered to its selector in single thread.
+ * <p>Channels have to be registered and their interest changed only in the loop thread, so other threads
+ * have to pass such work to the loop using {@link #execute(Runnable)}.</p>
+ */
+final class NioEventLoop implements Runnable {
+    private final Selector selector;
+    private final Queue<Runnable> tasks;
+    private final BufferPool bufferPool;
+    private final ByteBuffer readBuffer;
+    private final Thread thread;
+    private volatile boolean running;
+
+    /**
+     * Constructs event loop.
+     * @param name Name of the loop thread
+     * @param bufferSize Size of the read buffer
+     * @param bufferPool Pool from which to lease direct read buffer (or null if buffer pooling is disabled)
+     * @throws IOException If the selector could not be opened
+     */
+    NioEventLoop(String name, int bufferSize, BufferPool bufferPool) throws IOException {
+        this.selector = Selector.open();
+        this.tasks = new ConcurrentLinkedQueue<>();
+        this.bufferPool = bufferPool;
+        this.readBuffer = bufferPool == null ? ByteBuffer.allocateDirect(bufferSize) : bufferPool.leaseDirect(bufferSize);
+        this.readBuffer.limit(bufferSize);
+        this.thread = new Thread(this, name);
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Starts the loop thread.
+     */
+    void start() {
+        running = true;
+        thread.start();
+    }
+
+    /**
+     * Stops the loop thread and closes the selector.
+     */
+    void stop() {
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+     * Runs the task in the loop thread.
+     * @param task Task to be executed
+     */
+    void execute(Runnable task) {
+        tasks.add(task);
+        if (Thread.currentThread() != thread) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Gets selector of the loop.
+     * <p>Channels can be registered to the selector only from the loop thread.</p>
+     * @return Selector of the loop
+     */
+    Selector getSelector() {
+        return selector;
+    }
+
+    /**
+     * Gets direct buffer for reading data, which is shared by all channels of the loop.
+     * <p>The buffer can be used only from the loop thread.</p>
+     * @return Direct read buffer of the loop
+     */
+    ByteBuffer getReadBuffer() {
+        return readBuffer;
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                selector.select();
+                runTasks();
+
+                var selectedKeys = selector.selectedKeys();
+                for (var key : selectedKeys) {
+                    handle(key);
+                }
+                selectedKeys.clear();
+            }
+        } catch (IOException e) {
+            Logger.getGlobal().log(Level.SEVERE, "NIO event loop exception occurred!", e);
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Handles IO event of selected key.
+     */
+    private void handle(SelectionKey key) {
+        var endpoint = (NioEndpoint) key.attachment();
+        try {
+            if (key.isConnectable()) {
+                endpoint.finishConnect();
+            }
+            if (key.isValid() && key.isReadable()) {
+                endpoint.read(readBuffer);
+            }
+            if (key.isValid() && key.isWritable()) {
+                endpoint.flush();
+            }
+        } catch (CancelledKeyException e) {
+            // Channel closed
+        } catch (IOException e) {
+            endpoint.fail();
+        }
+    }
+
+    /**
+     * Runs all tasks passed to the loop.
+     */
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                Logger.getGlobal().log(Level.SEVERE, "NIO event loop task failed!", e);
+            }
+        }
+    }
+
+    /**
+     * Closes the selector and returns the read buffer.
+     */
+    private void close() {
+        try {
+            selector.close();
+        } catch (IOException e) {
+            Logger.getGlobal().log(Level.SEVERE, "Could not close NIO selector!", e);
+        }
+
+        if (bufferPool != null) {
+            bufferPool.release(readBuffer);
+        }
+    }
+}
@@ -0,0 +1,314 @@
+/*
+ * PEnetration TEsting Proxy (PETEP)
+ *
+ * Copyright (C) 2023 Michal Válka
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <https://www.gnu.org/licenses/>.
+ */
+package com.warxim.petep.extension.internal.tcp.proxy.nio;
+
+import com.warxim.petep.core.connection.ConnectionBase;
+import com.warxim.petep.core.pdu.PDU;
+import com.warxim.petep.core.pdu.PduDestination;
+import com.warxim.petep.extension.internal.tcp.TcpConfig;
+import com.warxim.petep.extension.internal.tcp.proxy.base.TcpPdu;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.UnresolvedAddressException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Non-blocking TCP connection.
+ * <p>Both channels of the connection (Client &lt;-&gt; Proxy and Proxy &lt;-&gt; Server) are handled by single
+ * event loop, so the connection does not use any threads of its own.</p>
+ * <p>PDUs are sent through the same outgoing queues as in blocking connections,
+ * the event loop is only notified that it should write them.</p>
+ * <p>The event loop never blocks in PETEP core. If the core does not accept read PDU (its queue is full),
+ * reading from the endpoint is paused and the PDU is offered again later.</p>
+ */
+public final class NioTcpConnection extends ConnectionBase {
+    /**
+     * Delay in milliseconds before PDU, which has not been accepted by PETEP core, is offered again.
+     */
+    private static final long OFFER_RETRY_DELAY = 1;
+
+    private final SocketChannel clientChannel;
+    private final String clientAddress;
+    private final NioEventLoop loop;
+    private final AtomicBoolean flushScheduled;
+    private final AtomicBoolean closeScheduled;
+    private final AtomicBoolean closing;
+    private SocketChannel serverChannel;
+    private NioEndpoint clientEndpoint;
+    private NioEndpoint serverEndpoint;
+
+    /**
+     * Constructs non-blocking TCP connection.
+     * @param code Unique code of the connection
+     * @param proxy Proxy to which the connection belongs
+     * @param clientChannel Accepted channel of the client
+     * @param loop Event loop that will handle the connection
+     */
+    NioTcpConnection(String code, NioTcpProxy proxy, SocketChannel clientChannel, NioEventLoop loop) {
+        super(code, proxy, proxy.getHelper().getCoreConfig().getConnectionQueue());
+        this.clientChannel = clientChannel;
+        this.clientAddress = clientChannel.socket().getInetAddress().getHostAddress() + ":" + clientChannel.socket().getPort();
+        this.loop = loop;
+        this.flushScheduled = new AtomicBoolean(false);
+        this.closeScheduled = new AtomicBoolean(false);
+        this.closing = new AtomicBoolean(false);
+    }
+
+    /**
+     * Starts non-blocking connect to the server and lets the event loop finish it.
+     * <p>Client channel is registered to the event loop once the server channel is connected,
+     * data from client wait in the channel until then.</p>
+     */
+    @Override
+    public boolean start() {
+        Logger.getGlobal().info(() -> String.format("Starting TCP connection with code '%s'...", code));
+
+        try {
+            var config = getConfig();
+            serverChannel = SocketChannel.open();
+            serverChannel.configureBlocking(false);
+            clientChannel.configureBlocking(false);
+
+            clientEndpoint = new NioEndpoint(this, clientChannel, PduDestination.SERVER, queueS2C);
+            serverEndpoint = new NioEndpoint(this, serverChannel, PduDestination.CLIENT, queueC2S);
+
+            if (serverChannel.connect(new InetSocketAddress(config.getTargetIP(), config.getTargetPort()))) {
+                loop.execute(this::connected);
+            } else {
+                loop.execute(this::registerConnect);
+                if (config.getConnectTimeout() > 0) {
+                    ((NioTcpProxy) proxy).schedule(() -> loop.execute(this::checkConnected), config.getConnectTimeout());
+                }
+            }
+
+            Logger.getGlobal().info(() -> String.format("TCP connection with code '%s' started.", code));
+
+            return true;
+        } catch (UnresolvedAddressException e) {
+            Logger.getGlobal().log(Level.SEVERE, "TCP connection exception - unknown host!", e);
+        } catch (IOException e) {
+            Logger.getGlobal().log(Level.SEVERE, "TCP connection exception - IO exception!", e);
+        }
+
+        closeChannels();
+
+        return false;
+    }
+
+    /**
+     * Stops connection.
+     */
+    @Override
+    public void stop() {
+        // Do not run stop if the connection is already closing.
+        if (!closing.compareAndSet(false, true)) {
+            return;
+        }
+
+        Logger.getGlobal().info(() -> String.format("Stopping TCP connection with code '%s'...", code));
+
+        // Closing channels also cancels their registration in the event loop.
+        closeChannels();
+
+        // Remove connection from connection manager.
+        proxy.getConnectionManager().remove(this);
+
+        Logger.getGlobal().info(() -> String.format("TCP connection with code '%s' stopped.", code));
+    }
+
+    /**
+     * Puts PDU to outgoing queue and lets the event loop write it.
+     */
+    @Override
+    public void send(PDU pdu) {
+        // Schedule flush also before adding, since adding to full blocking queue waits for the event loop to drain it
+        // (the event loop itself never blocks, so it is always able to run the flush).
+        scheduleFlush();
+        super.send(pdu);
+        scheduleFlush();
+    }
+
+    /**
+     * About connection.
+     */
+    @Override
+    public String toString() {
+        return "TCP connection "
+                + code
+                + " ("
+                + clientAddress
+                + ")";
+    }
+
+    /**
+     * Gets TCP config from proxy.
+     * @return TCP config
+     */
+    TcpConfig getConfig() {
+        return ((NioTcpProxy) proxy).getConfig();
+    }
+
+    /**
+     * Creates PDU from data read by endpoint.
+     * <p>Data are copied from the read buffer of the event loop to PDU buffer (leased from pool if enabled),
+     * so the PDU buffer always has the size of the data (or its size class).</p>
+     * @param destination Destination of the data
+     * @param data Read buffer containing the data
+     * @return Created PDU
+     */
+    PDU createPdu(PduDestination destination, ByteBuffer data) {
+        var size = data.remaining();
+        var pool = ((NioTcpProxy) proxy).getBufferPool();
+        var buffer = pool == null ? new byte[size] : pool.lease(size);
+        data.get(buffer, 0, size);
+
+        var pdu = new TcpPdu(proxy, this, destination, buffer, size, getConfig().getCharset());
+        if (pool != null) {
+            pdu.setBufferPool(pool);
+        }
+
+        return pdu;
+    }
+
+    /**
+     * Processes PDU in PETEP without blocking the event loop.
+     * @param pdu PDU to be processed
+     * @return {@code false} if PETEP core has not accepted the PDU (its queue is full)
+     */
+    boolean receive(PDU pdu) {
+        return offer(pdu);
+    }
+
+    /**
+     * Lets the event loop run the task after a short delay (used for offering PDUs that were not accepted).
+     * @param task Task to be executed in the event loop
+     */
+    void retryLater(Runnable task) {
+        ((NioTcpProxy) proxy).schedule(() -> loop.execute(task), OFFER_RETRY_DELAY);
+    }
+
+    /**
+     * Closes the connection after configured delay (lets PETEP process remaining data).
+     */
+    void closeLater() {
+        if (closeScheduled.compareAndSet(false, true)) {
+            ((NioTcpProxy) proxy).schedule(this::stop, getConfig().getConnectionCloseDelay());
+        }
+    }
+
+    /**
+     * Registers both channels to the event loop for reading, once the server channel is connected
+     * (runs in the event loop thread).
+     */
+    void connected() {
+        if (closing.get()) {
+            return;
+        }
+
+        try {
+            clientEndpoint.register(loop.getSelector());
+            if (!serverChannel.isRegistered()) {
+                serverEndpoint.register(loop.getSelector());
+            }
+        } catch (IOException e) {
+            closeLater();
+            return;
+        }
+
+        // Write PDUs sent before the registration.
+        flush();
+    }
+
+    /**
+     * Registers the server channel to the event loop for finishing the connect (runs in the event loop thread).
+     */
+    private void registerConnect() {
+        if (closing.get()) {
+            return;
+        }
+
+        try {
+            serverEndpoint.registerConnect(loop.getSelector());
+        } catch (IOException e) {
+            closeLater();
+        }
+    }
+
+    /**
+     * Stops the connection if the server channel did not connect in time (runs in the event loop thread).
+     */
+    private void checkConnected() {
+        if (closing.get() || serverChannel.isConnected()) {
+            return;
+        }
+
+        Logger.getGlobal().severe(() -> String.format("TCP connection with code '%s' - connect to server timed out!", code));
+        stop();
+    }
+
+    /**
+     * Lets the event loop write PDUs from outgoing queues, unless it has already been scheduled.
+     */
+    private void scheduleFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            loop.execute(this::flush);
+        }
+    }
+
+    /**
+     * Writes PDUs from outgoing queues to channels (runs in the event loop thread).
+     */
+    private void flush() {
+        flushScheduled.set(false);
+
+        if (clientEndpoint == null || serverEndpoint == null || !serverChannel.isConnected()) {
+            return;
+        }
+
+        flush(clientEndpoint);
+        flush(serverEndpoint);
+    }
+
+    private static void flush(NioEndpoint endpoint) {
+        try {
+            endpoint.flush();
+        } catch (IOException e) {
+            endpoint.fail();
+        }
+    }
+
+    private void closeChannels() {
+        try {
+            clientChannel.close();
+        } catch (IOException e) {
+            Logger.getGlobal().log(Level.SEVERE, "TCP connection exception - IO exception!", e);
+        }
+
+        try {
+            if (serverChannel != null) {
+                serverChannel.close();
+            }
+        } catch (IOException e) {
+            Logger.getGlobal().log(Level.SEVERE, "TCP connection exception - IO exception!", e);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * PEnetration TEsting Proxy (PETEP)
+ *
+ * Copyright (C) 2023 Michal Válka
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <https://www.gnu.org/licenses/>.
+ */
+package com.warxim.petep.extension.internal.tcp.proxy.nio;
+
+import com.warxim.petep.core.connection.ConnectionManager;
+import com.warxim.petep.core.pdu.BufferPool;
+import com.warxim.petep.core.pdu.PDU;
+import com.warxim.petep.extension.internal.tcp.TcpConfig;
+import com.warxim.petep.extension.internal.tcp.proxy.base.TcpConnectionManager;
+import com.warxim.petep.extension.internal.tcp.proxy.base.TcpPdu;
+import com.warxim.petep.helper.PetepHelper;
+import com.warxim.petep.proxy.module.ProxyModule;
+import com.warxim.petep.proxy.worker.Proxy;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Non-blocking TCP proxy.
+ * <p>Accepted connections are distributed among small group of event loops (one per available processor),
+ * which handle reading and writing of all connections, so the proxy does not need threads per connection.</p>
+ * <p>Supports only plain-text connections.</p>
+ */
+public final class NioTcpProxy extends Proxy {
+    private final TcpConfig config;
+    private final TcpConnectionManager connectionManager;
+    private final BufferPool bufferPool;
+    private final int loopCount;
+    private final AtomicInteger nextLoop;
+    private List<NioEventLoop> loops;
+    private ScheduledExecutorService scheduler;
+    private ServerSocketChannel serverChannel;
+    private Thread thread;
+    private volatile boolean running;
+
+    /**
+     * Constructs non-blocking TCP proxy
+     * @param module Parent module of the worker
+     * @param helper Helper for accessing running instance of PETEP core
+     * @param config TCP configuration
+     */
+    public NioTcpProxy(ProxyModule module, PetepHelper helper, TcpConfig config) {
+        super(module, helper);
+        this.config = config;
+        this.connectionManager = new TcpConnectionManager(helper);
+        this.bufferPool = config.isBufferPooling()
+                ? new BufferPool(config.getBufferSize(), BufferPool.DEFAULT_BUFFERS_PER_CLASS)
+                : null;
+        this.loopCount = Runtime.getRuntime().availableProcessors();
+        this.nextLoop = new AtomicInteger();
+    }
+
+    @Override
+    public boolean prepare() {
+        return true;
+    }
+
+    /**
+     * Starts event loops and accept thread.
+     */
+    @Override
+    public boolean start() {
+        try {
+            loops = new ArrayList<>(loopCount);
+            for (int i = 0; i < loopCount; ++i) {
+                loops.add(new NioEventLoop("TCP NIO " + module.getCode() + " #" + i, config.getBufferSize(), bufferPool));
+            }
+
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(new InetSocketAddress(InetAddress.getByName(config.getProxyIP()), config.getProxyPort()));
+
+            scheduler = Executors.newSingleThreadScheduledExecutor();
+            thread = new Thread(this::accept);
+
+            running = true;
+
+            loops.forEach(NioEventLoop::start);
+            thread.start();
+
+            return true;
+        } catch (UnknownHostException e) {
+            Logger.getGlobal().log(Level.SEVERE, "TCP unknown host exception thrown.", e);
+        } catch (IOException e) {
+            Logger.getGlobal().log(Level.SEVERE, "TCP IO exception thrown.", e);
+        } catch (IllegalArgumentException e) {
+            Logger.getGlobal().log(Level.SEVERE, "Invalid arguments provided.", e);
+        }
+
+        return false;
+    }
+
+    /**
+     * Stops accepting connections, stops all connections and event loops.
+     */
+    @Override
+    public void stop() {
+        running = false;
+
+        // Interrupt accepting thread.
+        if (thread != null) {
+            thread.interrupt();
+        }
+
+        // Close server channel.
+        if (serverChannel != null) {
+            try {
+                serverChannel.close();
+            } catch (IOException e) {
+                Logger.getGlobal().log(Level.SEVERE, "TCP proxy exception - IO exception!", e);
+            }
+        }
+
+        // Stop connections.
+        connectionManager.stop();
+
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+
+        if (loops != null) {
+            loops.forEach(NioEventLoop::stop);
+        }
+    }
+
+    @Override
+    public boolean supports(PDU pdu) {
+        return pdu.getClass().equals(TcpPdu.class);
+    }
+
+    @Override
+    public ConnectionManager getConnectionManager() {
+        return connectionManager;
+    }
+
+    /**
+     * Gets TCP config.
+     * @return TCP config of this proxy
+     */
+    public TcpConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Gets pool of read buffers.
+     * @return Buffer pool of this proxy (or null if buffer pooling is disabled)
+     */
+    public BufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    /**
+     * Runs the task after specified delay (used for delayed closing of connections).
+     * @param task Task to be executed
+     * @param delay Delay in milliseconds
+     */
+    void schedule(Runnable task, long delay) {
+        try {
+            scheduler.schedule(task, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Proxy is stopping
+            task.run();
+        }
+    }
+
+    /**
+     * Accepts incoming connections and assigns them to event loops in round-robin fashion.
+     */
+    private void accept() {
+        try {
+            while (running) {
+                var channel = serverChannel.accept();
+                var loop = loops.get(Math.floorMod(nextLoop.getAndIncrement(), loops.size()));
+                var connection = new NioTcpConnection(connectionManager.nextCode(), this, channel, loop);
+
+                // Add connection to connection manager before starting it, since connect can fail (and remove
+                // the connection) in event loop before start returns.
+                connectionManager.add(connection);
+                if (!connection.start()) {
+                    connectionManager.remove(connection);
+                }
+            }
+        } catch (ClosedChannelException e) {
+            // Channel closed
+        } catch (IOException e) {
+            Logger.getGlobal().log(Level.SEVERE, "TCP Proxy accept exception.", e);
+        }
+    }
+}
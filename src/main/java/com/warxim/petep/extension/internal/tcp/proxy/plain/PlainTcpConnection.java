@@ -20,7 +20,6 @@ import com.warxim.petep.core.pdu.PDU;
 import com.warxim.petep.core.pdu.PduDestination;
 import com.warxim.petep.core.pdu.PduQueue;
 import com.warxim.petep.extension.internal.tcp.proxy.base.TcpConnection;
-import com.warxim.petep.extension.internal.tcp.proxy.base.TcpPdu;
 import com.warxim.petep.proxy.worker.Proxy;
 
 import java.io.IOException;
@@ -68,25 +67,27 @@ public final class PlainTcpConnection extends TcpConnection {
         // Size of data
         int size;
         int bufferSize = getConfig().getBufferSize();
-        var charset = getConfig().getCharset();
 
         // Buffer
-        byte[] buffer = new byte[bufferSize];
+        byte[] buffer = createBuffer();
 
         try (var in = socket.getInputStream()) {
             // Read bytes to buffer and process it in PETEP.
-            while ((size = in.read(buffer)) != -1) {
+            while ((size = in.read(buffer, 0, bufferSize)) != -1) {
                 // Create PDU from buffer
-                var pdu = new TcpPdu(proxy, this, destination, buffer, size, charset);
+                var pdu = createPdu(destination, buffer, size);
 
                 // Process PDU in PETEP.
                 process(pdu);
 
-                // Create new buffer.
-                buffer = new byte[bufferSize];
+                // Get buffer for the next read.
+                buffer = nextBuffer(buffer);
             }
         } catch (IOException e) {
             // Closed
+        } finally {
+            // Return the last (unused) buffer.
+            releaseBuffer(buffer);
         }
     }
 
@@ -101,6 +102,9 @@ public final class PlainTcpConnection extends TcpConnection {
             // Read bytes to buffer and send it to out stream.
             while ((pdu = queue.take()) != null) {
                 out.write(pdu.getBuffer(), 0, pdu.getSize());
+
+                // Return the buffer to the pool (if it is pooled).
+                pdu.releaseBuffer();
             }
         } catch (IOException e) {
             // Closed socket
@@ -71,8 +71,7 @@ public final class StarttlsTcpConnection extends TcpConnection {
         // Size of the data read
         int size;
         int bufferSize = getConfig().getBufferSize();
-        var charset = getConfig().getCharset();
-        byte[] buffer = new byte[bufferSize];
+        byte[] buffer = createBuffer();
 
         try {
             // Set timeout, because we will be interrupted by STARTTLS transition, after that it will continue without timeout
@@ -82,15 +81,15 @@ public final class StarttlsTcpConnection extends TcpConnection {
             while (!closing.get()) {
                 try {
                     // Read bytes to buffer and process it in PETEP.
-                    while ((size = p2sSocket.getInputStream().read(buffer)) != -1) {
+                    while ((size = p2sSocket.getInputStream().read(buffer, 0, bufferSize)) != -1) {
                         // Create PDU from buffer
-                        var pdu = new TcpPdu(proxy, this, PduDestination.CLIENT, buffer, size, charset);
+                        var pdu = createPdu(PduDestination.CLIENT, buffer, size);
 
                         // Process PDU in PETEP.
                         process(pdu);
 
-                        // Create new buffer.
-                        buffer = new byte[bufferSize];
+                        // Get buffer for the next read.
+                        buffer = nextBuffer(buffer);
                     }
                     return;
                 } catch (SocketTimeoutException timeoutException) {
@@ -112,6 +111,9 @@ public final class StarttlsTcpConnection extends TcpConnection {
             // Closed
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
+        } finally {
+            // Return the last (unused) buffer.
+            releaseBuffer(buffer);
         }
     }
 
@@ -122,30 +124,32 @@ public final class StarttlsTcpConnection extends TcpConnection {
         // Size of data
         int size;
         int bufferSize = getConfig().getBufferSize();
-        var charset = getConfig().getCharset();
 
         // Buffer
-        byte[] buffer = new byte[bufferSize];
+        byte[] buffer = createBuffer();
 
         try {
             // Read bytes to buffer and process it in PETEP.
-            while ((size = c2pSocket.getInputStream().read(buffer)) != -1) {
+            while ((size = c2pSocket.getInputStream().read(buffer, 0, bufferSize)) != -1) {
                 // Process transition to encryption mode if needed (skips current data)
                 if (transitionC2PToEncryptionModeIfNeeded(buffer, size)) {
                     continue;
                 }
 
                 // Create PDU from buffer
-                var pdu = new TcpPdu(proxy, this, PduDestination.SERVER, buffer, size, charset);
+                var pdu = createPdu(PduDestination.SERVER, buffer, size);
 
                 // Process PDU in PETEP.
                 process(pdu);
 
-                // Create new buffer.
-                buffer = new byte[bufferSize];
+                // Get buffer for the next read.
+                buffer = nextBuffer(buffer);
             }
         } catch (IOException e) {
             // Closed
+        } finally {
+            // Return the last (unused) buffer.
+            releaseBuffer(buffer);
         }
     }
 
@@ -164,6 +168,9 @@ public final class StarttlsTcpConnection extends TcpConnection {
 
                 // Write PDU to the server
                 p2sSocket.getOutputStream().write(pdu.getBuffer(), 0, pdu.getSize());
+
+                // Return the buffer to the pool (if it is pooled).
+                pdu.releaseBuffer();
             }
         } catch (IOException e) {
             // Closed socket
@@ -182,6 +189,9 @@ public final class StarttlsTcpConnection extends TcpConnection {
             while ((pdu = queueS2C.take()) != null) {
                 var out = c2pSocket.getOutputStream();
                 out.write(pdu.getBuffer(), 0, pdu.getSize());
+
+                // Return the buffer to the pool (if it is pooled).
+                pdu.releaseBuffer();
             }
         } catch (IOException e) {
             // Closed socket
@@ -54,4 +54,24 @@ public class UdpConfig {
      * Charset of data in PDUs
      */
     Charset charset;
+
+    /**
+     * Whether to lease read buffers from buffer pool instead of allocating new buffer for each read
+     */
+    boolean bufferPooling;
+
+    /**
+     * Whether to copy read data to buffers of exact data size (reduces memory of retained PDUs, read buffer is reused)
+     */
+    boolean trimBuffers;
+
+    /**
+     * After how many milliseconds without datagrams to stop the pseudo connection (0 means never)
+     */
+    int idleTimeout;
+
+    /**
+     * Maximal number of pseudo connections, the least recently used is stopped when exceeded (0 means no limit)
+     */
+    int maxConnections;
 }
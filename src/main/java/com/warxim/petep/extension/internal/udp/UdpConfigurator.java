@@ -20,6 +20,7 @@ import com.warxim.petep.common.Constant;
 import com.warxim.petep.gui.component.ConfigPane;
 import com.warxim.petep.gui.dialog.Dialogs;
 import javafx.fxml.FXML;
+import javafx.scene.control.CheckBox;
 import javafx.scene.control.TextField;
 
 import java.io.IOException;
@@ -41,6 +42,14 @@ public class UdpConfigurator extends ConfigPane<UdpConfig> {
     private TextField bufferSizeInput;
     @FXML
     private TextField charsetInput;
+    @FXML
+    private TextField idleTimeoutInput;
+    @FXML
+    private TextField maxConnectionsInput;
+    @FXML
+    private CheckBox bufferPoolingInput;
+    @FXML
+    private CheckBox trimBuffersInput;
 
     /**
      * Constructs UDP configurator.
@@ -53,6 +62,8 @@ public class UdpConfigurator extends ConfigPane<UdpConfig> {
         proxyPortInput.setText("8888");
         bufferSizeInput.setText("16384");
         charsetInput.setText(Constant.DEFAULT_CHARSET.name());
+        idleTimeoutInput.setText("60000");
+        maxConnectionsInput.setText("1024");
     }
 
     /**
@@ -66,7 +77,11 @@ public class UdpConfigurator extends ConfigPane<UdpConfig> {
                 Integer.parseInt(proxyPortInput.getText()),
                 Integer.parseInt(targetPortInput.getText()),
                 Integer.parseInt(bufferSizeInput.getText()),
-                Charset.forName(charsetInput.getText()));
+                Charset.forName(charsetInput.getText()),
+                bufferPoolingInput.isSelected(),
+                trimBuffersInput.isSelected(),
+                Integer.parseInt(idleTimeoutInput.getText()),
+                Integer.parseInt(maxConnectionsInput.getText()));
     }
 
     /**
@@ -80,6 +95,10 @@ public class UdpConfigurator extends ConfigPane<UdpConfig> {
         targetPortInput.setText(String.valueOf(config.getTargetPort()));
         bufferSizeInput.setText(String.valueOf(config.getBufferSize()));
         charsetInput.setText(config.getCharset().name());
+        bufferPoolingInput.setSelected(config.isBufferPooling());
+        trimBuffersInput.setSelected(config.isTrimBuffers());
+        idleTimeoutInput.setText(String.valueOf(config.getIdleTimeout()));
+        maxConnectionsInput.setText(String.valueOf(config.getMaxConnections()));
     }
 
     /**
@@ -121,6 +140,16 @@ public class UdpConfigurator extends ConfigPane<UdpConfig> {
             return false;
         }
 
+        if (idleTimeoutInput.getText().length() == 0) {
+            Dialogs.createErrorDialog("Idle timeout required", "You have to enter idle timeout (0 for no timeout).");
+            return false;
+        }
+
+        if (maxConnectionsInput.getText().length() == 0) {
+            Dialogs.createErrorDialog("Max connections required", "You have to enter max connections (0 for no limit).");
+            return false;
+        }
+
         return true;
     }
 }
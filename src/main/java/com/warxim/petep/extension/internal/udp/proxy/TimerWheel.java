@@ -0,0 +1,128 @@
+/*
+ * PEnetration TEsting Proxy (PETEP)
+ *
+ * Copyright (C) 2023 Michal Válka
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <https://www.gnu.org/licenses/>.
+ */
+package com.warxim.petep.extension.internal.udp.proxy;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hashed timer wheel for scheduling deadlines of many items with constant cost per operation.
+ * <p>Time is divided into ticks of fixed duration and items are stored in slots by the tick of their deadline
+ * (modulo number of slots). Advancing the wheel visits only slots of the elapsed ticks, so the cost does not
+ * depend on the number of scheduled items, but the deadlines are precise only to the tick duration.</p>
+ * <p>All times are in nanoseconds of {@link System#nanoTime()}.</p>
+ * @param <T> Type of scheduled items
+ */
+final class TimerWheel<T> {
+    private final List<ArrayDeque<Entry<T>>> slots;
+    private final int mask;
+    private final long tickDuration;
+    private final long startTime;
+    private long currentTick;
+    private int size;
+
+    /**
+     * Constructs timer wheel.
+     * @param slotCount Number of slots (rounded up to power of two)
+     * @param tickDuration Duration of single tick in nanoseconds
+     * @param startTime Time of the first tick in nanoseconds
+     */
+    TimerWheel(int slotCount, long tickDuration, long startTime) {
+        if (slotCount <= 0 || tickDuration <= 0) {
+            throw new IllegalArgumentException("Slot count and tick duration have to be positive!");
+        }
+        var roundedSlotCount = slotCount == 1 ? 1 : Integer.highestOneBit(slotCount - 1) << 1;
+        this.slots = new ArrayList<>(roundedSlotCount);
+        for (int i = 0; i < roundedSlotCount; ++i) {
+            slots.add(new ArrayDeque<>());
+        }
+        this.mask = roundedSlotCount - 1;
+        this.tickDuration = tickDuration;
+        this.startTime = startTime;
+        this.currentTick = 0;
+        this.size = 0;
+    }
+
+    /**
+     * Schedules item to be returned by {@link #advance(long)} once the deadline passes.
+     * <p>Deadlines in the past are scheduled to the next tick.</p>
+     * @param item Item to be scheduled
+     * @param deadline Deadline in nanoseconds
+     */
+    synchronized void schedule(T item, long deadline) {
+        var tick = Math.max(ceilDiv(deadline - startTime, tickDuration), currentTick + 1);
+        slots.get((int) (tick & mask)).add(new Entry<>(item, tick));
+        ++size;
+    }
+
+    /**
+     * Advances the wheel to specified time and removes items, whose deadline has passed.
+     * @param now Current time in nanoseconds
+     * @return List of expired items
+     */
+    synchronized List<T> advance(long now) {
+        var expired = new ArrayList<T>();
+        var targetTick = Math.floorDiv(now - startTime, tickDuration);
+        if (targetTick <= currentTick) {
+            return expired;
+        }
+
+        // Every slot has to be visited at most once, even if the wheel has not been advanced for several rotations.
+        var steps = Math.min(targetTick - currentTick, slots.size());
+        for (long i = 1; i <= steps; ++i) {
+            var slot = slots.get((int) ((currentTick + i) & mask));
+            var iterator = slot.iterator();
+            while (iterator.hasNext()) {
+                var entry = iterator.next();
+                if (entry.tick <= targetTick) {
+                    iterator.remove();
+                    expired.add(entry.item);
+                }
+            }
+        }
+        currentTick = targetTick;
+        size -= expired.size();
+
+        return expired;
+    }
+
+    /**
+     * Gets number of scheduled items.
+     * @return Number of items waiting for their deadline
+     */
+    synchronized int size() {
+        return size;
+    }
+
+    private static long ceilDiv(long dividend, long divisor) {
+        return -Math.floorDiv(-dividend, divisor);
+    }
+
+    /**
+     * Scheduled item with absolute tick of its deadline.
+     */
+    private static final class Entry<T> {
+        private final T item;
+        private final long tick;
+
+        private Entry(T item, long tick) {
+            this.item = item;
+            this.tick = tick;
+        }
+    }
+}
@@ -28,8 +28,9 @@ import java.net.DatagramSocket;
 import java.net.InetAddress;
 import java.net.SocketException;
 import java.net.UnknownHostException;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -50,6 +51,21 @@ public class UdpConnection extends ConnectionBase {
     private DatagramSocket socketServer;
     protected ExecutorService executor;
 
+    /**
+     * Signals that one of the streams has ended (connection should be cleaned up).
+     */
+    private final CountDownLatch streamEnded = new CountDownLatch(1);
+
+    /**
+     * Time of the last datagram sent or received by the connection (in nanoseconds of {@link System#nanoTime()}).
+     */
+    private volatile long lastActivity = System.nanoTime();
+
+    /**
+     * Is connection closing?
+     */
+    private final AtomicBoolean closing = new AtomicBoolean(false);
+
     /**
      * Constructs UDP connection.
      * @param code Unique code of the connection
@@ -59,7 +75,7 @@ public class UdpConnection extends ConnectionBase {
      * @param socketClient Datagram socket of client
      */
     public UdpConnection(String code, Proxy proxy, InetAddress clientAddress, int clientPort, DatagramSocket socketClient) {
-        super(code, proxy);
+        super(code, proxy, proxy.getHelper().getCoreConfig().getConnectionQueue());
         this.clientAddress = clientAddress;
         this.clientPort = clientPort;
         this.socketClient = socketClient;
@@ -68,7 +84,7 @@ public class UdpConnection extends ConnectionBase {
     @Override
     public boolean start() {
         try {
-            executor = Executors.newFixedThreadPool(3);
+            executor = proxy.getHelper().getConnectionExecutorFactory().createExecutor(3);
 
             var config = ((UdpProxy) proxy).getConfig();
             var serverAddress = InetAddress.getByName(config.getTargetIP());
@@ -76,23 +92,23 @@ public class UdpConnection extends ConnectionBase {
             socketServer = new DatagramSocket();
 
             // Write to server
-            executor.execute(() -> doSend(
+            executor.execute(() -> runStream(() -> doSend(
                     queueC2S,
                     socketServer,
                     serverAddress,
                     serverPort
-            ));
+            )));
 
             // Write to client
-            executor.execute(() -> doSend(
+            executor.execute(() -> runStream(() -> doSend(
                     queueS2C,
                     socketClient,
                     clientAddress,
                     clientPort
-            ));
+            )));
 
             // Read from server
-            executor.execute(this::doReadFromServer);
+            executor.execute(() -> runStream(this::doReadFromServer));
 
             // Automatic cleanup
             executor.execute(this::cleanup);
@@ -111,6 +127,11 @@ public class UdpConnection extends ConnectionBase {
 
     @Override
     public void stop() {
+        // Do not run stop if the connection is already closing (it can be stopped by reaper and cleanup at once).
+        if (!closing.compareAndSet(false, true)) {
+            return;
+        }
+
         Logger.getGlobal().info(() -> String.format("Stopping UDP connection with code '%s'...", code));
 
         executor.shutdownNow();
@@ -124,24 +145,45 @@ public class UdpConnection extends ConnectionBase {
         Logger.getGlobal().info(() -> String.format("UDP connection with code '%s' stopped.", code));
     }
 
+    /**
+     * Marks the connection as active (used for expiration of idle connections and eviction of least recently used connections).
+     */
+    public void touch() {
+        lastActivity = System.nanoTime();
+        ((UdpProxy) proxy).getConnectionManager().touch(this);
+    }
+
+    /**
+     * Gets time of the last activity of the connection.
+     * @return Time of the last datagram sent or received (in nanoseconds of {@link System#nanoTime()})
+     */
+    public long getLastActivity() {
+        return lastActivity;
+    }
+
     /**
      * Reads data from server socket to PDUs and sends through PETEP.
      */
     private void doReadFromServer() {
-        var charset = ((UdpProxy) proxy).getConfig().getCharset();
-        var bufferSize = ((UdpProxy) proxy).getConfig().getBufferSize();
+        var udpProxy = (UdpProxy) proxy;
+        var bufferSize = udpProxy.getConfig().getBufferSize();
+        var buffer = udpProxy.createBuffer();
         try {
             while (!Thread.currentThread().isInterrupted()) {
-                var buffer = new byte[bufferSize];
-                var packet = new DatagramPacket(buffer, buffer.length);
+                var packet = new DatagramPacket(buffer, bufferSize);
                 socketServer.receive(packet);
-                var pdu = new UdpPdu(proxy, this, PduDestination.CLIENT, buffer, packet.getLength(), charset);
+                touch();
+                var pdu = udpProxy.createPdu(this, PduDestination.CLIENT, buffer, packet.getLength());
                 process(pdu);
+                buffer = udpProxy.nextBuffer(buffer);
             }
         } catch (SocketException e) {
             // Socket closed
         } catch (IOException e) {
             Logger.getGlobal().log(Level.SEVERE, "UDP connection exception occurred!", e);
+        } finally {
+            // Return the last (unused) buffer.
+            udpProxy.releaseBuffer(buffer);
         }
     }
 
@@ -157,6 +199,10 @@ public class UdpConnection extends ConnectionBase {
             while ((pdu = queue.take()) != null) {
                 var packet = new DatagramPacket(pdu.getBuffer(), pdu.getSize(), address, port);
                 socket.send(packet);
+                touch();
+
+                // Return the buffer to the pool (if it is pooled).
+                pdu.releaseBuffer();
             }
         } catch (SocketException e) {
             // Socket closed
@@ -168,9 +214,25 @@ public class UdpConnection extends ConnectionBase {
     }
 
     /**
-     * Cleans up connection.
+     * Runs stream task and signals its end to cleanup.
+     */
+    private void runStream(Runnable stream) {
+        try {
+            stream.run();
+        } finally {
+            streamEnded.countDown();
+        }
+    }
+
+    /**
+     * Cleans up connection once any of the streams ends.
      */
     private void cleanup() {
+        try {
+            streamEnded.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
         stop();
     }
 }
@@ -1,7 +1,7 @@
 /*
  * PEnetration TEsting Proxy (PETEP)
  *
- * Copyright (C) 2021 Michal Válka
+ * Copyright (C) 2023 Michal Válka
  *
  * This program is free software: you can redistribute it and/or modify it under the terms of the
  * GNU General Public License as published by the Free Software Foundation, either version 3 of the
@@ -16,22 +16,78 @@
  */
 package com.warxim.petep.extension.internal.udp.proxy;
 
+import com.warxim.petep.core.connection.Connection;
 import com.warxim.petep.core.connection.StringBasedConnectionManager;
 import com.warxim.petep.helper.PetepHelper;
 
 import java.net.InetAddress;
+import java.util.LinkedHashMap;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
 
 /**
  * UDP connection manager based on {@link StringBasedConnectionManager}.
  * <p>UDP connection code contains information about address and port.</p>
+ * <p>Since UDP has no connection termination, the manager can expire pseudo connections:</p>
+ * <ul>
+ *     <li>connections idle for longer than idle timeout are stopped by reaper driven by timer wheel,</li>
+ *     <li>number of connections can be limited, the least recently used connection (head of access-ordered map,
+ *     which is updated on activity of connections) is stopped to make room for the new one.</li>
+ * </ul>
  */
 public class UdpConnectionManager extends StringBasedConnectionManager {
     /**
-     * Constructs connection manager based on string codes.
+     * Number of timer wheel ticks per idle timeout (precision of the expiration).
+     */
+    private static final int TICKS_PER_TIMEOUT = 16;
+
+    /**
+     * Minimal duration of timer wheel tick in milliseconds.
+     */
+    private static final long MIN_TICK_DURATION = 10;
+
+    /**
+     * Number of timer wheel slots (covers two idle timeouts, so connections rarely share slot with later deadlines).
+     */
+    private static final int SLOT_COUNT = TICKS_PER_TIMEOUT * 2;
+
+    private final long idleTimeout;
+    private final int maxConnections;
+    private final long tickDuration;
+    private final TimerWheel<UdpConnection> timerWheel;
+    private final LinkedHashMap<String, UdpConnection> recentlyUsed;
+    private ScheduledExecutorService reaper;
+
+    /**
+     * Constructs connection manager based on string codes without idle timeout and connection limit.
      * @param helper PETEP helper for currently running core
      */
     public UdpConnectionManager(PetepHelper helper) {
+        this(helper, 0, 0);
+    }
+
+    /**
+     * Constructs connection manager based on string codes.
+     * @param helper PETEP helper for currently running core
+     * @param idleTimeout Timeout in milliseconds, after which idle connection is stopped (0 means no timeout)
+     * @param maxConnections Maximal number of connections (0 means no limit)
+     */
+    public UdpConnectionManager(PetepHelper helper, long idleTimeout, int maxConnections) {
         super(helper);
+        this.idleTimeout = TimeUnit.MILLISECONDS.toNanos(idleTimeout);
+        this.maxConnections = maxConnections;
+        if (idleTimeout > 0) {
+            tickDuration = TimeUnit.MILLISECONDS.toNanos(Math.max(idleTimeout / TICKS_PER_TIMEOUT, MIN_TICK_DURATION));
+            timerWheel = new TimerWheel<>(SLOT_COUNT, tickDuration, System.nanoTime());
+        } else {
+            tickDuration = 0;
+            timerWheel = null;
+        }
+        // Access-ordered map (the least recently used connection is the first one) is needed only for limited connections
+        recentlyUsed = maxConnections > 0 ? new LinkedHashMap<>(16, 0.75f, true) : null;
     }
 
     /**
@@ -44,4 +100,147 @@ public class UdpConnectionManager extends StringBasedConnectionManager {
     public String generateCode(InetAddress clientAddress, int clientPort) {
         return clientAddress.getHostAddress() + ':' + clientPort;
     }
+
+    /**
+     * Starts reaper of idle connections (if idle timeout is configured).
+     */
+    public void start() {
+        if (timerWheel == null) {
+            return;
+        }
+
+        reaper = Executors.newSingleThreadScheduledExecutor();
+        reaper.scheduleAtFixedRate(this::reap, tickDuration, tickDuration, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     *  If the connection limit has been reached, stops the least recently used connection first.
+     * </p>
+     * @param connection Connection to be added
+     * @return {@code true} if the connection was successfully added
+     */
+    @Override
+    public boolean add(Connection connection) {
+        while (maxConnections > 0 && connections.size() >= maxConnections) {
+            if (!evictLeastRecentlyUsed()) {
+                break;
+            }
+        }
+
+        if (!super.add(connection)) {
+            return false;
+        }
+
+        if (recentlyUsed != null && connection instanceof UdpConnection) {
+            synchronized (recentlyUsed) {
+                recentlyUsed.put(connection.getCode(), (UdpConnection) connection);
+            }
+        }
+
+        if (timerWheel != null && connection instanceof UdpConnection) {
+            var udpConnection = (UdpConnection) connection;
+            timerWheel.schedule(udpConnection, udpConnection.getLastActivity() + idleTimeout);
+        }
+
+        return true;
+    }
+
+    @Override
+    public boolean remove(Connection connection) {
+        if (!super.remove(connection)) {
+            return false;
+        }
+
+        if (recentlyUsed != null) {
+            synchronized (recentlyUsed) {
+                recentlyUsed.remove(connection.getCode(), connection);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Optional<Connection> remove(String code) {
+        var connection = super.remove(code);
+        if (recentlyUsed != null && connection.isPresent()) {
+            synchronized (recentlyUsed) {
+                recentlyUsed.remove(code, connection.get());
+            }
+        }
+        return connection;
+    }
+
+    /**
+     * Marks the connection as the most recently used one (if the number of connections is limited).
+     * @param connection Connection, which has been active
+     */
+    public void touch(UdpConnection connection) {
+        if (recentlyUsed == null) {
+            return;
+        }
+
+        synchronized (recentlyUsed) {
+            // Access moves the connection to the end of the map (does nothing for already removed connections)
+            recentlyUsed.get(connection.getCode());
+        }
+    }
+
+    /**
+     * Stops reaper and all connections.
+     */
+    @Override
+    public void stop() {
+        if (reaper != null) {
+            reaper.shutdownNow();
+        }
+
+        super.stop();
+    }
+
+    /**
+     * Stops connections, whose idle timeout has expired, and reschedules the others to their new deadline.
+     * <p>Activity of connections does not touch the timer wheel, the deadline is checked lazily once it passes.</p>
+     */
+    private void reap() {
+        var now = System.nanoTime();
+        for (var connection : timerWheel.advance(now)) {
+            // Connection has been already stopped
+            if (connections.get(connection.getCode()) != connection) {
+                continue;
+            }
+
+            var deadline = connection.getLastActivity() + idleTimeout;
+            if (deadline - now <= 0) {
+                Logger.getGlobal().info(() -> String.format("UDP connection with code '%s' expired.", connection.getCode()));
+                connection.stop();
+            } else {
+                timerWheel.schedule(connection, deadline);
+            }
+        }
+    }
+
+    /**
+     * Stops the least recently used connection.
+     * <p>The connection is the first one in the access-ordered map, so the eviction does not scan the connections.</p>
+     * @return {@code true} if any connection has been stopped
+     */
+    private boolean evictLeastRecentlyUsed() {
+        UdpConnection connection;
+        synchronized (recentlyUsed) {
+            var iterator = recentlyUsed.values().iterator();
+            if (!iterator.hasNext()) {
+                return false;
+            }
+            connection = iterator.next();
+            iterator.remove();
+        }
+
+        Logger.getGlobal().info(() -> String.format("UDP connection with code '%s' evicted (connection limit reached).", connection.getCode()));
+        connection.stop();
+        // Make sure the connection is removed even if it has been stopped before
+        remove(connection);
+        return true;
+    }
 }
@@ -16,7 +16,8 @@
  */
 package com.warxim.petep.extension.internal.udp.proxy;
 
-import com.warxim.petep.core.connection.ConnectionManager;
+import com.warxim.petep.core.connection.Connection;
+import com.warxim.petep.core.pdu.BufferPool;
 import com.warxim.petep.core.pdu.PDU;
 import com.warxim.petep.core.pdu.PduDestination;
 import com.warxim.petep.extension.internal.udp.UdpConfig;
@@ -26,6 +27,7 @@ import com.warxim.petep.proxy.worker.Proxy;
 
 import java.io.IOException;
 import java.net.*;
+import java.util.Arrays;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -35,6 +37,7 @@ import java.util.logging.Logger;
 public class UdpProxy extends Proxy {
     private UdpConnectionManager connectionManager;
     private UdpConfig config;
+    private BufferPool bufferPool;
     private Thread thread;
     /**
      * Socket between client and proxy.
@@ -50,7 +53,10 @@ public class UdpProxy extends Proxy {
     public UdpProxy(ProxyModule module, PetepHelper helper, UdpConfig config) {
         super(module, helper);
         this.config = config;
-        connectionManager = new UdpConnectionManager(helper);
+        if (config.isBufferPooling()) {
+            bufferPool = new BufferPool(config.getBufferSize(), BufferPool.DEFAULT_BUFFERS_PER_CLASS);
+        }
+        connectionManager = new UdpConnectionManager(helper, config.getIdleTimeout(), config.getMaxConnections());
     }
 
     @Override
@@ -64,6 +70,7 @@ public class UdpProxy extends Proxy {
             socketClient = new DatagramSocket(config.getProxyPort(), InetAddress.getByName(config.getProxyIP()));
             thread = new Thread(this::doRead);
             thread.start();
+            connectionManager.start();
             return true;
         } catch (UnknownHostException e) {
             Logger.getGlobal().log(Level.SEVERE, "UDP unknown host exception thrown.", e);
@@ -92,7 +99,7 @@ public class UdpProxy extends Proxy {
     }
 
     @Override
-    public ConnectionManager getConnectionManager() {
+    public UdpConnectionManager getConnectionManager() {
         return connectionManager;
     }
 
@@ -100,22 +107,79 @@ public class UdpProxy extends Proxy {
         return config;
     }
 
+    /**
+     * Gets pool of read buffers.
+     * @return Buffer pool of this proxy (or null if buffer pooling is disabled)
+     */
+    public BufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    /**
+     * Creates buffer for receiving datagrams (leases it from the buffer pool, if buffer pooling is enabled).
+     * <p>Leased buffer can be bigger than configured buffer size, so receive should be limited to the buffer size.</p>
+     * @return Buffer with length of at least the configured buffer size
+     */
+    protected byte[] createBuffer() {
+        return bufferPool == null ? new byte[config.getBufferSize()] : bufferPool.lease(config.getBufferSize());
+    }
+
+    /**
+     * Creates UDP PDU from buffer created by {@link #createBuffer()}.
+     * <p>If buffer trimming is enabled, the data are copied to right-sized buffer and the read buffer stays unused.
+     * Otherwise the PDU takes the buffer and, if it has been leased from the pool, returns it to the pool once sent.</p>
+     * @param connection Connection of the PDU
+     * @param destination Destination of the PDU
+     * @param buffer Buffer created by {@link #createBuffer()}
+     * @param size Size of the data in the buffer
+     * @return UDP PDU
+     */
+    protected UdpPdu createPdu(Connection connection, PduDestination destination, byte[] buffer, int size) {
+        if (config.isTrimBuffers()) {
+            return new UdpPdu(this, connection, destination, Arrays.copyOf(buffer, size), size, config.getCharset());
+        }
+
+        var pdu = new UdpPdu(this, connection, destination, buffer, size, config.getCharset());
+        if (bufferPool != null) {
+            pdu.setBufferPool(bufferPool);
+        }
+        return pdu;
+    }
+
+    /**
+     * Gets buffer for the next read after PDU has been created by {@link #createPdu(Connection, PduDestination, byte[], int)}.
+     * @param buffer Buffer used for the previous read
+     * @return The same buffer if buffer trimming is enabled (the PDU got copy of the data), otherwise new buffer
+     */
+    protected byte[] nextBuffer(byte[] buffer) {
+        return config.isTrimBuffers() ? buffer : createBuffer();
+    }
+
+    /**
+     * Returns unused buffer created by {@link #createBuffer()} to the pool (if buffer pooling is enabled).
+     * @param buffer Buffer that is no longer used
+     */
+    protected void releaseBuffer(byte[] buffer) {
+        if (bufferPool != null) {
+            bufferPool.release(buffer);
+        }
+    }
+
     /**
      * Reads data from client and creates pseudo UDP connections.
      */
     protected void doRead() {
-        var charset = config.getCharset();
+        var buffer = createBuffer();
         try {
             while (!Thread.currentThread().isInterrupted()) {
-                var buffer = new byte[config.getBufferSize()];
-                var packet = new DatagramPacket(buffer, buffer.length);
+                var packet = new DatagramPacket(buffer, config.getBufferSize());
                 socketClient.receive(packet);
 
                 var clientAddress = packet.getAddress();
                 var clientPort = packet.getPort();
                 var connectionCode = connectionManager.generateCode(clientAddress, clientPort);
 
-                var connection = connectionManager.get(connectionCode).orElse(null);
+                var connection = (UdpConnection) connectionManager.get(connectionCode).orElse(null);
                 if (connection == null) {
                     connection = new UdpConnection(connectionCode, this, clientAddress, clientPort, socketClient);
                     if (!connection.start()) {
@@ -123,14 +187,20 @@ public class UdpProxy extends Proxy {
                     }
                     connectionManager.add(connection);
                 }
+                connection.touch();
 
-                var pdu = new UdpPdu(this, connection, PduDestination.SERVER, buffer, packet.getLength(), charset);
+                var pdu = createPdu(connection, PduDestination.SERVER, buffer, packet.getLength());
                 helper.processPdu(pdu);
+
+                buffer = nextBuffer(buffer);
             }
         } catch (SocketException e) {
             // Socket closed
         } catch (IOException e) {
             Logger.getGlobal().log(Level.SEVERE, "UDP exception occurred!", e);
+        } finally {
+            // Return the last (unused) buffer.
+            releaseBuffer(buffer);
         }
     }
 }
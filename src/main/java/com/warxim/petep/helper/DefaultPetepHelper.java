@@ -16,8 +16,10 @@
  */
 package com.warxim.petep.helper;
 
+import com.warxim.petep.core.CoreConfig;
 import com.warxim.petep.core.PETEP;
 import com.warxim.petep.core.PetepState;
+import com.warxim.petep.core.connection.ConnectionExecutorFactory;
 import com.warxim.petep.core.listener.ConnectionListener;
 import com.warxim.petep.core.pdu.PDU;
 import com.warxim.petep.exception.InactivePetepCoreException;
@@ -50,11 +52,26 @@ public final class DefaultPetepHelper implements PetepHelper {
         return getPetepOrThrowException().getState();
     }
 
+    @Override
+    public CoreConfig getCoreConfig() {
+        return getPetepOrThrowException().getConfig();
+    }
+
+    @Override
+    public ConnectionExecutorFactory getConnectionExecutorFactory() {
+        return getPetepOrThrowException().getConnectionExecutorFactory();
+    }
+
     @Override
     public void processPdu(PDU pdu) {
         getPetepOrThrowException().process(pdu);
     }
 
+    @Override
+    public boolean offerPdu(PDU pdu) {
+        return getPetepOrThrowException().offer(pdu);
+    }
+
     @Override
     public void processPdu(PDU pdu, int interceptorId) {
         getPetepOrThrowException().process(pdu, interceptorId);
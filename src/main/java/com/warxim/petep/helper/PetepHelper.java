@@ -16,7 +16,10 @@
  */
 package com.warxim.petep.helper;
 
+import com.warxim.petep.core.CoreConfig;
 import com.warxim.petep.core.PetepState;
+import com.warxim.petep.core.connection.ConnectionExecutorFactory;
+import com.warxim.petep.core.connection.PlatformConnectionExecutorFactory;
 import com.warxim.petep.core.listener.ConnectionListener;
 import com.warxim.petep.core.pdu.PDU;
 import com.warxim.petep.exception.InactivePetepCoreException;
@@ -43,6 +46,26 @@ public interface PetepHelper {
      */
     PetepState getState();
 
+    /**
+     * Obtains configuration of PETEP core.
+     * <p>Default implementation returns default configuration (unbounded queues).</p>
+     * @return Configuration of PETEP core
+     * @throws InactivePetepCoreException if the PETEP core is unavailable
+     */
+    default CoreConfig getCoreConfig() {
+        return CoreConfig.createDefault();
+    }
+
+    /**
+     * Obtains factory of executors for connection tasks (reading/writing of connection streams).
+     * <p>Default implementation returns factory of platform threads.</p>
+     * @return Connection executor factory of PETEP core
+     * @throws InactivePetepCoreException if the PETEP core is unavailable
+     */
+    default ConnectionExecutorFactory getConnectionExecutorFactory() {
+        return new PlatformConnectionExecutorFactory();
+    }
+
     /*
      * PDUS
      */
@@ -54,6 +77,19 @@ public interface PetepHelper {
      */
     void processPdu(PDU pdu);
 
+    /**
+     * Processes PDU in PETEP core without blocking.
+     * <p>Puts PDU into internal PETEP processing, unless the input queue is full and would block the caller.</p>
+     * <p>Default implementation calls {@link #processPdu(PDU)} and always accepts the PDU.</p>
+     * @param pdu PDU to be processed
+     * @return {@code false} if the PDU has not been accepted (caller should try again later)
+     * @throws InactivePetepCoreException if the PETEP core is unavailable
+     */
+    default boolean offerPdu(PDU pdu) {
+        processPdu(pdu);
+        return true;
+    }
+
     /**
      * Processes PDU internally by sending it in specified interceptor.
      * <p>Sends PDU to appropriate interceptors.</p>
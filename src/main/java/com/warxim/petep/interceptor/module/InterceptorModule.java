@@ -52,4 +52,23 @@ public abstract class InterceptorModule extends Module<InterceptorModuleFactory>
      * @return Created interceptor
      */
     public abstract Interceptor createInterceptor(int id, PetepHelper helper);
+
+    /**
+     * Checks whether the interceptors of this module can block the thread for longer time
+     * (for example waiting for user or external service).
+     * <p>Blocking interceptors always start new stage in {@link com.warxim.petep.interceptor.worker.InterceptorExecutionMode#FUSED} mode.</p>
+     * @return {@code true} if the interceptors can block
+     */
+    public boolean isBlocking() {
+        return false;
+    }
+
+    /**
+     * Checks whether the interceptors of this module can intercept multiple PDUs concurrently.
+     * <p>Thread-safe interceptors are run in multiple parallel copies in {@link com.warxim.petep.interceptor.worker.InterceptorExecutionMode#SHARDED} mode.</p>
+     * @return {@code true} if the interceptors are thread-safe
+     */
+    public boolean isThreadSafe() {
+        return false;
+    }
 }
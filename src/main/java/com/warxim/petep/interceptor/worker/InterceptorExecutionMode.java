@@ -0,0 +1,43 @@
+/*
+ * PEnetration TEsting Proxy (PETEP)
+ *
+ * Copyright (C) 2023 Michal Válka
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <https://www.gnu.org/licenses/>.
+ */
+package com.warxim.petep.interceptor.worker;
+
+import com.warxim.petep.extension.PetepAPI;
+
+/**
+ * Mode of executing interceptor chain.
+ */
+@PetepAPI
+public enum InterceptorExecutionMode {
+    /**
+     * Each interceptor runs in its own thread and interceptors are connected by queues.
+     */
+    THREAD_PER_INTERCEPTOR,
+    /**
+     * Consecutive non-blocking interceptors run inline in single thread.
+     * <p>New stage (thread and queue) is started only by interceptors, which declare themselves as blocking.</p>
+     * @see com.warxim.petep.interceptor.module.InterceptorModule#isBlocking()
+     */
+    FUSED,
+    /**
+     * Interceptors are split into stages like in {@link #FUSED} mode and stages of thread-safe interceptors
+     * are run in multiple parallel copies (shards).
+     * <p>PDUs are assigned to shards by connection code, so the order of PDUs within connection is preserved.</p>
+     * @see com.warxim.petep.interceptor.module.InterceptorModule#isThreadSafe()
+     */
+    SHARDED
+}
@@ -24,9 +24,17 @@ import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.function.Consumer;
+import java.util.logging.Logger;
 
 /**
  * Interceptor executor executes interceptors and creates queues.
+ * <p>
+ *     Interceptors are split into stages, each stage has its own input queue and worker thread.
+ *     In {@link InterceptorExecutionMode#THREAD_PER_INTERCEPTOR} mode, each interceptor has its own stage,
+ *     in {@link InterceptorExecutionMode#FUSED} mode, new stage is started only by blocking interceptors.
+ *     In {@link InterceptorExecutionMode#SHARDED} mode, stages of thread-safe interceptors have multiple input queues
+ *     and workers (shards), PDUs are assigned to shards by connection.
+ * </p>
  */
 public final class InterceptorExecutor {
     /**
@@ -40,15 +48,20 @@ public final class InterceptorExecutor {
     private final Consumer<PDU> consumer;
 
     /**
-     * List of PDU queues (one for each interceptor, one for sending PDUs to consumer)
+     * List of stages (stage for each interceptor, one for sending PDUs to consumer)
      */
-    private final List<PduQueue> queues;
+    private final List<InterceptorStage> stages;
 
     /**
-     * List of interceptor workers which handle intercepting in separate threads (one for each interceptor)
+     * List of interceptor workers which handle intercepting in separate threads (one for each stage shard)
      */
     private final List<InterceptorWorker> workers;
 
+    /**
+     * Whether stages can contain multiple interceptors
+     */
+    private final boolean fused;
+
     /**
      * Executor service for running workers and for sending PDUs to consumer
      */
@@ -60,27 +73,61 @@ public final class InterceptorExecutor {
      * @param consumer Consumer for consuming PDUs after processing in interceptors
      */
     public InterceptorExecutor(InterceptorManager manager, Consumer<PDU> consumer) {
+        this(manager, InterceptorExecutorConfig.createDefault(), consumer);
+    }
+
+    /**
+     * Constructs interceptor executor.
+     * @param manager Interceptor manager that handles all active interceptors
+     * @param config Configuration of the executor (type of queues etc.)
+     * @param consumer Consumer for consuming PDUs after processing in interceptors
+     */
+    public InterceptorExecutor(InterceptorManager manager, InterceptorExecutorConfig config, Consumer<PDU> consumer) {
         this.manager = manager;
         this.consumer = consumer;
 
-        workers = new ArrayList<>(manager.size());
-        queues = new ArrayList<>(manager.size() + 1);
-
-        queues.add(new PduQueue());
-
-        // Create queues and workers with assigned queues.
-        for (var interceptor : manager.getList()) {
-            int index = queues.size();
+        var queueConfig = config == null ? null : config.getQueue();
+        var mode = config == null || config.getMode() == null
+                ? InterceptorExecutionMode.THREAD_PER_INTERCEPTOR
+                : config.getMode();
+        var shards = mode != InterceptorExecutionMode.SHARDED
+                ? 1
+                : config.getShards() > 0 ? config.getShards() : Runtime.getRuntime().availableProcessors();
+        fused = mode != InterceptorExecutionMode.THREAD_PER_INTERCEPTOR;
+
+        var interceptors = manager.getList();
+        var stageStarts = determineStageStarts(interceptors, mode);
+
+        workers = new ArrayList<>(stageStarts.size() - 1);
+        stages = new ArrayList<>(interceptors.size() + 1);
+
+        // Create stage for each group of interceptors (shared by all interceptors of the group).
+        for (int stage = 0; stage < stageStarts.size() - 1; ++stage) {
+            var start = stageStarts.get(stage);
+            var end = stageStarts.get(stage + 1);
+            var threadSafe = interceptors.subList(start, end).stream()
+                    .allMatch(interceptor -> interceptor.getModule().isThreadSafe());
+            var interceptorStage = new InterceptorStage(threadSafe ? shards : 1, queueConfig);
+            for (int i = start; i < end; ++i) {
+                stages.add(interceptorStage);
+            }
+        }
 
-            // Create new queue.
-            queues.add(new PduQueue());
+        // Create stage for sending PDUs to consumer.
+        stages.add(new InterceptorStage(shards, queueConfig));
 
-            // Create new worker with input and output queues.
-            workers.add(new InterceptorWorker(interceptor, queues.get(index - 1), queues.get(index)));
+        // Create workers with input queues and output stages.
+        for (int stage = 0; stage < stageStarts.size() - 1; ++stage) {
+            var start = stageStarts.get(stage);
+            var end = stageStarts.get(stage + 1);
+            var nextStage = stages.get(end);
+            for (var queue : stages.get(start).getQueues()) {
+                workers.add(new InterceptorWorker(interceptors.subList(start, end), queue, nextStage::add));
+            }
         }
 
-        // Create fixed thread pool for workers and consumer.
-        executor = Executors.newFixedThreadPool(queues.size());
+        // Create fixed thread pool for workers and consumers.
+        executor = Executors.newFixedThreadPool(workers.size() + shards);
     }
 
     /**
@@ -102,15 +149,15 @@ public final class InterceptorExecutor {
         }
 
         // Start consumer work.
-        executor.submit(this::work);
+        for (var queue : stages.get(stages.size() - 1).getQueues()) {
+            executor.submit(() -> work(queue));
+        }
     }
 
     /**
      * Processes PDUs in consumer.
      */
-    private void work() {
-        PduQueue queue = queues.get(queues.size() - 1);
-
+    private void work(PduQueue queue) {
         PDU pdu;
         try {
             while ((pdu = queue.take()) != null) {
@@ -131,6 +178,19 @@ public final class InterceptorExecutor {
 
         // Call stop on interceptors.
         manager.getList().parallelStream().forEach(Interceptor::stop);
+
+        var droppedCount = getDroppedCount();
+        if (droppedCount > 0) {
+            Logger.getGlobal().warning(() -> String.format("Interceptor queues dropped %d PDUs because they were full!", droppedCount));
+        }
+    }
+
+    /**
+     * Obtains number of PDUs dropped by backpressure policy of the queues.
+     * @return Number of dropped PDUs in all queues of this executor
+     */
+    public long getDroppedCount() {
+        return stages.stream().distinct().mapToLong(InterceptorStage::getDroppedCount).sum();
     }
 
     /**
@@ -139,6 +199,47 @@ public final class InterceptorExecutor {
      * @param pdu PDU to be processed
      */
     public void intercept(PDU pdu, int interceptorId) {
-        queues.get(interceptorId).add(pdu);
+        prepare(pdu, interceptorId);
+        stages.get(interceptorId).add(pdu);
+    }
+
+    /**
+     * Puts PDU into specified queue (to specified interceptor) without blocking.
+     * @param interceptorId Interceptor identifier (zero-based numbering)
+     * @param pdu PDU to be processed
+     * @return {@code false} if the queue is full and its policy would block (PDU has not been added)
+     */
+    public boolean offer(PDU pdu, int interceptorId) {
+        prepare(pdu, interceptorId);
+        return stages.get(interceptorId).offer(pdu);
+    }
+
+    /**
+     * Prepares PDU for being put into specified queue.
+     */
+    private void prepare(PDU pdu, int interceptorId) {
+        if (fused && interceptorId < manager.size()) {
+            // Stage worker continues after the last interceptor, so point it to the interceptor before the target.
+            pdu.setLastInterceptor(interceptorId == 0 ? null : manager.getList().get(interceptorId - 1));
+        }
+    }
+
+    /**
+     * Determines indexes of interceptors, which start new stage (with interceptors count appended as the end).
+     */
+    private static List<Integer> determineStageStarts(List<Interceptor> interceptors, InterceptorExecutionMode mode) {
+        var stageStarts = new ArrayList<Integer>();
+        for (int i = 0; i < interceptors.size(); ++i) {
+            var module = interceptors.get(i).getModule();
+            if (mode == InterceptorExecutionMode.THREAD_PER_INTERCEPTOR
+                    || i == 0
+                    || module.isBlocking()
+                    || (mode == InterceptorExecutionMode.SHARDED
+                        && module.isThreadSafe() != interceptors.get(i - 1).getModule().isThreadSafe())) {
+                stageStarts.add(i);
+            }
+        }
+        stageStarts.add(interceptors.size());
+        return stageStarts;
     }
 }
@@ -0,0 +1,57 @@
+/*
+ * PEnetration TEsting Proxy (PETEP)
+ *
+ * Copyright (C) 2023 Michal Válka
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <https://www.gnu.org/licenses/>.
+ */
+package com.warxim.petep.interceptor.worker;
+
+import com.warxim.petep.core.pdu.PduQueueConfig;
+import com.warxim.petep.extension.PetepAPI;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Configuration of interceptor executor (for single direction).
+ */
+@PetepAPI
+@Builder
+@Value
+public class InterceptorExecutorConfig {
+    /**
+     * Configuration of queues between interceptors.
+     */
+    PduQueueConfig queue;
+
+    /**
+     * Mode of executing interceptors.
+     */
+    InterceptorExecutionMode mode;
+
+    /**
+     * Number of parallel copies of thread-safe stages in {@link InterceptorExecutionMode#SHARDED} mode.
+     * <p>Zero means number of available processors.</p>
+     */
+    int shards;
+
+    /**
+     * Creates default configuration.
+     * @return Default interceptor executor configuration
+     */
+    public static InterceptorExecutorConfig createDefault() {
+        return InterceptorExecutorConfig.builder()
+                .queue(PduQueueConfig.createDefault())
+                .mode(InterceptorExecutionMode.THREAD_PER_INTERCEPTOR)
+                .build();
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * PEnetration TEsting Proxy (PETEP)
+ *
+ * Copyright (C) 2023 Michal Válka
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <https://www.gnu.org/licenses/>.
+ */
+package com.warxim.petep.interceptor.worker;
+
+import com.warxim.petep.core.pdu.PDU;
+import com.warxim.petep.core.pdu.PduQueue;
+import com.warxim.petep.core.pdu.PduQueueConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Input of interceptor stage.
+ * <p>Consists of one or more queues (shards), PDUs are assigned to shards by their connection code,
+ * so that PDUs of single connection always go through the same shard in the same order.</p>
+ */
+final class InterceptorStage {
+    /**
+     * Input queues of the stage (one for each shard)
+     */
+    private final List<PduQueue> queues;
+
+    /**
+     * Constructs interceptor stage.
+     * @param shards Number of shards (queues) of the stage
+     * @param queueConfig Configuration of the queues
+     */
+    InterceptorStage(int shards, PduQueueConfig queueConfig) {
+        queues = new ArrayList<>(shards);
+        for (int i = 0; i < shards; ++i) {
+            queues.add(new PduQueue(queueConfig));
+        }
+    }
+
+    /**
+     * Adds PDU to the queue of its shard.
+     * @param pdu PDU to be added
+     */
+    void add(PDU pdu) {
+        queues.get(getShard(pdu)).add(pdu);
+    }
+
+    /**
+     * Adds PDU to the queue of its shard without blocking.
+     * @param pdu PDU to be added
+     * @return {@code false} if the queue is full and its policy would block
+     */
+    boolean offer(PDU pdu) {
+        return queues.get(getShard(pdu)).offer(pdu);
+    }
+
+    /**
+     * Obtains input queues of the stage.
+     * @return List of queues (one for each shard)
+     */
+    List<PduQueue> getQueues() {
+        return queues;
+    }
+
+    /**
+     * Obtains number of PDUs dropped by backpressure policy of the queues.
+     * @return Number of dropped PDUs in all queues of the stage
+     */
+    long getDroppedCount() {
+        return queues.stream().mapToLong(PduQueue::getDroppedCount).sum();
+    }
+
+    /**
+     * Determines shard of the PDU by its connection code.
+     */
+    private int getShard(PDU pdu) {
+        if (queues.size() == 1 || pdu.getConnection() == null) {
+            return 0;
+        }
+        return Math.floorMod(pdu.getConnection().getCode().hashCode(), queues.size());
+    }
+}
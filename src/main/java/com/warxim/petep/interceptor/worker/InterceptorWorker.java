@@ -19,18 +19,25 @@ package com.warxim.petep.interceptor.worker;
 import com.warxim.petep.core.pdu.PDU;
 import com.warxim.petep.core.pdu.PduQueue;
 
+import java.util.List;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Interceptor worker operates with PDUs through input and output queue by calling subordinate
- * interceptor.
+ * interceptors.
+ * <p>
+ *     Worker can run multiple consecutive interceptors (stage) inline in its thread.
+ *     PDUs in the input queue start in the stage interceptor right after their last interceptor,
+ *     if the last interceptor belongs to the stage, otherwise in the first interceptor of the stage.
+ * </p>
  */
 public final class InterceptorWorker implements Runnable {
     /**
-     * Interceptor that is called for each PDU in queue
+     * Interceptors that are called for each PDU in queue (in this order)
      */
-    private final Interceptor interceptor;
+    private final List<Interceptor> interceptors;
 
     /**
      * Input queue for taking PDUs for intercepting
@@ -38,9 +45,9 @@ public final class InterceptorWorker implements Runnable {
     private final PduQueue in;
 
     /**
-     * Output queue for sending PDUs to next phase
+     * Output for sending PDUs to next phase (queue of next stage)
      */
-    private final PduQueue out;
+    private final Consumer<PDU> out;
 
     /**
      * Constructs interceptor worker.
@@ -49,7 +56,17 @@ public final class InterceptorWorker implements Runnable {
      * @param out Queue of outgoing PDUs (for next worker to process)
      */
     public InterceptorWorker(Interceptor interceptor, PduQueue in, PduQueue out) {
-        this.interceptor = interceptor;
+        this(List.of(interceptor), in, out::add);
+    }
+
+    /**
+     * Constructs interceptor worker for stage of consecutive interceptors.
+     * @param interceptors Consecutive interceptors to be run inline
+     * @param in Queue of ingoing PDUs (for processing)
+     * @param out Output of outgoing PDUs (for next worker to process)
+     */
+    public InterceptorWorker(List<Interceptor> interceptors, PduQueue in, Consumer<PDU> out) {
+        this.interceptors = interceptors;
         this.in = in;
         this.out = out;
     }
@@ -73,24 +90,46 @@ public final class InterceptorWorker implements Runnable {
     }
 
     /**
-     * Intercepts PDU using internal interceptor
+     * Intercepts PDU using internal interceptors
      */
     private void interceptPdu(PDU pdu) {
-        try {
-            // Send the PDU to interceptor and if it returns true, put it into output queue.
-            if (interceptor.intercept(pdu)) {
+        for (int i = getStartIndex(pdu); i < interceptors.size(); ++i) {
+            var interceptor = interceptors.get(i);
+            try {
+                // Send the PDU to interceptor and if it returns false, drop it.
+                if (!interceptor.intercept(pdu)) {
+                    return;
+                }
+
                 // Sets last interceptor to current interceptor.
                 pdu.setLastInterceptor(interceptor);
-
-                // Puts the PDU to outgoing queue.
-                out.add(pdu);
+            } catch (RuntimeException e) {
+                Logger.getGlobal().log(
+                        Level.SEVERE,
+                        String.format("Interceptor with code '%s' thrown exception during PDU interception!", interceptor.getCode()),
+                        e
+                );
+                return;
             }
-        } catch (RuntimeException e) {
-            Logger.getGlobal().log(
-                    Level.SEVERE,
-                    String.format("Interceptor with code '%s' thrown exception during PDU interception!", interceptor.getCode()),
-                    e
-            );
         }
+
+        // Puts the PDU to outgoing queue.
+        out.accept(pdu);
+    }
+
+    /**
+     * Determines index of the first interceptor of the stage, which should process the PDU.
+     */
+    private int getStartIndex(PDU pdu) {
+        var lastInterceptor = pdu.getLastInterceptor();
+        if (interceptors.size() == 1 || lastInterceptor == null) {
+            return 0;
+        }
+
+        var index = lastInterceptor.getId() - interceptors.get(0).getId();
+        if (index >= 0 && index < interceptors.size() - 1 && interceptors.get(index) == lastInterceptor) {
+            return index + 1;
+        }
+        return 0;
     }
 }
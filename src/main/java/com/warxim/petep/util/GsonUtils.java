@@ -20,6 +20,7 @@ import com.google.gson.*;
 import com.warxim.petep.extension.PetepAPI;
 
 import java.nio.charset.Charset;
+import java.time.Instant;
 
 /**
  * Utils for using GSON library.
@@ -32,6 +33,8 @@ public final class GsonUtils {
     private static final Gson GSON = new GsonBuilder()
             .registerTypeHierarchyAdapter(Charset.class, createCharsetSerializer())
             .registerTypeHierarchyAdapter(Charset.class, createCharsetDeserializer())
+            .registerTypeAdapter(Instant.class, createInstantSerializer())
+            .registerTypeAdapter(Instant.class, createInstantDeserializer())
             .setPrettyPrinting()
             .create();
 
@@ -59,4 +62,18 @@ public final class GsonUtils {
     private static JsonDeserializer<Charset> createCharsetDeserializer() {
         return (json, typeOfSrc, context) -> Charset.forName(json.getAsJsonPrimitive().getAsString());
     }
+
+    /**
+     * Creates json serailizer for {@link Instant} (ISO-8601 representation).
+     */
+    private static JsonSerializer<Instant> createInstantSerializer() {
+        return (src, typeOfSrc, context) -> new JsonPrimitive(src.toString());
+    }
+
+    /**
+     * Creates json deserailizer for {@link Instant} (ISO-8601 representation).
+     */
+    private static JsonDeserializer<Instant> createInstantDeserializer() {
+        return (json, typeOfSrc, context) -> Instant.parse(json.getAsJsonPrimitive().getAsString());
+    }
 }
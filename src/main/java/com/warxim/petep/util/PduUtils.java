@@ -23,6 +23,7 @@ import com.warxim.petep.core.pdu.SerializedPdu;
 import com.warxim.petep.extension.PetepAPI;
 import com.warxim.petep.helper.PetepHelper;
 
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Optional;
 import java.util.Set;
@@ -253,7 +254,7 @@ public final class PduUtils {
             builder.connection(pdu.getConnection().getCode());
         }
 
-        builder.buffer(pdu.getBuffer().clone());
+        builder.buffer(Arrays.copyOf(pdu.getBuffer(), pdu.getSize()));
         builder.destination(pdu.getDestination());
 
         if (pdu.getLastInterceptor() != null) {
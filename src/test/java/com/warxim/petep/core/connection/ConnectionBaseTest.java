@@ -0,0 +1,38 @@
+package com.warxim.petep.core.connection;
+
+import com.warxim.petep.core.pdu.BackpressurePolicy;
+import com.warxim.petep.core.pdu.PduDestination;
+import com.warxim.petep.core.pdu.PduQueueConfig;
+import com.warxim.petep.core.pdu.PduQueueType;
+import com.warxim.petep.test.base.extension.proxy.TestConnection;
+import com.warxim.petep.test.base.extension.proxy.TestPdu;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConnectionBaseTest {
+    @Test
+    public void sendToFullBlockingQueueDoesNotBlockTest() throws Exception {
+        var queueConfig = PduQueueConfig.builder()
+                .type(PduQueueType.LINKED)
+                .capacity(1)
+                .backpressurePolicy(BackpressurePolicy.BLOCK)
+                .build();
+        assertThat(queueConfig.isBlocking()).isTrue();
+        var connection = new TestConnection("connection", null, queueConfig);
+
+        // Second PDU does not fit into the queue, but the sender (PETEP core) is not blocked
+        var first = new TestPdu(null, connection, PduDestination.SERVER, new byte[] {1}, 1);
+        var second = new TestPdu(null, connection, PduDestination.SERVER, new byte[] {2}, 1);
+        CompletableFuture.runAsync(() -> {
+            connection.send(first);
+            connection.send(second);
+        }).get(5, TimeUnit.SECONDS);
+
+        assertThat(connection.getOutgoingPduC2S()).isSameAs(first);
+        assertThat(connection.getOutgoingPduC2S()).isNull();
+    }
+}
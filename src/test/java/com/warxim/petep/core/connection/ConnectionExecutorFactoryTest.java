@@ -0,0 +1,117 @@
+package com.warxim.petep.core.connection;
+
+import lombok.extern.java.Log;
+import org.testng.SkipException;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Log
+public class ConnectionExecutorFactoryTest {
+    private static final int CONNECTIONS = 500;
+    private static final int TASKS_PER_CONNECTION = 4;
+
+    @Test
+    public void createPlatformTest() {
+        assertThat(ConnectionExecutorFactory.create(ConnectionExecutorType.PLATFORM))
+                .isInstanceOf(PlatformConnectionExecutorFactory.class);
+        assertThat(ConnectionExecutorFactory.create(null))
+                .isInstanceOf(PlatformConnectionExecutorFactory.class);
+    }
+
+    @Test
+    public void createVirtualTest() {
+        var factory = ConnectionExecutorFactory.create(ConnectionExecutorType.VIRTUAL);
+        if (VirtualConnectionExecutorFactory.isSupported()) {
+            assertThat(factory).isInstanceOf(VirtualConnectionExecutorFactory.class);
+        } else {
+            assertThat(factory).isInstanceOf(PlatformConnectionExecutorFactory.class);
+        }
+    }
+
+    @DataProvider(name = "types")
+    public Object[][] types() {
+        return new Object[][] {
+                {ConnectionExecutorType.PLATFORM},
+                {ConnectionExecutorType.VIRTUAL},
+        };
+    }
+
+    @Test(dataProvider = "types")
+    public void executorRunsBlockedTasksTest(ConnectionExecutorType type) throws InterruptedException {
+        var executor = ConnectionExecutorFactory.create(type).createExecutor(TASKS_PER_CONNECTION);
+        var running = new CountDownLatch(TASKS_PER_CONNECTION);
+        var block = new CountDownLatch(1);
+        for (var i = 0; i < TASKS_PER_CONNECTION; ++i) {
+            executor.execute(() -> {
+                running.countDown();
+                try {
+                    block.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+
+        // All stream tasks of the connection run at the same time and are interrupted by stop
+        assertThat(running.await(10, TimeUnit.SECONDS)).isTrue();
+        executor.shutdownNow();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    /**
+     * Simulates many connections, each with blocked stream tasks, and measures startup and shutdown.
+     */
+    @Test(dataProvider = "types", groups = "benchmark")
+    public void scalingBenchmarkTest(ConnectionExecutorType type) throws InterruptedException {
+        if (type == ConnectionExecutorType.VIRTUAL && !VirtualConnectionExecutorFactory.isSupported()) {
+            throw new SkipException("Virtual threads are not supported by the runtime.");
+        }
+        var factory = ConnectionExecutorFactory.create(type);
+        var running = new CountDownLatch(CONNECTIONS * TASKS_PER_CONNECTION);
+        var block = new CountDownLatch(1);
+        var executors = new ArrayList<ExecutorService>(CONNECTIONS);
+
+        var startTime = System.nanoTime();
+        for (var i = 0; i < CONNECTIONS; ++i) {
+            var executor = factory.createExecutor(TASKS_PER_CONNECTION);
+            for (var j = 0; j < TASKS_PER_CONNECTION; ++j) {
+                executor.execute(() -> {
+                    running.countDown();
+                    try {
+                        // Simulates blocking read/write of connection stream
+                        block.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+            executors.add(executor);
+        }
+        assertThat(running.await(30, TimeUnit.SECONDS)).isTrue();
+        var startDuration = System.nanoTime() - startTime;
+
+        var stopTime = System.nanoTime();
+        for (var executor : executors) {
+            executor.shutdownNow();
+        }
+        for (var executor : executors) {
+            assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        }
+        var stopDuration = System.nanoTime() - stopTime;
+
+        log.info(String.format(
+                "%s executor: %d connections (%d tasks) started in %d ms, stopped in %d ms",
+                type,
+                CONNECTIONS,
+                CONNECTIONS * TASKS_PER_CONNECTION,
+                TimeUnit.NANOSECONDS.toMillis(startDuration),
+                TimeUnit.NANOSECONDS.toMillis(stopDuration)));
+    }
+}
@@ -0,0 +1,110 @@
+package com.warxim.petep.core.pdu;
+
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BufferPoolTest {
+    @Test
+    public void leaseRoundsUpToSizeClassTest() {
+        var pool = new BufferPool(4096, 4, false);
+
+        assertThat(pool.lease(1)).hasSize(BufferPool.MIN_CLASS_SIZE);
+        assertThat(pool.lease(256)).hasSize(256);
+        assertThat(pool.lease(257)).hasSize(512);
+        assertThat(pool.lease(4096)).hasSize(4096);
+        assertThat(pool.getMaxClassSize()).isEqualTo(4096);
+    }
+
+    @Test
+    public void releasedBufferIsReusedTest() {
+        var pool = new BufferPool(4096, 4, false);
+
+        var buffer = pool.lease(1000);
+        pool.release(buffer);
+
+        assertThat(pool.lease(1000)).isSameAs(buffer);
+        assertThat(pool.lease(1000)).isNotSameAs(buffer);
+        assertThat(pool.getAllocatedCount()).isEqualTo(2);
+        assertThat(pool.getReusedCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void oversizedBufferIsNotPooledTest() {
+        var pool = new BufferPool(4096, 4, false);
+
+        var buffer = pool.lease(5000);
+        assertThat(buffer).hasSize(5000);
+
+        pool.release(buffer);
+        pool.release(new byte[1000]);
+
+        assertThat(pool.lease(5000)).isNotSameAs(buffer);
+        assertThat(pool.getReusedCount()).isZero();
+    }
+
+    @Test
+    public void directBufferIsReusedTest() {
+        var pool = new BufferPool(4096, 4, false);
+
+        var buffer = pool.leaseDirect(2000);
+        assertThat(buffer.isDirect()).isTrue();
+        assertThat(buffer.capacity()).isEqualTo(2048);
+
+        buffer.put((byte) 1);
+        pool.release(buffer);
+
+        var reused = pool.leaseDirect(2048);
+        assertThat(reused).isSameAs(buffer);
+        assertThat(reused.position()).isZero();
+        assertThat(reused.limit()).isEqualTo(2048);
+    }
+
+    @Test
+    public void pduReleasesOnlyLeasedBufferTest() {
+        var pool = new BufferPool(4096, 4, false);
+
+        var buffer = pool.lease(100);
+        var pdu = new DefaultPdu(null, null, PduDestination.SERVER, buffer, 100);
+        pdu.setBufferPool(pool);
+        pdu.releaseBuffer();
+        // Released PDU does not share the buffer with the next lease
+        assertThat(pdu.getBuffer()).isEmpty();
+        assertThat(pdu.getSize()).isZero();
+        // Second release must not return the buffer to the pool again
+        pdu.releaseBuffer();
+        assertThat(pool.lease(100)).isSameAs(buffer);
+        assertThat(pool.lease(100)).isNotSameAs(buffer);
+
+        var replaced = new DefaultPdu(null, null, PduDestination.SERVER, buffer, 100);
+        replaced.setBufferPool(pool);
+        replaced.setBuffer(new byte[256], 10);
+        replaced.releaseBuffer();
+        assertThat(pool.lease(100)).isNotSameAs(buffer);
+    }
+
+    @Test
+    public void leakDetectionTest() throws InterruptedException {
+        var pool = new BufferPool(4096, 4, true);
+        assertThat(pool.isLeakDetectionEnabled()).isTrue();
+
+        // Released buffer is not a leak
+        pool.release(pool.lease(100));
+        leaseAndForget(pool);
+
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (pool.getLeakCount() == 0 && System.nanoTime() < deadline) {
+            System.gc();
+            Thread.sleep(50);
+        }
+
+        assertThat(pool.getLeakCount()).isEqualTo(1);
+    }
+
+    private static void leaseAndForget(BufferPool pool) {
+        // Lease buffer of different size class, so that the released buffer is not reused
+        pool.lease(1000);
+    }
+}
@@ -0,0 +1,37 @@
+package com.warxim.petep.core.pdu;
+
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DefaultPduTest {
+    private static final int BUFFER_SIZE = 16384;
+    private static final int DATA_SIZE = 20;
+
+    @Test
+    public void copyCopiesOnlyDataTest() {
+        var buffer = new byte[BUFFER_SIZE];
+        buffer[0] = 1;
+        buffer[DATA_SIZE - 1] = 2;
+        var pdu = new DefaultPdu(null, null, PduDestination.SERVER, buffer, DATA_SIZE);
+
+        var copy = pdu.copy();
+
+        assertThat(copy.getSize()).isEqualTo(DATA_SIZE);
+        assertThat(copy.getBuffer()).hasSize(DATA_SIZE);
+        assertThat(copy.getBuffer()[0]).isEqualTo((byte) 1);
+        assertThat(copy.getBuffer()[DATA_SIZE - 1]).isEqualTo((byte) 2);
+        assertThat(copy.getBuffer()).isNotSameAs(buffer);
+    }
+
+    @Test
+    public void copyTrimsBufferToDataSizeTest() {
+        for (var size : new int[] {0, 1, DATA_SIZE, BUFFER_SIZE - 1, BUFFER_SIZE}) {
+            var pdu = new DefaultPdu(null, null, PduDestination.SERVER, new byte[BUFFER_SIZE], size);
+
+            var copy = pdu.copy();
+
+            assertThat(copy.getBuffer().length).isEqualTo(copy.getSize()).isEqualTo(size);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.warxim.petep.core.pdu;
+
+import com.warxim.petep.test.base.extension.proxy.TestPdu;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PduQueueTest {
+    private static PDU createPdu(int id) {
+        return new TestPdu(null, null, PduDestination.SERVER, new byte[] {(byte) id}, 1);
+    }
+
+    private static PduQueue createQueue(PduQueueType type, BackpressurePolicy policy) {
+        return new PduQueue(PduQueueConfig.builder()
+                .type(type)
+                .capacity(2)
+                .waitStrategy(WaitStrategy.BLOCKING)
+                .backpressurePolicy(policy)
+                .build());
+    }
+
+    @DataProvider(name = "queueTypes")
+    public Object[][] queueTypesProvider() {
+        return new Object[][]{
+                {PduQueueType.LINKED},
+                {PduQueueType.RING_BUFFER},
+        };
+    }
+
+    @Test(dataProvider = "queueTypes")
+    public void dropNewestTest(PduQueueType type) throws InterruptedException {
+        var queue = createQueue(type, BackpressurePolicy.DROP_NEWEST);
+        for (int i = 0; i < 5; ++i) {
+            queue.add(createPdu(i));
+        }
+
+        assertThat(queue.size()).isEqualTo(2);
+        assertThat(queue.getDroppedCount()).isEqualTo(3);
+        assertThat(queue.take().getBuffer()[0]).isEqualTo((byte) 0);
+        assertThat(queue.take().getBuffer()[0]).isEqualTo((byte) 1);
+    }
+
+    @Test(dataProvider = "queueTypes")
+    public void dropOldestTest(PduQueueType type) throws InterruptedException {
+        var queue = createQueue(type, BackpressurePolicy.DROP_OLDEST);
+        for (int i = 0; i < 5; ++i) {
+            queue.add(createPdu(i));
+        }
+
+        assertThat(queue.size()).isEqualTo(2);
+        assertThat(queue.getDroppedCount()).isEqualTo(3);
+        assertThat(queue.take().getBuffer()[0]).isEqualTo((byte) 3);
+        assertThat(queue.take().getBuffer()[0]).isEqualTo((byte) 4);
+    }
+
+    @Test(dataProvider = "queueTypes")
+    public void blockTest(PduQueueType type) throws Exception {
+        var queue = createQueue(type, BackpressurePolicy.BLOCK);
+        queue.add(createPdu(0));
+        queue.add(createPdu(1));
+
+        var producer = CompletableFuture.runAsync(() -> queue.add(createPdu(2)));
+        TimeUnit.MILLISECONDS.sleep(100);
+        assertThat(producer).isNotDone();
+
+        assertThat(queue.take().getBuffer()[0]).isEqualTo((byte) 0);
+        producer.get(1, TimeUnit.SECONDS);
+        assertThat(queue.size()).isEqualTo(2);
+        assertThat(queue.getDroppedCount()).isZero();
+    }
+
+    @Test(dataProvider = "queueTypes")
+    public void offerDoesNotBlockTest(PduQueueType type) throws InterruptedException {
+        var queue = createQueue(type, BackpressurePolicy.BLOCK);
+        assertThat(queue.offer(createPdu(0))).isTrue();
+        assertThat(queue.offer(createPdu(1))).isTrue();
+        assertThat(queue.offer(createPdu(2))).isFalse();
+        assertThat(queue.size()).isEqualTo(2);
+        assertThat(queue.getDroppedCount()).isZero();
+
+        queue.take();
+        assertThat(queue.offer(createPdu(3))).isTrue();
+
+        var droppingQueue = createQueue(type, BackpressurePolicy.DROP_NEWEST);
+        for (int i = 0; i < 3; ++i) {
+            assertThat(droppingQueue.offer(createPdu(i))).isTrue();
+        }
+        assertThat(droppingQueue.getDroppedCount()).isEqualTo(1);
+    }
+
+    @Test(dataProvider = "queueTypes")
+    public void interruptedBlockCountsDroppedTest(PduQueueType type) throws Exception {
+        var queue = createQueue(type, BackpressurePolicy.BLOCK);
+        queue.add(createPdu(0));
+        queue.add(createPdu(1));
+
+        var interrupted = CompletableFuture.supplyAsync(() -> {
+            Thread.currentThread().interrupt();
+            queue.add(createPdu(2));
+            return Thread.interrupted();
+        });
+
+        assertThat(interrupted.get(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(queue.size()).isEqualTo(2);
+        assertThat(queue.getDroppedCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,84 @@
+package com.warxim.petep.core.pdu;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RingBufferQueueTest {
+    @DataProvider(name = "waitStrategies")
+    public Object[][] waitStrategiesProvider() {
+        return new Object[][]{
+                {WaitStrategy.BLOCKING},
+                {WaitStrategy.SPIN_THEN_PARK},
+                {WaitStrategy.YIELDING},
+        };
+    }
+
+    @Test
+    public void capacityIsRoundedToPowerOfTwoTest() {
+        assertThat(new RingBufferQueue<Integer>(1, WaitStrategy.BLOCKING).capacity()).isEqualTo(2);
+        assertThat(new RingBufferQueue<Integer>(5, WaitStrategy.BLOCKING).capacity()).isEqualTo(8);
+        assertThat(new RingBufferQueue<Integer>(1024, WaitStrategy.BLOCKING).capacity()).isEqualTo(1024);
+    }
+
+    @Test
+    public void fifoAndFullQueueTest() {
+        var queue = new RingBufferQueue<Integer>(4, WaitStrategy.BLOCKING);
+        for (int i = 0; i < 4; ++i) {
+            assertThat(queue.offer(i)).isTrue();
+        }
+        assertThat(queue.offer(4)).isFalse();
+        assertThat(queue.size()).isEqualTo(4);
+        assertThat(queue.remainingCapacity()).isZero();
+        assertThat(queue.peek()).isEqualTo(0);
+        assertThat(queue).containsExactly(0, 1, 2, 3);
+
+        for (int i = 0; i < 4; ++i) {
+            assertThat(queue.poll()).isEqualTo(i);
+        }
+        assertThat(queue.poll()).isNull();
+        assertThat(queue.isEmpty()).isTrue();
+    }
+
+    @Test(dataProvider = "waitStrategies")
+    public void timedOperationsTest(WaitStrategy waitStrategy) throws InterruptedException {
+        var queue = new RingBufferQueue<Integer>(2, waitStrategy);
+        assertThat(queue.poll(10, TimeUnit.MILLISECONDS)).isNull();
+        assertThat(queue.offer(1, 10, TimeUnit.MILLISECONDS)).isTrue();
+        assertThat(queue.offer(2, 10, TimeUnit.MILLISECONDS)).isTrue();
+        assertThat(queue.offer(3, 10, TimeUnit.MILLISECONDS)).isFalse();
+        assertThat(queue.poll(10, TimeUnit.MILLISECONDS)).isEqualTo(1);
+    }
+
+    @Test(dataProvider = "waitStrategies")
+    public void multipleProducersTest(WaitStrategy waitStrategy) throws InterruptedException {
+        var producerCount = 4;
+        var itemsPerProducer = 10_000;
+        var queue = new RingBufferQueue<Integer>(16, waitStrategy);
+        var executor = Executors.newFixedThreadPool(producerCount);
+        for (int producer = 0; producer < producerCount; ++producer) {
+            var offset = producer * itemsPerProducer;
+            executor.submit(() -> {
+                for (int i = 0; i < itemsPerProducer; ++i) {
+                    queue.put(offset + i);
+                }
+                return null;
+            });
+        }
+
+        var received = new ArrayList<Integer>(producerCount * itemsPerProducer);
+        for (int i = 0; i < producerCount * itemsPerProducer; ++i) {
+            received.add(queue.take());
+        }
+        executor.shutdown();
+
+        assertThat(new HashSet<>(received)).hasSize(producerCount * itemsPerProducer);
+        assertThat(queue.isEmpty()).isTrue();
+    }
+}
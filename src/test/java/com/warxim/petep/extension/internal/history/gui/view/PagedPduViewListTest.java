@@ -0,0 +1,164 @@
+package com.warxim.petep.extension.internal.history.gui.view;
+
+import com.warxim.petep.extension.internal.history.model.HistoricPduView;
+import javafx.collections.ListChangeListener;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PagedPduViewListTest {
+    private static final int PAGE_SIZE = 10;
+
+    @Test
+    public void loadsPagesLazilyTest() {
+        var ids = LongStream.rangeClosed(1, 95).toArray();
+        var loads = new AtomicInteger();
+        var list = createList(ids, loads);
+
+        assertThat(list).hasSize(95);
+        assertThat(loads.get()).isZero();
+
+        assertThat(list.get(42).getId()).isEqualTo(43);
+        assertThat(list.get(49).getId()).isEqualTo(50);
+        assertThat(list.get(94).getId()).isEqualTo(95);
+        // Two pages loaded (40-49 and 90-94)
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void getIdDoesNotLoadPagesTest() {
+        var ids = LongStream.rangeClosed(1, 95).map(id -> id * 3).toArray();
+        var loads = new AtomicInteger();
+        var list = createList(ids, loads);
+
+        assertThat(list.getId(0)).isEqualTo(3);
+        assertThat(list.getId(94)).isEqualTo(285);
+        assertThat(loads.get()).isZero();
+    }
+
+    @Test
+    public void notifiesAboutLoadedPageTest() {
+        var pending = new ArrayList<Runnable>();
+        var ids = LongStream.rangeClosed(1, 30).toArray();
+        var list = new PagedPduViewList(
+                ids,
+                (afterId, limit) -> CompletableFuture.completedFuture(createViews(afterId, limit)),
+                pending::add,
+                PAGE_SIZE,
+                4);
+        var replaced = new AtomicInteger();
+        list.addListener((ListChangeListener<HistoricPduView>) change -> {
+            while (change.next()) {
+                if (change.wasReplaced()) {
+                    replaced.addAndGet(change.getAddedSize());
+                }
+            }
+        });
+
+        assertThat(list.get(15)).isNull();
+        pending.forEach(Runnable::run);
+
+        assertThat(replaced.get()).isEqualTo(PAGE_SIZE);
+        assertThat(list.get(15).getId()).isEqualTo(16);
+    }
+
+    @Test
+    public void evictsPagesTest() {
+        var ids = LongStream.rangeClosed(1, 100).toArray();
+        var loads = new AtomicInteger();
+        var list = createList(ids, loads);
+
+        for (var i = 0; i < 100; ++i) {
+            list.get(i);
+        }
+        assertThat(loads.get()).isEqualTo(10);
+
+        // Only the last 4 pages are kept
+        list.get(0);
+        assertThat(loads.get()).isEqualTo(11);
+        list.get(99);
+        assertThat(loads.get()).isEqualTo(11);
+    }
+
+    @Test
+    public void addAndRemoveTest() {
+        var database = new TreeSet<Long>();
+        LongStream.rangeClosed(1, 25).forEach(database::add);
+        var list = new PagedPduViewList(
+                LongStream.rangeClosed(1, 25).toArray(),
+                (afterId, limit) -> CompletableFuture.completedFuture(database.tailSet(afterId, false).stream()
+                        .limit(limit)
+                        .map(PagedPduViewListTest::createView)
+                        .collect(Collectors.toList())),
+                Runnable::run,
+                PAGE_SIZE,
+                4);
+        list.get(0);
+
+        database.add(26L);
+        list.add(createView(26));
+        assertThat(list).hasSize(26);
+        assertThat(list.get(25).getId()).isEqualTo(26);
+
+        database.removeAll(List.of(1L, 2L, 26L));
+        list.removeIds(List.of(1L, 2L, 26L));
+        assertThat(list).hasSize(23);
+        assertThat(list.stream().map(HistoricPduView::getId).collect(Collectors.toList()))
+                .isEqualTo(LongStream.rangeClosed(3, 25).boxed().collect(Collectors.toList()));
+    }
+
+    @Test
+    public void addDuringPageLoadTest() {
+        var pending = new ArrayList<Runnable>();
+        var list = new PagedPduViewList(
+                LongStream.rangeClosed(1, 25).toArray(),
+                (afterId, limit) -> CompletableFuture.completedFuture(createViews(afterId, limit)),
+                pending::add,
+                PAGE_SIZE,
+                4);
+
+        // Tail page is requested, new views arrive before it is loaded
+        assertThat(list.get(24)).isNull();
+        list.add(createView(26));
+        list.add(createView(27));
+        pending.forEach(Runnable::run);
+
+        assertThat(list).hasSize(27);
+        assertThat(list.subList(20, 27))
+                .extracting(HistoricPduView::getId)
+                .containsExactly(21L, 22L, 23L, 24L, 25L, 26L, 27L);
+    }
+
+    private static PagedPduViewList createList(long[] ids, AtomicInteger loads) {
+        return new PagedPduViewList(
+                ids,
+                (afterId, limit) -> {
+                    loads.incrementAndGet();
+                    return CompletableFuture.completedFuture(createViews(afterId, limit));
+                },
+                Runnable::run,
+                PAGE_SIZE,
+                4);
+    }
+
+    /**
+     * Creates views with identifiers following after given identifier (identifiers are continuous in tests).
+     */
+    private static List<HistoricPduView> createViews(long afterId, int limit) {
+        return LongStream.rangeClosed(afterId + 1, afterId + limit)
+                .mapToObj(PagedPduViewListTest::createView)
+                .collect(Collectors.toList());
+    }
+
+    private static HistoricPduView createView(long id) {
+        return HistoricPduView.builder().id(id).build();
+    }
+}
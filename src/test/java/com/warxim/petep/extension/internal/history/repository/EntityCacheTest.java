@@ -0,0 +1,59 @@
+package com.warxim.petep.extension.internal.history.repository;
+
+import org.testng.annotations.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class EntityCacheTest {
+    @Test
+    public void evictsLeastRecentlyUsedTest() {
+        var cache = new EntityCache<String, Long>(2);
+        cache.put("a", 1L);
+        cache.put("b", 2L);
+
+        // Touch "a", so that "b" becomes the least recently used
+        assertThat(cache.get("a")).isEqualTo(1L);
+        cache.put("c", 3L);
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get("a")).isEqualTo(1L);
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.get("c")).isEqualTo(3L);
+    }
+
+    @Test
+    public void computeIfAbsentCountsHitsAndMissesTest() {
+        var cache = new EntityCache<String, Long>(16);
+        var calls = new AtomicInteger();
+
+        for (var i = 0; i < 5; ++i) {
+            assertThat(cache.computeIfAbsent("key", key -> (long) calls.incrementAndGet())).isEqualTo(1L);
+        }
+
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(cache.getMissCount()).isEqualTo(1);
+        assertThat(cache.getHitCount()).isEqualTo(4);
+    }
+
+    @Test
+    public void doesNotCacheNullValuesTest() {
+        var cache = new EntityCache<String, Long>(16);
+        var calls = new AtomicInteger();
+
+        assertThat(cache.computeIfAbsent("key", key -> {
+            calls.incrementAndGet();
+            return null;
+        })).isNull();
+        assertThat(cache.computeIfAbsent("key", key -> (long) calls.incrementAndGet())).isEqualTo(2L);
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void invalidMaxSizeTest() {
+        assertThatThrownBy(() -> new EntityCache<String, Long>(0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,244 @@
+package com.warxim.petep.extension.internal.history.repository.database;
+
+import com.warxim.petep.extension.internal.history.model.HistoryFilter;
+import com.warxim.petep.extension.internal.history.repository.DatabaseHistoryRepository;
+import com.warxim.petep.extension.internal.history.util.HistoryDatabaseUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HistoryDatabaseTest {
+    private Path databasePath;
+
+    @BeforeMethod
+    public void beforeMethod() throws IOException {
+        databasePath = Files.createTempFile("petep_history", ".db");
+        Files.delete(databasePath);
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void afterMethod() throws IOException {
+        Files.deleteIfExists(databasePath);
+        Files.deleteIfExists(Path.of(databasePath + "-wal"));
+        Files.deleteIfExists(Path.of(databasePath + "-shm"));
+    }
+
+    @Test
+    public void newDatabaseTest() throws SQLException {
+        try (var database = new HistoryDatabase(getUrl())) {
+            assertThat(database.getSchemaVersion()).isEqualTo(HistoryDatabase.SCHEMA_VERSION);
+            assertThat(getIndexes(database.getConnection())).contains(
+                    "idx_pdu_destination",
+                    "idx_pdu_size",
+                    "idx_pdu_proxy",
+                    "idx_pdu_connection",
+                    "idx_pdu_interceptor",
+                    "idx_pdu_has_tag_tag");
+        }
+    }
+
+    @Test
+    public void upgradeUnversionedDatabaseTest() throws SQLException {
+        // Database created before schema versioning (tables only, user_version = 0)
+        try (var connection = DriverManager.getConnection(getUrl());
+             var stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE tag (id INTEGER PRIMARY KEY, code TEXT NOT NULL UNIQUE);");
+            stmt.execute("INSERT INTO tag(code) VALUES('legacy');");
+        }
+
+        try (var database = new HistoryDatabase(getUrl())) {
+            assertThat(database.getSchemaVersion()).isEqualTo(HistoryDatabase.SCHEMA_VERSION);
+            assertThat(getIndexes(database.getConnection())).contains("idx_pdu_has_tag_tag");
+            try (var stmt = database.getConnection().createStatement();
+                 var result = stmt.executeQuery("SELECT code FROM tag")) {
+                assertThat(result.next()).isTrue();
+                assertThat(result.getString(1)).isEqualTo("legacy");
+            }
+        }
+
+        // Reopening does not run migrations again
+        try (var database = new HistoryDatabase(getUrl())) {
+            assertThat(database.getSchemaVersion()).isEqualTo(HistoryDatabase.SCHEMA_VERSION);
+        }
+    }
+
+    @Test
+    public void upgradeMovesDataToPayloadsTest() throws SQLException {
+        // Database with data stored directly in pdu table
+        try (var connection = DriverManager.getConnection(getUrl());
+             var stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE proxy (id INTEGER PRIMARY KEY, code TEXT NOT NULL, name TEXT NOT NULL);");
+            stmt.execute("CREATE TABLE interceptor (id INTEGER PRIMARY KEY, code TEXT NOT NULL, name TEXT NOT NULL);");
+            stmt.execute("CREATE TABLE connection (id INTEGER PRIMARY KEY, code TEXT NOT NULL, name TEXT NOT NULL);");
+            stmt.execute("CREATE TABLE charset (id INTEGER PRIMARY KEY, code TEXT NOT NULL UNIQUE);");
+            stmt.execute("CREATE TABLE pdu (id INTEGER PRIMARY KEY, id_proxy INTEGER NOT NULL,"
+                    + " id_connection INTEGER NOT NULL, id_interceptor INTEGER NOT NULL, id_charset INTEGER NOT NULL,"
+                    + " destination INTEGER NOT NULL, size INTEGER NOT NULL, time INTEGER NOT NULL, data BLOB NOT NULL);");
+            stmt.execute("INSERT INTO proxy(code, name) VALUES('proxy', 'Proxy');");
+            stmt.execute("INSERT INTO interceptor(code, name) VALUES('history', 'History');");
+            stmt.execute("INSERT INTO connection(code, name) VALUES('c', 'Connection');");
+            stmt.execute("INSERT INTO charset(code) VALUES('UTF-8');");
+            stmt.execute("INSERT INTO pdu(id_proxy, id_connection, id_interceptor, id_charset, destination, size, time, data)"
+                    + " VALUES(1, 1, 1, 1, 0, 4, 0, X'50494E47'), (1, 1, 1, 1, 0, 4, 0, X'50494E47'),"
+                    + " (1, 1, 1, 1, 1, 4, 0, X'504F4E47');");
+        }
+
+        try (var database = new HistoryDatabase(getUrl());
+             var stmt = database.getConnection().createStatement()) {
+            assertThat(database.getSchemaVersion()).isEqualTo(HistoryDatabase.SCHEMA_VERSION);
+            try (var result = stmt.executeQuery("SELECT COUNT(*) FROM payload")) {
+                assertThat(result.getInt(1)).isEqualTo(2);
+            }
+            try (var result = stmt.executeQuery("SELECT COUNT(*) FROM pragma_table_info('pdu') WHERE name = 'data'")) {
+                assertThat(result.getInt(1)).isZero();
+            }
+        }
+
+        var repository = new DatabaseHistoryRepository(getUrl());
+        try {
+            assertThat(repository.getPdu(2)).hasValueSatisfying(pdu -> assertThat(pdu.getData()).isEqualTo("PING".getBytes()));
+            assertThat(repository.getPdu(3)).hasValueSatisfying(pdu -> assertThat(pdu.getData()).isEqualTo("PONG".getBytes()));
+        } finally {
+            repository.close();
+        }
+    }
+
+    @Test
+    public void upgradeConvertsTimeToNanosTest() throws SQLException {
+        // Database with time stored in seconds
+        try (var database = new HistoryDatabase(getUrl());
+             var stmt = database.getConnection().createStatement()) {
+            stmt.execute("INSERT INTO proxy(code, name) VALUES('proxy', 'Proxy');");
+            stmt.execute("INSERT INTO interceptor(code, name) VALUES('history', 'History');");
+            stmt.execute("INSERT INTO connection(code, name) VALUES('c', 'Connection');");
+            stmt.execute("INSERT INTO charset(code) VALUES('UTF-8');");
+            stmt.execute("INSERT INTO pdu(id_proxy, id_connection, id_interceptor, id_charset, destination, size, time)"
+                    + " VALUES(1, 1, 1, 1, 0, 0, 1600000000);");
+            stmt.execute("PRAGMA user_version = " + (HistoryDatabase.SCHEMA_VERSION - 1) + ";");
+        }
+
+        try (var database = new HistoryDatabase(getUrl())) {
+            assertThat(database.getSchemaVersion()).isEqualTo(HistoryDatabase.SCHEMA_VERSION);
+        }
+
+        var repository = new DatabaseHistoryRepository(getUrl());
+        try {
+            assertThat(repository.getPdu(1)).hasValueSatisfying(
+                    pdu -> assertThat(pdu.getTime()).isEqualTo(Instant.ofEpochSecond(1600000000L)));
+        } finally {
+            repository.close();
+        }
+    }
+
+    @Test
+    public void timeFilterUsesIndexTest() throws SQLException {
+        var filter = HistoryFilter.builder()
+                .fromTime(Instant.ofEpochSecond(1600000000L, 1))
+                .toTime(Instant.ofEpochSecond(1600000001L))
+                .build();
+        var sql = HistoryDatabaseUtils.generateFilterQuery("SELECT pdu.id FROM pdu", filter);
+
+        try (var database = new HistoryDatabase(getUrl());
+             var stmt = database.getConnection().prepareStatement("EXPLAIN QUERY PLAN " + sql)) {
+            HistoryDatabaseUtils.bindFilterParameters(stmt, filter);
+            var plan = new StringBuilder();
+            try (var result = stmt.executeQuery()) {
+                while (result.next()) {
+                    plan.append(result.getString("detail")).append('\n');
+                }
+            }
+            assertThat(plan.toString()).contains("idx_pdu_time");
+        }
+    }
+
+    @Test
+    public void timestampConversionTest() {
+        var times = List.of(
+                Instant.ofEpochSecond(0),
+                Instant.ofEpochSecond(1600000000L, 123456789),
+                Instant.ofEpochSecond(-1, 999999999),
+                Instant.ofEpochSecond(-1600000000L, 1));
+        for (var time : times) {
+            assertThat(HistoryDatabaseUtils.fromTimestamp(HistoryDatabaseUtils.toTimestamp(time))).isEqualTo(time);
+        }
+        assertThat(HistoryDatabaseUtils.toTimestamp(Instant.ofEpochSecond(1, 5))).isEqualTo(1000000005L);
+    }
+
+    @Test
+    public void tagFilterUsesIndexTest() throws SQLException {
+        var filter = HistoryFilter.builder()
+                .tags(Set.of("tag"))
+                .build();
+        var sql = HistoryDatabaseUtils.generateFilterQuery("SELECT pdu.id FROM pdu", filter);
+
+        try (var database = new HistoryDatabase(getUrl());
+             var stmt = database.getConnection().prepareStatement("EXPLAIN QUERY PLAN " + sql)) {
+            stmt.setString(1, "tag");
+            var plan = new StringBuilder();
+            try (var result = stmt.executeQuery()) {
+                while (result.next()) {
+                    plan.append(result.getString("detail")).append('\n');
+                }
+            }
+            assertThat(plan.toString()).contains("idx_pdu_has_tag_tag");
+        }
+    }
+
+    @Test
+    public void newDatabaseUsesIncrementalVacuumTest() throws SQLException {
+        try (var database = new HistoryDatabase(getUrl())) {
+            assertThat(database.isIncrementalVacuum()).isTrue();
+            assertThat(getAutoVacuum(database.getConnection())).isEqualTo(2);
+        }
+    }
+
+    @Test
+    public void existingDatabaseIsNotRebuiltTest() throws SQLException {
+        // Database created without incremental vacuum
+        try (var connection = DriverManager.getConnection(getUrl());
+             var stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE tag (id INTEGER PRIMARY KEY, code TEXT NOT NULL UNIQUE);");
+        }
+
+        try (var database = new HistoryDatabase(getUrl())) {
+            assertThat(database.isIncrementalVacuum()).isFalse();
+            assertThat(database.vacuum(100)).isZero();
+            assertThat(getAutoVacuum(database.getConnection())).isZero();
+        }
+    }
+
+    private String getUrl() {
+        return "jdbc:sqlite:" + databasePath.toAbsolutePath();
+    }
+
+    private static List<String> getIndexes(Connection connection) throws SQLException {
+        var indexes = new ArrayList<String>();
+        try (var stmt = connection.createStatement();
+             var result = stmt.executeQuery("SELECT name FROM sqlite_master WHERE type = 'index'")) {
+            while (result.next()) {
+                indexes.add(result.getString(1));
+            }
+        }
+        return indexes;
+    }
+
+    private static int getAutoVacuum(Connection connection) throws SQLException {
+        try (var stmt = connection.createStatement();
+             var result = stmt.executeQuery("PRAGMA auto_vacuum")) {
+            return result.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.warxim.petep.extension.internal.history.service;
+
+import com.warxim.petep.core.pdu.PduDestination;
+import com.warxim.petep.extension.internal.history.model.HistoricPduView;
+import com.warxim.petep.extension.internal.history.model.HistoryFilter;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ColumnarPduViewCacheTest {
+    private static final int VIEW_COUNT = 3000;
+    private static final List<Set<String>> TAG_SETS = List.of(
+            Set.of(),
+            Set.of("a"),
+            Set.of("b"),
+            Set.of("a", "b"),
+            Set.of("a", "b", "c"));
+
+    private List<HistoricPduView> views;
+    private ColumnarPduViewCache cache;
+
+    @BeforeMethod
+    public void beforeMethod() {
+        views = new ArrayList<>();
+        cache = new ColumnarPduViewCache();
+        for (var i = 0; i < VIEW_COUNT; ++i) {
+            var view = createView(i * 2L + 1);
+            views.add(view);
+            cache.add(view);
+        }
+    }
+
+    @DataProvider(name = "filters")
+    public Object[][] filters() {
+        return new Object[][] {
+                {new HistoryFilter()},
+                {HistoryFilter.builder().destination(PduDestination.CLIENT).build()},
+                {HistoryFilter.builder().proxyId(2L).build()},
+                {HistoryFilter.builder().proxyId(100L).build()},
+                {HistoryFilter.builder().connectionId(5L).interceptorId(1L).build()},
+                {HistoryFilter.builder().fromSize(100).toSize(200).build()},
+                {HistoryFilter.builder().tags(Set.of("a")).build()},
+                {HistoryFilter.builder().tags(Set.of("a", "b")).destination(PduDestination.SERVER).build()},
+                {HistoryFilter.builder().tags(Set.of("unknown")).build()},
+        };
+    }
+
+    @Test(dataProvider = "filters")
+    public void filterTest(HistoryFilter filter) {
+        var expected = views.stream()
+                .filter(filter::matches)
+                .collect(Collectors.toList());
+        var snapshot = cache.snapshot();
+
+        assertThat(snapshot.filter(filter)).containsExactlyElementsOf(expected);
+        assertThat(snapshot.filterIds(filter))
+                .containsExactly(expected.stream().mapToLong(HistoricPduView::getId).toArray());
+    }
+
+    @Test(dataProvider = "filters")
+    public void pageTest(HistoryFilter filter) {
+        var expected = views.stream()
+                .filter(view -> view.getId() > 100)
+                .filter(filter::matches)
+                .limit(50)
+                .collect(Collectors.toList());
+
+        // Identifier 100 is not in the cache (only odd identifiers are)
+        assertThat(cache.snapshot().page(filter, 100, 50)).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    public void removeTest() {
+        cache.remove(List.of(1L, 3L, 5999L, 42L));
+
+        assertThat(cache.size()).isEqualTo(VIEW_COUNT - 3);
+        assertThat(cache.snapshot().toList()).containsExactlyElementsOf(views.subList(2, VIEW_COUNT - 1));
+    }
+
+    @Test
+    public void snapshotIsolationTest() {
+        var snapshot = cache.snapshot();
+
+        cache.add(createView(VIEW_COUNT * 2L + 1));
+        cache.remove(List.of(1L));
+        cache.clear();
+
+        assertThat(cache.size()).isZero();
+        assertThat(snapshot.toList()).containsExactlyElementsOf(views);
+    }
+
+    @Test
+    public void reusedEntityIdTest() {
+        cache.clear();
+
+        // Identifiers start again from the beginning after the history is cleared
+        var view = createView(1, "New");
+        cache.add(view);
+        assertThat(cache.snapshot().toList()).containsExactly(view);
+
+        // Identifier reused without clearing (views of the old entity have been removed)
+        cache.remove(List.of(1L));
+        var renamed = createView(2, "Renamed");
+        cache.add(renamed);
+        assertThat(cache.snapshot().toList()).containsExactly(renamed);
+        assertThat(cache.snapshot().filter(HistoryFilter.builder().proxyId(1L).build())).containsExactly(renamed);
+    }
+
+    @Test
+    public void filterByIdsTest() {
+        assertThat(cache.snapshot().filterByIds(Set.of(1L, 7L, 2L)))
+                .containsExactly(views.get(0), views.get(3));
+    }
+
+    private static HistoricPduView createView(long id) {
+        var proxyId = id % 3;
+        var connectionId = id % 7;
+        var interceptorId = id % 2;
+        return HistoricPduView.builder()
+                .id(id)
+                .proxyId(proxyId)
+                .proxyName("Proxy " + proxyId)
+                .connectionId(connectionId)
+                .connectionName("Connection " + connectionId)
+                .interceptorId(interceptorId)
+                .interceptorName("Interceptor " + interceptorId)
+                .destination(id % 4 == 1 ? PduDestination.CLIENT : PduDestination.SERVER)
+                .tags(TAG_SETS.get((int) (id % TAG_SETS.size())))
+                .size((int) (id % 500))
+                .time(Instant.ofEpochSecond(1_600_000_000L + id, id * 1000))
+                .build();
+    }
+
+    private static HistoricPduView createView(long id, String name) {
+        return HistoricPduView.builder()
+                .id(id)
+                .proxyId(1)
+                .proxyName(name + " proxy")
+                .connectionId(1)
+                .connectionName(name + " connection")
+                .interceptorId(1)
+                .interceptorName(name + " interceptor")
+                .destination(PduDestination.SERVER)
+                .tags(Set.of())
+                .size(0)
+                .time(Instant.ofEpochSecond(1_600_000_000L))
+                .build();
+    }
+}
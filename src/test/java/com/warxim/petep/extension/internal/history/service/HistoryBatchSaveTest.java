@@ -0,0 +1,79 @@
+package com.warxim.petep.extension.internal.history.service;
+
+import lombok.extern.java.Log;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Log
+public class HistoryBatchSaveTest extends HistoryTestBase {
+    private static final int PDU_COUNT = 2000;
+
+    @DataProvider(name = "batchConfigs")
+    public Object[][] batchConfigs() {
+        return new Object[][]{
+                {"history_batch_1.db", 1, 0},
+                {"history_batch_100.db", 100, 0},
+                {"history_batch_100_interval.db", 100, 20},
+        };
+    }
+
+    @Test(dataProvider = "batchConfigs")
+    public void batchSaveTest(String database, int batchSize, long flushInterval)
+            throws SQLException, ExecutionException, InterruptedException {
+        var service = createService("jdbc:sqlite:" + getTestFilePath(database), batchSize, flushInterval);
+
+        var futures = savePdus(service);
+
+        // Reading waits for pending PDUs to be written
+        var pdus = service.getPdus().get();
+        assertThat(pdus).hasSize(PDU_COUNT);
+        assertThat(pdus.get(0).getTags()).containsExactlyInAnyOrder("tag_1", "tag_2");
+        assertThat(pdus.get(0).getMetadata()).containsEntry("key_1", "value_1");
+
+        var ids = new HashSet<Long>();
+        for (var future : futures) {
+            ids.add(future.get().orElseThrow());
+        }
+        assertThat(ids).hasSize(PDU_COUNT);
+
+        service.stop();
+    }
+
+    @Test(dataProvider = "batchConfigs", groups = "benchmark")
+    public void batchSaveBenchmarkTest(String database, int batchSize, long flushInterval)
+            throws SQLException, ExecutionException, InterruptedException {
+        var service = createService("jdbc:sqlite:" + getTestFilePath("benchmark_" + database), batchSize, flushInterval);
+
+        var start = System.nanoTime();
+        savePdus(service);
+        service.getPdus().get();
+        var duration = System.nanoTime() - start;
+
+        log.info(String.format(
+                "Saved %d PDUs with batch size %d and flush interval %d ms in %d ms",
+                PDU_COUNT,
+                batchSize,
+                flushInterval,
+                duration / 1_000_000));
+
+        service.stop();
+    }
+
+    private List<CompletableFuture<Optional<Long>>> savePdus(HistoryService service) {
+        var futures = new ArrayList<CompletableFuture<Optional<Long>>>(PDU_COUNT);
+        for (int i = 0; i < PDU_COUNT; ++i) {
+            futures.add(service.savePdu(createHistoricPduBuilder().build()));
+        }
+        return futures;
+    }
+}
@@ -0,0 +1,149 @@
+package com.warxim.petep.extension.internal.history.service;
+
+import com.warxim.petep.extension.internal.history.listener.HistoryListener;
+import com.warxim.petep.extension.internal.history.model.HistoricPdu;
+import com.warxim.petep.extension.internal.history.model.HistoryFilter;
+import com.warxim.petep.extension.internal.history.repository.DatabaseHistoryRepository;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HistoryPayloadTest extends HistoryTestBase {
+    private static final byte[] HEARTBEAT = "PING".getBytes();
+    private static final byte[] LARGE_DATA = ("HTTP/1.1 200 OK\r\n\r\n" + "<p>content</p>".repeat(500) + "END").getBytes();
+
+    @DataProvider(name = "filters")
+    public Object[][] filters() {
+        return new Object[][] {
+                {"PING".getBytes(), HistoryFilter.DataFilterType.CONTAINS, false},
+                {"content".getBytes(), HistoryFilter.DataFilterType.CONTAINS, false},
+                {"HTTP/1.1 200".getBytes(), HistoryFilter.DataFilterType.STARTS_WITH, false},
+                {"END".getBytes(), HistoryFilter.DataFilterType.ENDS_WITH, false},
+                {"END".getBytes(), HistoryFilter.DataFilterType.ENDS_WITH, true},
+        };
+    }
+
+    @Test(dataProvider = "filters")
+    public void compressedDataFilterTest(byte[] data, HistoryFilter.DataFilterType type, boolean negative)
+            throws SQLException, ExecutionException, InterruptedException {
+        var url = createUrl();
+        var service = createCompressingService(url);
+        var pdus = savePdus(service);
+        var filter = HistoryFilter.builder()
+                .data(data)
+                .dataFilterType(type)
+                .dataFilterNegative(negative)
+                .build();
+
+        var expected = pdus.stream()
+                .filter(filter::matches)
+                .map(HistoricPdu::getId)
+                .collect(Collectors.toSet());
+        assertThat(service.getPduIdsByFilter(filter).get()).isEqualTo(expected);
+        assertThat(service.getPdusByFilter(filter).get()).hasSize(expected.size());
+        service.stop();
+    }
+
+    @Test
+    public void deduplicationTest() throws SQLException, ExecutionException, InterruptedException {
+        var url = createUrl();
+        var service = createCompressingService(url);
+        var pdus = savePdus(service);
+        service.stop();
+
+        // Heartbeat and large data are stored only once
+        assertThat(countPayloads(url)).isEqualTo(2);
+
+        service = createCompressingService(url);
+        for (var pdu : pdus) {
+            assertThat(service.getPdu(pdu.getId()).get()).hasValueSatisfying(
+                    stored -> assertThat(stored.getData()).isEqualTo(pdu.getData()));
+        }
+
+        // Payload is deleted with the last PDU, which references it
+        var heartbeatIds = pdus.stream()
+                .filter(pdu -> pdu.getData().length == HEARTBEAT.length)
+                .map(HistoricPdu::getId)
+                .collect(Collectors.toList());
+        service.deletePdus(heartbeatIds.subList(1, heartbeatIds.size())).get();
+        service.stop();
+        assertThat(countPayloads(url)).isEqualTo(2);
+
+        service = createCompressingService(url);
+        service.deletePdu(heartbeatIds.get(0)).get();
+        service.stop();
+        assertThat(countPayloads(url)).isEqualTo(1);
+
+        service = createCompressingService(url);
+        service.clearHistory().get();
+        service.stop();
+        assertThat(countPayloads(url)).isZero();
+    }
+
+    @Test
+    public void compressionTest() throws SQLException, ExecutionException, InterruptedException {
+        var url = createUrl();
+        var service = createCompressingService(url);
+        var pdu = createHistoricPduBuilder()
+                .data(LARGE_DATA)
+                .size(LARGE_DATA.length)
+                .build();
+        var id = service.savePdu(pdu).get().orElseThrow();
+        assertThat(service.getPdu(id).get()).hasValueSatisfying(
+                stored -> assertThat(stored.getData()).isEqualTo(LARGE_DATA));
+        service.stop();
+
+        try (var connection = DriverManager.getConnection(url);
+             var stmt = connection.createStatement();
+             var result = stmt.executeQuery("SELECT compression, length(data) FROM payload")) {
+            assertThat(result.next()).isTrue();
+            assertThat(result.getInt(1)).isNotZero();
+            assertThat(result.getInt(2)).isLessThan(LARGE_DATA.length);
+        }
+    }
+
+    private List<HistoricPdu> savePdus(HistoryService service) throws ExecutionException, InterruptedException {
+        var pdus = new ArrayList<HistoricPdu>();
+        for (var i = 0; i < 10; ++i) {
+            var data = i % 3 == 0 ? LARGE_DATA : HEARTBEAT;
+            pdus.add(createHistoricPduBuilder()
+                    .data(data)
+                    .size(data.length)
+                    .tags(Set.of())
+                    .build());
+        }
+        for (var pdu : pdus) {
+            service.savePdu(pdu);
+        }
+        // Wait for all saved PDUs
+        service.getPduViews().get();
+        return pdus;
+    }
+
+    private DefaultHistoryService createCompressingService(String url) throws SQLException {
+        var repository = new DatabaseHistoryRepository(url);
+        repository.setPayloadCompression(true, 64);
+        return new DefaultHistoryService(repository, new HistoryListener() {});
+    }
+
+    private static String createUrl() {
+        return "jdbc:sqlite:" + getTestFilePath("history_payload_" + System.nanoTime() + ".db");
+    }
+
+    private static int countPayloads(String url) throws SQLException {
+        try (var connection = DriverManager.getConnection(url);
+             var stmt = connection.createStatement();
+             var result = stmt.executeQuery("SELECT COUNT(*) FROM payload")) {
+            return result.getInt(1);
+        }
+    }
+}
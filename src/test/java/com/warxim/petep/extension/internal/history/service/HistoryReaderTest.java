@@ -0,0 +1,56 @@
+package com.warxim.petep.extension.internal.history.service;
+
+import com.warxim.petep.extension.internal.history.model.HistoryFilter;
+import org.testng.annotations.Test;
+
+import java.sql.SQLException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HistoryReaderTest extends HistoryTestBase {
+    private static final String DATABASE_URL = "jdbc:sqlite:" + getTestFilePath("history_reader_test.db");
+
+    @Test
+    public void queryDoesNotBlockWritingTest()
+            throws SQLException, ExecutionException, InterruptedException, TimeoutException {
+        var service = createService(DATABASE_URL);
+        var firstId = service.savePdu(createHistoricPduBuilder().build()).get().orElseThrow();
+
+        // Long running query holds one of the readers
+        var queryStarted = new CountDownLatch(1);
+        var queryReleased = new CountDownLatch(1);
+        var query = service.readAsync(reader -> {
+            queryStarted.countDown();
+            try {
+                queryReleased.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return reader.getOrderedPduIds(HistoryFilter.all());
+        });
+        assertThat(queryStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Writing and other queries are not blocked by the running query
+        var secondId = service.savePdu(createHistoricPduBuilder().build()).get(5, TimeUnit.SECONDS).orElseThrow();
+        assertThat(service.getOrderedPduIds(HistoryFilter.all()).get(5, TimeUnit.SECONDS))
+                .containsExactly(firstId, secondId);
+        assertThat(query).isNotDone();
+
+        queryReleased.countDown();
+        assertThat(query.get(5, TimeUnit.SECONDS)).contains(firstId);
+    }
+
+    @Test
+    public void queriesSeeDeletedPdusTest() throws SQLException, ExecutionException, InterruptedException {
+        var service = createService(DATABASE_URL);
+        var id = service.savePdu(createHistoricPduBuilder().build()).get().orElseThrow();
+
+        service.deletePdu(id);
+        assertThat(service.getPdu(id).get()).isEmpty();
+        assertThat(service.getOrderedPduIds(HistoryFilter.all()).get()).doesNotContain(id);
+    }
+}
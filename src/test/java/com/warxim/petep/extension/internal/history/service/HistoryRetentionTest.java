@@ -0,0 +1,161 @@
+package com.warxim.petep.extension.internal.history.service;
+
+import com.warxim.petep.extension.internal.history.model.HistoricPdu;
+import com.warxim.petep.extension.internal.history.model.HistoricProxy;
+import com.warxim.petep.extension.internal.history.model.HistoryFilter;
+import com.warxim.petep.extension.internal.history.model.HistoryRetentionPolicy;
+import org.testng.annotations.Test;
+
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HistoryRetentionTest extends HistoryTestBase {
+    private static final long TIMEOUT = 10_000;
+    private static final long INTERVAL = 50;
+
+    @Test
+    public void maxPdusTest() throws SQLException, ExecutionException, InterruptedException {
+        var url = createUrl();
+        var service = createService(url);
+        var random = new Random(1);
+        var ids = savePdus(service, 1000, i -> {
+            var data = new byte[1024];
+            random.nextBytes(data);
+            return createHistoricPduBuilder().data(data).size(data.length).build();
+        });
+
+        service.setRetentionPolicy(HistoryRetentionPolicy.builder().maxPdus(100).build(), INTERVAL);
+        var remaining = awaitPduCount(service, 100);
+        assertThat(remaining).isEqualTo(toArray(ids.subList(900, 1000)));
+
+        // Saving is not blocked by the retention, newly saved PDUs are pruned later
+        savePdus(service, 50, i -> createHistoricPduBuilder().build());
+        awaitPduCount(service, 100);
+
+        // Space of the pruned PDUs has been released
+        try (var connection = DriverManager.getConnection(url);
+             var stmt = connection.createStatement()) {
+            try (var result = stmt.executeQuery("PRAGMA auto_vacuum")) {
+                assertThat(result.getInt(1)).isEqualTo(2);
+            }
+            assertThat(awaitFreePages(stmt)).isZero();
+        }
+        service.stop();
+    }
+
+    @Test
+    public void maxAgeTest() throws SQLException, ExecutionException, InterruptedException {
+        var service = createService(createUrl());
+        var now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        var ids = savePdus(service, 600, i -> createHistoricPduBuilder()
+                .time(i % 2 == 0 ? now.minus(1, ChronoUnit.HOURS) : now)
+                .build());
+
+        service.setRetentionPolicy(HistoryRetentionPolicy.builder().maxAgeSeconds(600).build(), INTERVAL);
+        var expected = new ArrayList<Long>();
+        for (var i = 1; i < ids.size(); i += 2) {
+            expected.add(ids.get(i));
+        }
+        assertThat(awaitPduCount(service, expected.size())).isEqualTo(toArray(expected));
+    }
+
+    @Test
+    public void maxBytesTest() throws SQLException, ExecutionException, InterruptedException {
+        var service = createService(createUrl());
+        var ids = savePdus(service, 100, i -> createHistoricPduBuilder()
+                .data(new byte[10])
+                .size(10)
+                .build());
+
+        service.setRetentionPolicy(HistoryRetentionPolicy.builder().maxBytes(505).build(), INTERVAL);
+        assertThat(awaitPduCount(service, 50)).isEqualTo(toArray(ids.subList(50, 100)));
+    }
+
+    @Test
+    public void maxPdusPerProxyTest() throws SQLException, ExecutionException, InterruptedException {
+        var service = createService(createUrl());
+        var ids = savePdus(service, 700, i -> createHistoricPduBuilder()
+                .proxy(HistoricProxy.builder().code(i % 7 == 0 ? "small" : "large").name("Proxy").build())
+                .build());
+
+        service.setRetentionPolicy(HistoryRetentionPolicy.builder().maxPdusPerProxy(150).build(), INTERVAL);
+        var expected = new ArrayList<Long>();
+        var largeCount = 0;
+        for (var i = ids.size() - 1; i >= 0; --i) {
+            if (i % 7 == 0) {
+                expected.add(ids.get(i));
+            } else if (largeCount < 150) {
+                expected.add(ids.get(i));
+                ++largeCount;
+            }
+        }
+        expected.sort(Long::compare);
+        assertThat(awaitPduCount(service, expected.size())).isEqualTo(toArray(expected));
+    }
+
+    private List<Long> savePdus(HistoryService service, int count, PduFactory factory)
+            throws ExecutionException, InterruptedException {
+        var futures = new ArrayList<CompletableFuture<Optional<Long>>>();
+        for (var i = 0; i < count; ++i) {
+            futures.add(service.savePdu(factory.create(i)));
+        }
+        var ids = new ArrayList<Long>(count);
+        for (var future : futures) {
+            ids.add(future.get().orElseThrow());
+        }
+        return ids;
+    }
+
+    private static long[] awaitPduCount(HistoryService service, int count) throws ExecutionException, InterruptedException {
+        var deadline = System.currentTimeMillis() + TIMEOUT;
+        long[] ids;
+        do {
+            ids = service.getOrderedPduIds(HistoryFilter.all()).get();
+            if (ids.length == count) {
+                return ids;
+            }
+            Thread.sleep(INTERVAL);
+        } while (System.currentTimeMillis() < deadline);
+        assertThat(ids).hasSize(count);
+        return ids;
+    }
+
+    private static int awaitFreePages(Statement stmt) throws SQLException, InterruptedException {
+        var deadline = System.currentTimeMillis() + TIMEOUT;
+        int pages;
+        do {
+            try (var result = stmt.executeQuery("PRAGMA freelist_count")) {
+                pages = result.getInt(1);
+            }
+            if (pages == 0) {
+                return pages;
+            }
+            Thread.sleep(INTERVAL);
+        } while (System.currentTimeMillis() < deadline);
+        return pages;
+    }
+
+    private static long[] toArray(List<Long> ids) {
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static String createUrl() {
+        return "jdbc:sqlite:" + getTestFilePath("history_retention_" + System.nanoTime() + ".db");
+    }
+
+    @FunctionalInterface
+    private interface PduFactory {
+        HistoricPdu create(int index);
+    }
+}
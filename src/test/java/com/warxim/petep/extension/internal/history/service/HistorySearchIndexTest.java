@@ -0,0 +1,191 @@
+package com.warxim.petep.extension.internal.history.service;
+
+import com.warxim.petep.extension.internal.history.listener.HistoryListener;
+import com.warxim.petep.extension.internal.history.model.HistoricPdu;
+import com.warxim.petep.extension.internal.history.model.HistoryFilter;
+import com.warxim.petep.extension.internal.history.repository.DatabaseHistoryRepository;
+import com.warxim.petep.extension.internal.history.repository.database.HistoryPayloadStore;
+import com.warxim.petep.extension.internal.history.util.HistoryDatabaseUtils;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HistorySearchIndexTest extends HistoryTestBase {
+    private static final byte[][] DATA = {
+            "GET /index.html HTTP/1.1".getBytes(),
+            "get /INDEX.html http/1.1".getBytes(),
+            "POST /login HTTP/1.1".getBytes(),
+            {0, 0, 1, 2, 3, (byte) 0xFF, (byte) 0xFE, 0},
+            {(byte) 0xFF, (byte) 0xFE, 0, 0, 1},
+            "\"quoted\" data".getBytes(),
+            "ab".getBytes(),
+    };
+
+    @DataProvider(name = "filters")
+    public Object[][] filters() {
+        return new Object[][] {
+                {"index".getBytes(), HistoryFilter.DataFilterType.CONTAINS, false},
+                {"INDEX".getBytes(), HistoryFilter.DataFilterType.CONTAINS, false},
+                {"HTTP/1.1".getBytes(), HistoryFilter.DataFilterType.ENDS_WITH, false},
+                {"GET".getBytes(), HistoryFilter.DataFilterType.STARTS_WITH, false},
+                {"GET".getBytes(), HistoryFilter.DataFilterType.STARTS_WITH, true},
+                {new byte[] {(byte) 0xFF, (byte) 0xFE, 0}, HistoryFilter.DataFilterType.CONTAINS, false},
+                {"\"quoted\"".getBytes(), HistoryFilter.DataFilterType.CONTAINS, false},
+                {"ab".getBytes(), HistoryFilter.DataFilterType.CONTAINS, false},
+                {"missing".getBytes(), HistoryFilter.DataFilterType.CONTAINS, false},
+        };
+    }
+
+    @Test(dataProvider = "filters")
+    public void searchTest(byte[] data, HistoryFilter.DataFilterType type, boolean negative)
+            throws SQLException, ExecutionException, InterruptedException {
+        var url = "jdbc:sqlite:" + getTestFilePath("history_search_" + System.nanoTime() + ".db");
+        var filter = HistoryFilter.builder()
+                .data(data)
+                .dataFilterType(type)
+                .dataFilterNegative(negative)
+                .build();
+
+        // PDUs saved before the index is enabled are indexed when the index is created
+        var pdus = new ArrayList<HistoricPdu>();
+        var service = createService(url);
+        pdus.addAll(savePdus(service));
+        service.stop();
+
+        var repository = new DatabaseHistoryRepository(url);
+        repository.setSearchIndexEnabled(true);
+        assertThat(repository.isSearchIndexEnabled()).isTrue();
+        service = new DefaultHistoryService(repository, new HistoryListener() {});
+        pdus.addAll(savePdus(service));
+
+        // Deleted PDUs are removed from the index
+        var deleted = pdus.remove(0);
+        service.deletePdu(deleted.getId()).get();
+        assertThat(service.getPduIdsByFilter(filter).get()).isEqualTo(getExpectedIds(pdus, filter));
+        assertThat(service.getPduViewsByFilter(filter).get()).hasSize(getExpectedIds(pdus, filter).size());
+
+        service.clearHistory().get();
+        assertThat(service.getPduIdsByFilter(filter).get()).isEmpty();
+        service.stop();
+    }
+
+    @Test
+    public void randomDataTest() throws SQLException, ExecutionException, InterruptedException {
+        var url = "jdbc:sqlite:" + getTestFilePath("history_search_random.db");
+        var repository = new DatabaseHistoryRepository(url);
+        repository.setSearchIndexEnabled(true);
+        var service = new DefaultHistoryService(repository, new HistoryListener() {});
+
+        var random = new Random(42);
+        var pdus = new ArrayList<HistoricPdu>();
+        for (var i = 0; i < 200; ++i) {
+            var data = new byte[random.nextInt(64) + 1];
+            random.nextBytes(data);
+            var pdu = createHistoricPduBuilder().data(data).size(data.length).build();
+            service.savePdu(pdu);
+            pdus.add(pdu);
+        }
+        service.getPduViews().get();
+
+        for (var i = 0; i < 50; ++i) {
+            var source = pdus.get(random.nextInt(pdus.size())).getData();
+            var length = Math.min(source.length, 3 + random.nextInt(4));
+            var offset = random.nextInt(source.length - length + 1);
+            var data = new byte[length];
+            System.arraycopy(source, offset, data, 0, length);
+
+            var filter = HistoryFilter.builder()
+                    .data(data)
+                    .dataFilterType(HistoryFilter.DataFilterType.CONTAINS)
+                    .build();
+            assertThat(service.getPduIdsByFilter(filter).get()).isEqualTo(getExpectedIds(pdus, filter));
+        }
+        service.stop();
+    }
+
+    @Test
+    public void queryUsesIndexTest() throws SQLException {
+        var url = "jdbc:sqlite:" + getTestFilePath("history_search_plan.db");
+        var repository = new DatabaseHistoryRepository(url);
+        repository.setSearchIndexEnabled(true);
+        repository.close();
+
+        var filter = HistoryFilter.builder()
+                .data("index".getBytes())
+                .dataFilterType(HistoryFilter.DataFilterType.CONTAINS)
+                .build();
+        var sql = HistoryDatabaseUtils.generateFilterQuery("SELECT pdu.id FROM pdu", filter, true);
+        try (var connection = DriverManager.getConnection(url);
+             var stmt = prepareStatement(connection, "EXPLAIN QUERY PLAN " + sql)) {
+            HistoryDatabaseUtils.bindFilterParameters(stmt, filter, true);
+            var plan = new StringBuilder();
+            try (var result = stmt.executeQuery()) {
+                while (result.next()) {
+                    plan.append(result.getString("detail")).append('\n');
+                }
+            }
+            // Candidates from the index are looked up by primary key instead of scanning the whole table
+            assertThat(plan.toString())
+                    .contains("pdu_search")
+                    .doesNotContain("SCAN pdu\n");
+        }
+    }
+
+    @Test
+    public void failedIndexingRollsBackBatchTest() throws SQLException {
+        var url = "jdbc:sqlite:" + getTestFilePath("history_search_rollback.db");
+        var repository = new DatabaseHistoryRepository(url);
+        repository.setSearchIndexEnabled(true);
+
+        // Indexing of the PDUs fails
+        try (var connection = DriverManager.getConnection(url);
+             var stmt = connection.createStatement()) {
+            stmt.execute("DROP TABLE pdu_search");
+        }
+
+        var pdus = List.of(
+                createHistoricPduBuilder().data(DATA[0]).size(DATA[0].length).build(),
+                createHistoricPduBuilder().data(DATA[1]).size(DATA[1].length).build());
+        assertThat(repository.savePdus(pdus)).allMatch(Optional::isEmpty);
+        assertThat(repository.getPdus()).isEmpty();
+        repository.close();
+    }
+
+    private List<HistoricPdu> savePdus(DefaultHistoryService service) throws ExecutionException, InterruptedException {
+        var pdus = new ArrayList<HistoricPdu>();
+        for (var data : DATA) {
+            var pdu = createHistoricPduBuilder().data(data).size(data.length).build();
+            service.savePdu(pdu);
+            pdus.add(pdu);
+        }
+        // Wait for the PDUs to be written
+        service.getPduViews().get();
+        return pdus;
+    }
+
+    private static Set<Long> getExpectedIds(List<HistoricPdu> pdus, HistoryFilter filter) {
+        return pdus.stream()
+                .filter(filter::matches)
+                .map(HistoricPdu::getId)
+                .collect(Collectors.toSet());
+    }
+
+    private static PreparedStatement prepareStatement(Connection connection, String sql) throws SQLException {
+        // Data filters decode payloads using function registered by history database
+        HistoryPayloadStore.registerFunctions(connection);
+        return connection.prepareStatement(sql);
+    }
+}
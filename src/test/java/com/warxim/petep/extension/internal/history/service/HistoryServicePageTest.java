@@ -0,0 +1,91 @@
+package com.warxim.petep.extension.internal.history.service;
+
+import com.warxim.petep.core.pdu.PduDestination;
+import com.warxim.petep.extension.internal.history.model.HistoricPduView;
+import com.warxim.petep.extension.internal.history.model.HistoryFilter;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+public class HistoryServicePageTest extends HistoryTestBase {
+    private static final String DATABASE_URL = "jdbc:sqlite:" + getTestFilePath("history_page_test.db");
+    private static final int PDU_COUNT = 1000;
+    private static final int PAGE_SIZE = 64;
+
+    @BeforeClass(alwaysRun = true)
+    public void initialize() throws SQLException, ExecutionException, InterruptedException {
+        var service = createService(DATABASE_URL);
+        for (var i = 0; i < PDU_COUNT; ++i) {
+            service.savePdu(createHistoricPduBuilder()
+                    .destination(i % 2 == 0 ? PduDestination.CLIENT : PduDestination.SERVER)
+                    .size(i)
+                    .build());
+        }
+        // Wait for all saved PDUs
+        service.getPduViews().get();
+        service.stop();
+    }
+
+    @DataProvider(name = "filters")
+    public Object[][] filters() {
+        return new Object[][] {
+                {false, new HistoryFilter()},
+                {true, new HistoryFilter()},
+                {false, HistoryFilter.builder().destination(PduDestination.CLIENT).build()},
+                {true, HistoryFilter.builder().destination(PduDestination.CLIENT).build()},
+                {false, HistoryFilter.builder().fromSize(100).toSize(199).build()},
+                {true, HistoryFilter.builder().fromSize(100).toSize(199).build()},
+        };
+    }
+
+    @Test(dataProvider = "filters")
+    public void pagesTest(boolean cached, HistoryFilter filter) throws SQLException, ExecutionException, InterruptedException {
+        var service = cached ? createServiceWithCache(DATABASE_URL) : createService(DATABASE_URL);
+
+        var expected = service.getPduViewsByFilter(filter).get();
+        var paged = new ArrayList<HistoricPduView>();
+        var afterId = 0L;
+        List<HistoricPduView> page;
+        do {
+            page = service.getPduViewsPage(filter, afterId, PAGE_SIZE).get();
+            assertThat(page.size()).isLessThanOrEqualTo(PAGE_SIZE);
+            paged.addAll(page);
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == PAGE_SIZE);
+
+        assertThat(paged).containsExactlyElementsOf(expected);
+        assertThat(service.getOrderedPduIds(filter).get())
+                .containsExactly(expected.stream().mapToLong(HistoricPduView::getId).toArray());
+
+        service.stop();
+    }
+
+    @Test(dataProvider = "filters")
+    public void defaultPagesTest(boolean cached, HistoryFilter filter) throws SQLException, ExecutionException, InterruptedException {
+        var service = cached ? createServiceWithCache(DATABASE_URL) : createService(DATABASE_URL);
+        var defaultService = mock(HistoryService.class, CALLS_REAL_METHODS);
+        doAnswer(invocation -> service.getPduViewsByFilter(invocation.getArgument(0)))
+                .when(defaultService).getPduViewsByFilter(any());
+
+        var expected = service.getPduViewsPage(filter, PAGE_SIZE, PAGE_SIZE).get();
+        assertThat(defaultService.getPduViewsPage(filter, PAGE_SIZE, PAGE_SIZE).get())
+                .containsExactlyElementsOf(expected);
+        assertThat(defaultService.getOrderedPduIds(filter).get())
+                .containsExactly(service.getOrderedPduIds(filter).get());
+
+        service.stop();
+    }
+}
@@ -61,6 +61,13 @@ public class HistoryTestBase {
         return service;
     }
 
+    protected DefaultHistoryService createService(String databaseUrl, int batchSize, long flushInterval) throws SQLException {
+        var repo = new DatabaseHistoryRepository(databaseUrl);
+        var service = new DefaultHistoryService(repo, new HistoryListener() {}, batchSize, flushInterval);
+        services.add(service);
+        return service;
+    }
+
     protected DefaultHistoryService createServiceWithCache(String databaseUrl) throws SQLException, ExecutionException, InterruptedException {
         var repo = new CachedDatabaseHistoryRepository(databaseUrl);
         var service = new CachedHistoryService(repo, new HistoryListener() {});
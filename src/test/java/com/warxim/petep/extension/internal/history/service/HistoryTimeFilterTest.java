@@ -0,0 +1,95 @@
+package com.warxim.petep.extension.internal.history.service;
+
+import com.warxim.petep.extension.internal.history.model.HistoricPduView;
+import com.warxim.petep.extension.internal.history.model.HistoryFilter;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HistoryTimeFilterTest extends HistoryTestBase {
+    private static final String DATABASE_URL = "jdbc:sqlite:" + getTestFilePath("history_time_filter_test.db");
+    private static final Instant START = Instant.parse("2023-05-01T10:00:00.000000001Z");
+    private static final long STEP_NANOS = 250_000_123L;
+    private static final int PDU_COUNT = 40;
+
+    private final List<Instant> times = new ArrayList<>();
+
+    @BeforeClass(alwaysRun = true)
+    public void initialize() throws SQLException {
+        var service = createService(DATABASE_URL);
+        for (var i = 0; i < PDU_COUNT; ++i) {
+            var time = START.plusNanos(i * STEP_NANOS);
+            times.add(time);
+            service.savePdu(createHistoricPduBuilder().time(time).build());
+        }
+        service.stop();
+    }
+
+    @Test
+    public void preservesTimePrecisionTest() throws SQLException, ExecutionException, InterruptedException {
+        var service = createService(DATABASE_URL);
+
+        var pdus = service.getPdus().get();
+        assertThat(pdus).extracting(pdu -> pdu.getTime()).containsExactlyElementsOf(times);
+        var views = service.getPduViews().get();
+        assertThat(views).extracting(HistoricPduView::getTime).containsExactlyElementsOf(times);
+
+        service.stop();
+    }
+
+    @Test
+    public void filterTimeTest() throws SQLException, ExecutionException, InterruptedException {
+        var service = createService(DATABASE_URL);
+
+        processFilterTimeTest(service);
+
+        service.stop();
+    }
+
+    @Test
+    public void filterTimeTestWithCache() throws SQLException, ExecutionException, InterruptedException {
+        var service = createServiceWithCache(DATABASE_URL);
+
+        processFilterTimeTest(service);
+
+        service.stop();
+    }
+
+    private void processFilterTimeTest(HistoryService service) throws ExecutionException, InterruptedException {
+        // Bounds within single second, bounds exactly on PDU times (inclusive) and one-sided bounds
+        var filters = List.of(
+                HistoryFilter.builder().fromTime(times.get(1)).toTime(times.get(3)).build(),
+                HistoryFilter.builder().fromTime(times.get(5).plusNanos(1)).toTime(times.get(9).minusNanos(1)).build(),
+                HistoryFilter.builder().fromTime(times.get(30)).build(),
+                HistoryFilter.builder().toTime(times.get(0)).build(),
+                HistoryFilter.builder().fromTime(times.get(20)).toTime(times.get(10)).build());
+
+        for (var filter : filters) {
+            var expectedIds = service.getPduViews().get().stream()
+                    .filter(filter::matches)
+                    .map(HistoricPduView::getId)
+                    .collect(Collectors.toList());
+
+            assertThat(service.getPduViewsByFilter(filter).get())
+                    .extracting(HistoricPduView::getId)
+                    .containsExactlyElementsOf(expectedIds);
+            assertThat(service.getPdusByFilter(filter).get())
+                    .allMatch(filter::matches)
+                    .hasSize(expectedIds.size());
+        }
+
+        assertThat(service.getPduViewsByFilter(filters.get(0)).get()).hasSize(3);
+        assertThat(service.getPduViewsByFilter(filters.get(1)).get()).hasSize(3);
+        assertThat(service.getPduViewsByFilter(filters.get(2)).get()).hasSize(PDU_COUNT - 30);
+        assertThat(service.getPduViewsByFilter(filters.get(3)).get()).hasSize(1);
+        assertThat(service.getPduViewsByFilter(filters.get(4)).get()).isEmpty();
+    }
+}
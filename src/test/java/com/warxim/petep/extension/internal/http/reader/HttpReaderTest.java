@@ -0,0 +1,243 @@
+package com.warxim.petep.extension.internal.http.reader;
+
+import com.warxim.petep.common.Constant;
+import com.warxim.petep.core.pdu.PduDestination;
+import com.warxim.petep.extension.internal.http.pdu.HttpPdu;
+import com.warxim.petep.extension.internal.http.pdu.HttpRequestPdu;
+import com.warxim.petep.extension.internal.http.pdu.HttpResponsePdu;
+import com.warxim.petep.extension.internal.http.pdu.HttpUtils;
+import com.warxim.petep.extension.internal.http.pdu.Opcode;
+import lombok.extern.java.Log;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Log
+public class HttpReaderTest {
+    private static final int MAX_LENGTH = 1024;
+    private static final int BENCHMARK_WARMUP_ROUNDS = 3;
+    private static final int BENCHMARK_REQUESTS = 20_000;
+
+    private static final String REQUEST = "POST /api/items?id=1 HTTP/1.1\r\n"
+            + "host: example.com\r\n"
+            + "User-Agent: Mozilla/5.0 (X11; Linux x86_64; rv:109.0) Gecko/20100101 Firefox/115.0\r\n"
+            + "Accept: text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8\r\n"
+            + "Accept-Language: en-US,en;q=0.5\r\n"
+            + "Cookie: a=1\r\n"
+            + "Cookie: b=2\r\n"
+            + "Content-Type: application/json; charset=UTF-8\r\n"
+            + "Content-Length: 13\r\n"
+            + "\r\n"
+            + "{\"id\": \"abc\"}";
+
+    @DataProvider(name = "chunkSizes")
+    public Object[][] chunkSizes() {
+        return new Object[][] {{1}, {7}, {8192}};
+    }
+
+    @Test(dataProvider = "chunkSizes")
+    public void readRequestTest(int chunkSize) throws IOException {
+        var reader = new HttpRequestReader(trickle(REQUEST + REQUEST, chunkSize), MAX_LENGTH, StandardCharsets.ISO_8859_1);
+
+        for (var i = 0; i < 2; ++i) {
+            var request = reader.read();
+            assertThat(request.getMethod()).isEqualTo("POST");
+            assertThat(request.getPath()).isEqualTo("/api/items?id=1");
+            assertThat(request.getVersion()).isEqualTo("HTTP/1.1");
+            assertThat(request.getHeader("Host")).isEqualTo("example.com");
+            assertThat(request.getHeader("Accept-Language")).isEqualTo("en-US,en;q=0.5");
+            assertThat(request.getHeader("Cookie")).isEqualTo("a=1, b=2");
+            assertThat(request.getCharset()).isEqualTo(StandardCharsets.UTF_8);
+            assertThat(new String(request.getBuffer(), 0, request.getSize(), StandardCharsets.UTF_8)).isEqualTo("{\"id\": \"abc\"}");
+        }
+        assertThat(reader.read()).isNull();
+    }
+
+    @Test(dataProvider = "chunkSizes")
+    public void readChunkedResponseTest(int chunkSize) throws IOException {
+        var response = "HTTP/1.1 200 OK\r\n"
+                + "Transfer-Encoding: chunked\r\n"
+                + "\r\n"
+                + "5\r\nHello\r\n"
+                + "7;ext=1\r\n, World\r\n"
+                + "0\r\n\r\n"
+                + "HTTP/1.1 204\r\n"
+                + "\r\n";
+        var reader = new HttpResponseReader(trickle(response, chunkSize), MAX_LENGTH, StandardCharsets.ISO_8859_1);
+
+        var first = reader.read();
+        assertThat(first.getVersion()).isEqualTo("HTTP/1.1");
+        assertThat(first.getStatusCode()).isEqualTo(200);
+        assertThat(first.getStatusMessage()).isEqualTo("OK");
+        assertThat(first.getCharset()).isEqualTo(StandardCharsets.ISO_8859_1);
+        assertThat(new String(first.getBuffer(), 0, first.getSize(), StandardCharsets.UTF_8)).isEqualTo("Hello, World");
+        assertThat(first.getTags()).contains("last_chunk");
+
+        var second = reader.read();
+        assertThat(second.getStatusCode()).isEqualTo(204);
+        assertThat(second.getStatusMessage()).isEmpty();
+        assertThat(second.getSize()).isZero();
+    }
+
+    @Test
+    public void sharedStreamKeepsBufferedWebSocketBytesTest() throws IOException {
+        // Upgrade response followed by WebSocket frame in the same read
+        var output = new ByteArrayOutputStream();
+        output.writeBytes(("HTTP/1.1 101 Switching Protocols\r\n"
+                + "Upgrade: websocket\r\n"
+                + "Connection: Upgrade\r\n"
+                + "\r\n").getBytes(StandardCharsets.ISO_8859_1));
+        output.writeBytes(new byte[] {(byte) 0x81, 0x02, 'h', 'i'});
+
+        var in = new HttpInputStream(new ByteArrayInputStream(output.toByteArray()));
+        var response = new HttpResponseReader(in, MAX_LENGTH, StandardCharsets.ISO_8859_1).read();
+        assertThat(response.getHeader("Upgrade")).isEqualTo("websocket");
+
+        var frame = new WebSocketReader(in, PduDestination.CLIENT, MAX_LENGTH).read();
+        assertThat(frame.getOpcode()).isEqualTo(Opcode.TEXT);
+        assertThat(Arrays.copyOf(frame.getBuffer(), frame.getSize())).isEqualTo("hi".getBytes());
+    }
+
+    @Test
+    public void incompleteHeadersTest() throws IOException {
+        var reader = new HttpRequestReader(trickle("GET / HTTP/1.1\r\nHost: example", 3), MAX_LENGTH, StandardCharsets.ISO_8859_1);
+        assertThat(reader.read()).isNull();
+    }
+
+    @Test
+    public void tooLongLineTest() {
+        var line = "GET /" + "a".repeat(HttpInputStream.MAX_LINE_LENGTH) + " HTTP/1.1\r\n\r\n";
+        var reader = new HttpRequestReader(trickle(line, 65536), MAX_LENGTH, StandardCharsets.ISO_8859_1);
+        assertThatThrownBy(reader::read).isInstanceOf(IOException.class);
+    }
+
+    @Test(groups = "benchmark")
+    public void headerParsingBenchmarkTest() throws IOException {
+        var data = REQUEST.repeat(BENCHMARK_REQUESTS).getBytes(StandardCharsets.ISO_8859_1);
+
+        long legacyTime = 0;
+        long bufferedTime = 0;
+        for (var round = 0; round <= BENCHMARK_WARMUP_ROUNDS; ++round) {
+            legacyTime = measure(() -> readAllLegacy(new ByteArrayInputStream(data)));
+            bufferedTime = measure(() -> readAll(new HttpRequestReader(new ByteArrayInputStream(data), MAX_LENGTH, StandardCharsets.ISO_8859_1)));
+        }
+
+        log.info(String.format(
+                "HTTP request parsing (%d requests): byte-by-byte %.2f us per request, buffered %.2f us per request",
+                BENCHMARK_REQUESTS,
+                legacyTime / 1000.0 / BENCHMARK_REQUESTS,
+                bufferedTime / 1000.0 / BENCHMARK_REQUESTS));
+    }
+
+    /**
+     * Creates input stream, which returns at most chunkSize bytes per read (like socket streams).
+     */
+    private static InputStream trickle(String data, int chunkSize) {
+        return new FilterInputStream(new ByteArrayInputStream(data.getBytes(StandardCharsets.ISO_8859_1))) {
+            @Override
+            public int read(byte[] bytes, int offset, int length) throws IOException {
+                return super.read(bytes, offset, Math.min(length, chunkSize));
+            }
+        };
+    }
+
+    private static long measure(IoRunnable runnable) throws IOException {
+        var start = System.nanoTime();
+        runnable.run();
+        return System.nanoTime() - start;
+    }
+
+    private static void readAll(HttpRequestReader reader) throws IOException {
+        var count = 0;
+        while (reader.read() != null) {
+            ++count;
+        }
+        assertThat(count).isEqualTo(BENCHMARK_REQUESTS);
+    }
+
+    /**
+     * Reads requests using the former byte-by-byte parsing of request line and headers.
+     */
+    private static void readAllLegacy(InputStream in) throws IOException {
+        var count = 0;
+        while (true) {
+            var request = new HttpRequestPdu(null, null, PduDestination.SERVER, null, 0, Constant.DEFAULT_CHARSET);
+            if (!readLegacyRequestLine(in, request) || !readLegacyHeaders(in, request)) {
+                break;
+            }
+            var body = in.readNBytes(Integer.parseInt(request.getHeader("Content-Length")));
+            request.setBuffer(body, body.length);
+            ++count;
+        }
+        assertThat(count).isEqualTo(BENCHMARK_REQUESTS);
+    }
+
+    private static boolean readLegacyRequestLine(InputStream in, HttpRequestPdu request) throws IOException {
+        var builder = new StringBuilder();
+        var part = 0;
+        int currentByte;
+        while ((currentByte = in.read()) != -1) {
+            if (part < 2 && currentByte == ' ') {
+                if (part == 0) {
+                    request.setMethod(builder.toString());
+                } else {
+                    request.setPath(builder.toString());
+                }
+                builder.setLength(0);
+                ++part;
+            } else if (part == 2 && currentByte == '\r') {
+                in.skip(1);
+                request.setVersion(builder.toString());
+                return true;
+            } else {
+                builder.append((char) currentByte);
+            }
+        }
+        return false;
+    }
+
+    private static boolean readLegacyHeaders(InputStream in, HttpPdu pdu) throws IOException {
+        var builder = new StringBuilder();
+        var name = "";
+        var readingName = true;
+        int currentByte;
+        while ((currentByte = in.read()) != -1) {
+            if (readingName) {
+                if (currentByte == ':') {
+                    in.skip(1);
+                    name = HttpUtils.formatHeaderName(builder);
+                    builder.setLength(0);
+                    readingName = false;
+                    continue;
+                } else if (currentByte == '\r') {
+                    in.skip(1);
+                    return true;
+                }
+            } else if (currentByte == '\r') {
+                in.skip(1);
+                var oldValue = pdu.getHeader(name);
+                pdu.addHeader(name, oldValue != null ? oldValue + ", " + builder : builder.toString());
+                builder.setLength(0);
+                readingName = true;
+                continue;
+            }
+            builder.append((char) currentByte);
+        }
+        return false;
+    }
+
+    @FunctionalInterface
+    private interface IoRunnable {
+        void run() throws IOException;
+    }
+}
@@ -0,0 +1,155 @@
+package com.warxim.petep.extension.internal.http.reader;
+
+import com.warxim.petep.core.pdu.PduDestination;
+import com.warxim.petep.extension.internal.http.pdu.Opcode;
+import com.warxim.petep.extension.internal.http.pdu.WebSocketPdu;
+import com.warxim.petep.extension.internal.http.writer.WebSocketWriter;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class WebSocketReaderTest {
+    private static final byte[] MASK = new byte[] {0x12, 0x34, 0x56, 0x78};
+
+    @Test
+    public void extendedLengthRoundTripTest() throws IOException {
+        for (var length : new int[] {125, 126, 0xFFFF, 0x10000, 200_000}) {
+            var data = randomData(length);
+            var frame = createFrame(true, Opcode.BINARY, MASK, data);
+            var pdu = new WebSocketReader(new ByteArrayInputStream(frame), PduDestination.SERVER, 1024 * 1024).read();
+
+            assertThat(pdu.isFinal()).isTrue();
+            assertThat(pdu.getOpcode()).isEqualTo(Opcode.BINARY);
+            assertThat(Arrays.copyOf(pdu.getBuffer(), pdu.getSize())).isEqualTo(data);
+
+            // Writer emits the same header (16-bit length for <= 0xFFFF, 64-bit length otherwise)
+            var out = new ByteArrayOutputStream();
+            new WebSocketWriter(out).write(pdu);
+            assertThat(out.toByteArray()).isEqualTo(frame);
+        }
+    }
+
+    @Test
+    public void largeFrameIsSplitToFragmentsTest() throws IOException {
+        var data = "Large WebSocket text message. ".repeat(350).getBytes(StandardCharsets.UTF_8);
+        var input = new ByteArrayOutputStream();
+        input.writeBytes(createFrame(true, Opcode.TEXT, MASK, data));
+        input.writeBytes(createFrame(true, Opcode.PING, null, "ping".getBytes()));
+
+        var reader = new WebSocketReader(new ByteArrayInputStream(input.toByteArray()), PduDestination.SERVER, 4095);
+        var pdus = new ArrayList<WebSocketPdu>();
+        for (var i = 0; i < 3; ++i) {
+            pdus.add(reader.read());
+        }
+
+        assertThat(pdus).extracting(WebSocketPdu::getOpcode).containsExactly(Opcode.TEXT, Opcode.CONTINUATION, Opcode.CONTINUATION);
+        assertThat(pdus).extracting(WebSocketPdu::isFinal).containsExactly(false, false, true);
+        assertThat(pdus).extracting(WebSocketPdu::getSize).containsExactly(4095, 4095, data.length - 2 * 4095);
+        assertThat(pdus).allMatch(pdu -> pdu.getCharset() == StandardCharsets.UTF_8);
+        assertThat(pdus.get(0).getTags()).contains("chunk");
+        assertThat(pdus.get(2).getTags()).contains("last_chunk");
+        assertThat(concat(pdus)).isEqualTo(data);
+
+        // Stream stays aligned to frames
+        var ping = reader.read();
+        assertThat(ping.getOpcode()).isEqualTo(Opcode.PING);
+        assertThat(Arrays.copyOf(ping.getBuffer(), ping.getSize())).isEqualTo("ping".getBytes());
+
+        // Fragments are written as valid frames
+        var out = new ByteArrayOutputStream();
+        var writer = new WebSocketWriter(out);
+        for (var pdu : pdus) {
+            writer.write(pdu);
+        }
+        var rereader = new WebSocketReader(new ByteArrayInputStream(out.toByteArray()), PduDestination.SERVER, 1024 * 1024);
+        var rewritten = List.of(rereader.read(), rereader.read(), rereader.read());
+        assertThat(rewritten).extracting(WebSocketPdu::getOpcode).containsExactly(Opcode.TEXT, Opcode.CONTINUATION, Opcode.CONTINUATION);
+        assertThat(concat(rewritten)).isEqualTo(data);
+    }
+
+    @Test
+    public void controlFrameIsNotSplitTest() throws IOException {
+        var data = randomData(125);
+        var input = new ByteArrayOutputStream();
+        input.writeBytes(createFrame(true, Opcode.PING, MASK, data));
+        input.writeBytes(createFrame(true, Opcode.CLOSE, null, data));
+
+        var reader = new WebSocketReader(new ByteArrayInputStream(input.toByteArray()), PduDestination.SERVER, 16);
+        var ping = reader.read();
+        assertThat(ping.getOpcode()).isEqualTo(Opcode.PING);
+        assertThat(ping.isFinal()).isTrue();
+        assertThat(ping.getTags()).doesNotContain("chunk", "last_chunk");
+        assertThat(Arrays.copyOf(ping.getBuffer(), ping.getSize())).isEqualTo(data);
+
+        var close = reader.read();
+        assertThat(close.getOpcode()).isEqualTo(Opcode.CLOSE);
+        assertThat(close.isFinal()).isTrue();
+        assertThat(Arrays.copyOf(close.getBuffer(), close.getSize())).isEqualTo(data);
+    }
+
+    @Test
+    public void tooLongControlFrameTest() {
+        var frame = createFrame(true, Opcode.PONG, null, randomData(126));
+        var reader = new WebSocketReader(new ByteArrayInputStream(frame), PduDestination.CLIENT, 1024);
+        assertThatThrownBy(reader::read).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void invalidLengthTest() {
+        var frame = new byte[] {(byte) 0x82, 127, (byte) 0x80, 0, 0, 0, 0, 0, 0, 0};
+        var reader = new WebSocketReader(new ByteArrayInputStream(frame), PduDestination.CLIENT, 1024);
+        assertThatThrownBy(reader::read).isInstanceOf(IOException.class);
+    }
+
+    private static byte[] randomData(int length) {
+        var data = new byte[length];
+        new Random(length).nextBytes(data);
+        return data;
+    }
+
+    private static byte[] concat(List<WebSocketPdu> pdus) {
+        var out = new ByteArrayOutputStream();
+        pdus.forEach(pdu -> out.write(pdu.getBuffer(), 0, pdu.getSize()));
+        return out.toByteArray();
+    }
+
+    /**
+     * Creates WebSocket frame with the shortest length encoding.
+     */
+    private static byte[] createFrame(boolean isFinal, Opcode opcode, byte[] mask, byte[] data) {
+        var out = new ByteArrayOutputStream();
+        out.write((isFinal ? 0x80 : 0) | opcode.getValue());
+        var maskBit = mask == null ? 0 : 0x80;
+        if (data.length <= 125) {
+            out.write(maskBit | data.length);
+        } else if (data.length <= 0xFFFF) {
+            out.write(maskBit | 126);
+            out.write(data.length >> 8);
+            out.write(data.length);
+        } else {
+            out.write(maskBit | 127);
+            for (var shift = 56; shift >= 0; shift -= 8) {
+                out.write((int) ((long) data.length >> shift));
+            }
+        }
+        if (mask == null) {
+            out.writeBytes(data);
+        } else {
+            out.writeBytes(mask);
+            for (var i = 0; i < data.length; ++i) {
+                out.write(data[i] ^ mask[i & 0x3]);
+            }
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,174 @@
+package com.warxim.petep.extension.internal.http.websocket;
+
+import com.warxim.petep.common.Constant;
+import com.warxim.petep.core.pdu.PduDestination;
+import com.warxim.petep.extension.internal.http.pdu.Opcode;
+import com.warxim.petep.extension.internal.http.pdu.WebSocketPdu;
+import com.warxim.petep.extension.internal.http.reader.WebSocketReader;
+import com.warxim.petep.extension.internal.http.writer.WebSocketWriter;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class PerMessageDeflateTest {
+    private static final byte[] MASK = new byte[] {0x37, (byte) 0xfa, 0x21, 0x3d};
+
+    @Test
+    public void parseParametersTest() {
+        var header = "permessage-deflate; client_max_window_bits=10; server_no_context_takeover";
+
+        assertThat(PerMessageDeflateParameters.parse(header, PduDestination.SERVER))
+                .contains(new PerMessageDeflateParameters(false, 10));
+        assertThat(PerMessageDeflateParameters.parse(header, PduDestination.CLIENT))
+                .contains(new PerMessageDeflateParameters(true, 15));
+        assertThat(PerMessageDeflateParameters.parse("x-webkit-deflate-frame", PduDestination.CLIENT)).isEmpty();
+        assertThat(PerMessageDeflateParameters.parse(null, PduDestination.CLIENT)).isEmpty();
+        assertThat(PerMessageDeflateParameters.parse("permessage-deflate; server_max_window_bits=\"99\"", PduDestination.CLIENT))
+                .contains(new PerMessageDeflateParameters(false, 15));
+    }
+
+    @Test
+    public void filterOffersTest() {
+        assertThat(PerMessageDeflateParameters.filterOffers(
+                "x-webkit-deflate-frame, permessage-deflate; client_max_window_bits, permessage-deflate"))
+                .isEqualTo("permessage-deflate; client_max_window_bits, permessage-deflate");
+        assertThat(PerMessageDeflateParameters.filterOffers("x-custom")).isNull();
+        assertThat(PerMessageDeflateParameters.filterOffers(null)).isNull();
+    }
+
+    @Test
+    public void inflateSpecificationExampleTest() throws IOException {
+        // Examples from RFC 7692, section 7.2.3.2 (second message uses context of the first one)
+        var input = new ByteArrayOutputStream();
+        input.writeBytes(createFrame(0xc1, new byte[] {(byte) 0xf2, 0x48, (byte) 0xcd, (byte) 0xc9, (byte) 0xc9, 0x07, 0x00}));
+        input.writeBytes(createFrame(0xc1, new byte[] {(byte) 0xf2, 0x00, 0x11, 0x00, 0x00}));
+        input.writeBytes(createFrame(0x89, "ping".getBytes()));
+        var reader = new WebSocketReader(
+                new ByteArrayInputStream(input.toByteArray()),
+                PduDestination.CLIENT,
+                1024,
+                PerMessageDeflate::new);
+
+        for (var i = 0; i < 2; ++i) {
+            var pdu = reader.read();
+            assertThat(pdu.isRsv1()).isTrue();
+            assertThat(pdu.getCharset()).isEqualTo(StandardCharsets.UTF_8);
+            assertThat(Arrays.copyOf(pdu.getBuffer(), pdu.getSize())).isEqualTo("Hello".getBytes());
+        }
+        var ping = reader.read();
+        assertThat(Arrays.copyOf(ping.getBuffer(), ping.getSize())).isEqualTo("ping".getBytes());
+    }
+
+    @Test
+    public void readerWithoutDeflateKeepsDataTest() throws IOException {
+        var compressed = new byte[] {(byte) 0xf2, 0x48, (byte) 0xcd, (byte) 0xc9, (byte) 0xc9, 0x07, 0x00};
+        var pdu = new WebSocketReader(new ByteArrayInputStream(createFrame(0xc1, compressed)), PduDestination.CLIENT, 1024).read();
+
+        assertThat(pdu.isRsv1()).isTrue();
+        assertThat(Arrays.copyOf(pdu.getBuffer(), pdu.getSize())).isEqualTo(compressed);
+    }
+
+    @Test
+    public void invalidCompressedDataTest() {
+        var frame = createFrame(0xc2, new byte[] {(byte) 0xff, (byte) 0xff, (byte) 0xff});
+        var reader = new WebSocketReader(new ByteArrayInputStream(frame), PduDestination.CLIENT, 1024, PerMessageDeflate::new);
+        assertThatThrownBy(reader::read).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void roundTripTest() throws IOException {
+        for (var windowBits : new int[] {8, 11, 15}) {
+            for (var noContextTakeover : new boolean[] {false, true}) {
+                processRoundTripTest(new PerMessageDeflate(noContextTakeover, windowBits));
+            }
+        }
+    }
+
+    @Test
+    public void writerWithoutDeflateKeepsDataTest() throws IOException {
+        var data = "Not compressed".getBytes();
+        var pdu = createPdu(Opcode.TEXT, true, data);
+        pdu.setRsv1(true);
+
+        var out = new ByteArrayOutputStream();
+        new WebSocketWriter(out, () -> null).write(pdu);
+
+        var read = new WebSocketReader(new ByteArrayInputStream(out.toByteArray()), PduDestination.CLIENT, 1024).read();
+        assertThat(read.isRsv1()).isTrue();
+        assertThat(Arrays.copyOf(read.getBuffer(), read.getSize())).isEqualTo(data);
+    }
+
+    @Test
+    public void invalidWindowBitsTest() {
+        assertThatThrownBy(() -> new PerMessageDeflate(false, 7)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new PerMessageDeflate(false, 16)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private void processRoundTripTest(PerMessageDeflate deflate) throws IOException {
+        var random = new Random(42);
+        var text = "Compressed WebSocket message with repeated content. ".repeat(200).getBytes();
+        var binary = new byte[5000];
+        random.nextBytes(binary);
+
+        // Two single-frame messages, fragmented message with interleaved control frame and empty message
+        var pdus = new ArrayList<WebSocketPdu>();
+        pdus.add(createPdu(Opcode.TEXT, true, text));
+        pdus.add(createPdu(Opcode.TEXT, true, text));
+        pdus.add(createPdu(Opcode.BINARY, false, Arrays.copyOfRange(binary, 0, 3000)));
+        pdus.add(createPdu(Opcode.PING, true, "ping".getBytes()));
+        pdus.add(createPdu(Opcode.CONTINUATION, true, Arrays.copyOfRange(binary, 3000, 5000)));
+        pdus.add(createPdu(Opcode.TEXT, true, new byte[0]));
+        for (var pdu : pdus) {
+            pdu.setRsv1(pdu.getOpcode() != Opcode.CONTINUATION && pdu.getOpcode() != Opcode.PING);
+        }
+
+        var out = new ByteArrayOutputStream();
+        var writer = new WebSocketWriter(out, () -> deflate);
+        for (var pdu : pdus) {
+            writer.write(pdu);
+        }
+        assertThat(out.size()).isLessThan(text.length);
+
+        var reader = new WebSocketReader(
+                new ByteArrayInputStream(out.toByteArray()),
+                PduDestination.CLIENT,
+                1024 * 1024,
+                PerMessageDeflate::new);
+        for (var pdu : pdus) {
+            var read = reader.read();
+            assertThat(read.getOpcode()).isEqualTo(pdu.getOpcode());
+            assertThat(read.isFinal()).isEqualTo(pdu.isFinal());
+            assertThat(read.isRsv1()).isEqualTo(pdu.isRsv1());
+            assertThat(Arrays.copyOf(read.getBuffer(), read.getSize())).isEqualTo(Arrays.copyOf(pdu.getBuffer(), pdu.getSize()));
+        }
+    }
+
+    private static WebSocketPdu createPdu(Opcode opcode, boolean isFinal, byte[] data) {
+        var pdu = new WebSocketPdu(null, null, PduDestination.CLIENT, data, data.length, Constant.DEFAULT_CHARSET);
+        pdu.setOpcode(opcode);
+        pdu.setFinal(isFinal);
+        pdu.setMasked(true);
+        pdu.setMask(MASK);
+        return pdu;
+    }
+
+    /**
+     * Creates unmasked WebSocket frame with given first byte and short payload.
+     */
+    private static byte[] createFrame(int firstByte, byte[] data) {
+        var out = new ByteArrayOutputStream();
+        out.write(firstByte);
+        out.write(data.length);
+        out.writeBytes(data);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,93 @@
+package com.warxim.petep.extension.internal.http.websocket;
+
+import lombok.extern.java.Log;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Log
+public class WebSocketMaskingTest {
+    private static final byte[] MASK = new byte[] {(byte) 0x9a, 0x12, (byte) 0xe4, 0x7f};
+    private static final int BENCHMARK_WARMUP_ROUNDS = 3;
+    private static final int BENCHMARK_PAYLOAD_SIZE = 64 * 1024;
+    private static final int BENCHMARK_ITERATIONS = 2_000;
+
+    @Test
+    public void maskMatchesByteLoopTest() {
+        var random = new Random(7);
+        for (var length = 0; length <= 40; ++length) {
+            for (var maskOffset = 0; maskOffset < 4; ++maskOffset) {
+                for (var sourceOffset = 0; sourceOffset < 3; ++sourceOffset) {
+                    var source = new byte[length + 8];
+                    random.nextBytes(source);
+                    var expected = new byte[length];
+                    maskByteLoop(source, sourceOffset, expected, 0, length, MASK, maskOffset);
+
+                    var target = new byte[length + 5];
+                    WebSocketMasking.mask(source, sourceOffset, target, 5, length, MASK, maskOffset);
+                    assertThat(Arrays.copyOfRange(target, 5, target.length)).isEqualTo(expected);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void maskInPlaceTest() {
+        var data = new byte[1001];
+        new Random(11).nextBytes(data);
+        var original = data.clone();
+
+        // Masking split at unaligned positions and unmasking restores the data
+        WebSocketMasking.mask(data, 0, data, 0, 333, MASK, 0);
+        WebSocketMasking.mask(data, 333, data, 333, 668, MASK, 333);
+        var expected = new byte[data.length];
+        maskByteLoop(original, 0, expected, 0, original.length, MASK, 0);
+        assertThat(data).isEqualTo(expected);
+
+        WebSocketMasking.mask(data, 0, data, 0, data.length, MASK, 0);
+        assertThat(data).isEqualTo(original);
+    }
+
+    @Test(groups = "benchmark")
+    public void maskingBenchmarkTest() {
+        var source = new byte[BENCHMARK_PAYLOAD_SIZE];
+        new Random(3).nextBytes(source);
+        var target = new byte[BENCHMARK_PAYLOAD_SIZE];
+
+        long byteLoopTime = 0;
+        long wideTime = 0;
+        for (var round = 0; round <= BENCHMARK_WARMUP_ROUNDS; ++round) {
+            var start = System.nanoTime();
+            for (var i = 0; i < BENCHMARK_ITERATIONS; ++i) {
+                maskByteLoop(source, 0, target, 0, source.length, MASK, i);
+            }
+            byteLoopTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (var i = 0; i < BENCHMARK_ITERATIONS; ++i) {
+                WebSocketMasking.mask(source, 0, target, 0, source.length, MASK, i);
+            }
+            wideTime = System.nanoTime() - start;
+        }
+
+        var megabytes = (double) BENCHMARK_PAYLOAD_SIZE * BENCHMARK_ITERATIONS / (1024 * 1024);
+        log.info(String.format(
+                "WebSocket masking (%d KiB payload): byte loop %.0f MiB/s, long-wide %.0f MiB/s",
+                BENCHMARK_PAYLOAD_SIZE / 1024,
+                megabytes / (byteLoopTime / 1e9),
+                megabytes / (wideTime / 1e9)));
+    }
+
+    /**
+     * Original byte-by-byte masking loop (reference implementation).
+     */
+    private static void maskByteLoop(byte[] source, int sourceOffset, byte[] target, int targetOffset, int length, byte[] mask, long maskOffset) {
+        var shift = (int) (maskOffset & 0x3);
+        for (var i = 0; i < length; ++i) {
+            target[targetOffset + i] = (byte) (source[sourceOffset + i] ^ mask[(i + shift) & 0x3]);
+        }
+    }
+}
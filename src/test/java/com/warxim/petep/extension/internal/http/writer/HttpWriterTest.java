@@ -0,0 +1,154 @@
+package com.warxim.petep.extension.internal.http.writer;
+
+import com.warxim.petep.core.pdu.PduDestination;
+import com.warxim.petep.extension.internal.http.pdu.HttpRequestPdu;
+import com.warxim.petep.extension.internal.http.pdu.HttpResponsePdu;
+import com.warxim.petep.extension.internal.http.pdu.Opcode;
+import com.warxim.petep.extension.internal.http.pdu.WebSocketPdu;
+import com.warxim.petep.extension.internal.http.reader.WebSocketReader;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HttpWriterTest {
+    @Test
+    public void requestIsWrittenAtOnceTest() throws IOException {
+        var body = "{\"id\": 1}".getBytes(StandardCharsets.UTF_8);
+        var request = new HttpRequestPdu(null, null, PduDestination.SERVER, body, body.length, StandardCharsets.UTF_8);
+        request.setMethod("POST");
+        request.setPath("/items");
+        request.setVersion("HTTP/1.1");
+        request.addHeader("Content-Length", "0");
+
+        var out = new RecordingOutputStream();
+        new HttpRequestWriter(out).write(request);
+
+        assertThat(out.writes).hasSize(1);
+        assertThat(out.flushes).isEqualTo(1);
+        assertThat(out.toString()).isEqualTo("POST /items HTTP/1.1\r\nContent-Length: 9\r\n\r\n{\"id\": 1}");
+    }
+
+    @Test
+    public void chunkedResponseIsWrittenAtOnceTest() throws IOException {
+        var body = "Hello".getBytes(StandardCharsets.UTF_8);
+        var response = new HttpResponsePdu(null, null, PduDestination.CLIENT, body, body.length, StandardCharsets.UTF_8, Set.of("last_chunk"));
+        response.setVersion("HTTP/1.1");
+        response.setStatusCode(200);
+        response.setStatusMessage("OK");
+        response.addHeader("Transfer-Encoding", "chunked");
+
+        var out = new RecordingOutputStream();
+        new HttpResponseWriter(out).write(response);
+
+        assertThat(out.writes).hasSize(1);
+        assertThat(out.toString()).isEqualTo("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n5\r\nHello\r\n0\r\n\r\n");
+    }
+
+    @Test
+    public void largeBodyIsSentWithHeadersTest() throws IOException {
+        var body = new byte[3 * HttpOutputStream.DEFAULT_BUFFER_SIZE];
+        Arrays.fill(body, (byte) 'x');
+        var response = new HttpResponsePdu(null, null, PduDestination.CLIENT, body, body.length, StandardCharsets.UTF_8);
+        response.setVersion("HTTP/1.1");
+        response.setStatusCode(200);
+        response.setStatusMessage("OK");
+        response.addHeader("Content-Length", "0");
+
+        var out = new RecordingOutputStream();
+        new HttpResponseWriter(out).write(response);
+
+        // Headers are sent together with the beginning of the body, the rest is written directly
+        assertThat(out.writes).hasSize(2);
+        assertThat(out.writes.get(0)).hasSize(HttpOutputStream.DEFAULT_BUFFER_SIZE);
+        assertThat(new String(out.writes.get(0), StandardCharsets.ISO_8859_1)).startsWith("HTTP/1.1 200 OK\r\n");
+        assertThat(out.toByteArray()).endsWith(body);
+    }
+
+    @Test
+    public void maskedWebSocketFrameTest() throws IOException {
+        var data = "Hello, WebSocket!".repeat(10).getBytes(StandardCharsets.UTF_8);
+        var pdu = new WebSocketPdu(null, null, PduDestination.SERVER, data.clone(), data.length, StandardCharsets.UTF_8);
+        pdu.setFinal(true);
+        pdu.setOpcode(Opcode.TEXT);
+        pdu.setMasked(true);
+        pdu.setMask(new byte[] {1, 2, 3, 4});
+
+        var out = new RecordingOutputStream();
+        new WebSocketWriter(out).write(pdu);
+
+        assertThat(out.writes).hasSize(1);
+        // PDU buffer is not masked in place
+        assertThat(Arrays.copyOf(pdu.getBuffer(), pdu.getSize())).isEqualTo(data);
+
+        var read = new WebSocketReader(new ByteArrayInputStream(out.toByteArray()), PduDestination.SERVER, 1024).read();
+        assertThat(read.isFinal()).isTrue();
+        assertThat(read.getOpcode()).isEqualTo(Opcode.TEXT);
+        assertThat(read.getMask()).isEqualTo(new byte[] {1, 2, 3, 4});
+        assertThat(Arrays.copyOf(read.getBuffer(), read.getSize())).isEqualTo(data);
+    }
+
+    @Test
+    public void writerSwitchSharesStreamTest() throws IOException {
+        var response = new HttpResponsePdu(null, null, PduDestination.CLIENT, new byte[0], 0, StandardCharsets.UTF_8);
+        response.setVersion("HTTP/1.1");
+        response.setStatusCode(101);
+        response.setStatusMessage("Switching Protocols");
+        response.addHeader("Upgrade", "websocket");
+
+        var frame = new WebSocketPdu(null, null, PduDestination.CLIENT, "hi".getBytes(), 2, StandardCharsets.UTF_8);
+        frame.setFinal(true);
+        frame.setOpcode(Opcode.TEXT);
+
+        var out = new RecordingOutputStream();
+        var stream = new HttpOutputStream(out);
+        new HttpResponseWriter(stream).write(response);
+        new WebSocketWriter(stream).write(frame);
+
+        assertThat(out.writes).hasSize(2);
+        assertThat(out.writes.get(1)).isEqualTo(new byte[] {(byte) 0x81, 0x02, 'h', 'i'});
+    }
+
+    /**
+     * Output stream, which records individual writes.
+     */
+    private static final class RecordingOutputStream extends OutputStream {
+        private final List<byte[]> writes = new ArrayList<>();
+        private int flushes;
+
+        @Override
+        public void write(int b) {
+            writes.add(new byte[] {(byte) b});
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            writes.add(Arrays.copyOfRange(bytes, offset, offset + length));
+        }
+
+        @Override
+        public void flush() {
+            ++flushes;
+        }
+
+        private byte[] toByteArray() {
+            var output = new ByteArrayOutputStream();
+            writes.forEach(output::writeBytes);
+            return output.toByteArray();
+        }
+
+        @Override
+        public String toString() {
+            return new String(toByteArray(), StandardCharsets.ISO_8859_1);
+        }
+    }
+}
@@ -17,19 +17,32 @@
 package com.warxim.petep.extension.internal.tcp;
 
 import com.warxim.petep.common.Constant;
+import com.warxim.petep.core.CoreConfig;
+import com.warxim.petep.core.pdu.BackpressurePolicy;
+import com.warxim.petep.core.pdu.PDU;
+import com.warxim.petep.core.pdu.PduDestination;
+import com.warxim.petep.core.pdu.PduQueueConfig;
+import com.warxim.petep.core.pdu.PduQueueType;
 import com.warxim.petep.extension.internal.tcp.proxy.TcpProxyModule;
 import com.warxim.petep.extension.internal.tcp.proxy.TcpProxyModuleFactory;
+import com.warxim.petep.extension.internal.tcp.proxy.base.TcpPdu;
+import com.warxim.petep.helper.PetepHelper;
+import com.warxim.petep.interceptor.module.InterceptorModule;
+import com.warxim.petep.interceptor.worker.Interceptor;
+import com.warxim.petep.interceptor.worker.InterceptorExecutorConfig;
 import com.warxim.petep.test.base.extension.TestPetepHelper;
 import com.warxim.petep.test.proxy.common.Message;
 import com.warxim.petep.extension.internal.tcp.echo.TestTcpClient;
 import com.warxim.petep.extension.internal.tcp.echo.TestTcpServer;
 import lombok.extern.java.Log;
-import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import java.io.IOException;
+import java.net.Socket;
 import java.net.SocketException;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -38,26 +51,30 @@ import java.util.stream.IntStream;
 
 import static com.warxim.petep.test.proxy.common.Constant.*;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
 
 @Log
 public class TcpTest {
-    private TcpConfig config;
+    @DataProvider(name = "engines")
+    public Object[][] enginesProvider() {
+        return new Object[][]{
+                {TcpEngine.BLOCKING, 20001, 20000},
+                {TcpEngine.NIO, 20003, 20002},
+        };
+    }
 
-    @BeforeClass(alwaysRun = true)
-    public void initialize() {
-        config = TcpConfig.builder()
+    @Test(dataProvider = "engines")
+    public void basicFlowTest(TcpEngine engine, int proxyPort, int targetPort) throws InterruptedException {
+        var config = TcpConfig.builder()
                 .proxyIP("127.0.0.1")
-                .proxyPort(20001)
+                .proxyPort(proxyPort)
                 .targetIP("127.0.0.1")
-                .targetPort(20000)
+                .targetPort(targetPort)
                 .charset(Constant.DEFAULT_CHARSET)
                 .bufferSize(BUFFER_SIZE)
+                .engine(engine)
                 .build();
-    }
-
-    @Test
-    public void basicFlowTest() throws InterruptedException {
-        var server = new TestTcpServer("127.0.0.1", 20000, PARALLEL_CONNECTION_COUNT);
+        var server = new TestTcpServer("127.0.0.1", targetPort, PARALLEL_CONNECTION_COUNT);
 
         var extension = new TcpExtension("tcp");
         var factory = new TcpProxyModuleFactory(extension);
@@ -80,7 +97,7 @@ public class TcpTest {
         var executor = Executors.newFixedThreadPool(PARALLEL_CONNECTION_COUNT);
         IntStream.range(0, PARALLEL_CONNECTION_COUNT)
                 .forEach((id) -> executor.execute(
-                        () -> processSendAndReceiveTest(id, errorCounter, successCounter)
+                        () -> processSendAndReceiveTest(proxyPort, errorCounter, successCounter)
                 ));
 
         // Shutdown test threads
@@ -100,9 +117,153 @@ public class TcpTest {
         assertThat(connectionCount).isZero();
     }
 
-    private static void processSendAndReceiveTest(int id, AtomicInteger errorCounter, AtomicInteger successCounter) {
+    @DataProvider(name = "unreachableEngines")
+    public Object[][] unreachableEnginesProvider() {
+        return new Object[][]{
+                {TcpEngine.BLOCKING, 20005, 20004},
+                {TcpEngine.NIO, 20007, 20006},
+        };
+    }
+
+    @Test(dataProvider = "unreachableEngines")
+    public void unreachableServerTest(TcpEngine engine, int proxyPort, int targetPort) throws IOException {
+        var config = TcpConfig.builder()
+                .proxyIP("127.0.0.1")
+                .proxyPort(proxyPort)
+                .targetIP("127.0.0.1")
+                .targetPort(targetPort)
+                .charset(Constant.DEFAULT_CHARSET)
+                .bufferSize(BUFFER_SIZE)
+                .connectTimeout(1000)
+                .engine(engine)
+                .build();
+
+        var extension = new TcpExtension("tcp");
+        var factory = new TcpProxyModuleFactory(extension);
+        var module = new TcpProxyModule(factory, "tcp", "TCP", "", true);
+        module.loadConfig(config);
+        var testPetepHelper = new TestPetepHelper(
+                List.of(module),
+                List.of(),
+                List.of()
+        );
+
+        testPetepHelper.start();
+
+        // Clients are accepted and closed, since the server cannot be reached
+        for (int i = 0; i < 2; ++i) {
+            try (var client = new Socket("127.0.0.1", proxyPort)) {
+                client.setSoTimeout(5000);
+                assertThat(readOrClosed(client)).isEqualTo(-1);
+            }
+        }
+
+        testPetepHelper.stop();
+
+        int connectionCount = testPetepHelper.getPetep().getProxyManager().get("tcp").getConnectionManager().getList().size();
+        assertThat(connectionCount).isZero();
+    }
+
+    @Test
+    public void fullCoreDoesNotBlockEventLoopTest() throws Exception {
+        var proxyPort = 20009;
+        var targetPort = 20008;
+        var config = TcpConfig.builder()
+                .proxyIP("127.0.0.1")
+                .proxyPort(proxyPort)
+                .targetIP("127.0.0.1")
+                .targetPort(targetPort)
+                .charset(Constant.DEFAULT_CHARSET)
+                .bufferSize(BUFFER_SIZE)
+                .engine(TcpEngine.NIO)
+                .build();
+        var server = new TestTcpServer("127.0.0.1", targetPort, 2);
+
+        // Smallest blocking queues in the core
+        var queueConfig = PduQueueConfig.builder()
+                .type(PduQueueType.LINKED)
+                .capacity(1)
+                .backpressurePolicy(BackpressurePolicy.BLOCK)
+                .build();
+        var executorConfig = InterceptorExecutorConfig.builder()
+                .queue(queueConfig)
+                .build();
+        var coreConfig = CoreConfig.builder()
+                .interceptorExecutorC2S(executorConfig)
+                .interceptorExecutorS2C(executorConfig)
+                .connectionQueue(PduQueueConfig.createDefault())
+                .build();
+
+        var extension = new TcpExtension("tcp");
+        var factory = new TcpProxyModuleFactory(extension);
+        var module = new TcpProxyModule(factory, "tcp", "TCP", "", true);
+        module.loadConfig(config);
+        var release = new CountDownLatch(1);
+        var testPetepHelper = new TestPetepHelper(
+                List.of(module),
+                List.of(new StallingInterceptorModule(release)),
+                List.of(),
+                coreConfig);
+
+        testPetepHelper.start();
+        server.start();
+        waitForServer(targetPort);
+
+        var chunk = "chunk".getBytes();
+        try (var client = new Socket("127.0.0.1", proxyPort)) {
+            client.setSoTimeout(5000);
+            client.setTcpNoDelay(true);
+
+            // Fill the stalled core, so that PDUs read by the event loop are not accepted
+            for (int i = 0; i < 10; ++i) {
+                client.getOutputStream().write(chunk);
+                TimeUnit.MILLISECONDS.sleep(20);
+            }
+            TimeUnit.MILLISECONDS.sleep(200);
+
+            // Event loop still writes PDUs sent to the connection
+            var proxy = testPetepHelper.getPetep().getProxyManager().get("tcp");
+            var connection = proxy.getConnectionManager().getList().get(0);
+            var direct = "direct".getBytes();
+            connection.send(new TcpPdu(proxy, connection, PduDestination.CLIENT, direct, direct.length, Constant.DEFAULT_CHARSET));
+            assertThat(client.getInputStream().readNBytes(direct.length)).isEqualTo(direct);
+
+            // Reading continues once the core accepts PDUs again
+            release.countDown();
+            assertThat(client.getInputStream().readNBytes(10 * chunk.length)).isEqualTo("chunk".repeat(10).getBytes());
+        }
+
+        server.interrupt();
+        testPetepHelper.stop();
+    }
+
+    /**
+     * Waits until the server accepts connections (server socket is bound in server thread).
+     */
+    private static void waitForServer(int port) throws InterruptedException {
+        for (int i = 0; i < 500; ++i) {
+            try {
+                new Socket("127.0.0.1", port).close();
+                return;
+            } catch (IOException e) {
+                TimeUnit.MILLISECONDS.sleep(10);
+            }
+        }
+        fail("Server on port %d did not start!", port);
+    }
+
+    private static int readOrClosed(Socket socket) throws IOException {
         try {
-            var client = new TestTcpClient("127.0.0.1", 20001);
+            return socket.getInputStream().read();
+        } catch (SocketException e) {
+            // Connection reset
+            return -1;
+        }
+    }
+
+    private static void processSendAndReceiveTest(int proxyPort, AtomicInteger errorCounter, AtomicInteger successCounter) {
+        try {
+            var client = new TestTcpClient("127.0.0.1", proxyPort);
             client.start();
 
             processSendAndReceiveTest(client, MESSAGE_1, errorCounter);
@@ -130,4 +291,41 @@ public class TcpTest {
             errorCounter.incrementAndGet();
         }
     }
+
+    /**
+     * Interceptor module, which stalls PDUs until released.
+     */
+    private static final class StallingInterceptorModule extends InterceptorModule {
+        private final CountDownLatch release;
+
+        StallingInterceptorModule(CountDownLatch release) {
+            super(null, "stalling", "stalling", "stalling", true);
+            this.release = release;
+        }
+
+        @Override
+        public Interceptor createInterceptor(int id, PetepHelper helper) {
+            return new Interceptor(id, this, helper) {
+                @Override
+                public boolean prepare() {
+                    return true;
+                }
+
+                @Override
+                public boolean intercept(PDU pdu) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return true;
+                }
+
+                @Override
+                public void stop() {
+                    // No action needed.
+                }
+            };
+        }
+    }
 }
@@ -17,6 +17,7 @@
 package com.warxim.petep.extension.internal.udp;
 
 import com.warxim.petep.common.Constant;
+import com.warxim.petep.core.connection.Connection;
 import com.warxim.petep.extension.internal.udp.proxy.UdpProxyModule;
 import com.warxim.petep.extension.internal.udp.proxy.UdpProxyModuleFactory;
 import com.warxim.petep.test.base.extension.TestPetepHelper;
@@ -28,6 +29,7 @@ import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
 import java.net.SocketException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -40,6 +42,9 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 @Log
 public class UdpTest {
+    private static final int RECEIVE_TIMEOUT = 1000;
+    private static final int RECEIVE_ATTEMPTS = 10;
+
     private UdpConfig config;
 
     @BeforeClass(alwaysRun = true)
@@ -99,6 +104,144 @@ public class UdpTest {
         assertThat(connectionCount).isZero();
     }
 
+    @Test
+    public void idleTimeoutTest() throws InterruptedException, SocketException {
+        var idleConfig = UdpConfig.builder()
+                .proxyIP("127.0.0.1")
+                .proxyPort(20003)
+                .targetIP("127.0.0.1")
+                .targetPort(20002)
+                .charset(Constant.DEFAULT_CHARSET)
+                .bufferSize(BUFFER_SIZE)
+                .idleTimeout(200)
+                .build();
+        var server = new TestUdpServer("127.0.0.1", 20002, 1);
+        var testPetepHelper = createPetepHelper(idleConfig);
+        testPetepHelper.start();
+        server.start();
+
+        var client = new TestUdpClient("127.0.0.1", 20003);
+        client.start();
+        assertThat(sendAndReceive(client, MESSAGE_1)).isEqualTo(MESSAGE_1);
+
+        var connectionManager = testPetepHelper.getPetep().getProxyManager().get("udp").getConnectionManager();
+        assertThat(connectionManager.getList()).hasSize(1);
+
+        // Connection is stopped once it is idle for the timeout
+        for (int i = 0; i < 50 && !connectionManager.getList().isEmpty(); ++i) {
+            Thread.sleep(100);
+        }
+        assertThat(connectionManager.getList()).isEmpty();
+
+        client.close();
+        server.interrupt();
+        testPetepHelper.stop();
+    }
+
+    @Test
+    public void maxConnectionsTest() throws SocketException {
+        var limitedConfig = UdpConfig.builder()
+                .proxyIP("127.0.0.1")
+                .proxyPort(20005)
+                .targetIP("127.0.0.1")
+                .targetPort(20004)
+                .charset(Constant.DEFAULT_CHARSET)
+                .bufferSize(BUFFER_SIZE)
+                .maxConnections(2)
+                .build();
+        var server = new TestUdpServer("127.0.0.1", 20004, 4);
+        var testPetepHelper = createPetepHelper(limitedConfig);
+        testPetepHelper.start();
+        server.start();
+
+        var connectionManager = testPetepHelper.getPetep().getProxyManager().get("udp").getConnectionManager();
+        var clients = new ArrayList<TestUdpClient>();
+        for (int i = 0; i < 4; ++i) {
+            var client = new TestUdpClient("127.0.0.1", 20005);
+            client.start();
+            assertThat(sendAndReceive(client, MESSAGE_1)).isEqualTo(MESSAGE_1);
+            clients.add(client);
+
+            assertThat(connectionManager.getList().size()).isLessThanOrEqualTo(2);
+        }
+
+        // The most recently used client still has its connection
+        assertThat(sendAndReceive(clients.get(3), MESSAGE_2)).isEqualTo(MESSAGE_2);
+
+        clients.forEach(TestUdpClient::close);
+        server.interrupt();
+        testPetepHelper.stop();
+    }
+
+    @Test
+    public void leastRecentlyUsedConnectionIsEvictedTest() throws SocketException {
+        var limitedConfig = UdpConfig.builder()
+                .proxyIP("127.0.0.1")
+                .proxyPort(20007)
+                .targetIP("127.0.0.1")
+                .targetPort(20006)
+                .charset(Constant.DEFAULT_CHARSET)
+                .bufferSize(BUFFER_SIZE)
+                .maxConnections(2)
+                .build();
+        var server = new TestUdpServer("127.0.0.1", 20006, 3);
+        var testPetepHelper = createPetepHelper(limitedConfig);
+        testPetepHelper.start();
+        server.start();
+
+        var connectionManager = testPetepHelper.getPetep().getProxyManager().get("udp").getConnectionManager();
+        var clients = new ArrayList<TestUdpClient>();
+        for (int i = 0; i < 3; ++i) {
+            var client = new TestUdpClient("127.0.0.1", 20007);
+            client.start();
+            clients.add(client);
+        }
+
+        assertThat(sendAndReceive(clients.get(0), MESSAGE_1)).isEqualTo(MESSAGE_1);
+        assertThat(sendAndReceive(clients.get(1), MESSAGE_1)).isEqualTo(MESSAGE_1);
+        // First client becomes the most recently used one, so the second client is evicted
+        assertThat(sendAndReceive(clients.get(0), MESSAGE_2)).isEqualTo(MESSAGE_2);
+        assertThat(sendAndReceive(clients.get(2), MESSAGE_1)).isEqualTo(MESSAGE_1);
+
+        assertThat(connectionManager.getList())
+                .extracting(Connection::getCode)
+                .containsExactlyInAnyOrder(
+                        "127.0.0.1:" + clients.get(0).getLocalPort(),
+                        "127.0.0.1:" + clients.get(2).getLocalPort());
+
+        clients.forEach(TestUdpClient::close);
+        server.interrupt();
+        testPetepHelper.stop();
+    }
+
+    /**
+     * Sends message and waits for the response, the message is resent if the response does not come in time
+     * (test server binds its socket asynchronously, so the first datagram can be lost).
+     */
+    private static Message sendAndReceive(TestUdpClient client, Message message) throws SocketException {
+        client.setTimeout(RECEIVE_TIMEOUT);
+        for (int i = 0; i < RECEIVE_ATTEMPTS; ++i) {
+            client.send(message);
+            var received = client.receive();
+            if (received != null) {
+                return received;
+            }
+        }
+        return null;
+    }
+
+    private static TestPetepHelper createPetepHelper(UdpConfig config) {
+        var extension = new UdpExtension("udp");
+        var factory = new UdpProxyModuleFactory(extension);
+        var module = new UdpProxyModule(factory, "udp", "UDP", "", true);
+        module.loadConfig(config);
+        return new TestPetepHelper(
+                List.of(module),
+                List.of(),
+                List.of()
+        );
+    }
+
     private static void processSendAndReceiveTest(int id, AtomicInteger errorCounter, AtomicInteger successCounter) {
         try {
             var client = new TestUdpClient("127.0.0.1", 20001);
@@ -40,6 +40,10 @@ public class TestUdpClient {
         socket = new DatagramSocket();
     }
 
+    public void setTimeout(int timeout) throws SocketException {
+        socket.setSoTimeout(timeout);
+    }
+
     public void send(Message message) {
         try {
             // Send data
@@ -65,6 +69,10 @@ public class TestUdpClient {
         return null;
     }
 
+    public int getLocalPort() {
+        return socket.getLocalPort();
+    }
+
     public void close() {
         socket.close();
     }
@@ -0,0 +1,57 @@
+package com.warxim.petep.extension.internal.udp.proxy;
+
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TimerWheelTest {
+    private static final long TICK = 10;
+
+    @Test
+    public void expiresItemsAfterDeadlineTest() {
+        var wheel = new TimerWheel<String>(8, TICK, 0);
+        wheel.schedule("a", 25);
+        wheel.schedule("b", 40);
+
+        assertThat(wheel.advance(20)).isEmpty();
+        assertThat(wheel.advance(30)).containsExactly("a");
+        assertThat(wheel.advance(39)).isEmpty();
+        assertThat(wheel.advance(40)).containsExactly("b");
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    public void keepsItemsForLaterRotationsTest() {
+        var wheel = new TimerWheel<String>(4, TICK, 0);
+        // Shares slot with tick 1, but belongs to the third rotation
+        wheel.schedule("late", 90);
+        wheel.schedule("early", 10);
+
+        assertThat(wheel.advance(10)).containsExactly("early");
+        assertThat(wheel.advance(50)).isEmpty();
+        assertThat(wheel.advance(89)).isEmpty();
+        assertThat(wheel.advance(90)).containsExactly("late");
+    }
+
+    @Test
+    public void advanceOverSeveralRotationsTest() {
+        var wheel = new TimerWheel<String>(4, TICK, 0);
+        wheel.schedule("a", 10);
+        wheel.schedule("b", 30);
+        wheel.schedule("c", 200);
+
+        assertThat(wheel.advance(1000)).containsExactlyInAnyOrder("a", "b", "c");
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    public void pastDeadlineExpiresOnNextTickTest() {
+        var wheel = new TimerWheel<String>(4, TICK, 0);
+        wheel.advance(50);
+        wheel.schedule("past", 5);
+
+        assertThat(wheel.size()).isEqualTo(1);
+        assertThat(wheel.advance(59)).isEmpty();
+        assertThat(wheel.advance(60)).containsExactly("past");
+    }
+}
@@ -0,0 +1,195 @@
+package com.warxim.petep.interceptor.worker;
+
+import com.warxim.petep.core.connection.Connection;
+import com.warxim.petep.core.pdu.PDU;
+import com.warxim.petep.core.pdu.PduDestination;
+import com.warxim.petep.core.pdu.PduQueueConfig;
+import com.warxim.petep.helper.PetepHelper;
+import com.warxim.petep.interceptor.module.InterceptorModule;
+import com.warxim.petep.interceptor.module.InterceptorModuleContainer;
+import com.warxim.petep.test.base.extension.proxy.TestConnection;
+import com.warxim.petep.test.base.extension.proxy.TestPdu;
+import lombok.extern.java.Log;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Log
+public class InterceptorExecutorTest {
+    private static final int BENCHMARK_WARMUP_PDUS = 5_000;
+    private static final int BENCHMARK_PDUS = 20_000;
+    private static final int CONNECTION_COUNT = 4;
+    private static final int PDU_COUNT = 1_000;
+
+    private static InterceptorExecutorConfig createConfig(InterceptorExecutionMode mode) {
+        return InterceptorExecutorConfig.builder()
+                .queue(PduQueueConfig.createDefault())
+                .mode(mode)
+                .shards(3)
+                .build();
+    }
+
+    private static InterceptorManager createManager(boolean... blocking) {
+        var modules = new ArrayList<InterceptorModule>(blocking.length);
+        for (int i = 0; i < blocking.length; ++i) {
+            modules.add(new CountingInterceptorModule("interceptor_" + i, blocking[i], !blocking[i]));
+        }
+        return new InterceptorManager(null, new InterceptorModuleContainer(modules));
+    }
+
+    private static PDU createPdu(int id, Connection connection) {
+        var buffer = new byte[] {(byte) id, (byte) (id >> 8), (byte) (id >> 16)};
+        return new TestPdu(null, connection, PduDestination.SERVER, buffer, buffer.length);
+    }
+
+    private static int getPduId(PDU pdu) {
+        var buffer = pdu.getBuffer();
+        return (buffer[0] & 0xFF) | (buffer[1] & 0xFF) << 8 | (buffer[2] & 0xFF) << 16;
+    }
+
+    @DataProvider(name = "modes")
+    public Object[][] modesProvider() {
+        return new Object[][]{
+                {InterceptorExecutionMode.THREAD_PER_INTERCEPTOR},
+                {InterceptorExecutionMode.FUSED},
+                {InterceptorExecutionMode.SHARDED},
+        };
+    }
+
+    @Test(dataProvider = "modes")
+    public void orderAndInjectionTest(InterceptorExecutionMode mode) throws InterruptedException {
+        var manager = createManager(false, false, true, false, false);
+        var output = new LinkedBlockingQueue<PDU>();
+        var executor = new InterceptorExecutor(manager, createConfig(mode), output::add);
+        executor.start();
+
+        var connections = IntStream.range(0, CONNECTION_COUNT)
+                .mapToObj(i -> new TestConnection("connection_" + i, null))
+                .collect(Collectors.toList());
+        for (int i = 0; i < PDU_COUNT; ++i) {
+            executor.intercept(createPdu(i, connections.get(i % CONNECTION_COUNT)), 0);
+        }
+        var received = new ArrayList<PDU>();
+        for (int i = 0; i < PDU_COUNT; ++i) {
+            received.add(output.poll(1, TimeUnit.SECONDS));
+        }
+
+        // PDUs of each connection have to stay in order
+        for (var connection : connections) {
+            assertThat(received)
+                    .filteredOn(pdu -> pdu.getConnection() == connection)
+                    .extracting(InterceptorExecutorTest::getPduId)
+                    .isSorted()
+                    .hasSize(PDU_COUNT / CONNECTION_COUNT);
+        }
+
+        // Inject PDU in the middle of the chain (with stale last interceptor)
+        var pdu = createPdu(PDU_COUNT, connections.get(0));
+        pdu.setLastInterceptor(manager.getList().get(3));
+        executor.intercept(pdu, 1);
+        assertThat(output.poll(1, TimeUnit.SECONDS)).isSameAs(pdu);
+        executor.stop();
+
+        assertThat(manager.getList())
+                .extracting(interceptor -> ((CountingInterceptor) interceptor).getCounter())
+                .containsExactly(PDU_COUNT, PDU_COUNT + 1, PDU_COUNT + 1, PDU_COUNT + 1, PDU_COUNT + 1);
+    }
+
+    @Test(dataProvider = "modes", groups = "benchmark")
+    public void hopLatencyBenchmarkTest(InterceptorExecutionMode mode) throws InterruptedException {
+        var manager = createManager(false, false, false, false, false);
+        var output = new LinkedBlockingQueue<PDU>();
+        var executor = new InterceptorExecutor(manager, createConfig(mode), output::add);
+        executor.start();
+
+        measureLatency(executor, output, BENCHMARK_WARMUP_PDUS);
+        var latency = measureLatency(executor, output, BENCHMARK_PDUS);
+        executor.stop();
+
+        log.info(String.format(
+                "Interceptor chain latency (%s, %d interceptors): %.2f us per PDU",
+                mode,
+                manager.size(),
+                latency / 1000.0));
+    }
+
+    /**
+     * Sends PDUs one by one through the executor and measures average time between intercept and consume.
+     */
+    private static double measureLatency(InterceptorExecutor executor, BlockingQueue<PDU> output, int count) throws InterruptedException {
+        var connection = new TestConnection("benchmark", null);
+        long total = 0;
+        for (int i = 0; i < count; ++i) {
+            var start = System.nanoTime();
+            executor.intercept(createPdu(i, connection), 0);
+            assertThat(output.poll(1, TimeUnit.SECONDS)).isNotNull();
+            total += System.nanoTime() - start;
+        }
+        return (double) total / count;
+    }
+
+    private static final class CountingInterceptorModule extends InterceptorModule {
+        private final boolean blocking;
+        private final boolean threadSafe;
+
+        CountingInterceptorModule(String code, boolean blocking, boolean threadSafe) {
+            super(null, code, code, code, true);
+            this.blocking = blocking;
+            this.threadSafe = threadSafe;
+        }
+
+        @Override
+        public Interceptor createInterceptor(int id, PetepHelper helper) {
+            return new CountingInterceptor(id, this, helper);
+        }
+
+        @Override
+        public boolean isBlocking() {
+            return blocking;
+        }
+
+        @Override
+        public boolean isThreadSafe() {
+            return threadSafe;
+        }
+    }
+
+    private static final class CountingInterceptor extends Interceptor {
+        private final AtomicInteger counter;
+
+        CountingInterceptor(int id, InterceptorModule module, PetepHelper helper) {
+            super(id, module, helper);
+            counter = new AtomicInteger();
+        }
+
+        @Override
+        public boolean prepare() {
+            return true;
+        }
+
+        @Override
+        public boolean intercept(PDU pdu) {
+            counter.incrementAndGet();
+            return true;
+        }
+
+        @Override
+        public void stop() {
+            // No action needed.
+        }
+
+        int getCounter() {
+            return counter.get();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.warxim.petep.test.base.extension;
 
+import com.warxim.petep.core.CoreConfig;
 import com.warxim.petep.core.PETEP;
 import com.warxim.petep.core.PetepState;
 import com.warxim.petep.core.listener.PetepListenerManager;
@@ -38,6 +39,20 @@ public class TestPetepHelper {
     public TestPetepHelper(List<ProxyModule> proxyModules,
                            List<InterceptorModule> interceptorModulesC2S,
                            List<InterceptorModule> interceptorModulesS2C) {
+        this(proxyModules, interceptorModulesC2S, interceptorModulesS2C, CoreConfig.createDefault());
+    }
+
+    /**
+     * Constructs test PETEP helper.
+     * @param proxyModules List of proxy modules to use
+     * @param interceptorModulesC2S List of interceptor modules to use in direction C2S
+     * @param interceptorModulesS2C List of interceptor modules to use in direction S2C
+     * @param coreConfig Configuration of PETEP core
+     */
+    public TestPetepHelper(List<ProxyModule> proxyModules,
+                           List<InterceptorModule> interceptorModulesC2S,
+                           List<InterceptorModule> interceptorModulesS2C,
+                           CoreConfig coreConfig) {
         proxyModuleContainer = new ProxyModuleContainer(proxyModules);
         interceptorModuleContainerC2S = new InterceptorModuleContainer(interceptorModulesC2S);
         interceptorModuleContainerS2C = new InterceptorModuleContainer(interceptorModulesS2C);
@@ -48,7 +63,8 @@ public class TestPetepHelper {
                 proxyModuleContainer,
                 interceptorModuleContainerC2S,
                 interceptorModuleContainerS2C,
-                petepListenerManager);
+                petepListenerManager,
+                coreConfig);
     }
 
     /**
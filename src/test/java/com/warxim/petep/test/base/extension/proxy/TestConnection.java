@@ -2,6 +2,7 @@ package com.warxim.petep.test.base.extension.proxy;
 
 import com.warxim.petep.core.connection.ConnectionBase;
 import com.warxim.petep.core.pdu.PduDestination;
+import com.warxim.petep.core.pdu.PduQueueConfig;
 import com.warxim.petep.proxy.worker.Proxy;
 import lombok.extern.java.Log;
 
@@ -20,6 +21,17 @@ public class TestConnection extends ConnectionBase {
         log.info("TestConnection created");
     }
 
+    /**
+     * Constructs test connection with configured outgoing queues.
+     * @param code Unique code of the connection
+     * @param proxy Proxy to which the connection belongs
+     * @param queueConfig Configuration of outgoing queues
+     */
+    public TestConnection(String code, Proxy proxy, PduQueueConfig queueConfig) {
+        super(code, proxy, queueConfig);
+        log.info("TestConnection created");
+    }
+
     @Override
     public boolean start() {
         log.info("TestConnection started");
@@ -1,5 +1,10 @@
 package com.warxim.petep.test.integration;
 
+import com.warxim.petep.core.CoreConfig;
+import com.warxim.petep.core.pdu.PduQueueConfig;
+import com.warxim.petep.core.pdu.PduQueueType;
+import com.warxim.petep.core.pdu.WaitStrategy;
+import com.warxim.petep.interceptor.worker.InterceptorExecutorConfig;
 import com.warxim.petep.test.base.extension.TestExtensionHelper;
 import com.warxim.petep.test.base.extension.TestPetepHelper;
 import com.warxim.petep.test.base.extension.interceptor.TestInterceptor;
@@ -87,9 +92,47 @@ public class CoreIntegrationTest {
                                 testExtensionHelper.createInterceptorModules(3)
                         )
                 },
+                {
+                        new TestPetepHelper(
+                                testExtensionHelper.createProxyModules(2),
+                                testExtensionHelper.createInterceptorModules(3),
+                                testExtensionHelper.createInterceptorModules(2),
+                                createRingBufferConfig(WaitStrategy.BLOCKING)
+                        )
+                },
+                {
+                        new TestPetepHelper(
+                                testExtensionHelper.createProxyModules(2),
+                                testExtensionHelper.createInterceptorModules(2),
+                                testExtensionHelper.createInterceptorModules(3),
+                                createRingBufferConfig(WaitStrategy.SPIN_THEN_PARK)
+                        )
+                },
+                {
+                        new TestPetepHelper(
+                                testExtensionHelper.createProxyModules(1),
+                                testExtensionHelper.createInterceptorModules(1),
+                                testExtensionHelper.createInterceptorModules(1),
+                                createRingBufferConfig(WaitStrategy.YIELDING)
+                        )
+                },
         };
     }
 
+    private static CoreConfig createRingBufferConfig(WaitStrategy waitStrategy) {
+        var executorConfig = InterceptorExecutorConfig.builder()
+                .queue(PduQueueConfig.builder()
+                        .type(PduQueueType.RING_BUFFER)
+                        .capacity(4)
+                        .waitStrategy(waitStrategy)
+                        .build())
+                .build();
+        return CoreConfig.builder()
+                .interceptorExecutorC2S(executorConfig)
+                .interceptorExecutorS2C(executorConfig)
+                .build();
+    }
+
     @Test(dataProvider = "testPetepHelper")
     public void basicFlowTest(TestPetepHelper testPetepHelper) {
         // Prepare
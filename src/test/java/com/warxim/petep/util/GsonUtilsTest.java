@@ -23,6 +23,7 @@ import org.testng.annotations.Test;
 
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -42,11 +43,25 @@ public class GsonUtilsTest {
         assertThat(deserialized.getCharset()).isEqualTo(StandardCharsets.ISO_8859_1);
     }
 
+    @Test
+    public void instantTest() {
+        var gson = GsonUtils.getGson();
+        var time = Instant.ofEpochSecond(1_600_000_000L, 123_456_789);
+        var data = TestData.builder()
+                .time(time)
+                .build();
+        var serialized = gson.toJsonTree(data);
+        assertThat(serialized.getAsJsonObject().get("time").getAsString()).isEqualTo("2020-09-13T12:26:40.123456789Z");
+        var deserialized = gson.fromJson(serialized, TestData.class);
+        assertThat(deserialized.getTime()).isEqualTo(time);
+    }
+
     @Value
     @Builder
     private static class TestData {
         String name;
         Integer number;
         Charset charset;
+        Instant time;
     }
 }
@@ -87,4 +87,15 @@ public class PduUtilsTest {
         assertThat(pdu.getSize()).isEqualTo(expected.length);
         assertThat(pdu.getBuffer()).startsWith(expected);
     }
+
+    @Test
+    public void serializePduCopiesOnlyDataTest() {
+        var buffer = new byte[4096];
+        System.arraycopy(getBytes("Test"), 0, buffer, 0, 4);
+        var pdu = new TestPdu(null, null, null, buffer, 4);
+
+        var serializedPdu = PduUtils.serializePdu(pdu);
+
+        assertThat(serializedPdu.getBuffer()).isEqualTo(getBytes("Test"));
+    }
 }